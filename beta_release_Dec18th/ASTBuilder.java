@@ -1,285 +1,659 @@
-import java.util.*;
-
-/**
- * Builds Abstract Syntax Trees from BASIC expression strings.
- *
- * This is the "first pass" of the double-pass optimization.
- * Parses expression strings once and creates reusable AST nodes.
- */
-public class ASTBuilder {
-
-    /**
-     * Build an AST from an expression string
-     */
-    public static ExpressionNode buildAST(String expr) {
-        expr = expr.trim();
-
-        if (expr.isEmpty()) {
-            return new ConstantNode(0.0);
-        }
-
-        try {
-            return parseExpression(expr);
-        } catch (Exception e) {
-            System.err.println("AST build error: " + expr + " - " + e.getMessage());
-            return new ConstantNode(0.0);
-        }
-    }
-
-    private static ExpressionNode parseExpression(String expr) {
-        return parseOr(expr);
-    }
-
-    private static ExpressionNode parseOr(String expr) {
-        int level = 0;
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')') level++;
-            if (c == '(') level--;
-
-            if (level == 0 && i >= 2) {
-                String sub = expr.substring(i - 2, i + 1).toUpperCase();
-                if (sub.equals(" OR")) {
-                    ExpressionNode left = parseOr(expr.substring(0, i - 2).trim());
-                    ExpressionNode right = parseAnd(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.OR, right);
-                }
-            }
-        }
-        return parseAnd(expr);
-    }
-
-    private static ExpressionNode parseAnd(String expr) {
-        int level = 0;
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')') level++;
-            if (c == '(') level--;
-
-            if (level == 0 && i >= 3) {
-                String sub = expr.substring(i - 3, i + 1).toUpperCase();
-                if (sub.equals(" AND")) {
-                    ExpressionNode left = parseAnd(expr.substring(0, i - 3).trim());
-                    ExpressionNode right = parseComparison(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.AND, right);
-                }
-            }
-        }
-        return parseComparison(expr);
-    }
-
-    private static ExpressionNode parseComparison(String expr) {
-        int level = 0;
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')') level++;
-            if (c == '(') level--;
-
-            if (level == 0) {
-                // Check two-character operators BEFORE single-character ones
-                if (i > 0 && expr.charAt(i - 1) == '>' && expr.charAt(i) == '=') {
-                    ExpressionNode left = parseAddSub(expr.substring(0, i - 1).trim());
-                    ExpressionNode right = parseAddSub(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.GREATER_EQUAL, right);
-                }
-                if (i > 0 && expr.charAt(i - 1) == '<' && expr.charAt(i) == '=') {
-                    ExpressionNode left = parseAddSub(expr.substring(0, i - 1).trim());
-                    ExpressionNode right = parseAddSub(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.LESS_EQUAL, right);
-                }
-                if (i > 0 && expr.charAt(i - 1) == '<' && expr.charAt(i) == '>') {
-                    ExpressionNode left = parseAddSub(expr.substring(0, i - 1).trim());
-                    ExpressionNode right = parseAddSub(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.NOT_EQUAL, right);
-                }
-
-                // Single-character comparison operators
-                if (c == '>') {
-                    ExpressionNode left = parseAddSub(expr.substring(0, i).trim());
-                    ExpressionNode right = parseAddSub(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.GREATER_THAN, right);
-                }
-                if (c == '<') {
-                    ExpressionNode left = parseAddSub(expr.substring(0, i).trim());
-                    ExpressionNode right = parseAddSub(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.LESS_THAN, right);
-                }
-                if (c == '=') {
-                    ExpressionNode left = parseAddSub(expr.substring(0, i).trim());
-                    ExpressionNode right = parseAddSub(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.EQUAL, right);
-                }
-            }
-        }
-        return parseAddSub(expr);
-    }
-
-    private static ExpressionNode parseAddSub(String expr) {
-        int level = 0;
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')') level++;
-            if (c == '(') level--;
-
-            if (level == 0) {
-                if (c == '+' && i > 0) {
-                    ExpressionNode left = parseAddSub(expr.substring(0, i).trim());
-                    ExpressionNode right = parseMulDiv(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.ADD, right);
-                }
-                if (c == '-' && i > 0 && !isOperator(expr.charAt(i - 1))) {
-                    ExpressionNode left = parseAddSub(expr.substring(0, i).trim());
-                    ExpressionNode right = parseMulDiv(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.SUBTRACT, right);
-                }
-            }
-        }
-        return parseMulDiv(expr);
-    }
-
-    private static ExpressionNode parseMulDiv(String expr) {
-        int level = 0;
-        for (int i = expr.length() - 1; i >= 0; i--) {
-            char c = expr.charAt(i);
-            if (c == ')') level++;
-            if (c == '(') level--;
-
-            if (level == 0) {
-                if (c == '*') {
-                    ExpressionNode left = parseMulDiv(expr.substring(0, i).trim());
-                    ExpressionNode right = parseUnary(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.MULTIPLY, right);
-                }
-                if (c == '/') {
-                    ExpressionNode left = parseMulDiv(expr.substring(0, i).trim());
-                    ExpressionNode right = parseUnary(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.DIVIDE, right);
-                }
-                if (c == '%') {
-                    ExpressionNode left = parseMulDiv(expr.substring(0, i).trim());
-                    ExpressionNode right = parseUnary(expr.substring(i + 1).trim());
-                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.MODULO, right);
-                }
-            }
-        }
-        return parseUnary(expr);
-    }
-
-    private static ExpressionNode parseUnary(String expr) {
-        expr = expr.trim();
-
-        // Unary minus
-        if (expr.startsWith("-")) {
-            ExpressionNode operand = parseUnary(expr.substring(1).trim());
-            return new UnaryOpNode(UnaryOpNode.UnaryOperator.NEGATE, operand);
-        }
-
-        // NOT operator
-        if (expr.toUpperCase().startsWith("NOT ")) {
-            ExpressionNode operand = parseUnary(expr.substring(4).trim());
-            return new UnaryOpNode(UnaryOpNode.UnaryOperator.NOT, operand);
-        }
-
-        return parsePrimary(expr);
-    }
-
-    private static ExpressionNode parsePrimary(String expr) {
-        expr = expr.trim();
-
-        // Parenthesized expression
-        if (expr.startsWith("(") && expr.endsWith(")")) {
-            return parseExpression(expr.substring(1, expr.length() - 1));
-        }
-
-        // Check for FN prefix (user-defined functions)
-        if (expr.trim().toUpperCase().startsWith("FN ")) {
-            // Extract function name and arguments from "FN FNAME(args)"
-            String fnExpr = expr.trim().substring(3).trim(); // Remove "FN "
-            int parenPos = fnExpr.indexOf('(');
-            if (parenPos > 0 && fnExpr.endsWith(")")) {
-                String functionName = fnExpr.substring(0, parenPos).trim().toUpperCase();
-                String argsStr = fnExpr.substring(parenPos + 1, fnExpr.length() - 1);
-                List<ExpressionNode> args = parseArgumentList(argsStr);
-                return new FunctionCallNode(functionName, args);
-            }
-        }
-
-        // Check for function call or array access
-        int parenPos = expr.indexOf('(');
-        if (parenPos > 0 && expr.endsWith(")")) {
-            String name = expr.substring(0, parenPos).trim().toUpperCase();
-            String argsStr = expr.substring(parenPos + 1, expr.length() - 1);
-
-            // Check if it's a known function
-            if (isBuiltInFunction(name)) {
-                List<ExpressionNode> args = parseArgumentList(argsStr);
-                return new FunctionCallNode(name, args);
-            } else {
-                // It's an array access
-                List<ExpressionNode> indices = parseArgumentList(argsStr);
-                return new ArrayAccessNode(name, indices);
-            }
-        }
-
-        // Try to parse as number
-        try {
-            double value = Double.parseDouble(expr);
-            return new ConstantNode(value);
-        } catch (NumberFormatException e) {
-            // Not a number, must be a variable
-        }
-
-        // Variable reference
-        return new VariableNode(expr);
-    }
-
-    private static List<ExpressionNode> parseArgumentList(String argsStr) {
-        List<ExpressionNode> args = new ArrayList<>();
-        if (argsStr.trim().isEmpty()) {
-            return args;
-        }
-
-        // Split by commas, respecting parentheses
-        List<String> argStrings = splitArguments(argsStr);
-        for (String argStr : argStrings) {
-            args.add(parseExpression(argStr.trim()));
-        }
-
-        return args;
-    }
-
-    private static List<String> splitArguments(String argsStr) {
-        List<String> result = new ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        int depth = 0;
-
-        for (char c : argsStr.toCharArray()) {
-            if (c == '(') depth++;
-            else if (c == ')') depth--;
-            else if (c == ',' && depth == 0) {
-                result.add(current.toString().trim());
-                current = new StringBuilder();
-                continue;
-            }
-            current.append(c);
-        }
-        result.add(current.toString().trim());
-
-        return result;
-    }
-
-    private static boolean isBuiltInFunction(String name) {
-        switch (name) {
-            case "SIN": case "COS": case "TAN": case "ABS": case "INT":
-            case "SQR": case "LOG": case "EXP": case "ATN": case "SGN": case "RND":
-            case "LEN": case "ASC": case "VAL":
-                return true;
-            default:
-                return false;
-        }
-    }
-
-    private static boolean isOperator(char c) {
-        return c == '+' || c == '-' || c == '*' || c == '/' || c == '(' || c == '<' || c == '>' || c == '=';
-    }
-}
+import java.util.*;
+
+/**
+ * Builds Abstract Syntax Trees from BASIC expression strings.
+ *
+ * This is the "first pass" of the double-pass optimization.
+ * Parses expression strings once and creates reusable AST nodes.
+ *
+ * ExpressionLexer splits the text into tokens once; a precedence-climbing
+ * (Pratt) parser then builds the tree in a single left-to-right pass.
+ * From loosest to tightest binding:
+ *
+ *   XOR
+ *   OR
+ *   AND
+ *   =  <>  <  >  <=  >=
+ *   +  -
+ *   SHL  SHR
+ *   *  /  %  MOD
+ *   unary -, +, NOT
+ *   ^
+ *
+ * All binary operators are left-associative, so 2^3^2 is (2^3)^2 and
+ * -2^2 is -(2^2), as in Microsoft BASIC. String operands (literals, A$
+ * variables, A$(I) array elements, + concatenation and the string
+ * functions) may appear in comparisons and as the argument of LEN, ASC,
+ * VAL and INSTR; buildString builds a whole string expression for PRINT,
+ * LET A$ and TEXT. Numeric arguments inside them (LEFT$(A$, N + 1)) are
+ * ordinary ExpressionNodes.
+ *
+ * Integer variables become IntegerVariableNodes. An arithmetic operator
+ * whose operands are both integers (and not both constants) becomes an
+ * IntegerOpNode, so I% + 1 stays in int arithmetic.
+ *
+ * AND, OR, XOR, SHL and SHR always work bit by bit on their operands
+ * rounded to integers, whatever their type: 7 AND 3, E% AND 3 and X AND 3
+ * (X = 7) are all 3. Conditions give 1 or 0, so AND and OR of two
+ * conditions are logical as well; those stay short-circuit BinaryOpNodes.
+ * NOT complements the bits of an integer operand (NOT 0 is -1, F% AND
+ * NOT 4 clears bit 2) and is logical for a condition or a double, so
+ * NOT (X > 1) and NOT DONE still give 1 or 0.
+ *
+ * A power with a constant exponent is reduced as it is built: X^2 and
+ * other small integer powers become a PowerNode (multiplication), X^0.5
+ * becomes SQR(X) and X^1 is X. Other exponents use Math.pow.
+ */
+public class ASTBuilder {
+    // Binding power of each binary operator; 0 ends an expression
+    private static final int XOR = 1;
+    private static final int OR = 2;
+    private static final int AND = 3;
+    private static final int COMPARISON = 4;
+    private static final int ADDITIVE = 5;
+    private static final int SHIFT = 6;
+    private static final int MULTIPLICATIVE = 7;
+    private static final int UNARY = 8;
+    private static final int POWER = 9;
+
+    private final VariableStore variables;  // null: variables are looked up by name
+    private final List<String> parameters;  // DEF FN parameters, read from the call frame
+    private List<ExpressionLexer.Token> tokens;
+    private int position;
+
+    private ASTBuilder(VariableStore variables, List<String> parameters) {
+        this.variables = variables;
+        this.parameters = parameters;
+    }
+
+    /**
+     * Build an AST from an expression string
+     */
+    public static ExpressionNode buildAST(String expr) {
+        return buildAST(expr, null);
+    }
+
+    /**
+     * Build an AST whose variable references are bound to slots in the given store.
+     * Syntax errors become load errors while a program loads and are reported
+     * on stderr otherwise; the expression evaluates to 0.
+     */
+    public static ExpressionNode buildAST(String expr, VariableStore variables) {
+        return buildAST(expr, variables, Collections.emptyList());
+    }
+
+    /**
+     * Build the body of a DEF FN: names in the parameter list become
+     * ParameterNodes, all other variables are bound as usual
+     */
+    public static ExpressionNode buildAST(String expr, VariableStore variables, List<String> parameters) {
+        try {
+            return parse(expr, variables, parameters);
+        } catch (IllegalArgumentException e) {
+            syntaxError(expr, e, variables);
+            return new ConstantNode(0.0);
+        }
+    }
+
+    /**
+     * Build an AST, throwing on syntax errors instead of reporting them
+     *
+     * @throws IllegalArgumentException with the column of the error in its message
+     */
+    public static ExpressionNode parse(String expr, VariableStore variables) {
+        return parse(expr, variables, Collections.emptyList());
+    }
+
+    /**
+     * Build a comma-separated list of expressions, such as the indices
+     * in A(X, Y) = v or the sizes in DIM A(W, H). Syntax errors are
+     * reported and the list is a single 0.
+     */
+    public static List<ExpressionNode> buildList(String text, VariableStore variables) {
+        countParse(variables);
+        try {
+            return new ASTBuilder(variables, Collections.emptyList()).list(text);
+        } catch (IllegalArgumentException e) {
+            syntaxError(text, e, variables);
+            return Collections.singletonList(new ConstantNode(0.0));
+        }
+    }
+
+    /**
+     * Build a string expression. Syntax errors and numeric expressions are
+     * reported and the expression evaluates to "".
+     */
+    public static StringNode buildString(String expr, VariableStore variables) {
+        try {
+            return parseString(expr, variables);
+        } catch (IllegalArgumentException e) {
+            syntaxError(expr, e, variables);
+            return new StringLiteralNode("");
+        }
+    }
+
+    /**
+     * Build a string expression, throwing on syntax errors
+     *
+     * @throws IllegalArgumentException with the column of the error in its message
+     */
+    public static StringNode parseString(String expr, VariableStore variables) {
+        countParse(variables);
+        if (expr.trim().isEmpty()) {
+            return new StringLiteralNode("");
+        }
+        ASTBuilder builder = new ASTBuilder(variables, Collections.emptyList());
+        Object result = builder.buildOperand(expr);
+        return builder.string(result, builder.tokens.get(0));
+    }
+
+    /**
+     * Build an expression of either type, for PRINT items: an ExpressionNode
+     * or a StringNode. Syntax errors are reported and give "".
+     */
+    public static Object buildEither(String expr, VariableStore variables) {
+        countParse(variables);
+        try {
+            return new ASTBuilder(variables, Collections.emptyList()).buildOperand(expr);
+        } catch (IllegalArgumentException e) {
+            syntaxError(expr, e, variables);
+            return new StringLiteralNode("");
+        }
+    }
+
+    private static ExpressionNode parse(String expr, VariableStore variables, List<String> parameters) {
+        countParse(variables);
+        if (expr.trim().isEmpty()) {
+            return new ConstantNode(0.0);
+        }
+        return new ASTBuilder(variables, parameters).build(expr);
+    }
+
+    /**
+     * A syntax error met while a program loads, kept for the interpreter's
+     * load errors
+     */
+    public static final class SyntaxError {
+        public final String expression;
+        public final String reason;
+        public final int column;  // 1-based in the expression, 0 if not known
+
+        SyntaxError(String expression, IllegalArgumentException e) {
+            this.expression = expression;
+            if (e instanceof ExpressionLexer.SyntaxException) {
+                this.reason = ((ExpressionLexer.SyntaxException) e).reason;
+                this.column = ((ExpressionLexer.SyntaxException) e).column;
+            } else {
+                this.reason = e.getMessage();
+                this.column = 0;
+            }
+        }
+    }
+
+    // Into the store's load errors while a program loads, on stderr otherwise
+    private static void syntaxError(String expr, IllegalArgumentException e, VariableStore variables) {
+        List<SyntaxError> errors = variables != null ? variables.getSyntaxErrors() : null;
+        if (errors != null) {
+            errors.add(new SyntaxError(expr, e));
+        } else {
+            System.err.println("AST build error: " + expr.trim() + " - " + e.getMessage());
+        }
+    }
+
+    // Parses are counted on the interpreter that owns the variables
+    private static void countParse(VariableStore variables) {
+        if (variables != null) {
+            variables.countParse();
+        }
+    }
+
+    private ExpressionNode build(String expr) {
+        Object result = buildOperand(expr);
+        return numeric(result, tokens.get(0));
+    }
+
+    private Object buildOperand(String expr) {
+        tokens = ExpressionLexer.tokenize(expr);
+        position = 0;
+
+        Object result = parseExpression(XOR);
+        if (peek().kind != ExpressionLexer.Kind.END) {
+            throw unexpected(peek());
+        }
+        return result;
+    }
+
+    private List<ExpressionNode> list(String text) {
+        tokens = ExpressionLexer.tokenize(text);
+        position = 0;
+
+        List<ExpressionNode> items = new ArrayList<>();
+        while (true) {
+            ExpressionLexer.Token start = peek();
+            items.add(numeric(parseExpression(XOR), start));
+            ExpressionLexer.Token separator = next();
+            if (separator.kind == ExpressionLexer.Kind.END) {
+                return items;
+            }
+            if (separator.kind != ExpressionLexer.Kind.COMMA) {
+                throw ExpressionLexer.error("expected ',' but found " + separator, separator.column);
+            }
+        }
+    }
+
+    /**
+     * Parse operators that bind at least as tightly as minPrecedence.
+     * Returns an ExpressionNode or, for string operands, a StringNode.
+     */
+    private Object parseExpression(int minPrecedence) {
+        Object left = parsePrefix();
+
+        while (true) {
+            ExpressionLexer.Token operator = peek();
+            int precedence = precedenceOf(operator);
+            if (precedence == 0 || precedence < minPrecedence) {
+                return left;
+            }
+            position++;
+            Object right = parseExpression(precedence + 1);
+            left = combine(operator, left, right);
+        }
+    }
+
+    private Object parsePrefix() {
+        ExpressionLexer.Token token = next();
+
+        switch (token.kind) {
+            case NUMBER:
+                return new ConstantNode(token.value);
+
+            case STRING:
+                return new StringLiteralNode(token.text);
+
+            case LPAREN: {
+                Object inner = parseExpression(XOR);
+                expect(ExpressionLexer.Kind.RPAREN, "')'");
+                return inner;
+            }
+
+            case OPERATOR:
+                if (token.text.equals("-")) {
+                    return new UnaryOpNode(UnaryOpNode.UnaryOperator.NEGATE, numeric(parseExpression(UNARY), token));
+                }
+                if (token.text.equals("+")) {
+                    return numeric(parseExpression(UNARY), token);
+                }
+                throw unexpected(token);
+
+            case NAME:
+                return parseName(token);
+
+            default:
+                throw unexpected(token);
+        }
+    }
+
+    private Object parseName(ExpressionLexer.Token token) {
+        String name = token.text;
+
+        switch (name) {
+            case "NOT":
+                return not(numeric(parseExpression(UNARY), token));
+            case "FN": {
+                ExpressionLexer.Token function = next();
+                if (function.kind != ExpressionLexer.Kind.NAME || peek().kind != ExpressionLexer.Kind.LPAREN) {
+                    throw ExpressionLexer.error("expected a function call after FN", function.column);
+                }
+                position++;
+                return new UserFunctionCallNode(function.text, parseArguments());
+            }
+            case "AND": case "OR": case "XOR": case "MOD": case "SHL": case "SHR":
+                throw unexpected(token);
+            default:
+                break;
+        }
+
+        String stringFunction = StringFunctionNode.canonicalName(name);
+        if (stringFunction != null && peek().kind == ExpressionLexer.Kind.LPAREN) {
+            position++;
+            return stringFunction(token, stringFunction);
+        }
+
+        if (name.endsWith("$")) {
+            if (peek().kind == ExpressionLexer.Kind.LPAREN) {
+                position++;
+                return new StringArrayAccessNode(name, parseArguments());
+            }
+            return new StringVariableNode(name);
+        }
+
+        if (peek().kind == ExpressionLexer.Kind.LPAREN) {
+            position++;
+            if (StringToNumberNode.isStringFunction(name)) {
+                ExpressionLexer.Token start = peek();
+                StringNode argument = string(parseExpression(XOR), start);
+                expect(ExpressionLexer.Kind.RPAREN, "')'");
+                return new StringToNumberNode(name, argument);
+            }
+            List<ExpressionNode> arguments = parseArguments();
+            if (BuiltinFunctions.isBuiltIn(name)) {
+                return builtIn(token, arguments);
+            }
+            return new ArrayAccessNode(name, arguments);
+        }
+
+        if (name.equals("RND")) {
+            return builtIn(token, Collections.emptyList());
+        }
+        int parameter = parameters.indexOf(name);
+        if (parameter >= 0) {
+            return new ParameterNode(name, parameter);
+        }
+        if (variables != null) {
+            name = variables.typedName(name);
+            if (VariableStore.isInteger(name)) {
+                return new IntegerVariableNode(name, variables.slotOf(name));
+            }
+            return new VariableNode(name, variables.slotOf(name));
+        }
+        if (VariableStore.isInteger(name)) {
+            return new IntegerVariableNode(name);
+        }
+        return new VariableNode(name);
+    }
+
+    private ExpressionNode builtIn(ExpressionLexer.Token name, List<ExpressionNode> arguments) {
+        try {
+            return BuiltinFunctions.create(name.text, arguments);
+        } catch (IllegalArgumentException e) {
+            throw ExpressionLexer.error(e.getMessage(), name.column);
+        }
+    }
+
+    // Arguments of a string function, checked against its signature; the opening parenthesis is consumed
+    private Object stringFunction(ExpressionLexer.Token token, String name) {
+        List<Object> args = new ArrayList<>();
+        List<ExpressionLexer.Token> starts = new ArrayList<>();
+        if (peek().kind == ExpressionLexer.Kind.RPAREN) {
+            position++;
+        } else {
+            while (true) {
+                starts.add(peek());
+                args.add(parseExpression(XOR));
+                ExpressionLexer.Token separator = next();
+                if (separator.kind == ExpressionLexer.Kind.RPAREN) {
+                    break;
+                }
+                if (separator.kind != ExpressionLexer.Kind.COMMA) {
+                    throw ExpressionLexer.error("expected ',' or ')' but found " + separator, separator.column);
+                }
+            }
+        }
+
+        String signature = StringFunctionNode.signature(name);
+        String types = signature.replace("|", "");
+        int required = signature.indexOf('|') >= 0 ? signature.indexOf('|') : signature.length();
+        if (args.size() < required || args.size() > types.length()) {
+            String expected = required == types.length() ? String.valueOf(required) : required + " to " + types.length();
+            throw ExpressionLexer.error(name + " takes " + expected +
+                (types.length() == 1 ? " argument" : " arguments") + ", not " + args.size(), token.column);
+        }
+        for (int i = 0; i < args.size(); i++) {
+            if (types.charAt(i) == 'S') {
+                string(args.get(i), starts.get(i));
+            } else {
+                numeric(args.get(i), starts.get(i));
+            }
+        }
+        return StringFunctionNode.create(name, args.toArray());
+    }
+
+    // Numeric arguments up to the closing parenthesis; the opening one is already consumed
+    private List<ExpressionNode> parseArguments() {
+        List<ExpressionNode> args = new ArrayList<>();
+        if (peek().kind == ExpressionLexer.Kind.RPAREN) {
+            position++;
+            return args;
+        }
+        while (true) {
+            ExpressionLexer.Token start = peek();
+            args.add(numeric(parseExpression(XOR), start));
+            ExpressionLexer.Token separator = next();
+            if (separator.kind == ExpressionLexer.Kind.RPAREN) {
+                return args;
+            }
+            if (separator.kind != ExpressionLexer.Kind.COMMA) {
+                throw ExpressionLexer.error("expected ',' or ')' but found " + separator, separator.column);
+            }
+        }
+    }
+
+    private Object combine(ExpressionLexer.Token operator, Object left, Object right) {
+        BinaryOpNode.BinaryOperator op = operatorOf(operator);
+
+        if (left instanceof StringNode || right instanceof StringNode) {
+            if (!(left instanceof StringNode && right instanceof StringNode)) {
+                throw ExpressionLexer.error("type mismatch: " + operator.text + " between a string and a number",
+                    operator.column);
+            }
+            if (op == BinaryOpNode.BinaryOperator.ADD) {
+                return new StringConcatNode((StringNode) left, (StringNode) right);
+            }
+            if (precedenceOf(operator) != COMPARISON) {
+                throw ExpressionLexer.error("operator " + operator.text + " does not apply to strings", operator.column);
+            }
+            return new StringCompareNode((StringNode) left, op, (StringNode) right);
+        }
+
+        return arithmetic(op, (ExpressionNode) left, (ExpressionNode) right);
+    }
+
+    /**
+     * BinaryOpNode, or IntegerOpNode when the operation can stay in int
+     * arithmetic. Two plain constants always make a BinaryOpNode, so
+     * programs without integer variables evaluate exactly as before.
+     */
+    static ExpressionNode arithmetic(BinaryOpNode.BinaryOperator op, ExpressionNode left, ExpressionNode right) {
+        switch (op) {
+            case AND: case OR:
+                if (isCondition(left) && isCondition(right)) {
+                    return new BinaryOpNode(left, op, right);
+                }
+                return new IntegerOpNode(toInteger(left), op, toInteger(right));
+            case XOR: case SHIFT_LEFT: case SHIFT_RIGHT:
+                return new IntegerOpNode(toInteger(left), op, toInteger(right));
+            case POWER:
+                if (right instanceof ConstantNode && !(left instanceof ConstantNode)) {
+                    ExpressionNode reduced = power(left, ((ConstantNode) right).getValue());
+                    if (reduced != null) {
+                        return reduced;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        if ((left instanceof IntegerNode && !(left instanceof ConstantNode)
+                || right instanceof IntegerNode && !(right instanceof ConstantNode))
+                && IntegerOpNode.supports(op)) {
+            IntegerNode intLeft = integerOperand(left);
+            IntegerNode intRight = integerOperand(right);
+            if (intLeft != null && intRight != null) {
+                return new IntegerOpNode(intLeft, op, intRight);
+            }
+        }
+        return new BinaryOpNode(left, op, right);
+    }
+
+    /**
+     * True if the node is a condition, whose value is always 1 or 0: a
+     * comparison, or AND, OR or logical NOT of conditions
+     */
+    static boolean isCondition(ExpressionNode node) {
+        if (node instanceof BinaryOpNode) {
+            switch (((BinaryOpNode) node).getOperator()) {
+                case EQUAL: case NOT_EQUAL: case LESS_THAN: case GREATER_THAN: case LESS_EQUAL: case GREATER_EQUAL:
+                case APPROX_EQUAL: case AND: case OR:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        if (node instanceof IntegerOpNode) {
+            return ((IntegerOpNode) node).isComparison();
+        }
+        if (node instanceof UnaryOpNode) {
+            return ((UnaryOpNode) node).getOperator() == UnaryOpNode.UnaryOperator.NOT;
+        }
+        return node instanceof StringCompareNode;
+    }
+
+    /**
+     * NOT: the bitwise complement of an integer operand, logical otherwise
+     */
+    static ExpressionNode not(ExpressionNode operand) {
+        IntegerNode integer = isCondition(operand) ? null : integerOperand(operand);
+        if (integer != null) {
+            return new IntegerNotNode(integer);
+        }
+        return new UnaryOpNode(UnaryOpNode.UnaryOperator.NOT, operand);
+    }
+
+    /**
+     * base^exponent without Math.pow, or null if the exponent has no cheaper
+     * form. X^0.5 is SQR(X), which differs from Math.pow only for -0 and
+     * -Infinity (-0 and NaN instead of 0 and Infinity).
+     */
+    static ExpressionNode power(ExpressionNode base, double exponent) {
+        if (exponent == 1) {
+            return base;
+        }
+        if (exponent == 0.5) {
+            return new SqrNode(base);
+        }
+        if (exponent >= 2 && exponent <= PowerNode.MAX_EXPONENT && exponent == (int) exponent) {
+            return new PowerNode(base, (int) exponent);
+        }
+        return null;
+    }
+
+    /**
+     * The node as an integer operand: integer nodes as they are, integral
+     * constants (and negated ones) as IntegerConstantNodes, otherwise null
+     */
+    static IntegerNode integerOperand(ExpressionNode node) {
+        if (node instanceof IntegerNode) {
+            return (IntegerNode) node;
+        }
+        double value;
+        if (node instanceof ConstantNode) {
+            value = ((ConstantNode) node).getValue();
+        } else if (node instanceof UnaryOpNode && ((UnaryOpNode) node).getOperator() == UnaryOpNode.UnaryOperator.NEGATE
+                && ((UnaryOpNode) node).getOperand() instanceof ConstantNode) {
+            value = -((ConstantNode) ((UnaryOpNode) node).getOperand()).getValue();
+        } else {
+            return null;
+        }
+        if (value != (int) value) {
+            return null;
+        }
+        return new IntegerConstantNode((int) value);
+    }
+
+    /**
+     * The node as an integer, rounding a double-valued expression with CINT
+     */
+    static IntegerNode toInteger(ExpressionNode node) {
+        IntegerNode operand = integerOperand(node);
+        if (operand != null) {
+            return operand;
+        }
+        if (node instanceof ConstantNode) {
+            return new IntegerConstantNode(VariableStore.toInteger(((ConstantNode) node).getValue()));
+        }
+        return new CIntNode(node);
+    }
+
+    private static int precedenceOf(ExpressionLexer.Token token) {
+        if (token.kind == ExpressionLexer.Kind.NAME) {
+            switch (token.text) {
+                case "XOR": return XOR;
+                case "OR": return OR;
+                case "AND": return AND;
+                case "SHL": case "SHR": return SHIFT;
+                case "MOD": return MULTIPLICATIVE;
+                default: return 0;
+            }
+        }
+        if (token.kind != ExpressionLexer.Kind.OPERATOR) {
+            return 0;
+        }
+        switch (token.text) {
+            case "=": case "<>": case "<": case ">": case "<=": case ">=": return COMPARISON;
+            case "+": case "-": return ADDITIVE;
+            case "*": case "/": case "%": return MULTIPLICATIVE;
+            case "^": return POWER;
+            default: return 0;
+        }
+    }
+
+    private static BinaryOpNode.BinaryOperator operatorOf(ExpressionLexer.Token token) {
+        switch (token.text) {
+            case "XOR": return BinaryOpNode.BinaryOperator.XOR;
+            case "OR": return BinaryOpNode.BinaryOperator.OR;
+            case "AND": return BinaryOpNode.BinaryOperator.AND;
+            case "=": return BinaryOpNode.BinaryOperator.EQUAL;
+            case "<>": return BinaryOpNode.BinaryOperator.NOT_EQUAL;
+            case "<": return BinaryOpNode.BinaryOperator.LESS_THAN;
+            case ">": return BinaryOpNode.BinaryOperator.GREATER_THAN;
+            case "<=": return BinaryOpNode.BinaryOperator.LESS_EQUAL;
+            case ">=": return BinaryOpNode.BinaryOperator.GREATER_EQUAL;
+            case "+": return BinaryOpNode.BinaryOperator.ADD;
+            case "-": return BinaryOpNode.BinaryOperator.SUBTRACT;
+            case "*": return BinaryOpNode.BinaryOperator.MULTIPLY;
+            case "/": return BinaryOpNode.BinaryOperator.DIVIDE;
+            case "%": case "MOD": return BinaryOpNode.BinaryOperator.MODULO;
+            case "^": return BinaryOpNode.BinaryOperator.POWER;
+            case "SHL": return BinaryOpNode.BinaryOperator.SHIFT_LEFT;
+            case "SHR": return BinaryOpNode.BinaryOperator.SHIFT_RIGHT;
+            default: throw unexpected(token);
+        }
+    }
+
+    private ExpressionNode numeric(Object operand, ExpressionLexer.Token start) {
+        if (operand instanceof StringNode) {
+            throw ExpressionLexer.error("type mismatch: string where a number is expected", start.column);
+        }
+        return (ExpressionNode) operand;
+    }
+
+    private StringNode string(Object operand, ExpressionLexer.Token start) {
+        if (!(operand instanceof StringNode)) {
+            throw ExpressionLexer.error("type mismatch: number where a string is expected", start.column);
+        }
+        return (StringNode) operand;
+    }
+
+    private ExpressionLexer.Token peek() {
+        return tokens.get(position);
+    }
+
+    private ExpressionLexer.Token next() {
+        ExpressionLexer.Token token = tokens.get(position);
+        if (token.kind != ExpressionLexer.Kind.END) {
+            position++;
+        }
+        return token;
+    }
+
+    private void expect(ExpressionLexer.Kind kind, String what) {
+        ExpressionLexer.Token token = next();
+        if (token.kind != kind) {
+            throw ExpressionLexer.error("expected " + what + " but found " + token, token.column);
+        }
+    }
+
+    private static IllegalArgumentException unexpected(ExpressionLexer.Token token) {
+        return ExpressionLexer.error("unexpected " + token, token.column);
+    }
+}
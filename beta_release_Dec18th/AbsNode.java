@@ -0,0 +1,14 @@
+/**
+ * ABS(x): absolute value
+ */
+public class AbsNode extends UnaryFunctionNode {
+
+    public AbsNode(ExpressionNode argument) {
+        super("ABS", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.abs(argument.evaluate(context));
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * ANIMATE START, id, vx, vy, fps, bounceMode
+ * ANIMATE STOP, id
+ * ANIMATE STOPALL
+ * ANIMATE VELOCITY, id, vx, vy
+ */
+public class AnimateStmt implements Statement {
+    final Action action;
+    final String actionName;      // For error reporting of unknown actions
+    final ExpressionNode[] args;  // Arguments after the action
+
+    public enum Action {
+        START, STOP, STOPALL, VELOCITY, UNKNOWN
+    }
+
+    public AnimateStmt(Action action, String actionName, ExpressionNode[] args) {
+        this.action = action;
+        this.actionName = actionName;
+        this.args = args;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeAnimate(this);
+    }
+}
@@ -3,31 +3,115 @@ import java.util.*;
 /**
  * Represents array element access: A(I), SCORES(X, Y)
  *
- * Array name and index expressions are pre-parsed.
+ * Array name and index expressions are pre-parsed. Every array is one
+ * flat double[] in row-major order: after DIM A(W, H), A(X, Y) is element
+ * X * (H + 1) + Y. The extents (each DIM size + 1) are kept beside the
+ * data, and the offset is accumulated Horner-style while a single
+ * combined check collects whether any index fell outside its extent.
+ *
+ * Integer indices (A(I%)) are read as ints, without going through double.
+ * Stores use the same node as their target, so A(X, Y) = v and a read of
+ * A(X, Y) find the same element.
+ *
+ * The array is looked up by name once and cached in the node, tagged with
+ * the interpreter's array generation. DIM, ERASE and clearing the program
+ * move the generation on, so in a loop a read of A(I) costs one int
+ * compare before the element load.
  */
 public class ArrayAccessNode implements ExpressionNode {
     private final String arrayName;
     private final List<ExpressionNode> indices;
+    private final ExpressionNode[] indexNodes;
+    private final IntegerNode[] integerIndices;  // Non-null where the index is an integer expression
+    private ArrayRef cache;                        // Last resolved array, with the generation it is valid for
+
+    /**
+     * An array as resolved at one array generation. Immutable, so a node
+     * shared between threads never sees a torn cache entry.
+     */
+    static final class ArrayRef {
+        final int generation;
+        final double[] data;    // null if the array is not dimensioned
+        final int[] extents;
+
+        ArrayRef(int generation, double[] data, int[] extents) {
+            this.generation = generation;
+            this.data = data;
+            this.extents = extents;
+        }
+    }
 
     public ArrayAccessNode(String arrayName, List<ExpressionNode> indices) {
         this.arrayName = arrayName.toUpperCase();
         this.indices = indices;
+        this.indexNodes = indices.toArray(new ExpressionNode[0]);
+        this.integerIndices = new IntegerNode[indexNodes.length];
+        for (int i = 0; i < indexNodes.length; i++) {
+            if (indexNodes[i] instanceof IntegerNode) {
+                integerIndices[i] = (IntegerNode) indexNodes[i];
+            }
+        }
     }
 
     @Override
     public double evaluate(ExecutionContext context) {
-        if (indices.isEmpty()) {
+        ArrayRef array = resolve(context);
+        if (array.data == null) {
             return 0.0;
         }
+        int offset = offset(context, array);
+        return offset >= 0 ? array.data[offset] : 0.0;
+    }
 
-        // Evaluate index expression
-        int index = (int) indices.get(0).evaluate(context);
+    /**
+     * The array this node refers to, from the cache while no DIM or ERASE
+     * has run since it was looked up
+     */
+    ArrayRef resolve(ExecutionContext context) {
+        ArrayRef array = cache;
+        int generation = context.getArrayGeneration();
+        if (array == null || array.generation != generation) {
+            array = new ArrayRef(generation, context.getArray(arrayName), context.getArrayExtents(arrayName));
+            cache = array;
+        }
+        return array;
+    }
+
+    /**
+     * Position of the element in the array's flat storage, or -1 if an
+     * index is out of range or the indices do not match the DIM. A single
+     * index addresses the storage directly.
+     */
+    int offset(ExecutionContext context, ArrayRef array) {
+        return offset(context, array.data.length, array.extents);
+    }
+
+    /**
+     * Offset in storage of the given length and extents; string arrays
+     * share this with numeric ones
+     */
+    int offset(ExecutionContext context, int length, int[] extents) {
+        if (indexNodes.length == 1) {
+            int index = index(0, context);
+            return index >= 0 && index < length ? index : -1;
+        }
 
-        double[] array = context.getArray(arrayName);
-        if (array != null && index >= 0 && index < array.length) {
-            return array[index];
+        if (extents == null || extents.length != indexNodes.length) {
+            return -1;
+        }
+        int offset = 0;
+        int outside = 0;  // Sign bit set once any index is below 0 or past its extent
+        for (int d = 0; d < indexNodes.length; d++) {
+            int index = index(d, context);
+            outside |= index | (extents[d] - 1 - index);
+            offset = offset * extents[d] + index;
         }
-        return 0.0;
+        return outside < 0 ? -1 : offset;
+    }
+
+    private int index(int d, ExecutionContext context) {
+        IntegerNode integer = integerIndices[d];
+        return integer != null ? integer.evaluateInt(context) : (int) indexNodes[d].evaluate(context);
     }
 
     @Override
@@ -0,0 +1,21 @@
+/**
+ * Array element assignment: [LET] A(index [, index ...]) = expr
+ *
+ * The target is the same ArrayAccessNode a read of the element would use.
+ */
+public class ArrayLetStmt implements Statement {
+    final String arrayName;
+    final ArrayAccessNode target;
+    final ExpressionNode value;
+
+    public ArrayLetStmt(ArrayAccessNode target, ExpressionNode value) {
+        this.arrayName = target.getArrayName();
+        this.target = target;
+        this.value = value;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeArrayLet(this);
+    }
+}
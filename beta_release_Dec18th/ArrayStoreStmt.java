@@ -0,0 +1,18 @@
+/**
+ * Superinstruction for A(I) = expr where the index is a plain variable.
+ *
+ * The index is read straight from its slot instead of through the AST.
+ */
+public class ArrayStoreStmt extends ArrayLetStmt {
+    final int indexSlot;
+
+    public ArrayStoreStmt(ArrayAccessNode target, int indexSlot, ExpressionNode value) {
+        super(target, value);
+        this.indexSlot = indexSlot;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeArrayStore(this);
+    }
+}
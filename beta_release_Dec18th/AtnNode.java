@@ -0,0 +1,14 @@
+/**
+ * ATN(x): arctangent, in radians
+ */
+public class AtnNode extends UnaryFunctionNode {
+
+    public AtnNode(ExpressionNode argument) {
+        super("ATN", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.atan(argument.evaluate(context));
+    }
+}
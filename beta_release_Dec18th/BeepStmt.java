@@ -0,0 +1,13 @@
+/**
+ * BEEP [duration]
+ */
+public class BeepStmt extends CommandStmt {
+    public BeepStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeBeep(this);
+    }
+}
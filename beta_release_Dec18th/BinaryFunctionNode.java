@@ -0,0 +1,13 @@
+/**
+ * A built-in function of two arguments
+ */
+public abstract class BinaryFunctionNode extends FunctionCallNode {
+    protected final ExpressionNode first;
+    protected final ExpressionNode second;
+
+    protected BinaryFunctionNode(String functionName, ExpressionNode first, ExpressionNode second) {
+        super(functionName, first, second);
+        this.first = first;
+        this.second = second;
+    }
+}
@@ -3,6 +3,10 @@
  *
  * Stores pre-parsed left and right sub-expressions as AST nodes.
  * Evaluation recursively evaluates children then applies operator.
+ *
+ * AND and OR short-circuit: the right operand is not evaluated when the
+ * left one decides the result, so IF I <= N AND A(I) > 0 never reads
+ * A(I) past the end and a FN call on the right only runs when needed.
  */
 public class BinaryOpNode implements ExpressionNode {
     private final ExpressionNode left;
@@ -12,7 +16,9 @@ public class BinaryOpNode implements ExpressionNode {
     public enum BinaryOperator {
         ADD, SUBTRACT, MULTIPLY, DIVIDE, POWER, MODULO,
         EQUAL, NOT_EQUAL, LESS_THAN, GREATER_THAN, LESS_EQUAL, GREATER_EQUAL,
-        AND, OR
+        AND, OR,
+        XOR, SHIFT_LEFT, SHIFT_RIGHT,  // Integer only: always an IntegerOpNode
+        APPROX_EQUAL  // "=" in IF conditions: equal to within 0.0001, as ExpressionParser compared
     }
 
     public BinaryOpNode(ExpressionNode left, BinaryOperator operator, ExpressionNode right) {
@@ -23,6 +29,13 @@ public class BinaryOpNode implements ExpressionNode {
 
     @Override
     public double evaluate(ExecutionContext context) {
+        if (operator == BinaryOperator.AND) {
+            return left.test(context) && right.test(context) ? 1.0 : 0.0;
+        }
+        if (operator == BinaryOperator.OR) {
+            return left.test(context) || right.test(context) ? 1.0 : 0.0;
+        }
+
         double leftVal = left.evaluate(context);   // Recursive evaluation
         double rightVal = right.evaluate(context);
 
@@ -39,12 +52,27 @@ public class BinaryOpNode implements ExpressionNode {
             case GREATER_THAN: return leftVal > rightVal ? 1.0 : 0.0;
             case LESS_EQUAL: return leftVal <= rightVal ? 1.0 : 0.0;
             case GREATER_EQUAL: return leftVal >= rightVal ? 1.0 : 0.0;
-            case AND: return (leftVal != 0 && rightVal != 0) ? 1.0 : 0.0;
-            case OR: return (leftVal != 0 || rightVal != 0) ? 1.0 : 0.0;
+            case APPROX_EQUAL: return Math.abs(leftVal - rightVal) < 0.0001 ? 1.0 : 0.0;
             default: return 0.0;
         }
     }
 
+    @Override
+    public boolean test(ExecutionContext context) {
+        switch (operator) {
+            case AND: return left.test(context) && right.test(context);
+            case OR: return left.test(context) || right.test(context);
+            case EQUAL: return left.evaluate(context) == right.evaluate(context);
+            case NOT_EQUAL: return left.evaluate(context) != right.evaluate(context);
+            case LESS_THAN: return left.evaluate(context) < right.evaluate(context);
+            case GREATER_THAN: return left.evaluate(context) > right.evaluate(context);
+            case LESS_EQUAL: return left.evaluate(context) <= right.evaluate(context);
+            case GREATER_EQUAL: return left.evaluate(context) >= right.evaluate(context);
+            case APPROX_EQUAL: return Math.abs(left.evaluate(context) - right.evaluate(context)) < 0.0001;
+            default: return evaluate(context) != 0.0;
+        }
+    }
+
     @Override
     public String toString() {
         return "(" + left + " " + operator + " " + right + ")";
@@ -0,0 +1,13 @@
+/**
+ * BOX3D x, y, z, w, h, d
+ */
+public class Box3DStmt extends CommandStmt {
+    public Box3DStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeBox3D(this);
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Registry of the built-in numeric functions.
+ *
+ * Each entry maps a name to the node class that implements it, with its
+ * arity. ASTBuilder looks names up here, so a new intrinsic only needs a
+ * node class and a register() call to get the same direct-call evaluation
+ * as SIN or ABS.
+ */
+public class BuiltinFunctions {
+
+    private static final class Entry {
+        final int minArgs;
+        final int maxArgs;
+        final boolean pure;
+        final Function<ExpressionNode[], FunctionCallNode> factory;
+
+        Entry(int minArgs, int maxArgs, boolean pure, Function<ExpressionNode[], FunctionCallNode> factory) {
+            this.minArgs = minArgs;
+            this.maxArgs = maxArgs;
+            this.pure = pure;
+            this.factory = factory;
+        }
+    }
+
+    private static final Map<String, Entry> functions = new ConcurrentHashMap<>();
+
+    static {
+        register("SIN", 1, 1, true, args -> new SinNode(args[0]));
+        register("COS", 1, 1, true, args -> new CosNode(args[0]));
+        register("TAN", 1, 1, true, args -> new TanNode(args[0]));
+        register("ATN", 1, 1, true, args -> new AtnNode(args[0]));
+        register("ABS", 1, 1, true, args -> new AbsNode(args[0]));
+        register("INT", 1, 1, true, args -> new IntNode(args[0]));
+        register("FIX", 1, 1, true, args -> new FixNode(args[0]));
+        register("ROUND", 1, 1, true, args -> new RoundNode(args[0]));
+        register("CINT", 1, 1, true, args -> new CIntNode(args[0]));
+        register("SQR", 1, 1, true, args -> new SqrNode(args[0]));
+        register("LOG", 1, 1, true, args -> new LogNode(args[0]));
+        register("EXP", 1, 1, true, args -> new ExpNode(args[0]));
+        register("SGN", 1, 1, true, args -> new SgnNode(args[0]));
+        register("MIN", 2, 2, true, args -> new MinNode(args[0], args[1]));
+        register("MAX", 2, 2, true, args -> new MaxNode(args[0], args[1]));
+        register("HYPOT", 2, 2, true, args -> new HypotNode(args[0], args[1]));
+        register("CLAMP", 3, 3, true, args -> new ClampNode(args[0], args[1], args[2]));
+        register("RND", 0, 1, false, args -> new RndNode(args.length > 0 ? args[0] : null));
+    }
+
+    /**
+     * Add or replace a built-in function.
+     *
+     * @param pure    true if the result depends only on the arguments, so
+     *                calls with constant arguments can be folded at load time
+     * @param factory builds the node from exactly minArgs..maxArgs arguments
+     */
+    public static void register(String name, int minArgs, int maxArgs, boolean pure,
+                                Function<ExpressionNode[], FunctionCallNode> factory) {
+        functions.put(name.toUpperCase(), new Entry(minArgs, maxArgs, pure, factory));
+    }
+
+    public static boolean isBuiltIn(String name) {
+        return functions.containsKey(name);
+    }
+
+    /**
+     * True for built-ins without side effects or hidden state (not RND)
+     */
+    public static boolean isPure(String name) {
+        Entry entry = functions.get(name);
+        return entry != null && entry.pure;
+    }
+
+    /**
+     * Node for a call of a built-in
+     *
+     * @throws IllegalArgumentException for an unknown name or the wrong number of arguments
+     */
+    public static FunctionCallNode create(String name, List<ExpressionNode> arguments) {
+        Entry entry = functions.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("unknown function " + name);
+        }
+        int count = arguments.size();
+        if (count < entry.minArgs || count > entry.maxArgs) {
+            String expected = entry.minArgs == entry.maxArgs ? String.valueOf(entry.minArgs)
+                : entry.minArgs + " to " + entry.maxArgs;
+            throw new IllegalArgumentException(name + " takes " + expected +
+                (entry.maxArgs == 1 ? " argument" : " arguments") + ", not " + count);
+        }
+        return entry.factory.apply(arguments.toArray(new ExpressionNode[0]));
+    }
+}
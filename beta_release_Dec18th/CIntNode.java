@@ -0,0 +1,20 @@
+/**
+ * CINT(x): x rounded to an integer, ties to even, as when it is stored
+ * in an integer variable
+ */
+public class CIntNode extends UnaryFunctionNode implements IntegerNode {
+
+    public CIntNode(ExpressionNode argument) {
+        super("CINT", argument);
+    }
+
+    @Override
+    public int evaluateInt(ExecutionContext context) {
+        return VariableStore.toInteger(argument.evaluate(context));
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return evaluateInt(context);
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * CASE expr / CASE ELSE
+ */
+public class CaseStmt implements Statement {
+    final ExpressionNode value;  // null for CASE ELSE
+
+    public CaseStmt(ExpressionNode value) {
+        this.value = value;
+    }
+
+    public boolean isElse() {
+        return value == null;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeCase(this);
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * CHR$(n): the character with code n
+ */
+public class ChrNode extends StringFunctionNode {
+    private final ExpressionNode code;
+
+    public ChrNode(ExpressionNode code) {
+        super("CHR$", code);
+        this.code = code;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.chr((int) code.evaluate(context));
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * CIRCLE x, y, r [, fill]
+ */
+public class CircleStmt extends CommandStmt {
+    public CircleStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeCircle(this);
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * CLAMP(x, low, high): x limited to the range low..high
+ */
+public class ClampNode extends FunctionCallNode {
+    private final ExpressionNode value;
+    private final ExpressionNode low;
+    private final ExpressionNode high;
+
+    public ClampNode(ExpressionNode value, ExpressionNode low, ExpressionNode high) {
+        super("CLAMP", value, low, high);
+        this.value = value;
+        this.low = low;
+        this.high = high;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        double x = value.evaluate(context);
+        double lowValue = low.evaluate(context);
+        double highValue = high.evaluate(context);
+        return Math.max(lowValue, Math.min(highValue, x));
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * CLS - clears the graphics window.
+ */
+public class ClsStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeCls(this);
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * COLLISION id1, id2 - stores the result in the COLLISION variable
+ */
+public class CollisionStmt extends CommandStmt {
+    public CollisionStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeCollision(this);
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * COLOR r, g, b
+ */
+public class ColorStmt extends CommandStmt {
+    public ColorStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeColor(this);
+    }
+}
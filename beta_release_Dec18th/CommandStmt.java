@@ -0,0 +1,18 @@
+/**
+ * Base class for statements whose operands are a plain list of
+ * numeric expressions (LINE, CIRCLE, SOUND, BOX3D, ...).
+ *
+ * The comma-separated argument list is split and parsed into AST nodes
+ * once at load time; execution only evaluates the nodes.
+ */
+public abstract class CommandStmt implements Statement {
+    final ExpressionNode[] args;
+
+    protected CommandStmt(ExpressionNode[] args) {
+        this.args = args;
+    }
+
+    public ExpressionNode[] getArgs() {
+        return args;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Superinstruction for IF a <op> b THEN GOTO n (or THEN n).
+ *
+ * The comparison is split into its two operand ASTs at load time, so the
+ * condition is two evaluations and one compare instead of a walk over the
+ * condition tree. It is still an IfStmt whose THEN branch is the GOTO,
+ * so linking and translation treat it like any other single-line IF.
+ */
+public class CompareBranchStmt extends IfStmt {
+    final ExpressionNode left;
+    final BinaryOpNode.BinaryOperator operator;  // One of the comparison operators
+    final ExpressionNode right;
+    final GotoStmt branch;
+
+    public CompareBranchStmt(String condition, BinaryOpNode compare, ExpressionNode left,
+                             ExpressionNode right, GotoStmt branch) {
+        super(condition, compare, branch, null);
+        this.left = left;
+        this.operator = compare.getOperator();
+        this.right = right;
+        this.branch = branch;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeCompareBranch(this);
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Base class for expressions compiled to JVM bytecode by ExpressionJIT.
+ *
+ * The generated subclass only implements evaluate() as straight-line
+ * double arithmetic. Operations that need a branch (division by zero,
+ * comparisons, logic) call the static helpers below, so the generated
+ * code never needs a stack map. Subtrees the JIT does not understand are
+ * kept in subtrees[] and evaluated through the normal AST.
+ */
+public abstract class CompiledExpression implements ExpressionNode {
+    protected final ExpressionNode source;      // Original tree, for debugging
+    protected final ExpressionNode[] subtrees;  // Fallback subtrees called from generated code
+
+    protected CompiledExpression(ExpressionNode source, ExpressionNode[] subtrees) {
+        this.source = source;
+        this.subtrees = subtrees;
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    public ExpressionNode getSource() {
+        return source;
+    }
+
+    // Helpers with the same semantics as BinaryOpNode / UnaryOpNode
+
+    public static double div(double left, double right) {
+        return right != 0 ? left / right : 0.0;
+    }
+
+    public static double eq(double left, double right) {
+        return left == right ? 1.0 : 0.0;
+    }
+
+    public static double approxEq(double left, double right) {
+        return Math.abs(left - right) < 0.0001 ? 1.0 : 0.0;
+    }
+
+    public static double ne(double left, double right) {
+        return left != right ? 1.0 : 0.0;
+    }
+
+    public static double lt(double left, double right) {
+        return left < right ? 1.0 : 0.0;
+    }
+
+    public static double gt(double left, double right) {
+        return left > right ? 1.0 : 0.0;
+    }
+
+    public static double le(double left, double right) {
+        return left <= right ? 1.0 : 0.0;
+    }
+
+    public static double ge(double left, double right) {
+        return left >= right ? 1.0 : 0.0;
+    }
+
+    public static double and(double left, double right) {
+        return (left != 0 && right != 0) ? 1.0 : 0.0;
+    }
+
+    public static double or(double left, double right) {
+        return (left != 0 || right != 0) ? 1.0 : 0.0;
+    }
+
+    public static double not(double value) {
+        return value == 0 ? 1.0 : 0.0;
+    }
+
+    public static double power(double base, int exponent) {
+        return PowerNode.power(base, exponent);
+    }
+}
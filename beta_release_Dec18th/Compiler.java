@@ -6,17 +6,34 @@ import javax.tools.*;
 
 /**
  * Compiler - Compiles BASIC programs into standalone executables
+ *
+ * Programs that only use the numeric core of the language are translated
+ * to a single Java class by JavaTranslator. Everything else is shipped
+ * with the interpreter and the BASIC source embedded in StandaloneRunner.
  */
 public class Compiler {
 
     /**
-     * Compiles a BASIC program into a standalone JAR file
+     * Compiles a BASIC program into a standalone JAR file, translating it
+     * to Java when possible
      * @param programCode The BASIC source code
      * @param outputName The name for the output files (without extension)
      * @param outputDir The directory to create output files in
      * @return true if compilation successful
      */
     public static boolean compile(String programCode, String outputName, File outputDir) {
+        return compile(programCode, outputName, outputDir, true);
+    }
+
+    /**
+     * Compiles a BASIC program into a standalone JAR file
+     * @param programCode The BASIC source code
+     * @param outputName The name for the output files (without extension)
+     * @param outputDir The directory to create output files in
+     * @param translate Try to translate the program to Java instead of embedding the interpreter
+     * @return true if compilation successful
+     */
+    public static boolean compile(String programCode, String outputName, File outputDir, boolean translate) {
         try {
             // Create output directory if it doesn't exist
             if (!outputDir.exists()) {
@@ -27,14 +44,34 @@ public class Compiler {
             File tempDir = new File(outputDir, "temp_compile_" + System.currentTimeMillis());
             tempDir.mkdirs();
 
-            // Step 1: Create StandaloneRunner with embedded program code
-            System.out.println("Embedding program code...");
-            File runnerFile = createEmbeddedRunner(programCode, tempDir);
+            // Step 1: Translate the program to Java if it only uses what the translator supports
+            String mainClass = null;
+            List<File> sourceFiles = new ArrayList<>();
+            if (translate) {
+                System.out.println("Translating program to Java...");
+                mainClass = JavaTranslator.toClassName(outputName);
+                try {
+                    String javaSource = JavaTranslator.translate(programCode, mainClass);
+                    File javaFile = new File(tempDir, mainClass + ".java");
+                    Files.write(javaFile.toPath(), javaSource.getBytes());
+                    sourceFiles.add(javaFile);
+                } catch (UnsupportedOperationException e) {
+                    System.out.println("Cannot translate (" + e.getMessage() + "), embedding the interpreter");
+                    mainClass = null;
+                }
+            }
 
-            // Step 2: Copy all necessary Java source files to temp directory
-            System.out.println("Copying source files...");
-            List<File> sourceFiles = copySourceFiles(tempDir);
-            sourceFiles.add(runnerFile);
+            if (mainClass == null) {
+                // Step 2: Create StandaloneRunner with embedded program code
+                System.out.println("Embedding program code...");
+                File runnerFile = createEmbeddedRunner(programCode, tempDir);
+
+                // Copy all necessary Java source files to temp directory
+                System.out.println("Copying source files...");
+                sourceFiles = copySourceFiles(tempDir);
+                sourceFiles.add(runnerFile);
+                mainClass = "StandaloneRunner";
+            }
 
             // Step 3: Compile all Java files
             System.out.println("Compiling Java files...");
@@ -46,7 +83,7 @@ public class Compiler {
             // Step 4: Create JAR file
             System.out.println("Creating JAR file...");
             File jarFile = new File(outputDir, outputName + ".jar");
-            if (!createJar(tempDir, jarFile)) {
+            if (!createJar(tempDir, jarFile, mainClass)) {
                 System.err.println("JAR creation failed");
                 return false;
             }
@@ -104,10 +141,42 @@ public class Compiler {
             "InputSystem.java",
             "ExpressionParser.java",
             "CommandParser.java",
-            "StringFunctions.java"
+            "StringFunctions.java",
+            "SpriteAnimator.java",
+            "DebugPanel.java",
+            "ExecutionContext.java",
+            "ASTBuilder.java",
+            "BuiltinFunctions.java",
+            "UserFunction.java",
+            "ExpressionLexer.java",
+            "VariableStore.java",
+            "StringStore.java",
+            "StringArray.java",
+            "ConsoleOutput.java",
+            "ExpressionOptimizer.java",
+            "CompiledExpression.java",
+            "ExpressionJIT.java",
+            "VM.java",
+            "VMCompiler.java",
+            "VMProgram.java",
+            "Statement.java",
+            "StatementCompiler.java"
         };
 
-        for (String fileName : sourceFiles) {
+        List<String> fileNames = new ArrayList<>(Arrays.asList(sourceFiles));
+
+        // Expression nodes and compiled statements are one class per file
+        String[] listed = new File(".").list();
+        if (listed != null) {
+            Arrays.sort(listed);
+            for (String fileName : listed) {
+                if (fileName.endsWith("Node.java") || fileName.endsWith("Stmt.java")) {
+                    fileNames.add(fileName);
+                }
+            }
+        }
+
+        for (String fileName : fileNames) {
             File source = new File(fileName);
             if (source.exists()) {
                 File dest = new File(tempDir, fileName);
@@ -153,10 +222,10 @@ public class Compiler {
         return success;
     }
 
-    private static boolean createJar(File classDir, File jarFile) throws IOException {
+    private static boolean createJar(File classDir, File jarFile, String mainClass) throws IOException {
         Manifest manifest = new Manifest();
         manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
-        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, "StandaloneRunner");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, mainClass);
 
         try (JarOutputStream jos = new JarOutputStream(
                 new FileOutputStream(jarFile), manifest)) {
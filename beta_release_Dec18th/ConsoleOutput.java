@@ -0,0 +1,106 @@
+/**
+ * Buffered text output for PRINT.
+ *
+ * Each interpreter owns one ConsoleOutput. PRINT appends to a plain
+ * StringBuilder, which only the interpreter's own thread touches, so a
+ * tight loop of PRINT statements costs no stream locking or system call
+ * per item. The buffered text is handed to the sink in one piece when
+ * the buffer reaches the flush size, when a line ends and the flush
+ * interval has passed since the last flush, before a statement that
+ * blocks (INPUT, WAIT, NETOPEN, NETRECV), on END and when the program
+ * stops running.
+ *
+ * The sink is pluggable: the default writes to whatever System.out is at
+ * the moment of the flush, so output captured with System.setOut keeps
+ * working, and the IDE or a headless runner can install its own sink to
+ * receive the text directly.
+ */
+public class ConsoleOutput {
+
+    /**
+     * Receives buffered text, always from the interpreter's thread
+     */
+    public interface Sink {
+        void write(String text);
+    }
+
+    public static final Sink STANDARD_OUT = text -> {
+        System.out.print(text);
+        System.out.flush();
+    };
+
+    public static final int DEFAULT_FLUSH_SIZE = 8192;
+    public static final long DEFAULT_FLUSH_INTERVAL = 50;  // ms
+
+    private final StringBuilder buffer = new StringBuilder(DEFAULT_FLUSH_SIZE);
+    private volatile Sink sink = STANDARD_OUT;
+    private int flushSize = DEFAULT_FLUSH_SIZE;
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL * 1000000L;  // ns, 0 = no timed flush
+    private long lastFlush = System.nanoTime();
+
+    public Sink getSink() {
+        return sink;
+    }
+
+    /**
+     * Send output to a sink instead of System.out; null restores System.out
+     */
+    public void setSink(Sink sink) {
+        this.sink = sink != null ? sink : STANDARD_OUT;
+    }
+
+    /**
+     * Flush once this many characters are buffered; 0 flushes every write
+     */
+    public void setFlushSize(int chars) {
+        flushSize = Math.max(0, chars);
+    }
+
+    /**
+     * Flush at the end of a line once this long has passed since the last
+     * flush, so a long-running program shows its progress; 0 turns it off
+     */
+    public void setFlushInterval(long millis) {
+        flushInterval = Math.max(0, millis) * 1000000L;
+    }
+
+    public void print(String text) {
+        buffer.append(text);
+        if (buffer.length() >= flushSize) {
+            flush();
+        }
+    }
+
+    public void print(double value) {
+        // Same text as System.out.print(double)
+        buffer.append(value);
+        if (buffer.length() >= flushSize) {
+            flush();
+        }
+    }
+
+    public void println() {
+        buffer.append('\n');
+        if (buffer.length() >= flushSize
+                || (flushInterval > 0 && System.nanoTime() - lastFlush >= flushInterval)) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        lastFlush = System.nanoTime();
+        if (buffer.length() == 0) {
+            return;
+        }
+        String text = buffer.toString();
+        buffer.setLength(0);
+        sink.write(text);
+    }
+
+    /**
+     * Characters waiting for the next flush
+     */
+    public int pending() {
+        return buffer.length();
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * COS(x): cosine of an angle in radians
+ */
+public class CosNode extends UnaryFunctionNode {
+
+    public CosNode(ExpressionNode argument) {
+        super("COS", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.cos(argument.evaluate(context));
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Superinstruction for FOR I = a TO b [STEP c] with integer constant
+ * bounds and step.
+ *
+ * The bounds need no evaluation, so the loop frame the interpreter pushes
+ * is built on first execution and reused every time the loop is entered.
+ * Its NEXT becomes a CountedNextStmt, which steps and tests the loop
+ * variable against endValue and stepValue directly.
+ */
+public class CountedForStmt extends ForStmt {
+    final int startValue;
+    final int endValue;
+    final int stepValue;
+    Interpreter.ForLoop frame;  // Created by the interpreter on first execution
+
+    public CountedForStmt(String varName, int slot, ExpressionNode start, ExpressionNode end, ExpressionNode step,
+                          int startValue, int endValue, int stepValue) {
+        super(varName, slot, start, end, step);
+        this.startValue = startValue;
+        this.endValue = endValue;
+        this.stepValue = stepValue;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeCountedFor(this);
+    }
+}
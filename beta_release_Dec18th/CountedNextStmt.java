@@ -0,0 +1,21 @@
+/**
+ * NEXT closing a CountedForStmt, paired with it at load time.
+ *
+ * The bound and the step are int constants of the FOR and the sign of
+ * the step is known, so each iteration is one add and one compare
+ * against the FOR's own fields. If the innermost running loop is not
+ * the paired FOR (a GOTO left it, or NEXT sits where it closes another
+ * loop), the general NEXT runs instead.
+ */
+public class CountedNextStmt extends NextStmt {
+    final CountedForStmt loop;
+
+    public CountedNextStmt(CountedForStmt loop) {
+        this.loop = loop;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeCountedNext(this);
+    }
+}
@@ -0,0 +1,26 @@
+import java.util.*;
+
+/**
+ * DEF FN name(params) = expr
+ *
+ * The body is compiled at load time, its parameters bound to call frame
+ * slots; the function is registered when the DEF line runs.
+ */
+public class DefStmt implements Statement {
+    final String funcName;
+    final List<String> parameters;
+    final String expression;
+    final ExpressionNode body;
+
+    public DefStmt(String funcName, List<String> parameters, String expression, ExpressionNode body) {
+        this.funcName = funcName;
+        this.parameters = parameters;
+        this.expression = expression;
+        this.body = body;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeDef(this);
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * DIM name(size [, size ...]) [INTERNED]
+ *
+ * A name ending in $ makes a StringArray; INTERNED only applies to those.
+ */
+public class DimStmt implements Statement {
+    final String arrayName;
+    final ExpressionNode[] sizes;  // One per dimension
+    final boolean interned;
+
+    public DimStmt(String arrayName, ExpressionNode[] sizes) {
+        this(arrayName, sizes, false);
+    }
+
+    public DimStmt(String arrayName, ExpressionNode[] sizes, boolean interned) {
+        this.arrayName = arrayName;
+        this.sizes = sizes;
+        this.interned = interned;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeDim(this);
+    }
+}
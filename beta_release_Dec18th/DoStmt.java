@@ -0,0 +1,21 @@
+/**
+ * DO [WHILE condition | UNTIL condition]
+ */
+public class DoStmt implements Statement {
+    final String conditionText;
+    final ExpressionNode condition;  // null when the DO line has no condition
+    final boolean isWhile;
+    final boolean isUntil;
+
+    public DoStmt(String conditionText, ExpressionNode condition, boolean isWhile, boolean isUntil) {
+        this.conditionText = conditionText;
+        this.condition = condition;
+        this.isWhile = isWhile;
+        this.isUntil = isUntil;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeDo(this);
+    }
+}
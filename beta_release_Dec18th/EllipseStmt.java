@@ -0,0 +1,13 @@
+/**
+ * ELLIPSE x, y, w [, h [, fill]]
+ */
+public class EllipseStmt extends CommandStmt {
+    public EllipseStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeEllipse(this);
+    }
+}
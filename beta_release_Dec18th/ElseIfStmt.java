@@ -0,0 +1,21 @@
+/**
+ * ELSEIF condition THEN line of a block IF.
+ *
+ * The IF tests the ELSEIF conditions itself when its own is false; an
+ * ELSEIF line is only executed after the branch above it has run, and
+ * then skips to END IF like ELSE does.
+ */
+public class ElseIfStmt implements Statement {
+    final String condition;
+    final ExpressionNode conditionNode;  // null: evaluate the text with ExpressionParser
+
+    public ElseIfStmt(String condition, ExpressionNode conditionNode) {
+        this.condition = condition;
+        this.conditionNode = conditionNode;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeElseIf(this);
+    }
+}
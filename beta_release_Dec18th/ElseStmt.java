@@ -0,0 +1,9 @@
+/**
+ * ELSE line of a block IF.
+ */
+public class ElseStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeElse(this);
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * END IF - marks the end of a block IF.
+ */
+public class EndIfStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        // Nothing to do, just marks end of IF block
+    }
+}
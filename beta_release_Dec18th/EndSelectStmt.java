@@ -0,0 +1,9 @@
+/**
+ * END SELECT - marks the end of a SELECT CASE block.
+ */
+public class EndSelectStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        // Nothing to do, just marks end of SELECT block
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * END - stops the program.
+ */
+public class EndStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.getConsole().flush();
+        interpreter.stop();
+    }
+}
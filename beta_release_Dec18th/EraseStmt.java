@@ -0,0 +1,15 @@
+/**
+ * ERASE name [, name ...]: forget arrays, so they can be dimensioned again
+ */
+public class EraseStmt implements Statement {
+    final String[] arrayNames;
+
+    public EraseStmt(String[] arrayNames) {
+        this.arrayNames = arrayNames;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeErase(this);
+    }
+}
@@ -1,3 +1,4 @@
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -6,17 +7,54 @@ import java.util.Map;
  */
 public class ExecutionContext {
     private final Interpreter interpreter;
+    private final VariableStore variables;
+
+    // DEF FN call frames: arguments of nested and recursive calls, stacked
+    private double[] frames = new double[64];
+    private int frameBase;  // First argument of the running function
+    private int frameTop;   // First free slot
 
     public ExecutionContext(Interpreter interpreter) {
         this.interpreter = interpreter;
+        this.variables = interpreter.getVariableStore();
     }
 
     public Double getVariable(String name) {
-        return interpreter.getVariables().get(name);
+        return variables.get(name);
     }
 
     public void setVariable(String name, double value) {
-        interpreter.getVariables().put(name, value);
+        variables.set(name, value);
+    }
+
+    /**
+     * Read a variable through the slot resolved at compile time
+     */
+    public double getSlot(int slot) {
+        return variables.get(slot);
+    }
+
+    public void setSlot(int slot, double value) {
+        variables.set(slot, value);
+    }
+
+    /**
+     * Read an integer variable through its slot
+     */
+    public int getIntSlot(int slot) {
+        return variables.getInt(slot);
+    }
+
+    public void setIntSlot(int slot, int value) {
+        variables.setInt(slot, value);
+    }
+
+    /**
+     * The backing array of the variable slots, for compiled expressions.
+     * Read it again on each evaluation: the store may have grown.
+     */
+    public double[] getVariableValues() {
+        return variables.values();
     }
 
     public Map<String, double[]> getArrays() {
@@ -27,6 +65,75 @@ public class ExecutionContext {
         return interpreter.getArrays().get(name);
     }
 
+    /**
+     * String array by name (including the $), or null if not dimensioned
+     */
+    public StringArray getStringArray(String name) {
+        return interpreter.getStringArrays().get(name);
+    }
+
+    /**
+     * Changes whenever an array is dimensioned or erased; nodes that cache
+     * an array check it before using the cached reference
+     */
+    public int getArrayGeneration() {
+        return interpreter.getArrayGeneration();
+    }
+
+    /**
+     * Size + 1 of each dimension of an array, as given to DIM
+     */
+    public int[] getArrayExtents(String name) {
+        return interpreter.getArrayExtents().get(name);
+    }
+
+    /**
+     * Value of a string variable (name includes the $), or null if unset
+     */
+    public String getString(String name) {
+        return interpreter.getStringStore().get(name);
+    }
+
+    /**
+     * Argument of the user function being evaluated
+     */
+    public double getArgument(int index) {
+        return frames[frameBase + index];
+    }
+
+    /**
+     * Reserve a frame of count arguments on top of the stack, all 0.
+     * The caller's frame stays current until enterFrame, so arguments can
+     * still read its parameters.
+     */
+    int openFrame(int count) {
+        int frame = frameTop;
+        if (frame + count > frames.length) {
+            frames = Arrays.copyOf(frames, Math.max(frames.length * 2, frame + count));
+        }
+        Arrays.fill(frames, frame, frame + count, 0.0);
+        frameTop = frame + count;
+        return frame;
+    }
+
+    void setFrameValue(int slot, double value) {
+        frames[slot] = value;
+    }
+
+    /**
+     * Make an opened frame current, returning the caller's frame for leaveFrame
+     */
+    int enterFrame(int frame) {
+        int caller = frameBase;
+        frameBase = frame;
+        return caller;
+    }
+
+    void leaveFrame(int callerFrame, int frame) {
+        frameBase = callerFrame;
+        frameTop = frame;
+    }
+
     public Interpreter getInterpreter() {
         return interpreter;
     }
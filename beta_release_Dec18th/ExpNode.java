@@ -0,0 +1,15 @@
+/**
+ * EXP(x): e raised to the argument
+ */
+public class ExpNode extends UnaryFunctionNode {
+
+    public ExpNode(ExpressionNode argument) {
+        super("EXP", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        double x = argument.evaluate(context);
+        return Math.exp(x);
+    }
+}
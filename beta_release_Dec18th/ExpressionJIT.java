@@ -0,0 +1,448 @@
+import java.io.*;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+
+/**
+ * Compiles hot expression trees to JVM bytecode.
+ *
+ * Each expression becomes a hidden class extending CompiledExpression whose
+ * evaluate() is straight-line double arithmetic: constants are ldc2_w,
+ * bound variables are a daload from the VariableStore array, and operators
+ * are single instructions or static helper calls. The HotSpot JIT can then
+ * inline the whole expression instead of walking the tree through
+ * megamorphic interface calls.
+ *
+ * Constructs the JIT does not support (arrays, user functions, RND, ...)
+ * are kept as AST subtrees and called from the generated code. The code
+ * has no branches, so both operands of AND and OR are computed; an AND or
+ * OR whose right operand is such a subtree stays on the AST as a whole,
+ * where it short-circuits. If nothing
+ * in the tree is worth compiling, the tree cannot be compiled (too big
+ * for one method, say) or the JVM cannot define hidden classes, compile()
+ * returns null and the caller keeps the tree-walking node. Only the last
+ * turns the JIT off for good.
+ */
+public class ExpressionJIT {
+    private static final String CLASS_NAME = "JitExpression";
+    private static final String SUPER_NAME = "CompiledExpression";
+    private static final String NODE_NAME = "ExpressionNode";
+    private static final String CONTEXT_NAME = "ExecutionContext";
+
+    private static volatile boolean unavailable = false;  // Set when the JVM has no defineHiddenClass
+    private static int compiledCount = 0;
+
+    /**
+     * Compile an expression tree.
+     *
+     * @return the compiled expression, or null if it cannot or need not be compiled
+     */
+    public static ExpressionNode compile(ExpressionNode node) {
+        if (unavailable || !isWorthCompiling(node)) {
+            return null;
+        }
+
+        try {
+            Generator generator = new Generator();
+            byte[] bytes = generator.generate(node);
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(),
+                MethodType.methodType(void.class, ExpressionNode.class, ExpressionNode[].class));
+
+            ExpressionNode[] subtrees = generator.subtrees.toArray(new ExpressionNode[0]);
+            ExpressionNode compiled = (ExpressionNode) constructor.invoke(node, subtrees);
+            synchronized (ExpressionJIT.class) {
+                compiledCount++;
+            }
+            return compiled;
+        } catch (NoSuchMethodError e) {
+            // defineHiddenClass needs Java 15: stay on the AST from now on
+            unavailable = true;
+            System.err.println("Expression JIT disabled: " + e);
+            return null;
+        } catch (Throwable e) {
+            // A generator bug or a tree too big for one method: only this expression stays on the AST
+            System.err.println("Expression JIT skipped an expression: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Number of expressions compiled so far, across all interpreters
+     */
+    public static synchronized int getCompiledCount() {
+        return compiledCount;
+    }
+
+    // Leaves and trees made only of fallbacks gain nothing from compilation
+    static boolean isWorthCompiling(ExpressionNode node) {
+        if (node instanceof BinaryOpNode) {
+            return true;
+        }
+        if (node instanceof UnaryOpNode) {
+            return true;
+        }
+        if (node instanceof PowerNode) {
+            return true;
+        }
+        if (node instanceof FunctionCallNode) {
+            FunctionCallNode call = (FunctionCallNode) node;
+            return mathMethod(call) != null;
+        }
+        return false;
+    }
+
+    // java.lang.Math method taking the arguments of a built-in, (D)D or (DD)D, or null
+    private static String mathMethod(FunctionCallNode call) {
+        if (call.getArguments().size() == 2) {
+            switch (call.getFunctionName()) {
+                case "MIN": return "min";
+                case "MAX": return "max";
+                default: return null;
+            }
+        }
+        if (call.getArguments().size() != 1) {
+            return null;
+        }
+        switch (call.getFunctionName()) {
+            case "SIN": return "sin";
+            case "COS": return "cos";
+            case "TAN": return "tan";
+            case "ABS": return "abs";
+            case "INT": return "floor";
+            case "SQR": return "sqrt";
+            case "LOG": return "log";
+            case "EXP": return "exp";
+            case "ATN": return "atan";
+            default: return null;
+        }
+    }
+
+    /**
+     * Writes the class file for one expression
+     */
+    private static class Generator {
+        final List<ExpressionNode> subtrees = new ArrayList<>();
+        private final ConstantPool pool = new ConstantPool();
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private int stack = 0;
+        private int maxStack = 0;
+        private boolean usesVariables = false;
+
+        byte[] generate(ExpressionNode node) throws IOException {
+            // evaluate(ExecutionContext): locals 0 = this, 1 = context, 2 = double[] variables
+            emit(node);
+            op(0xaf, -2);  // dreturn
+            byte[] body = code.toByteArray();
+
+            ByteArrayOutputStream evaluate = new ByteArrayOutputStream();
+            if (usesVariables) {
+                evaluate.write(0x2b);  // aload_1
+                evaluate.write(0xb6);  // invokevirtual ExecutionContext.getVariableValues()
+                writeShort(evaluate, pool.methodRef(CONTEXT_NAME, "getVariableValues", "()[D"));
+                evaluate.write(0x4d);  // astore_2
+                maxStack = Math.max(maxStack, 1);
+            }
+            evaluate.write(body);
+
+            ByteArrayOutputStream init = new ByteArrayOutputStream();
+            init.write(0x2a);  // aload_0
+            init.write(0x2b);  // aload_1
+            init.write(0x2c);  // aload_2
+            init.write(0xb7);  // invokespecial CompiledExpression.<init>
+            writeShort(init, pool.methodRef(SUPER_NAME, "<init>",
+                "(L" + NODE_NAME + ";[L" + NODE_NAME + ";)V"));
+            init.write(0xb1);  // return
+
+            int thisClass = pool.classRef(CLASS_NAME);
+            int superClass = pool.classRef(SUPER_NAME);
+            int codeName = pool.utf8("Code");
+            int initName = pool.utf8("<init>");
+            int initDesc = pool.utf8("(L" + NODE_NAME + ";[L" + NODE_NAME + ";)V");
+            int evalName = pool.utf8("evaluate");
+            int evalDesc = pool.utf8("(L" + CONTEXT_NAME + ";)D");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(0xCAFEBABE);
+            data.writeShort(0);   // minor version
+            data.writeShort(52);  // major version: Java 8, no stack maps needed for branch-free code
+            pool.writeTo(data);
+            data.writeShort(0x0031);  // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+            data.writeShort(thisClass);
+            data.writeShort(superClass);
+            data.writeShort(0);  // interfaces
+            data.writeShort(0);  // fields
+            data.writeShort(2);  // methods
+            writeMethod(data, 0x0001, initName, initDesc, codeName, 3, 3, init.toByteArray());
+            writeMethod(data, 0x0001, evalName, evalDesc, codeName, maxStack, 3, evaluate.toByteArray());
+            data.writeShort(0);  // class attributes
+            data.flush();
+            return out.toByteArray();
+        }
+
+        private void emit(ExpressionNode node) throws IOException {
+            if (node instanceof ConstantNode) {
+                op(0x14, 2);  // ldc2_w
+                writeShort(code, pool.doubleConstant(((ConstantNode) node).getValue()));
+            } else if (node instanceof VariableNode && ((VariableNode) node).getSlot() >= 0) {
+                usesVariables = true;
+                op(0x2c, 1);  // aload_2
+                pushInt(((VariableNode) node).getSlot());
+                op(0x31, 0);   // daload: arrayref, index -> double
+            } else if (node instanceof BinaryOpNode && isLogical((BinaryOpNode) node)
+                    && !isInline(((BinaryOpNode) node).getRight())) {
+                emitFallback(node);
+            } else if (node instanceof BinaryOpNode) {
+                emitBinary((BinaryOpNode) node);
+            } else if (node instanceof UnaryOpNode) {
+                UnaryOpNode unary = (UnaryOpNode) node;
+                emit(unary.getOperand());
+                if (unary.getOperator() == UnaryOpNode.UnaryOperator.NEGATE) {
+                    op(0x77, 0);  // dneg
+                } else {
+                    invokeStatic(SUPER_NAME, "not", "(D)D", 0);
+                }
+            } else if (node instanceof PowerNode) {
+                PowerNode power = (PowerNode) node;
+                emit(power.getBase());
+                if (power.getExponent() == 2) {
+                    op(0x5c, 2);   // dup2
+                    op(0x6b, -2);  // dmul
+                } else {
+                    pushInt(power.getExponent());
+                    invokeStatic(SUPER_NAME, "power", "(DI)D", -1);
+                }
+            } else if (node instanceof FunctionCallNode && mathMethod((FunctionCallNode) node) != null) {
+                FunctionCallNode call = (FunctionCallNode) node;
+                for (ExpressionNode arg : call.getArguments()) {
+                    emit(arg);
+                }
+                if (call.getArguments().size() == 2) {
+                    invokeStatic("java/lang/Math", mathMethod(call), "(DD)D", -2);
+                } else {
+                    invokeStatic("java/lang/Math", mathMethod(call), "(D)D", 0);
+                }
+            } else {
+                emitFallback(node);
+            }
+        }
+
+        private void emitBinary(BinaryOpNode node) throws IOException {
+            emit(node.getLeft());
+            emit(node.getRight());
+
+            switch (node.getOperator()) {
+                case ADD: op(0x63, -2); break;       // dadd
+                case SUBTRACT: op(0x67, -2); break;  // dsub
+                case MULTIPLY: op(0x6b, -2); break;  // dmul
+                case MODULO: op(0x73, -2); break;    // drem, same as Java %
+                case DIVIDE: invokeStatic(SUPER_NAME, "div", "(DD)D", -2); break;
+                case POWER: invokeStatic("java/lang/Math", "pow", "(DD)D", -2); break;
+                case EQUAL: invokeStatic(SUPER_NAME, "eq", "(DD)D", -2); break;
+                case NOT_EQUAL: invokeStatic(SUPER_NAME, "ne", "(DD)D", -2); break;
+                case LESS_THAN: invokeStatic(SUPER_NAME, "lt", "(DD)D", -2); break;
+                case GREATER_THAN: invokeStatic(SUPER_NAME, "gt", "(DD)D", -2); break;
+                case LESS_EQUAL: invokeStatic(SUPER_NAME, "le", "(DD)D", -2); break;
+                case GREATER_EQUAL: invokeStatic(SUPER_NAME, "ge", "(DD)D", -2); break;
+                case AND: invokeStatic(SUPER_NAME, "and", "(DD)D", -2); break;
+                case OR: invokeStatic(SUPER_NAME, "or", "(DD)D", -2); break;
+                case APPROX_EQUAL: invokeStatic(SUPER_NAME, "approxEq", "(DD)D", -2); break;
+                default: throw new IllegalStateException("Unsupported operator " + node.getOperator());
+            }
+        }
+
+        private static boolean isLogical(BinaryOpNode node) {
+            return node.getOperator() == BinaryOpNode.BinaryOperator.AND
+                || node.getOperator() == BinaryOpNode.BinaryOperator.OR;
+        }
+
+        // True if emit() compiles the whole tree without a fallback subtree
+        private static boolean isInline(ExpressionNode node) {
+            if (node instanceof ConstantNode) {
+                return true;
+            }
+            if (node instanceof VariableNode) {
+                return ((VariableNode) node).getSlot() >= 0;
+            }
+            if (node instanceof BinaryOpNode) {
+                BinaryOpNode binary = (BinaryOpNode) node;
+                return isInline(binary.getLeft()) && isInline(binary.getRight());
+            }
+            if (node instanceof UnaryOpNode) {
+                return isInline(((UnaryOpNode) node).getOperand());
+            }
+            if (node instanceof PowerNode) {
+                return isInline(((PowerNode) node).getBase());
+            }
+            if (node instanceof FunctionCallNode && mathMethod((FunctionCallNode) node) != null) {
+                for (ExpressionNode arg : ((FunctionCallNode) node).getArguments()) {
+                    if (!isInline(arg)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+
+        // subtrees[i].evaluate(context)
+        private void emitFallback(ExpressionNode node) throws IOException {
+            int index = subtrees.size();
+            subtrees.add(node);
+
+            op(0x2a, 1);  // aload_0
+            op(0xb4, 0);  // getfield CompiledExpression.subtrees
+            writeShort(code, pool.fieldRef(SUPER_NAME, "subtrees", "[L" + NODE_NAME + ";"));
+            pushInt(index);
+            op(0x32, -1);  // aaload
+            op(0x2b, 1);   // aload_1
+            op(0xb9, 0);   // invokeinterface: node, context -> double
+            writeShort(code, pool.interfaceMethodRef(NODE_NAME, "evaluate", "(L" + CONTEXT_NAME + ";)D"));
+            code.write(2);  // argument slots including the receiver
+            code.write(0);
+        }
+
+        private void invokeStatic(String owner, String name, String desc, int stackChange) throws IOException {
+            op(0xb8, stackChange);
+            writeShort(code, pool.methodRef(owner, name, desc));
+        }
+
+        private void pushInt(int value) throws IOException {
+            if (value >= -1 && value <= 5) {
+                op(0x03 + value, 1);  // iconst_<n>
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op(0x10, 1);  // bipush
+                code.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op(0x11, 1);  // sipush
+                writeShort(code, value);
+            } else {
+                op(0x13, 1);  // ldc_w
+                writeShort(code, pool.intConstant(value));
+            }
+        }
+
+        private void op(int opcode, int stackChange) {
+            code.write(opcode);
+            stack += stackChange;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private static void writeMethod(DataOutputStream data, int access, int name, int desc, int codeName,
+                                        int maxStack, int maxLocals, byte[] body) throws IOException {
+            data.writeShort(access);
+            data.writeShort(name);
+            data.writeShort(desc);
+            data.writeShort(1);  // attributes: Code
+            data.writeShort(codeName);
+            data.writeInt(12 + body.length);
+            data.writeShort(maxStack);
+            data.writeShort(maxLocals);
+            data.writeInt(body.length);
+            data.write(body);
+            data.writeShort(0);  // exception table
+            data.writeShort(0);  // code attributes
+        }
+
+        private static void writeShort(ByteArrayOutputStream out, int value) {
+            out.write((value >> 8) & 0xff);
+            out.write(value & 0xff);
+        }
+    }
+
+    /**
+     * Class file constant pool with de-duplication
+     */
+    private static class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int next = 1;
+
+        int utf8(String value) throws IOException {
+            Integer index = entries.get("U" + value);
+            if (index != null) return index;
+            data.writeByte(1);
+            data.writeUTF(value);
+            return add("U" + value, 1);
+        }
+
+        int classRef(String name) throws IOException {
+            Integer index = entries.get("C" + name);
+            if (index != null) return index;
+            int nameIndex = utf8(name);
+            data.writeByte(7);
+            data.writeShort(nameIndex);
+            return add("C" + name, 1);
+        }
+
+        int intConstant(int value) throws IOException {
+            Integer index = entries.get("I" + value);
+            if (index != null) return index;
+            data.writeByte(3);
+            data.writeInt(value);
+            return add("I" + value, 1);
+        }
+
+        int doubleConstant(double value) throws IOException {
+            String key = "D" + Double.doubleToRawLongBits(value);
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            data.writeByte(6);
+            data.writeDouble(value);
+            return add(key, 2);  // Doubles take two constant pool slots
+        }
+
+        int methodRef(String owner, String name, String desc) throws IOException {
+            return memberRef(10, owner, name, desc);
+        }
+
+        int interfaceMethodRef(String owner, String name, String desc) throws IOException {
+            return memberRef(11, owner, name, desc);
+        }
+
+        int fieldRef(String owner, String name, String desc) throws IOException {
+            return memberRef(9, owner, name, desc);
+        }
+
+        private int memberRef(int tag, String owner, String name, String desc) throws IOException {
+            String key = "M" + tag + owner + "." + name + desc;
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            int classIndex = classRef(owner);
+            int nameAndType = nameAndType(name, desc);
+            data.writeByte(tag);
+            data.writeShort(classIndex);
+            data.writeShort(nameAndType);
+            return add(key, 1);
+        }
+
+        private int nameAndType(String name, String desc) throws IOException {
+            String key = "N" + name + desc;
+            Integer index = entries.get(key);
+            if (index != null) return index;
+            int nameIndex = utf8(name);
+            int descIndex = utf8(desc);
+            data.writeByte(12);
+            data.writeShort(nameIndex);
+            data.writeShort(descIndex);
+            return add(key, 1);
+        }
+
+        private int add(String key, int size) {
+            int index = next;
+            entries.put(key, index);
+            next += size;
+            return index;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            data.flush();
+            out.writeShort(next);
+            out.write(bytes.toByteArray());
+        }
+    }
+}
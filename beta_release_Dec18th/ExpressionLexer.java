@@ -0,0 +1,168 @@
+import java.util.*;
+
+/**
+ * Splits a BASIC expression into tokens in a single pass.
+ *
+ * Names are uppercased here, once, so the parser compares keywords and
+ * looks up functions without touching the source text again. Every token
+ * remembers its column for error messages. A $ or % right after a name is
+ * its type suffix (A$, I%); % after a space is the modulo operator.
+ */
+public class ExpressionLexer {
+
+    public enum Kind {
+        NUMBER,    // value holds the number
+        STRING,    // text holds the contents, without quotes
+        NAME,      // variable, array, function or keyword (AND, OR, XOR, NOT, MOD, SHL, SHR, FN)
+        OPERATOR,  // + - * / % ^ = <> < > <= >=
+        LPAREN, RPAREN, COMMA,
+        END
+    }
+
+    public static final class Token {
+        public final Kind kind;
+        public final String text;
+        public final double value;
+        public final int column;   // 1-based
+
+        Token(Kind kind, String text, double value, int column) {
+            this.kind = kind;
+            this.text = text;
+            this.value = value;
+            this.column = column;
+        }
+
+        boolean is(Kind kind, String text) {
+            return this.kind == kind && this.text.equals(text);
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case END: return "end of expression";
+                case STRING: return "\"" + text + "\"";
+                default: return "'" + text + "'";
+            }
+        }
+    }
+
+    /**
+     * Tokenize an expression. The list always ends with an END token.
+     *
+     * @throws IllegalArgumentException for characters that cannot start a token
+     */
+    public static List<Token> tokenize(String expr) {
+        int length = expr.length();
+        List<Token> tokens = new ArrayList<>(length / 2 + 2);
+        int i = 0;
+
+        while (i < length) {
+            char c = expr.charAt(i);
+            int start = i;
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(expr.charAt(i + 1)))) {
+                i = scanNumber(expr, i);
+                String text = expr.substring(start, i);
+                tokens.add(new Token(Kind.NUMBER, text, Double.parseDouble(text), start + 1));
+            } else if (Character.isLetter(c) || c == '_') {
+                boolean lower = needsUpperCase(c);
+                i++;
+                while (i < length && (Character.isLetterOrDigit(expr.charAt(i)) || expr.charAt(i) == '_')) {
+                    lower |= needsUpperCase(expr.charAt(i));
+                    i++;
+                }
+                if (i < length && (expr.charAt(i) == '$' || expr.charAt(i) == '%')) {
+                    i++;
+                }
+                String name = expr.substring(start, i);
+                tokens.add(new Token(Kind.NAME, lower ? name.toUpperCase() : name, 0, start + 1));
+            } else if (c == '"') {
+                int close = expr.indexOf('"', i + 1);
+                if (close == -1) {
+                    throw error("unterminated string", start + 1);
+                }
+                tokens.add(new Token(Kind.STRING, expr.substring(i + 1, close), 0, start + 1));
+                i = close + 1;
+            } else if (c == '<' || c == '>') {
+                i++;
+                if (i < length && (expr.charAt(i) == '=' || (c == '<' && expr.charAt(i) == '>'))) {
+                    i++;
+                }
+                tokens.add(new Token(Kind.OPERATOR, expr.substring(start, i), 0, start + 1));
+            } else if ("+-*/%^=".indexOf(c) >= 0) {
+                i++;
+                tokens.add(new Token(Kind.OPERATOR, String.valueOf(c), 0, start + 1));
+            } else if (c == '(') {
+                i++;
+                tokens.add(new Token(Kind.LPAREN, "(", 0, start + 1));
+            } else if (c == ')') {
+                i++;
+                tokens.add(new Token(Kind.RPAREN, ")", 0, start + 1));
+            } else if (c == ',') {
+                i++;
+                tokens.add(new Token(Kind.COMMA, ",", 0, start + 1));
+            } else {
+                throw error("unexpected character '" + c + "'", start + 1);
+            }
+        }
+
+        tokens.add(new Token(Kind.END, "", 0, length + 1));
+        return tokens;
+    }
+
+    // Digits, an optional fraction and an optional exponent: 12, 1.5, .5, 2., 1E-3
+    private static int scanNumber(String expr, int i) {
+        int length = expr.length();
+        while (i < length && isDigit(expr.charAt(i))) {
+            i++;
+        }
+        if (i < length && expr.charAt(i) == '.') {
+            i++;
+            while (i < length && isDigit(expr.charAt(i))) {
+                i++;
+            }
+        }
+        if (i < length && (expr.charAt(i) == 'E' || expr.charAt(i) == 'e')) {
+            int exponent = i + 1;
+            if (exponent < length && (expr.charAt(exponent) == '+' || expr.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < length && isDigit(expr.charAt(exponent))) {
+                i = exponent;
+                while (i < length && isDigit(expr.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        return i;
+    }
+
+    // Names are usually typed in capitals already; only these may change
+    private static boolean needsUpperCase(char c) {
+        return c >= 'a' && c <= 'z' || c > 127;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static IllegalArgumentException error(String message, int column) {
+        return new SyntaxException(message, column);
+    }
+
+    /**
+     * A syntax error at a known column of the expression text
+     */
+    static final class SyntaxException extends IllegalArgumentException {
+        final String reason;
+        final int column;  // 1-based
+
+        SyntaxException(String reason, int column) {
+            super(reason + " at column " + column);
+            this.reason = reason;
+            this.column = column;
+        }
+    }
+}
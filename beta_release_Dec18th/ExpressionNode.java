@@ -14,6 +14,15 @@ public interface ExpressionNode {
      */
     double evaluate(ExecutionContext context);
 
+    /**
+     * Evaluate this node as a condition: true if the value is non-zero.
+     * Comparisons and AND/OR/NOT override this to produce the boolean
+     * directly, so IF and WHILE never build the 1.0/0.0 in between.
+     */
+    default boolean test(ExecutionContext context) {
+        return evaluate(context) != 0.0;
+    }
+
     /**
      * Get a string representation for debugging
      */
@@ -0,0 +1,288 @@
+import java.util.*;
+
+/**
+ * Optimization pass over expression ASTs, run after ASTBuilder.
+ *
+ * - Constant subtrees are folded into a single ConstantNode
+ *   (pure built-in functions only - never RND or user functions);
+ *   integer operations fold to an IntegerConstantNode
+ * - Identities: x*1, 1*x, x-0 become x; -(-x) becomes x;
+ *   x*2 becomes x+x when x is a plain variable (evaluating it twice is free).
+ *   x+0 and 0+x are left alone: -0 + 0 is 0, not -0.
+ * - Division by a power-of-two constant becomes multiplication by its
+ *   reciprocal. Other divisors are left alone: their reciprocal is not
+ *   exact, so the result could differ in the last bit.
+ * - A power whose exponent folds to a constant is reduced the way
+ *   ASTBuilder reduces X^2 (see ASTBuilder.power)
+ *
+ * Every rewrite is exact, so an optimized tree evaluates to the same
+ * value as the original. verify() checks that on random inputs. The
+ * one exception is a power reduced to a PowerNode above X^2, which is
+ * within an ulp or two of Math.pow.
+ */
+public class ExpressionOptimizer {
+
+    /**
+     * Return an optimized copy of the tree (nodes are immutable)
+     */
+    public static ExpressionNode optimize(ExpressionNode node) {
+        if (node instanceof BinaryOpNode) {
+            return optimizeBinary((BinaryOpNode) node);
+        }
+        if (node instanceof UnaryOpNode) {
+            return optimizeUnary((UnaryOpNode) node);
+        }
+        if (node instanceof IntegerOpNode) {
+            return optimizeInteger((IntegerOpNode) node);
+        }
+        if (node instanceof IntegerNotNode) {
+            IntegerNode operand = ASTBuilder.toInteger(optimize(((IntegerNotNode) node).getOperand()));
+            if (operand instanceof ConstantNode) {
+                return new IntegerConstantNode(~operand.evaluateInt(null));
+            }
+            return operand == ((IntegerNotNode) node).getOperand() ? node : new IntegerNotNode(operand);
+        }
+        if (node instanceof FunctionCallNode) {
+            return optimizeCall((FunctionCallNode) node);
+        }
+        if (node instanceof PowerNode) {
+            PowerNode power = (PowerNode) node;
+            ExpressionNode base = optimize(power.getBase());
+            if (base instanceof ConstantNode) {
+                return fold(new PowerNode(base, power.getExponent()));
+            }
+            return base == power.getBase() ? node : new PowerNode(base, power.getExponent());
+        }
+        if (node instanceof UserFunctionCallNode) {
+            UserFunctionCallNode call = (UserFunctionCallNode) node;
+            return new UserFunctionCallNode(call.getFunctionName(), optimizeAll(call.getArguments()));
+        }
+        if (node instanceof ArrayAccessNode) {
+            ArrayAccessNode access = (ArrayAccessNode) node;
+            return new ArrayAccessNode(access.getArrayName(), optimizeAll(access.getIndices()));
+        }
+        return node;
+    }
+
+    private static ExpressionNode optimizeBinary(BinaryOpNode node) {
+        ExpressionNode left = optimize(node.getLeft());
+        ExpressionNode right = optimize(node.getRight());
+        BinaryOpNode.BinaryOperator op = node.getOperator();
+
+        if (left instanceof ConstantNode && right instanceof ConstantNode) {
+            return fold(new BinaryOpNode(left, op, right));
+        }
+
+        switch (op) {
+            case SUBTRACT:
+                // x - (-0) is x + 0, which turns -0 into 0
+                if (isConstant(right, 0) && Double.doubleToRawLongBits(((ConstantNode) right).getValue()) == 0) {
+                    return left;
+                }
+                break;
+            case MULTIPLY:
+                if (isConstant(right, 1)) return left;
+                if (isConstant(left, 1)) return right;
+                if (isConstant(right, 2) && left instanceof VariableNode) {
+                    return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.ADD, left);
+                }
+                if (isConstant(left, 2) && right instanceof VariableNode) {
+                    return new BinaryOpNode(right, BinaryOpNode.BinaryOperator.ADD, right);
+                }
+                break;
+            case DIVIDE:
+                if (right instanceof ConstantNode) {
+                    double divisor = ((ConstantNode) right).getValue();
+                    if (isPowerOfTwo(divisor)) {
+                        if (divisor == 1) return left;
+                        return new BinaryOpNode(left, BinaryOpNode.BinaryOperator.MULTIPLY,
+                            new ConstantNode(1.0 / divisor));
+                    }
+                }
+                break;
+            case POWER:
+                if (right instanceof ConstantNode) {
+                    ExpressionNode reduced = ASTBuilder.power(left, ((ConstantNode) right).getValue());
+                    if (reduced != null) {
+                        return reduced;
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+
+        if (left == node.getLeft() && right == node.getRight()) {
+            return node;
+        }
+        return new BinaryOpNode(left, op, right);
+    }
+
+    private static ExpressionNode optimizeUnary(UnaryOpNode node) {
+        ExpressionNode operand = optimize(node.getOperand());
+
+        if (operand instanceof ConstantNode) {
+            return fold(new UnaryOpNode(node.getOperator(), operand));
+        }
+
+        // Double negation
+        if (node.getOperator() == UnaryOpNode.UnaryOperator.NEGATE && operand instanceof UnaryOpNode) {
+            UnaryOpNode inner = (UnaryOpNode) operand;
+            if (inner.getOperator() == UnaryOpNode.UnaryOperator.NEGATE) {
+                return inner.getOperand();
+            }
+        }
+
+        if (operand == node.getOperand()) {
+            return node;
+        }
+        return new UnaryOpNode(node.getOperator(), operand);
+    }
+
+    private static ExpressionNode optimizeInteger(IntegerOpNode node) {
+        // A folded CINT comes back as a plain ConstantNode; make it an int operand again
+        IntegerNode left = ASTBuilder.toInteger(optimize(node.getLeft()));
+        IntegerNode right = ASTBuilder.toInteger(optimize(node.getRight()));
+
+        if (left instanceof ConstantNode && right instanceof ConstantNode) {
+            try {
+                return new IntegerConstantNode(new IntegerOpNode(left, node.getOperator(), right).evaluateInt(null));
+            } catch (ArithmeticException e) {
+                // Past the int range; leave it to evaluate() at run time
+            }
+        }
+        if (left == node.getLeft() && right == node.getRight()) {
+            return node;
+        }
+        return new IntegerOpNode(left, node.getOperator(), right);
+    }
+
+    private static ExpressionNode optimizeCall(FunctionCallNode node) {
+        List<ExpressionNode> args = optimizeAll(node.getArguments());
+        FunctionCallNode call = BuiltinFunctions.create(node.getFunctionName(), args);
+
+        if (BuiltinFunctions.isPure(node.getFunctionName())) {
+            for (ExpressionNode arg : args) {
+                if (!(arg instanceof ConstantNode)) {
+                    return call;
+                }
+            }
+            return fold(call);
+        }
+        return call;
+    }
+
+    private static List<ExpressionNode> optimizeAll(List<ExpressionNode> nodes) {
+        List<ExpressionNode> result = new ArrayList<>(nodes.size());
+        for (ExpressionNode node : nodes) {
+            result.add(optimize(node));
+        }
+        return result;
+    }
+
+    // Only called on nodes whose children are all constants, so no context is needed
+    private static ExpressionNode fold(ExpressionNode node) {
+        return new ConstantNode(node.evaluate(null));
+    }
+
+    private static boolean isConstant(ExpressionNode node, double value) {
+        return node instanceof ConstantNode && ((ConstantNode) node).getValue() == value;
+    }
+
+    // Powers of two (including fractions such as 0.5) have an exact reciprocal
+    private static boolean isPowerOfTwo(double value) {
+        if (value == 0 || Double.isNaN(value) || Double.isInfinite(value)) {
+            return false;
+        }
+        double magnitude = Math.abs(value);
+        return magnitude == Math.scalb(1.0, Math.getExponent(magnitude))
+            && Math.getExponent(magnitude) > Double.MIN_EXPONENT
+            && Math.getExponent(magnitude) < Double.MAX_EXPONENT;
+    }
+
+    /**
+     * Check that the optimized and unoptimized trees for an expression
+     * evaluate identically, assigning random values to its variables.
+     *
+     * @return null if every trial matched, otherwise a description of the first mismatch
+     */
+    public static String verify(String expr, int trials, long seed) {
+        Interpreter interpreter = new Interpreter();
+        try {
+            VariableStore variables = interpreter.getVariableStore();
+            ExpressionNode original = ASTBuilder.buildAST(expr, variables);
+            ExpressionNode optimized = optimize(original);
+
+            Set<String> names = new LinkedHashSet<>();
+            collectVariables(original, names);
+
+            ExecutionContext context = new ExecutionContext(interpreter);
+            Random random = new Random(seed);
+            for (int trial = 0; trial < trials; trial++) {
+                for (String name : names) {
+                    variables.set(name, randomValue(random));
+                }
+
+                // Same RND sequence for both trees
+                long rndSeed = random.nextLong();
+                interpreter.randomize(rndSeed);
+                double expected = original.evaluate(context);
+                interpreter.randomize(rndSeed);
+                double actual = optimized.evaluate(context);
+
+                // equals() tells -0 from 0 and takes NaN as equal to itself
+                if (!Double.valueOf(expected).equals(actual)) {
+                    return expr + ": " + original + " = " + expected + " but " +
+                        optimized + " = " + actual + " with " + interpreter.getVariables();
+                }
+            }
+            return null;
+        } finally {
+            interpreter.shutdown();
+        }
+    }
+
+    private static void collectVariables(ExpressionNode node, Set<String> names) {
+        if (node instanceof VariableNode) {
+            names.add(((VariableNode) node).getVarName());
+        } else if (node instanceof IntegerVariableNode) {
+            names.add(((IntegerVariableNode) node).getVarName());
+        } else if (node instanceof IntegerOpNode) {
+            collectVariables(((IntegerOpNode) node).getLeft(), names);
+            collectVariables(((IntegerOpNode) node).getRight(), names);
+        } else if (node instanceof BinaryOpNode) {
+            collectVariables(((BinaryOpNode) node).getLeft(), names);
+            collectVariables(((BinaryOpNode) node).getRight(), names);
+        } else if (node instanceof UnaryOpNode) {
+            collectVariables(((UnaryOpNode) node).getOperand(), names);
+        } else if (node instanceof IntegerNotNode) {
+            collectVariables(((IntegerNotNode) node).getOperand(), names);
+        } else if (node instanceof PowerNode) {
+            collectVariables(((PowerNode) node).getBase(), names);
+        } else if (node instanceof FunctionCallNode) {
+            for (ExpressionNode arg : ((FunctionCallNode) node).getArguments()) {
+                collectVariables(arg, names);
+            }
+        } else if (node instanceof UserFunctionCallNode) {
+            for (ExpressionNode arg : ((UserFunctionCallNode) node).getArguments()) {
+                collectVariables(arg, names);
+            }
+        } else if (node instanceof ArrayAccessNode) {
+            for (ExpressionNode index : ((ArrayAccessNode) node).getIndices()) {
+                collectVariables(index, names);
+            }
+        }
+    }
+
+    // Mix of edge cases and ordinary values
+    private static double randomValue(Random random) {
+        switch (random.nextInt(8)) {
+            case 0: return random.nextBoolean() ? 0.0 : -0.0;
+            case 1: return random.nextBoolean() ? 1.0 : -1.0;
+            case 2: return random.nextInt(21) - 10;
+            case 3: return (random.nextDouble() - 0.5) * 1e300;
+            case 4: return (random.nextDouble() - 0.5) * 1e-300;
+            default: return (random.nextDouble() - 0.5) * 2000;
+        }
+    }
+}
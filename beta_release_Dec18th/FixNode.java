@@ -0,0 +1,15 @@
+/**
+ * FIX(x): integer part, truncated toward zero: FIX(-2.5) is -2
+ */
+public class FixNode extends UnaryFunctionNode {
+
+    public FixNode(ExpressionNode argument) {
+        super("FIX", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        double x = argument.evaluate(context);
+        return x < 0 ? Math.ceil(x) : Math.floor(x);
+    }
+}
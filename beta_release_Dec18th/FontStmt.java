@@ -0,0 +1,19 @@
+/**
+ * FONT "name", size [, "style"]
+ */
+public class FontStmt implements Statement {
+    final String fontName;
+    final ExpressionNode size;
+    final int style;  // java.awt.Font style constant
+
+    public FontStmt(String fontName, ExpressionNode size, int style) {
+        this.fontName = fontName;
+        this.size = size;
+        this.style = style;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeFont(this);
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * FOR var = start TO end [STEP step]
+ *
+ * An integer loop variable (I%) counts in int arithmetic; its start and
+ * step are rounded as CINT does.
+ */
+public class ForStmt implements Statement {
+    final String varName;
+    final int slot;
+    final ExpressionNode start;
+    final ExpressionNode end;
+    final ExpressionNode step;  // null means STEP 1
+    final boolean integer;      // The variable is an integer variable
+
+    public ForStmt(String varName, int slot, ExpressionNode start, ExpressionNode end, ExpressionNode step) {
+        this.varName = varName;
+        this.slot = slot;
+        this.start = start;
+        this.end = end;
+        this.step = step;
+        this.integer = VariableStore.isInteger(varName);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeFor(this);
+    }
+}
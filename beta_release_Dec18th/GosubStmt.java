@@ -0,0 +1,16 @@
+/**
+ * GOSUB target
+ */
+public class GosubStmt implements Statement {
+    final String target;  // Upper-cased label or line number
+    int targetIndex = -1; // Resolved by the interpreter's link phase
+
+    public GosubStmt(String target) {
+        this.target = target;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeGosub(this);
+    }
+}
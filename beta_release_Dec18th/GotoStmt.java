@@ -0,0 +1,16 @@
+/**
+ * GOTO target / GO TO target
+ */
+public class GotoStmt implements Statement {
+    final String target;  // Upper-cased label or line number
+    int targetIndex = -1; // Resolved by the interpreter's link phase
+
+    public GotoStmt(String target) {
+        this.target = target;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeGoto(this);
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * HYPOT(x, y): length of the vector (x, y), SQR(x * x + y * y)
+ *
+ * Computed directly rather than with Math.hypot, which guards against
+ * intermediate overflow at several times the cost.
+ */
+public class HypotNode extends BinaryFunctionNode {
+
+    public HypotNode(ExpressionNode first, ExpressionNode second) {
+        super("HYPOT", first, second);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        double x = first.evaluate(context);
+        double y = second.evaluate(context);
+        return Math.sqrt(x * x + y * y);
+    }
+}
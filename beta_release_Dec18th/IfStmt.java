@@ -0,0 +1,32 @@
+/**
+ * IF condition THEN statement [ELSEIF condition THEN statement] [ELSE statement]
+ * IF condition THEN          (block form, closed by END IF)
+ *
+ * The THEN/ELSE split happens once at load time and both branches are
+ * compiled to statements; a single-line ELSEIF becomes an IF in the ELSE
+ * branch. The condition is pre-parsed too. Only conditions the AST cannot
+ * express (strings) keep conditionNode null and go through ExpressionParser.
+ * A block IF has no branch statements.
+ */
+public class IfStmt implements Statement {
+    final String condition;
+    final ExpressionNode conditionNode;  // null: evaluate the text with ExpressionParser
+    final Statement thenStmt;
+    final Statement elseStmt;
+
+    public IfStmt(String condition, ExpressionNode conditionNode, Statement thenStmt, Statement elseStmt) {
+        this.condition = condition;
+        this.conditionNode = conditionNode;
+        this.thenStmt = thenStmt;
+        this.elseStmt = elseStmt;
+    }
+
+    public boolean isBlock() {
+        return thenStmt == null;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) throws Exception {
+        interpreter.executeIf(this);
+    }
+}
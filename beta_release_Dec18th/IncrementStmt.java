@@ -0,0 +1,20 @@
+/**
+ * Superinstruction for X = X + c, X = c + X and X = X - c.
+ *
+ * The constant is folded into delta at load time, so executing it is a
+ * single slot read and write with no expression evaluation. The original
+ * expression stays in value for tools that read the statement as a LET.
+ */
+public class IncrementStmt extends LetStmt {
+    final double delta;
+
+    public IncrementStmt(String varName, int slot, ExpressionNode value, double delta) {
+        super(varName, slot, value);
+        this.delta = delta;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeIncrement(this);
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * MOUSEX, MOUSEY, MOUSEBUTTON, KEYPRESS - copies the current input state
+ * into the variable of the same name.
+ */
+public class InputPollStmt implements Statement {
+    final Source source;
+
+    public enum Source {
+        MOUSEX, MOUSEY, MOUSEBUTTON, KEYPRESS
+    }
+
+    public InputPollStmt(Source source) {
+        this.source = source;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeInputPoll(this);
+    }
+}
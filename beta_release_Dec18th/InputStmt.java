@@ -0,0 +1,17 @@
+/**
+ * INPUT var
+ */
+public class InputStmt implements Statement {
+    final String varName;
+    final int slot;
+
+    public InputStmt(String varName, int slot) {
+        this.varName = varName;
+        this.slot = slot;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeInput(this);
+    }
+}
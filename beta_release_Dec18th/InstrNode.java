@@ -0,0 +1,30 @@
+/**
+ * INSTR(s, find): 1-based position of find in s, or 0
+ */
+public class InstrNode implements ExpressionNode {
+    private final StringNode haystack;
+    private final StringNode needle;
+
+    public InstrNode(StringNode haystack, StringNode needle) {
+        this.haystack = haystack;
+        this.needle = needle;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return StringFunctions.instr(haystack.evaluateString(context), needle.evaluateString(context));
+    }
+
+    @Override
+    public String toString() {
+        return "INSTR(" + haystack + ", " + needle + ")";
+    }
+
+    public StringNode getHaystack() {
+        return haystack;
+    }
+
+    public StringNode getNeedle() {
+        return needle;
+    }
+}
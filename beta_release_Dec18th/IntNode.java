@@ -0,0 +1,14 @@
+/**
+ * INT(x): largest integer not above the argument: INT(-2.5) is -3
+ */
+public class IntNode extends UnaryFunctionNode {
+
+    public IntNode(ExpressionNode argument) {
+        super("INT", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.floor(argument.evaluate(context));
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * An integer literal used as an operand of integer arithmetic (the 1 in I% + 1)
+ *
+ * Still a ConstantNode, so the optimizer and the other backends treat it
+ * like any other number.
+ */
+public class IntegerConstantNode extends ConstantNode implements IntegerNode {
+    private final int intValue;
+
+    public IntegerConstantNode(int value) {
+        super(value);
+        this.intValue = value;
+    }
+
+    @Override
+    public int evaluateInt(ExecutionContext context) {
+        return intValue;
+    }
+}
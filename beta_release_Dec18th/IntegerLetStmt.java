@@ -0,0 +1,22 @@
+/**
+ * Integer assignment: [LET] I% = expr
+ *
+ * A double-valued expression arrives wrapped in CINT, so the value is
+ * always evaluated straight to an int.
+ */
+public class IntegerLetStmt implements Statement {
+    final String varName;
+    final int slot;
+    final IntegerNode value;
+
+    public IntegerLetStmt(String varName, int slot, IntegerNode value) {
+        this.varName = varName;
+        this.slot = slot;
+        this.value = value;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeIntegerLet(this);
+    }
+}
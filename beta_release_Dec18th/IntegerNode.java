@@ -0,0 +1,16 @@
+/**
+ * An expression whose value is always a 32-bit integer: integer
+ * variables (I%, or names covered by DEFINT), integer constants next to
+ * them, and integer arithmetic over those.
+ *
+ * Statements that need an int - an integer assignment, an array index,
+ * a graphics coordinate - call evaluateInt() and skip the round trip
+ * through double. evaluate() returns the same value as a double.
+ */
+public interface IntegerNode extends ExpressionNode {
+    /**
+     * Evaluate this node as an int.
+     * @param context - The execution context containing variables, arrays, etc.
+     */
+    int evaluateInt(ExecutionContext context);
+}
@@ -0,0 +1,34 @@
+/**
+ * NOT of an integer operand: the bitwise complement, so F% AND NOT 4
+ * clears bit 2 and NOT 0 is -1
+ *
+ * ASTBuilder makes one when the operand is an integer variable, integer
+ * arithmetic or a whole-number literal. NOT of a condition or of a double
+ * stays the logical UnaryOpNode, so NOT (I% > 0) is still 1 or 0.
+ */
+public class IntegerNotNode implements IntegerNode {
+    private final IntegerNode operand;
+
+    public IntegerNotNode(IntegerNode operand) {
+        this.operand = operand;
+    }
+
+    @Override
+    public int evaluateInt(ExecutionContext context) {
+        return ~operand.evaluateInt(context);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return evaluateInt(context);
+    }
+
+    @Override
+    public String toString() {
+        return "BITNOT(" + operand + ")";
+    }
+
+    public IntegerNode getOperand() {
+        return operand;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Binary operation on two integer operands, evaluated in int arithmetic
+ *
+ * ASTBuilder builds these for arithmetic when both sides are integer-typed
+ * and at least one is not a plain constant, and for every AND, OR, XOR,
+ * SHL and SHR except AND or OR of two conditions, rounding non-integer
+ * operands first. Arithmetic never wraps: evaluate() does + - * in
+ * double, so T = I% * 100000 is exact, and evaluateInt() (an integer
+ * variable, an array index) throws an ArithmeticException when the
+ * result leaves the int range. Comparisons compare the double values for
+ * the same reason.
+ *
+ * AND, OR and XOR work bit by bit, so F% AND 4 tests a flag; comparisons
+ * give 1 or 0, which the bitwise AND and OR combine like the logical ones.
+ *
+ * AND skips its right operand when the left one is 0. OR skips it when
+ * the right one is a comparison and the left one has bit 0 set, since
+ * the bitwise result cannot differ.
+ */
+public class IntegerOpNode implements IntegerNode {
+    private final IntegerNode left;
+    private final IntegerNode right;
+    private final BinaryOpNode.BinaryOperator operator;
+    private final boolean comparison;
+    private final boolean rightIsFlag;  // right gives only 1 or 0
+
+    public IntegerOpNode(IntegerNode left, BinaryOpNode.BinaryOperator operator, IntegerNode right) {
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+        this.comparison = isComparison();
+        this.rightIsFlag = right instanceof IntegerOpNode && ((IntegerOpNode) right).isComparison();
+    }
+
+    public boolean isComparison() {
+        switch (operator) {
+            case EQUAL: case NOT_EQUAL: case LESS_THAN: case GREATER_THAN: case LESS_EQUAL: case GREATER_EQUAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * True for the operators that have an integer form. DIVIDE and POWER
+     * always produce a double.
+     */
+    public static boolean supports(BinaryOpNode.BinaryOperator operator) {
+        switch (operator) {
+            case DIVIDE: case POWER: case APPROX_EQUAL:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public int evaluateInt(ExecutionContext context) {
+        if (comparison) {
+            return compare(left.evaluate(context), right.evaluate(context)) ? 1 : 0;
+        }
+        int leftVal = left.evaluateInt(context);
+        if (operator == BinaryOpNode.BinaryOperator.AND && leftVal == 0
+                || operator == BinaryOpNode.BinaryOperator.OR && rightIsFlag && (leftVal & 1) != 0) {
+            return leftVal;
+        }
+        int rightVal = right.evaluateInt(context);
+
+        switch (operator) {
+            case ADD: return Math.addExact(leftVal, rightVal);
+            case SUBTRACT: return Math.subtractExact(leftVal, rightVal);
+            case MULTIPLY: return Math.multiplyExact(leftVal, rightVal);
+            case MODULO: return rightVal != 0 ? leftVal % rightVal : 0;
+            case AND: return leftVal & rightVal;
+            case OR: return leftVal | rightVal;
+            case XOR: return leftVal ^ rightVal;
+            case SHIFT_LEFT: return leftVal << rightVal;
+            case SHIFT_RIGHT: return leftVal >> rightVal;
+            default: return 0;
+        }
+    }
+
+    private boolean compare(double leftVal, double rightVal) {
+        switch (operator) {
+            case EQUAL: return leftVal == rightVal;
+            case NOT_EQUAL: return leftVal != rightVal;
+            case LESS_THAN: return leftVal < rightVal;
+            case GREATER_THAN: return leftVal > rightVal;
+            case LESS_EQUAL: return leftVal <= rightVal;
+            case GREATER_EQUAL: return leftVal >= rightVal;
+            default: return false;
+        }
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        // A sum or product past the int range carries on as a double
+        switch (operator) {
+            case ADD: return left.evaluate(context) + right.evaluate(context);
+            case SUBTRACT: return left.evaluate(context) - right.evaluate(context);
+            case MULTIPLY: return left.evaluate(context) * right.evaluate(context);
+            default: return evaluateInt(context);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + left + " " + operator + " " + right + ")";
+    }
+
+    public IntegerNode getLeft() {
+        return left;
+    }
+
+    public IntegerNode getRight() {
+        return right;
+    }
+
+    public BinaryOpNode.BinaryOperator getOperator() {
+        return operator;
+    }
+}
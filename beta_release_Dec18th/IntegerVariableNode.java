@@ -0,0 +1,46 @@
+/**
+ * Represents a reference to an integer variable (e.g., I%, or I after DEFINT I)
+ *
+ * Bound nodes read the int[] half of the VariableStore directly.
+ * Unbound nodes (slot -1) fall back to a lookup by name.
+ */
+public class IntegerVariableNode implements IntegerNode {
+    private final String varName;
+    private final int slot;
+
+    public IntegerVariableNode(String varName) {
+        this(varName, -1);
+    }
+
+    public IntegerVariableNode(String varName, int slot) {
+        this.varName = varName.toUpperCase();
+        this.slot = slot;
+    }
+
+    @Override
+    public int evaluateInt(ExecutionContext context) {
+        if (slot >= 0) {
+            return context.getIntSlot(slot);
+        }
+        Double value = context.getVariable(varName);
+        return value != null ? VariableStore.toInteger(value) : 0;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return evaluateInt(context);
+    }
+
+    @Override
+    public String toString() {
+        return varName;
+    }
+
+    public String getVarName() {
+        return varName;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+}
@@ -1,12 +1,30 @@
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 import java.io.*;
 
 public class Interpreter {
+    // Source line shapes, compiled once rather than per line in loadProgram
+    private static final Pattern NUMBERED_DATA = Pattern.compile("\\d+\\s+DATA\\s+.*");
+    private static final Pattern LINE_NUMBER = Pattern.compile("\\d+");
+    private static final Pattern LABEL = Pattern.compile("[A-Za-z_]\\w*:");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Array generations are unique across interpreters, so an AST evaluated
+    // against two interpreters never takes one's cached array for the other's
+    private static final AtomicInteger ARRAY_GENERATIONS = new AtomicInteger();
+
     private List<CodeLine> lines;
-    private Map<String, Double> variables;
-    private Map<String, String> stringVars;
-    private Map<String, double[]> arrays;
+    private Statement[] program;  // Pre-decoded statements, parallel to lines
+    private int[] blockMatch;     // Block opener/ELSEIF/ELSE/CASE -> its closer; closer -> opener
+    private int[] caseChain;      // IF/SELECT -> first ELSEIF/ELSE/CASE -> next one of the same block
+    private VariableStore variables;  // Numeric variables, slot-indexed
+    private StringStore stringVars;
+    private Map<String, double[]> arrays;        // Flat, row-major element storage
+    private Map<String, StringArray> stringArrays;  // DIM A$(...), same layout
+    private Map<String, int[]> arrayExtents;     // DIM size + 1 of every dimension
+    private int arrayGeneration = ARRAY_GENERATIONS.incrementAndGet();  // Moves on with every DIM and ERASE
     private Stack<ForLoop> forStack;
     private Stack<WhileLoop> whileStack;
     private Stack<DoLoop> doStack;
@@ -26,22 +44,49 @@ public class Interpreter {
     private Set<Integer> breakpoints;
 
     private List<String> dataStatements;
+    private TreeMap<Integer, Integer> dataLineOffsets;  // DATA line number -> first item index
     private int dataPointer;
+    private List<String> loadErrors;
+    private ExpressionNode[] dataNodes;  // DATA item ASTs, parsed on first READ
+    private final ExecutionContext context;  // Reused for every evaluation
 
     private int currentLine;
     private boolean running;
     private boolean stepMode;
     private boolean waitingForStep;
-    private Random random;
+    private SplittableRandom random;  // RND, only used by the interpreter's own thread
+    private final ConsoleOutput console = new ConsoleOutput();  // PRINT buffer, flushed when the run ends
     private boolean turtleMode;
     private boolean graphicsModified;  // Track if graphics were modified in this line
     private boolean autoRefresh;  // Control automatic screen refresh
+    private boolean optimizeExpressions;  // Constant folding at load time (opt-in)
+    private int jitThreshold = 1000;      // Evaluations before an expression is compiled to bytecode
+    private int tierThreshold = 100;      // Loop iterations before a whole loop body is compiled
+    private int[] backEdgeCounts;         // Per loop header: jumps back to it so far
+    private JitExpressionNode[][] lineExpressions;  // JIT wrappers of each line, for loop promotion
+    private int promotedLoops;
+    private Backend backend = Backend.AST;
+    private VMProgram vmProgram;          // The loaded program compiled for the VM, when that is the backend
+
+    /**
+     * Execution engines: walking the pre-decoded statements, or running
+     * them compiled to register bytecode
+     */
+    public enum Backend { AST, VM }
 
     public Interpreter() {
         lines = new ArrayList<>();
-        variables = new ConcurrentHashMap<>();
-        stringVars = new ConcurrentHashMap<>();
+        program = new Statement[0];
+        blockMatch = new int[0];
+        caseChain = new int[0];
+        backEdgeCounts = new int[0];
+        lineExpressions = new JitExpressionNode[0][];
+        variables = new VariableStore();
+        context = new ExecutionContext(this);
+        stringVars = new StringStore();
         arrays = new ConcurrentHashMap<>();
+        stringArrays = new ConcurrentHashMap<>();
+        arrayExtents = new ConcurrentHashMap<>();
         forStack = new Stack<>();
         whileStack = new Stack<>();
         doStack = new Stack<>();
@@ -50,10 +95,13 @@ public class Interpreter {
         userFunctions = new HashMap<>();
         breakpoints = new HashSet<>();
         dataStatements = new ArrayList<>();
+        dataLineOffsets = new TreeMap<>();
+        dataNodes = new ExpressionNode[0];
+        loadErrors = new ArrayList<>();
         sound = new SoundSystem();
         sprites = new SpriteSystem();
         network = new NetworkSystem();
-        random = new Random();
+        random = new SplittableRandom();
         running = false;
         stepMode = false;
         waitingForStep = false;
@@ -61,8 +109,8 @@ public class Interpreter {
         autoRefresh = true;  // Auto-refresh enabled by default
         dataPointer = 0;
 
-        expressionParser = new ExpressionParser(variables, arrays);
-        expressionParser.setStringVars(stringVars);
+        expressionParser = new ExpressionParser(variables.asMap(), arrays);
+        expressionParser.setStringVars(stringVars.asMap());
         expressionParser.setUserFunctions(userFunctions);
         expressionParser.setInterpreter(this);
     }
@@ -80,6 +128,71 @@ public class Interpreter {
         this.debugPanel = panel;
     }
 
+    /**
+     * Enable constant folding and algebraic simplification of expressions.
+     * Takes effect the next time a program is loaded.
+     */
+    public void setOptimizeExpressions(boolean enabled) {
+        this.optimizeExpressions = enabled;
+    }
+
+    /**
+     * Number of evaluations after which an expression is compiled to JVM
+     * bytecode. Zero or less disables the expression JIT. Takes effect the
+     * next time a program is loaded.
+     */
+    public void setJitThreshold(int threshold) {
+        this.jitThreshold = Math.max(0, threshold);
+    }
+
+    /**
+     * Number of back-edge jumps (NEXT, WEND, LOOP or a backward GOTO) after
+     * which every expression in a loop is compiled at once, without waiting
+     * for each one to reach the JIT threshold. Zero or less disables loop
+     * promotion; it also needs the expression JIT to be enabled.
+     */
+    public void setTierThreshold(int threshold) {
+        this.tierThreshold = Math.max(0, threshold);
+    }
+
+    /**
+     * Number of loops promoted since the program was loaded
+     */
+    public int getPromotedLoopCount() {
+        return promotedLoops;
+    }
+
+    /**
+     * Choose the execution engine. Takes effect the next time a program is
+     * loaded. Programs the VM cannot run, and runs with breakpoints or step
+     * mode, use the AST interpreter.
+     */
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    /**
+     * The loaded program compiled for the VM, or null when it runs on the AST
+     */
+    public VMProgram getCompiledProgram() {
+        return vmProgram;
+    }
+
+    /**
+     * Load a program compiled for the VM, e.g. one read back with
+     * VMProgram.read. No source is kept, so it always runs on the VM.
+     */
+    public void loadCompiled(VMProgram compiled) {
+        clear();
+        dataStatements.addAll(compiled.data);
+        dataNodes = new ExpressionNode[dataStatements.size()];
+        vmProgram = compiled;
+    }
+
     public void setStepMode(boolean enabled) {
         this.stepMode = enabled;
         this.waitingForStep = enabled;
@@ -101,22 +214,80 @@ public class Interpreter {
         return breakpoints;
     }
 
+    /**
+     * Live Map view of the numeric variables, for the debugger and tests.
+     * Running code reads and writes slots in the VariableStore directly.
+     */
     public Map<String, Double> getVariables() {
+        return variables.asMap();
+    }
+
+    VariableStore getVariableStore() {
         return variables;
     }
 
+    /**
+     * Number of expressions this interpreter has parsed, at load time and
+     * since. Should stay flat while a loaded program is running.
+     */
+    public long getParseCount() {
+        return variables.getParseCount();
+    }
+
+    public Map<String, StringArray> getStringArrays() {
+        return stringArrays;
+    }
+
     public Map<String, double[]> getArrays() {
         return arrays;
     }
 
+    public Map<String, int[]> getArrayExtents() {
+        return arrayExtents;
+    }
+
+    int getArrayGeneration() {
+        return arrayGeneration;
+    }
+
+    /**
+     * Invalidate the arrays cached in ArrayAccessNodes. Called after any
+     * change to which double[] a name maps to.
+     */
+    void arraysChanged() {
+        arrayGeneration = ARRAY_GENERATIONS.incrementAndGet();
+    }
+
+    public Map<String, String> getStringVariables() {
+        return stringVars.asMap();
+    }
+
+    StringStore getStringStore() {
+        return stringVars;
+    }
+
     public Map<String, UserFunction> getUserFunctions() {
         return userFunctions;
     }
 
-    public Random getRandom() {
+    public SplittableRandom getRandom() {
         return random;
     }
 
+    /**
+     * Restart RND from a seed, so a run can be repeated exactly
+     */
+    public void randomize(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Buffered PRINT output; install a sink here to receive it directly
+     */
+    public ConsoleOutput getConsole() {
+        return console;
+    }
+
     public Stack<WhileLoop> getWhileStack() {
         return whileStack;
     }
@@ -125,11 +296,63 @@ public class Interpreter {
         return currentLine;
     }
 
+    void setCurrentLine(int line) {
+        currentLine = line;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    void setDataPointer(int pointer) {
+        dataPointer = pointer;
+    }
+
+    /**
+     * Problems found while linking the last loaded program,
+     * e.g. GOTO or GOSUB to a label that does not exist.
+     */
+    public List<String> getLoadErrors() {
+        return loadErrors;
+    }
+
+    // The loaded program as JavaTranslator sees it
+
+    Statement[] getProgram() {
+        return program;
+    }
+
+    int[] getBlockMatch() {
+        return blockMatch;
+    }
+
+    int[] getCaseChain() {
+        return caseChain;
+    }
+
+    List<String> getDataStatements() {
+        return dataStatements;
+    }
+
+    String getLineCode(int lineIndex) {
+        return lines.get(lineIndex).code;
+    }
+
     public void clear() {
         lines.clear();
+        program = new Statement[0];
+        blockMatch = new int[0];
+        caseChain = new int[0];
+        backEdgeCounts = new int[0];
+        lineExpressions = new JitExpressionNode[0][];
+        promotedLoops = 0;
+        vmProgram = null;
         variables.clear();
         stringVars.clear();
         arrays.clear();
+        stringArrays.clear();
+        arrayExtents.clear();
+        arraysChanged();
         forStack.clear();
         whileStack.clear();
         doStack.clear();
@@ -138,14 +361,17 @@ public class Interpreter {
         userFunctions.clear();
         breakpoints.clear();
         dataStatements.clear();
+        dataLineOffsets.clear();
+        dataNodes = new ExpressionNode[0];
+        loadErrors.clear();
         sprites.clearAll();
         dataPointer = 0;
         running = false;
         stepMode = false;
         waitingForStep = false;
         turtleMode = false;
-        expressionParser = new ExpressionParser(variables, arrays);
-        expressionParser.setStringVars(stringVars);
+        expressionParser = new ExpressionParser(variables.asMap(), arrays);
+        expressionParser.setStringVars(stringVars.asMap());
         expressionParser.setUserFunctions(userFunctions);
         expressionParser.setInterpreter(this);
     }
@@ -161,10 +387,13 @@ public class Interpreter {
             }
 
             // Check for DATA statement
-            if (line.toUpperCase().startsWith("DATA ") || line.matches("\\d+\\s+DATA\\s+.*")) {
+            if (line.regionMatches(true, 0, "DATA ", 0, 5)
+                    || Character.isDigit(line.charAt(0)) && NUMBERED_DATA.matcher(line).matches()) {
                 String dataLine = line;
-                if (line.matches("\\d+.*")) {
+                if (LINE_NUMBER.matcher(line).lookingAt()) {
                     dataLine = line.replaceFirst("\\d+\\s+", "");
+                    int lineNumber = Integer.parseInt(WHITESPACE.split(line, 2)[0]);
+                    dataLineOffsets.putIfAbsent(lineNumber, dataStatements.size());
                 }
                 if (dataLine.toUpperCase().startsWith("DATA ")) {
                     String data = dataLine.substring(5).trim();
@@ -177,16 +406,25 @@ public class Interpreter {
             }
 
             CodeLine codeLine = new CodeLine();
+            codeLine.dataOffset = dataStatements.size();
 
-            // Check for line number
-            String[] parts = line.split("\\s+", 2);
-            if (parts.length > 0 && parts[0].matches("\\d+")) {
-                codeLine.lineNumber = Integer.parseInt(parts[0]);
-                codeLine.code = parts.length > 1 ? parts[1] : "";
-            } else if (parts[0].matches("[A-Za-z_]\\w*:")) {
+            // Check for line number: the first word, up to a run of whitespace
+            int end = 0;
+            while (end < line.length() && !isSpace(line.charAt(end))) {
+                end++;
+            }
+            int rest = end;
+            while (rest < line.length() && isSpace(line.charAt(rest))) {
+                rest++;
+            }
+            String first = line.substring(0, end);
+            if (LINE_NUMBER.matcher(first).matches()) {
+                codeLine.lineNumber = Integer.parseInt(first);
+                codeLine.code = line.substring(rest);
+            } else if (LABEL.matcher(first).matches()) {
                 // Label
-                codeLine.label = parts[0].substring(0, parts[0].length() - 1);
-                codeLine.code = parts.length > 1 ? parts[1] : "";
+                codeLine.label = first.substring(0, first.length() - 1);
+                codeLine.code = line.substring(rest);
                 labels.put(codeLine.label.toUpperCase(), lines.size());
             } else {
                 codeLine.code = line;
@@ -213,8 +451,242 @@ public class Interpreter {
                 labels.put(String.valueOf(cl.lineNumber), i);
             }
         }
+
+        // Decode every line once so run() never re-parses source text
+        program = new Statement[lines.size()];
+        lineExpressions = new JitExpressionNode[lines.size()][];
+        List<JitExpressionNode> jitNodes = new ArrayList<>();
+        List<ASTBuilder.SyntaxError> syntaxErrors = new ArrayList<>();
+        variables.collectSyntaxErrors(syntaxErrors);
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                jitNodes.clear();
+                program[i] = StatementCompiler.compile(lines.get(i).code, variables, optimizeExpressions,
+                    jitThreshold, jitNodes);
+                lineExpressions[i] = jitNodes.toArray(new JitExpressionNode[0]);
+                for (ASTBuilder.SyntaxError error : syntaxErrors) {
+                    loadErrors.add(describeSyntaxError(error, i));
+                }
+                syntaxErrors.clear();
+            }
+        } finally {
+            variables.collectSyntaxErrors(null);
+        }
+        backEdgeCounts = new int[program.length];
+
+        dataNodes = new ExpressionNode[dataStatements.size()];
+
+        matchBlocks();
+        pairCountedLoops();
+        linkProgram();
+
+        for (String error : loadErrors) {
+            System.err.println(error);
+        }
+
+        if (backend == Backend.VM) {
+            try {
+                vmProgram = VMCompiler.compile(this);
+            } catch (UnsupportedOperationException e) {
+                System.err.println("VM cannot run this program (" + e.getMessage() + "), using the AST interpreter");
+            }
+        }
+    }
+
+    /**
+     * Structural pass: pair every block opener with its ELSE/CASE branches
+     * and its closer, so skipping a block is a single array lookup.
+     * Unbalanced blocks are reported as load errors.
+     */
+    private void matchBlocks() {
+        blockMatch = new int[program.length];
+        caseChain = new int[program.length];
+        Arrays.fill(blockMatch, -1);
+        Arrays.fill(caseChain, -1);
+
+        // Open blocks as {opener index, last ELSE/CASE index}
+        Deque<int[]> open = new ArrayDeque<>();
+
+        for (int i = 0; i < program.length; i++) {
+            Statement stmt = program[i];
+
+            if ((stmt instanceof IfStmt && ((IfStmt) stmt).isBlock()) || stmt instanceof WhileStmt ||
+                    stmt instanceof DoStmt || stmt instanceof SelectStmt) {
+                open.push(new int[] { i, i });
+            } else if (stmt instanceof ElseStmt || stmt instanceof ElseIfStmt) {
+                int[] block = open.peek();
+                String name = stmt instanceof ElseStmt ? "ELSE" : "ELSEIF";
+                if (block == null || !(program[block[0]] instanceof IfStmt)) {
+                    loadErrors.add(name + " without IF at " + describeLine(i));
+                } else if (program[block[1]] instanceof ElseStmt) {
+                    loadErrors.add((stmt instanceof ElseStmt ? "Duplicate ELSE" : "ELSEIF after ELSE") +
+                        " at " + describeLine(i));
+                } else {
+                    caseChain[block[1]] = i;
+                    block[1] = i;
+                }
+            } else if (stmt instanceof CaseStmt) {
+                int[] block = open.peek();
+                if (block == null || !(program[block[0]] instanceof SelectStmt)) {
+                    loadErrors.add("CASE without SELECT CASE at " + describeLine(i));
+                } else {
+                    caseChain[block[1]] = i;
+                    block[1] = i;
+                }
+            } else if (stmt instanceof EndIfStmt) {
+                closeBlock(open, IfStmt.class, i, "END IF without IF");
+            } else if (stmt instanceof WendStmt) {
+                closeBlock(open, WhileStmt.class, i, "WEND without WHILE");
+            } else if (stmt instanceof LoopStmt) {
+                closeBlock(open, DoStmt.class, i, "LOOP without DO");
+            } else if (stmt instanceof EndSelectStmt) {
+                closeBlock(open, SelectStmt.class, i, "END SELECT without SELECT CASE");
+            }
+        }
+
+        while (!open.isEmpty()) {
+            int opener = open.pop()[0];
+            Statement stmt = program[opener];
+            String missing = stmt instanceof IfStmt ? "IF without END IF"
+                : stmt instanceof WhileStmt ? "WHILE without WEND"
+                : stmt instanceof DoStmt ? "DO without LOOP"
+                : "SELECT CASE without END SELECT";
+            loadErrors.add(missing + " at " + describeLine(opener));
+        }
+    }
+
+    /**
+     * Give each NEXT that closes a counted FOR in the source its fused form.
+     * Only top-level statements are paired; the fused NEXT checks at run
+     * time that its FOR is the innermost running loop.
+     */
+    private void pairCountedLoops() {
+        Deque<Integer> open = new ArrayDeque<>();
+        for (int i = 0; i < program.length; i++) {
+            if (program[i] instanceof ForStmt) {
+                open.push(i);
+            } else if (program[i] instanceof NextStmt && !open.isEmpty()) {
+                Statement opener = program[open.pop()];
+                if (opener instanceof CountedForStmt && ((CountedForStmt) opener).stepValue != 0) {
+                    program[i] = new CountedNextStmt((CountedForStmt) opener);
+                }
+            }
+        }
+    }
+
+    private void closeBlock(Deque<int[]> open, Class<? extends Statement> opener, int closer, String error) {
+        int[] block = open.peek();
+        if (block == null || !opener.isInstance(program[block[0]])) {
+            loadErrors.add(error + " at " + describeLine(closer));
+            return;
+        }
+        open.pop();
+
+        // Every ELSEIF, ELSE or CASE of the block skips straight to its end
+        for (int c = caseChain[block[0]]; c >= 0; c = caseChain[c]) {
+            blockMatch[c] = closer;
+        }
+        blockMatch[block[0]] = closer;
+        blockMatch[closer] = block[0];
+    }
+
+    /**
+     * Link phase: resolve every jump target to an index into the program
+     * once, so GOTO/GOSUB never look up the label map while running.
+     * Undefined targets are reported here instead of being silently ignored.
+     */
+    private void linkProgram() {
+        for (int i = 0; i < program.length; i++) {
+            linkStatement(program[i], i);
+        }
+    }
+
+    private void linkStatement(Statement stmt, int lineIndex) {
+        if (stmt instanceof GotoStmt) {
+            GotoStmt gotoStmt = (GotoStmt) stmt;
+            gotoStmt.targetIndex = resolveTarget(gotoStmt.target, "GOTO", lineIndex);
+        } else if (stmt instanceof GosubStmt) {
+            GosubStmt gosubStmt = (GosubStmt) stmt;
+            gosubStmt.targetIndex = resolveTarget(gosubStmt.target, "GOSUB", lineIndex);
+        } else if (stmt instanceof OnGotoStmt) {
+            OnGotoStmt onStmt = (OnGotoStmt) stmt;
+            for (int t = 0; t < onStmt.targets.length; t++) {
+                onStmt.targetIndices[t] = resolveTarget(onStmt.targets[t],
+                    onStmt.isGosub ? "ON GOSUB" : "ON GOTO", lineIndex);
+            }
+        } else if (stmt instanceof RestoreStmt) {
+            RestoreStmt restoreStmt = (RestoreStmt) stmt;
+            restoreStmt.dataOffset = resolveDataOffset(restoreStmt.target, lineIndex);
+        } else if (stmt instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) stmt;
+            if (ifStmt.thenStmt != null) linkStatement(ifStmt.thenStmt, lineIndex);
+            if (ifStmt.elseStmt != null) linkStatement(ifStmt.elseStmt, lineIndex);
+        }
+    }
+
+    private int resolveTarget(String target, String command, int lineIndex) {
+        Integer index = labels.get(target);
+        if (index == null) {
+            loadErrors.add("Undefined label '" + target + "' in " + command + " at " + describeLine(lineIndex));
+            return -1;
+        }
+        return index;
+    }
+
+    /**
+     * RESTORE n moves the DATA pointer to the first DATA item at or after
+     * line n. A label restores to the DATA items that follow it in the source.
+     */
+    private int resolveDataOffset(String target, int lineIndex) {
+        if (target == null) {
+            return 0;
+        }
+
+        if (target.matches("\\d+")) {
+            Map.Entry<Integer, Integer> entry = dataLineOffsets.ceilingEntry(Integer.parseInt(target));
+            return entry != null ? entry.getValue() : dataStatements.size();
+        }
+
+        Integer index = labels.get(target);
+        if (index == null) {
+            loadErrors.add("Undefined label '" + target + "' in RESTORE at " + describeLine(lineIndex));
+            return 0;
+        }
+        CodeLine cl = lines.get(index);
+        if (cl.lineNumber > 0) {
+            Map.Entry<Integer, Integer> entry = dataLineOffsets.ceilingEntry(cl.lineNumber);
+            return entry != null ? entry.getValue() : dataStatements.size();
+        }
+        return cl.dataOffset;
+    }
+
+    // The characters WHITESPACE matches
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // The column counts from the start of the statement, after any line number or label
+    private String describeSyntaxError(ASTBuilder.SyntaxError error, int lineIndex) {
+        String where = describeLine(lineIndex);
+        int offset = lines.get(lineIndex).code.indexOf(error.expression);
+        if (offset >= 0 && error.column > 0) {
+            where += ", column " + (offset + error.column);
+        }
+        return "Syntax error in '" + error.expression.trim() + "': " + error.reason + " at " + where;
+    }
+
+    String describeLine(int lineIndex) {
+        CodeLine cl = lines.get(lineIndex);
+        if (cl.lineNumber > 0) {
+            return "line " + cl.lineNumber;
+        }
+        if (cl.label != null) {
+            return "label " + cl.label;
+        }
+        return "statement " + (lineIndex + 1);
     }
 
+
     public void run() throws Exception {
         running = true;
         currentLine = 0;
@@ -227,8 +699,18 @@ public class Interpreter {
             spriteAnimator = new SpriteAnimator(sprites, graphics);
         }
 
+        if (vmProgram != null && breakpoints.isEmpty() && !stepMode) {
+            try {
+                new VM(this, vmProgram).run();
+            } finally {
+                running = false;
+                console.flush();
+            }
+            return;
+        }
+
         try {
-            while (running && currentLine < lines.size()) {
+            while (running && currentLine < program.length) {
                 // Check for interruption
                 if (Thread.currentThread().isInterrupted()) {
                     running = false;
@@ -242,6 +724,9 @@ public class Interpreter {
                 }
 
                 // Wait for step if in step mode
+                if (stepMode && waitingForStep) {
+                    console.flush();
+                }
                 while (stepMode && waitingForStep && running) {
                     if (Thread.currentThread().isInterrupted()) {
                         running = false;
@@ -253,8 +738,9 @@ public class Interpreter {
                 if (!running) break;
 
                 try {
-                    executeLine(lines.get(currentLine).code);
+                    executeStatement(program[currentLine]);
                 } catch (ArithmeticException e) {
+                    console.flush();
                     System.err.println("Math error at line " + currentLine + ": " + e.getMessage());
                     running = false;
                     throw new RuntimeException("Math error at line " + currentLine + ": " + e.getMessage(), e);
@@ -273,6 +759,7 @@ public class Interpreter {
             Thread.currentThread().interrupt(); // Preserve interrupt status
         } finally {
             running = false;
+            console.flush();
         }
     }
 
@@ -296,666 +783,323 @@ public class Interpreter {
         }
     }
 
-    private void executeLine(String line) throws Exception {
-        if (line.isEmpty()) return;
-
+    /**
+     * Execute one pre-decoded statement and batch its repaint.
+     */
+    private void executeStatement(Statement stmt) throws Exception {
         graphicsModified = false;  // Reset flag at start of line
-        CommandParser parser = new CommandParser(line);
-        String cmd = parser.getCommand().toUpperCase();
+        stmt.execute(this);
 
-        // Handle multi-word commands
-        String lineUpper = line.trim().toUpperCase();
-        if (lineUpper.startsWith("END SELECT") || lineUpper.equals("ENDSELECT")) {
-            // END SELECT - do nothing, just marks end of SELECT block
-            return;
+        // Batch repaint: call once at end of line execution if graphics were modified
+        // Only repaint if autoRefresh is enabled
+        if (autoRefresh && graphicsModified && graphics != null) {
+            graphics.repaint();
         }
-        if (lineUpper.startsWith("END IF") || lineUpper.equals("ENDIF")) {
-            // END IF - do nothing, just marks end of IF block
-            return;
+    }
+
+    /**
+     * Run a statement the VM hands back to the interpreter
+     */
+    void executeFallback(Statement stmt, int line) throws Exception {
+        currentLine = line;
+        executeStatement(stmt);
+    }
+
+    private void requireGraphics() {
+        if (graphics == null) {
+            throw new RuntimeException("Graphics not initialized. Graphics commands require a graphics window.");
         }
+    }
 
-        switch (cmd) {
-            case "PRINT":
-                executePrint(parser);
-                break;
-            case "LET":
-                executeLet(parser);
-                break;
-            case "INPUT":
-                executeInput(parser);
-                break;
-            case "IF":
-                executeIf(parser);
-                break;
-            case "SELECT":
-                executeSelect(parser);
-                break;
-            case "CASE":
-                // If we hit a CASE line in normal execution, it means we finished
-                // a previous case block and need to skip to END SELECT
-                skipToEndSelect();
-                break;
-            case "WHILE":
-                executeWhile(parser);
-                break;
-            case "WEND":
-                executeWend();
-                break;
-            case "DO":
-                executeDo(parser);
-                break;
-            case "LOOP":
-                executeLoop(parser);
-                break;
-            case "DEF":
-                executeDef(parser);
-                break;
-            case "DATA":
-                // Already handled in loadProgram
-                break;
-            case "READ":
-                executeRead(parser);
-                break;
-            case "RESTORE":
-                executeRestore(parser);
-                break;
-            case "GOTO":
-            case "GO":
-                executeGoto(parser);
-                break;
-            case "GOSUB":
-                executeGosub(parser);
-                break;
-            case "RETURN":
-                executeReturn();
-                break;
-            case "FOR":
-                executeFor(parser);
-                break;
-            case "NEXT":
-                executeNext(parser);
-                break;
-            case "DIM":
-                executeDim(parser);
-                break;
-            case "CLS":
-                if (graphics != null) {
-                    graphics.clear();
-                    graphicsModified = true;
-                } else {
-                    throw new RuntimeException("Graphics not initialized. Graphics commands require a graphics window.");
-                }
-                break;
-            case "COLOR":
-            case "COLOUR":
-                if (graphics != null) {
-                    executeColor(parser);
-                } else {
-                    throw new RuntimeException("Graphics not initialized. Graphics commands require a graphics window.");
-                }
-                break;
-            case "LINE":
-                if (graphics != null) {
-                    executeLineCommand(parser);
-                    graphicsModified = true;
-                } else {
-                    throw new RuntimeException("Graphics not initialized. Graphics commands require a graphics window.");
-                }
-                break;
-            case "CIRCLE":
-                if (graphics != null) {
-                    executeCircle(parser);
-                    graphicsModified = true;
-                } else {
-                    System.err.println("Graphics not initialized");
-                }
-                break;
-            case "ELLIPSE":
-                if (graphics != null) {
-                    executeEllipse(parser);
-                    graphicsModified = true;
-                } else {
-                    System.err.println("Graphics not initialized");
-                }
-                break;
-            case "POLYGON":
-                if (graphics != null) {
-                    executePolygon(parser);
-                    graphicsModified = true;
-                } else {
-                    System.err.println("Graphics not initialized");
-                }
-                break;
-            case "RECT":
-            case "BOX":
-                if (graphics != null) {
-                    executeRect(parser);
-                    graphicsModified = true;
-                } else {
-                    System.err.println("Graphics not initialized");
-                }
-                break;
-            case "TEXT":
-                if (graphics != null) {
-                    executeText(parser);
-                    graphicsModified = true;
-                } else {
-                    System.err.println("Graphics not initialized");
-                }
-                break;
-            case "PSET":
-            case "PIXEL":
-                if (graphics != null) {
-                    executePixel(parser);
-                    graphicsModified = true;
-                } else {
-                    System.err.println("Graphics not initialized");
-                }
-                break;
-            case "PAGE":
-                if (graphics != null) {
-                    executePage(parser);
-                    graphicsModified = true;
-                } else {
-                    System.err.println("Graphics not initialized");
-                }
-                break;
-            case "NOREFRESH":
-                autoRefresh = false;
-                break;
-            case "REFRESH":
-                autoRefresh = true;
-                if (graphics != null) {
-                    graphics.repaint();
-                }
-                break;
-            case "SOUND":
-            case "TONE":
-                executeSound(parser);
-                break;
-            case "WAVEFORM":
-                executeWaveform(parser);
-                break;
-            case "BEEP":
-                executeBeep(parser);
-                break;
-            case "PLAY":
-                executePlay(parser);
-                break;
-            case "RECORD":
-                executeRecord(parser);
-                break;
-            case "PLAYBACK":
-                executePlayback(parser);
-                break;
-            case "SPRITE":
-                if (graphics != null) {
-                    executeSprite(parser);
-                } else {
-                    throw new RuntimeException("Graphics not initialized. Graphics commands require a graphics window.");
-                }
-                break;
-            case "COLLISION":
-                if (graphics != null) {
-                    executeCollision(parser);
-                } else {
-                    System.err.println("Graphics not initialized");
-                }
-                break;
-            case "ANIMATE":
-                if (spriteAnimator != null) {
-                    executeAnimate(parser);
-                } else {
-                    System.err.println("Sprite animator not initialized");
-                }
-                break;
-            case "TURTLE":
-                executeTurtle(parser);
-                break;
-            case "FORWARD":
-            case "FD":
-                if (turtle != null && graphics != null) {
-                    turtle.forward(evaluateExpression(parser.getRemainder()));
-                    graphics.repaint();
-                }
-                break;
-            case "BACKWARD":
-            case "BK":
-                if (turtle != null && graphics != null) {
-                    turtle.backward(evaluateExpression(parser.getRemainder()));
-                    graphics.repaint();
-                }
-                break;
-            case "RIGHT":
-            case "RT":
-                if (turtle != null) {
-                    turtle.right(evaluateExpression(parser.getRemainder()));
-                }
-                break;
-            case "LEFT":
-            case "LT":
-                if (turtle != null) {
-                    turtle.left(evaluateExpression(parser.getRemainder()));
-                }
-                break;
-            case "PENUP":
-            case "PU":
-                if (turtle != null) {
-                    turtle.penUp();
-                }
-                break;
-            case "PENDOWN":
-            case "PD":
-                if (turtle != null) {
-                    turtle.penDown();
-                }
-                break;
-            case "HOME":
-                if (turtle != null && graphics != null) {
-                    turtle.home();
-                    graphics.repaint();
-                }
-                break;
-            case "BOX3D":
-                if (graphics != null) {
-                    executeBox3D(parser);
-                }
-                break;
-            case "SPHERE3D":
-                if (graphics != null) {
-                    executeSphere3D(parser);
-                }
-                break;
-            case "ROTATE3D":
-                if (graphics3D != null) {
-                    executeRotate3D(parser);
-                }
-                break;
-            case "NETOPEN":
-                executeNetOpen(parser);
-                break;
-            case "NETSEND":
-                executeNetSend(parser);
-                break;
-            case "NETRECV":
-                executeNetRecv(parser);
-                break;
-            case "NETCLOSE":
-                executeNetClose(parser);
-                break;
-            case "MOUSEX":
-                if (input != null) {
-                    variables.put("MOUSEX", (double)input.getMouseX());
-                }
-                break;
-            case "MOUSEY":
-                if (input != null) {
-                    variables.put("MOUSEY", (double)input.getMouseY());
-                }
-                break;
-            case "MOUSEBUTTON":
-                if (input != null) {
-                    variables.put("MOUSEBUTTON", input.isMouseButton(1) ? 1.0 : 0.0);
-                }
-                break;
-            case "KEYPRESS":
-                if (input != null) {
-                    variables.put("KEYPRESS", (double)input.getLastKey());
-                }
-                break;
-            case "LOAD":
-                executeLoad(parser);
-                break;
-            case "SAVE":
-                executeSave(parser);
-                break;
-            case "END":
-                running = false;
-                break;
-            case "REM":
-                // Comment - do nothing
-                break;
-            case "WAIT":
-                executeWait(parser);
-                break;
-            case "FONT":
-                if (graphics != null) {
-                    executeFont(parser);
-                }
-                break;
-            default:
-                // Try as assignment
-                if (line.contains("=")) {
-                    executeLet(new CommandParser("LET " + line));
-                }
+    void executePrint(PrintStmt stmt) {
+        for (PrintStmt.Item item : stmt.items) {
+            switch (item.kind) {
+                case LITERAL:
+                    console.print(item.text);
+                    break;
+                case STRING:
+                    console.print(item.string.evaluateString(context));
+                    break;
+                case NUMBER:
+                    console.print(evaluate(item.node));
+                    break;
+            }
+            if (item.spaceAfter) {
+                console.print(" ");
+            }
+        }
+        if (stmt.newline) {
+            console.println();
         }
+    }
 
-        // Batch repaint: call once at end of line execution if graphics were modified
-        // Only repaint if autoRefresh is enabled
-        if (autoRefresh && graphicsModified && graphics != null) {
-            graphics.repaint();
-        }
+    void executeLet(LetStmt stmt) {
+        variables.set(stmt.slot, evaluate(stmt.value));
     }
 
-    private void executePrint(CommandParser parser) {
-        String expr = parser.getRemainder();
-        if (expr.isEmpty()) {
-            System.out.println();
-            return;
-        }
+    void executeIntegerLet(IntegerLetStmt stmt) {
+        variables.setInt(stmt.slot, stmt.value.evaluateInt(context));
+    }
 
-        // Check if line ends with semicolon (suppress newline)
-        boolean suppressNewline = expr.trim().endsWith(";");
-        if (suppressNewline) {
-            expr = expr.trim().substring(0, expr.trim().length() - 1);
-        }
+    void executeIncrement(IncrementStmt stmt) {
+        variables.set(stmt.slot, variables.get(stmt.slot) + stmt.delta);
+    }
+
+    void executeStringLet(StringLetStmt stmt) {
+        stringVars.set(stmt.varName, stmt.value.evaluateString(context));
+    }
 
-        // Split by comma to handle PRINT "text", var1, var2
-        String[] parts = splitPrintArgs(expr);
+    void executeStringAppend(StringAppendStmt stmt) {
+        StringNode[] parts = stmt.parts;
+        if (parts.length == 1) {
+            stringVars.append(stmt.varName, parts[0].evaluateString(context));
+            return;
+        }
+        // Evaluate everything first: A$ = A$ + "," + A$ appends the old value
+        String[] values = new String[parts.length];
         for (int i = 0; i < parts.length; i++) {
-            String part = parts[i].trim();
-            if (part.isEmpty()) continue;
-
-            if (part.startsWith("\"") && part.endsWith("\"")) {
-                System.out.print(part.substring(1, part.length() - 1));
-            } else if (part.endsWith("$") || part.contains("$")) {
-                // String variable or expression
-                System.out.print(expressionParser.evaluateString(part));
-            } else {
-                System.out.print(evaluateExpression(part));
-            }
-            if (i < parts.length - 1) {
-                System.out.print(" ");
-            }
+            values[i] = parts[i].evaluateString(context);
         }
-        if (!suppressNewline) {
-            System.out.println();
-        }
-    }
-
-    // Helper to split PRINT arguments by comma, respecting quoted strings and parentheses
-    private String[] splitPrintArgs(String expr) {
-        java.util.List<String> parts = new java.util.ArrayList<>();
-        StringBuilder current = new StringBuilder();
-        boolean inQuotes = false;
-        int parenDepth = 0;
-
-        for (int i = 0; i < expr.length(); i++) {
-            char c = expr.charAt(i);
-            if (c == '"') {
-                inQuotes = !inQuotes;
-                current.append(c);
-            } else if (c == '(' && !inQuotes) {
-                parenDepth++;
-                current.append(c);
-            } else if (c == ')' && !inQuotes) {
-                parenDepth--;
-                current.append(c);
-            } else if (c == ',' && !inQuotes && parenDepth == 0) {
-                parts.add(current.toString());
-                current = new StringBuilder();
-            } else {
-                current.append(c);
-            }
+        for (String value : values) {
+            stringVars.append(stmt.varName, value);
         }
-        parts.add(current.toString());
-
-        return parts.toArray(new String[0]);
     }
 
-    private void executeLet(CommandParser parser) {
-        String remainder = parser.getRemainder();
-        if (remainder.startsWith("LET ")) {
-            remainder = remainder.substring(4);
+    void executeArrayLet(ArrayLetStmt stmt) {
+        ArrayAccessNode.ArrayRef array = stmt.target.resolve(context);
+        if (array.data == null) {
+            throw new RuntimeException("Array not defined: " + stmt.arrayName);
         }
 
-        int eqPos = remainder.indexOf('=');
-        if (eqPos == -1) return;
+        int offset = stmt.target.offset(context, array);
+        double value = evaluate(stmt.value);
 
-        String varName = remainder.substring(0, eqPos).trim();
-        String expr = remainder.substring(eqPos + 1).trim();
+        if (offset >= 0) {
+            array.data[offset] = value;
+        } else {
+            throw new RuntimeException("Array index out of bounds in " + stmt.target +
+                " (array size: " + describeSize(array.data.length, array.extents) + ")");
+        }
+    }
 
-        // Check for array assignment
-        if (varName.contains("(") && varName.endsWith(")")) {
-            int parenPos = varName.indexOf('(');
-            String arrayName = varName.substring(0, parenPos).trim().toUpperCase();
-            String indexExpr = varName.substring(parenPos + 1, varName.length() - 1);
+    void executeStringArrayLet(StringArrayLetStmt stmt) {
+        StringArrayAccessNode.ArrayRef ref = stmt.target.resolve(context);
+        if (ref.array == null) {
+            throw new RuntimeException("Array not defined: " + stmt.arrayName);
+        }
 
-            if (arrays.containsKey(arrayName)) {
-                int index = (int)evaluateExpression(indexExpr);
-                double value = evaluateExpression(expr);
-                double[] array = arrays.get(arrayName);
+        int offset = stmt.target.offset(context, ref);
+        String value = stmt.value.evaluateString(context);
 
-                if (index >= 0 && index < array.length) {
-                    array[index] = value;
-                } else {
-                    throw new RuntimeException("Array index out of bounds: " + index +
-                        " (array size: " + array.length + ")");
-                }
-            } else {
-                throw new RuntimeException("Array not defined: " + arrayName);
-            }
-            return;
+        if (offset >= 0) {
+            ref.array.set(offset, value);
+        } else {
+            throw new RuntimeException("Array index out of bounds in " + stmt.target +
+                " (array size: " + describeSize(ref.array.length(), ref.extents) + ")");
+        }
+    }
+
+    // 11 for DIM A(10), 11 x 6 for DIM A(10, 5)
+    private static String describeSize(int length, int[] extents) {
+        if (extents == null || extents.length < 2) {
+            return String.valueOf(length);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int extent : extents) {
+            if (sb.length() > 0) sb.append(" x ");
+            sb.append(extent);
+        }
+        return sb.toString();
+    }
+
+    void executeArrayStore(ArrayStoreStmt stmt) {
+        ArrayAccessNode.ArrayRef array = stmt.target.resolve(context);
+        if (array.data == null) {
+            throw new RuntimeException("Array not defined: " + stmt.arrayName);
         }
 
-        // Check if it's a string variable (ends with $)
-        if (varName.endsWith("$")) {
-            String value = expressionParser.evaluateString(expr);
-            stringVars.put(varName.toUpperCase(), value);
+        int index = (int)variables.get(stmt.indexSlot);
+        double value = evaluate(stmt.value);
+
+        if (index >= 0 && index < array.data.length) {
+            array.data[index] = value;
         } else {
-            double value = evaluateExpression(expr);
-            variables.put(varName.toUpperCase(), value);
+            // Same message as executeArrayLet
+            throw new RuntimeException("Array index out of bounds in " + stmt.target +
+                " (array size: " + describeSize(array.data.length, array.extents) + ")");
         }
     }
 
-    private void executeInput(CommandParser parser) {
+    void executeInput(InputStmt stmt) {
+        console.flush();  // Show the prompt before waiting
         // For simplicity in this implementation
-        String varName = parser.getRemainder().trim();
-        variables.put(varName.toUpperCase(), 0.0);
+        variables.assign(stmt.slot, 0.0);
     }
 
-    private void executeIf(CommandParser parser) throws Exception {
-        String remainder = parser.getRemainder();
-        int thenPos = remainder.toUpperCase().indexOf("THEN");
-        if (thenPos == -1) return;
+    void executeIf(IfStmt stmt) throws Exception {
+        if (stmt.isBlock()) {
+            // Multi-line IF/END IF block: if true, just continue to the next line
+            if (!testCondition(stmt.condition, stmt.conditionNode)) {
+                skipToBranch();
+            }
+        } else if (testCondition(stmt.condition, stmt.conditionNode)) {
+            stmt.thenStmt.execute(this);
+        } else if (stmt.elseStmt != null) {
+            stmt.elseStmt.execute(this);
+        }
+    }
 
-        String condition = remainder.substring(0, thenPos).trim();
-        String afterThen = remainder.substring(thenPos + 4).trim();
+    void executeCompareBranch(CompareBranchStmt stmt) {
+        double left = evaluate(stmt.left);
+        double right = evaluate(stmt.right);
 
-        String thenPart = afterThen;
-        String elsePart = "";
+        boolean taken;
+        switch (stmt.operator) {
+            case APPROX_EQUAL: taken = Math.abs(left - right) < 0.0001; break;
+            case NOT_EQUAL: taken = left != right; break;
+            case LESS_THAN: taken = left < right; break;
+            case GREATER_THAN: taken = left > right; break;
+            case LESS_EQUAL: taken = left <= right; break;
+            case GREATER_EQUAL: taken = left >= right; break;
+            default: taken = false;
+        }
 
-        int elsePos = afterThen.toUpperCase().indexOf(" ELSE ");
-        if (elsePos != -1) {
-            thenPart = afterThen.substring(0, elsePos).trim();
-            elsePart = afterThen.substring(elsePos + 6).trim();
+        if (taken) {
+            executeGoto(stmt.branch);
         }
+    }
+
+    void executeElse(ElseStmt stmt) {
+        // Reached by falling out of a taken IF branch: skip the ELSE branch
+        skipToEndIf();
+    }
+
+    void executeElseIf(ElseIfStmt stmt) {
+        // Same as ELSE: the branch above it ran, so the rest is skipped
+        skipToEndIf();
+    }
 
-        // Check if this is a multi-line IF (nothing after THEN)
-        if (thenPart.isEmpty()) {
-            // Multi-line IF/END IF block
-            if (!evaluateCondition(condition)) {
-                // Condition is false, skip to END IF or ELSE
-                skipToEndIf();
+    /**
+     * The IF condition is false: stop on the first ELSEIF whose condition
+     * holds, or on the ELSE, or on END IF; run() steps past it.
+     */
+    private void skipToBranch() {
+        for (int i = caseChain[currentLine]; i >= 0; i = caseChain[i]) {
+            Statement branch = program[i];
+            if (branch instanceof ElseStmt) {
+                currentLine = i;
+                return;
             }
-            // If condition is true, just continue to next line
-        } else {
-            // Single-line IF statement
-            if (evaluateCondition(condition)) {
-                if (!thenPart.isEmpty()) {
-                    executeLine(thenPart);
-                }
-            } else {
-                if (!elsePart.isEmpty()) {
-                    executeLine(elsePart);
-                }
+            ElseIfStmt elseIf = (ElseIfStmt) branch;
+            if (testCondition(elseIf.condition, elseIf.conditionNode)) {
+                currentLine = i;
+                return;
             }
         }
+        int endIf = blockMatch[currentLine];
+        currentLine = endIf >= 0 ? endIf : program.length - 1;
     }
 
     private void skipToEndIf() {
-        int depth = 1;
-        while (currentLine < lines.size() - 1 && depth > 0) {
-            currentLine++;
-            String line = lines.get(currentLine).code.trim().toUpperCase();
-
-            if (line.startsWith("IF ") && line.contains("THEN")) {
-                // Check if it's a multi-line IF (nothing after THEN)
-                int thenPos = line.indexOf("THEN");
-                String afterThen = line.substring(thenPos + 4).trim();
-                if (afterThen.isEmpty()) {
-                    depth++;
-                }
-            } else if (line.equals("END IF") || line.equals("ENDIF")) {
-                depth--;
-            } else if (depth == 1 && line.equals("ELSE")) {
-                // Found ELSE at our level, stop here
-                break;
-            }
+        int endIf = blockMatch[currentLine];
+        if (endIf >= 0) {
+            currentLine = endIf;
         }
     }
 
-    private void executeSelect(CommandParser parser) throws Exception {
-        String expr = parser.getRemainder().trim();
-        if (expr.toUpperCase().startsWith("CASE ")) {
-            expr = expr.substring(5).trim();
-        }
+    void executeSelect(SelectStmt stmt) {
+        double selectValue = evaluate(stmt.value);
+        variables.set("__SELECT_VALUE__", selectValue);
 
-        double selectValue = evaluateExpression(expr);
-        variables.put("__SELECT_VALUE__", selectValue);
+        // Jump to the first matching CASE; its body runs in the main loop
+        for (int i = caseChain[currentLine]; i >= 0; i = caseChain[i]) {
+            CaseStmt caseStmt = (CaseStmt) program[i];
+            boolean isMatch;
 
-        // Find matching CASE and execute its block
-        boolean matched = false;
-        for (int i = currentLine + 1; i < lines.size(); i++) {
-            String line = lines.get(i).code.trim().toUpperCase();
-            if (line.startsWith("END SELECT") || line.equals("ENDSELECT")) {
-                currentLine = i;
-                break;
+            if (caseStmt.isElse()) {
+                isMatch = true;
+            } else {
+                double caseValue = evaluate(caseStmt.value);
+                isMatch = Math.abs(caseValue - selectValue) < 0.0001;
             }
-            if (line.startsWith("CASE ")) {
-                String caseExpr = lines.get(i).code.substring(5).trim();
-                boolean isMatch = false;
-
-                if (caseExpr.toUpperCase().equals("ELSE")) {
-                    isMatch = !matched;
-                } else {
-                    double caseValue = evaluateExpression(caseExpr);
-                    isMatch = Math.abs(caseValue - selectValue) < 0.0001;
-                }
 
-                if (isMatch && !matched) {
-                    matched = true;
-                    // Execute statements in this case block
-                    currentLine = i;
-                    executeCaseBlock();
-                    // After executing, skip to END SELECT
-                    skipToEndSelect();
-                    break;
-                }
+            if (isMatch) {
+                currentLine = i;
+                return;
             }
         }
+
+        // No CASE matched
+        skipToEndSelect();
     }
 
-    private void executeCaseBlock() throws Exception {
-        // Execute lines until next CASE or END SELECT
-        for (int i = currentLine + 1; i < lines.size(); i++) {
-            String line = lines.get(i).code.trim().toUpperCase();
-            if (line.startsWith("CASE ") || line.startsWith("END SELECT") || line.equals("ENDSELECT")) {
-                return;
-            }
-            executeLine(lines.get(i).code);
-        }
+    void executeCase(CaseStmt stmt) {
+        // If we hit a CASE line in normal execution, it means we finished
+        // a previous case block and need to skip to END SELECT
+        skipToEndSelect();
     }
 
-    private void executeCase(CommandParser parser) throws Exception {
-        // Execute lines until next CASE or END SELECT
-        int startLine = currentLine;
-        for (int i = currentLine + 1; i < lines.size(); i++) {
-            String line = lines.get(i).code.trim().toUpperCase();
-            if (line.startsWith("CASE ") || line.startsWith("END SELECT") || line.equals("ENDSELECT")) {
-                // Found next CASE or END SELECT - skip to END SELECT and exit
-                currentLine = startLine;  // Reset to CASE line first
-                skipToEndSelect();
-                return;
-            }
-            executeLine(lines.get(i).code);
-            currentLine = i;
+    private void skipToEndSelect() {
+        int endSelect = blockMatch[currentLine];
+        if (endSelect >= 0) {
+            currentLine = endSelect;
         }
     }
 
-    private void skipToEndSelect() {
-        int depth = 1;
-        for (int i = currentLine + 1; i < lines.size(); i++) {
-            String line = lines.get(i).code.trim().toUpperCase();
-            if (line.startsWith("SELECT CASE")) {
-                depth++;
-            } else if (line.startsWith("END SELECT") || line.equals("ENDSELECT")) {
-                depth--;
-                if (depth == 0) {
-                    currentLine = i;
-                    return;
-                }
+    void executeGoto(GotoStmt stmt) {
+        if (stmt.targetIndex >= 0) {
+            if (stmt.targetIndex <= currentLine) {
+                backEdge(stmt.targetIndex);
             }
+            currentLine = stmt.targetIndex - 1;
         }
     }
 
-    private void executeGoto(CommandParser parser) {
-        String target = parser.getRemainder().trim();
-        if (target.toUpperCase().startsWith("TO ")) {
-            target = target.substring(3).trim();
-        }
+    void executeGosub(GosubStmt stmt) {
+        gosubStack.push(currentLine);
 
-        Integer lineIndex = labels.get(target.toUpperCase());
-        if (lineIndex != null) {
-            currentLine = lineIndex - 1;
+        if (stmt.targetIndex >= 0) {
+            currentLine = stmt.targetIndex - 1;
         }
     }
 
-    private void executeGosub(CommandParser parser) {
-        String target = parser.getRemainder().trim();
-        gosubStack.push(currentLine);
+    void executeOnGoto(OnGotoStmt stmt) {
+        int choice = evaluateInt(stmt.selector);
+        if (choice < 1 || choice > stmt.targetIndices.length) {
+            return;  // Out of range: fall through to the next line
+        }
+
+        int targetIndex = stmt.targetIndices[choice - 1];
+        if (targetIndex < 0) return;
 
-        Integer lineIndex = labels.get(target.toUpperCase());
-        if (lineIndex != null) {
-            currentLine = lineIndex - 1;
+        if (stmt.isGosub) {
+            gosubStack.push(currentLine);
         }
+        currentLine = targetIndex - 1;
     }
 
-    private void executeReturn() {
+    void executeReturn(ReturnStmt stmt) {
         if (!gosubStack.isEmpty()) {
             currentLine = gosubStack.pop();
         }
     }
 
-    private void executeFor(CommandParser parser) {
-        String remainder = parser.getRemainder();
-        String[] parts = remainder.split("=");
-        if (parts.length < 2) return;
-
-        String varName = parts[0].trim().toUpperCase();
-        String rest = parts[1];
-
-        int toPos = rest.toUpperCase().indexOf("TO");
-        if (toPos == -1) return;
+    void executeFor(ForStmt stmt) {
+        double start = evaluate(stmt.start);
+        double end = evaluate(stmt.end);
+        double step = stmt.step != null ? evaluate(stmt.step) : 1.0;
 
-        double start = evaluateExpression(rest.substring(0, toPos).trim());
-        String afterTo = rest.substring(toPos + 2).trim();
-
-        double end;
-        double step = 1.0;
-
-        int stepPos = afterTo.toUpperCase().indexOf("STEP");
-        if (stepPos != -1) {
-            end = evaluateExpression(afterTo.substring(0, stepPos).trim());
-            step = evaluateExpression(afterTo.substring(stepPos + 4).trim());
+        if (stmt.integer) {
+            step = VariableStore.toInteger(step);
+            variables.setInt(stmt.slot, VariableStore.toInteger(start));
         } else {
-            end = evaluateExpression(afterTo);
+            variables.set(stmt.slot, start);
         }
 
-        variables.put(varName, start);
-
         ForLoop loop = new ForLoop();
-        loop.varName = varName;
+        loop.varName = stmt.varName;
+        loop.slot = stmt.slot;
+        loop.integer = stmt.integer;
         loop.targetValue = end;
         loop.stepValue = step;
         loop.startLine = currentLine;
@@ -963,31 +1107,86 @@ public class Interpreter {
         forStack.push(loop);
     }
 
-    private void executeNext(CommandParser parser) {
+    void executeCountedFor(CountedForStmt stmt) {
+        // Constant bounds: the same frame serves every entry into the loop
+        ForLoop loop = stmt.frame;
+        if (loop == null) {
+            loop = new ForLoop();
+            loop.varName = stmt.varName;
+            loop.slot = stmt.slot;
+            loop.integer = stmt.integer;
+            loop.targetValue = stmt.endValue;
+            loop.stepValue = stmt.stepValue;
+            loop.startLine = currentLine;
+            stmt.frame = loop;
+        }
+
+        if (stmt.integer) {
+            variables.setInt(stmt.slot, stmt.startValue);
+        } else {
+            variables.set(stmt.slot, stmt.startValue);
+        }
+        forStack.push(loop);
+    }
+
+    void executeNext(NextStmt stmt) {
         if (forStack.isEmpty()) return;
 
         ForLoop loop = forStack.peek();
-        double current = variables.getOrDefault(loop.varName, 0.0);
-        current += loop.stepValue;
-        variables.put(loop.varName, current);
+        double current;
+        if (loop.integer) {
+            int next = variables.getInt(loop.slot) + (int) loop.stepValue;
+            variables.setInt(loop.slot, next);
+            current = next;
+        } else {
+            current = variables.get(loop.slot) + loop.stepValue;
+            variables.set(loop.slot, current);
+        }
 
         boolean done = (loop.stepValue > 0 && current > loop.targetValue) ||
                       (loop.stepValue < 0 && current < loop.targetValue);
 
         if (!done) {
+            backEdge(loop.startLine);
+            currentLine = loop.startLine;
+        } else {
+            forStack.pop();
+        }
+    }
+
+    void executeCountedNext(CountedNextStmt stmt) {
+        CountedForStmt counted = stmt.loop;
+        ForLoop loop = counted.frame;
+        if (loop == null || forStack.isEmpty() || forStack.peek() != loop) {
+            executeNext(stmt);
+            return;
+        }
+
+        boolean more;
+        if (counted.integer) {
+            int next = variables.getInt(counted.slot) + counted.stepValue;
+            variables.setInt(counted.slot, next);
+            more = counted.stepValue > 0 ? next <= counted.endValue : next >= counted.endValue;
+        } else {
+            double next = variables.get(counted.slot) + counted.stepValue;
+            variables.set(counted.slot, next);
+            more = counted.stepValue > 0 ? next <= counted.endValue : next >= counted.endValue;
+        }
+
+        if (more) {
+            backEdge(loop.startLine);
             currentLine = loop.startLine;
         } else {
             forStack.pop();
         }
     }
 
-    private void executeWhile(CommandParser parser) {
-        String condition = parser.getRemainder().trim();
+    void executeWhile(WhileStmt stmt) {
         WhileLoop loop = new WhileLoop();
         loop.startLine = currentLine;
-        loop.condition = condition;
-        // Pre-parse condition into AST for fast evaluation
-        loop.conditionNode = ASTBuilder.buildAST(condition);
+        loop.condition = stmt.conditionText;
+        // Condition AST was pre-parsed at load time
+        loop.conditionNode = stmt.condition;
         whileStack.push(loop);
 
         // Use pre-parsed AST for evaluation
@@ -997,68 +1196,36 @@ public class Interpreter {
     }
 
     private void skipToWend() {
-        int depth = 1;
-        for (int i = currentLine + 1; i < lines.size(); i++) {
-            String cmd = lines.get(i).code.trim().toUpperCase();
-            if (cmd.startsWith("WHILE")) depth++;
-            if (cmd.equals("WEND")) {
-                depth--;
-                if (depth == 0) {
-                    currentLine = i;
-                    if (!whileStack.isEmpty()) {
-                        whileStack.pop();
-                    }
-                    break;
-                }
+        int wend = blockMatch[currentLine];
+        if (wend >= 0) {
+            currentLine = wend;
+            if (!whileStack.isEmpty()) {
+                whileStack.pop();
             }
         }
     }
 
-    private void executeWend() {
+    void executeWend(WendStmt stmt) {
         if (whileStack.isEmpty()) return;
 
         WhileLoop loop = whileStack.peek();
         // Use pre-parsed AST for fast evaluation (no re-parsing!)
         if (evaluateConditionAST(loop.conditionNode)) {
+            backEdge(loop.startLine);
             currentLine = loop.startLine;
         } else {
             whileStack.pop();
         }
     }
 
-    private void executeDo(CommandParser parser) {
+    void executeDo(DoStmt stmt) {
         DoLoop loop = new DoLoop();
         loop.startLine = currentLine;
-        String condition = parser.getRemainder().trim();
-        loop.condition = condition;
-
-        String conditionUpper = condition.toUpperCase().trim();
-        loop.isWhile = conditionUpper.startsWith("WHILE");
-        loop.isUntil = conditionUpper.startsWith("UNTIL");
-
-        if (loop.isWhile) {
-            // Find where WHILE ends (after the keyword and any whitespace)
-            int whileEnd = 5; // "WHILE".length()
-            while (whileEnd < condition.length() &&
-                   Character.isWhitespace(condition.charAt(whileEnd))) {
-                whileEnd++;
-            }
-            loop.condition = whileEnd < condition.length() ?
-                condition.substring(whileEnd).trim() : "";
-        } else if (loop.isUntil) {
-            int untilEnd = 5; // "UNTIL".length()
-            while (untilEnd < condition.length() &&
-                   Character.isWhitespace(condition.charAt(untilEnd))) {
-                untilEnd++;
-            }
-            loop.condition = untilEnd < condition.length() ?
-                condition.substring(untilEnd).trim() : "";
-        }
-
-        // Pre-parse condition into AST for fast evaluation
-        if (!loop.condition.isEmpty()) {
-            loop.conditionNode = ASTBuilder.buildAST(loop.condition);
-        }
+        loop.condition = stmt.conditionText;
+        loop.isWhile = stmt.isWhile;
+        loop.isUntil = stmt.isUntil;
+        // Condition AST was pre-parsed at load time
+        loop.conditionNode = stmt.condition;
 
         doStack.push(loop);
 
@@ -1075,69 +1242,39 @@ public class Interpreter {
     }
 
     private void skipToLoop() {
-        int depth = 1;
-        for (int i = currentLine + 1; i < lines.size(); i++) {
-            String cmd = lines.get(i).code.trim().toUpperCase();
-            if (cmd.startsWith("DO")) depth++;
-            if (cmd.startsWith("LOOP")) {
-                depth--;
-                if (depth == 0) {
-                    currentLine = i;
-                    if (!doStack.isEmpty()) {
-                        doStack.pop();
-                    }
-                    break;
-                }
+        int loop = blockMatch[currentLine];
+        if (loop >= 0) {
+            currentLine = loop;
+            if (!doStack.isEmpty()) {
+                doStack.pop();
             }
         }
     }
 
-    private void executeLoop(CommandParser parser) {
+    void executeLoop(LoopStmt stmt) {
         if (doStack.isEmpty()) return;
 
         DoLoop loop = doStack.peek();
-        String condition = parser.getRemainder().trim();
 
-        String conditionUpper = condition.toUpperCase().trim();
-        boolean isWhile = conditionUpper.startsWith("WHILE");
-        boolean isUntil = conditionUpper.startsWith("UNTIL");
-
-        if (isWhile) {
-            int whileEnd = 5;
-            while (whileEnd < condition.length() &&
-                   Character.isWhitespace(condition.charAt(whileEnd))) {
-                whileEnd++;
-            }
-            condition = whileEnd < condition.length() ?
-                condition.substring(whileEnd).trim() : "";
-
-            // Pre-parse on first execution if not already parsed
-            if (loop.conditionNode == null && !condition.isEmpty()) {
-                loop.conditionNode = ASTBuilder.buildAST(condition);
+        if (stmt.isWhile) {
+            // Fall back to the LOOP condition if the DO line had none
+            if (loop.conditionNode == null) {
+                loop.conditionNode = stmt.condition;
             }
 
-            // Use pre-parsed AST for evaluation (no re-parsing on each iteration!)
             if (loop.conditionNode != null && evaluateConditionAST(loop.conditionNode)) {
+                backEdge(loop.startLine);
                 currentLine = loop.startLine;
             } else {
                 doStack.pop();
             }
-        } else if (isUntil) {
-            int untilEnd = 5;
-            while (untilEnd < condition.length() &&
-                   Character.isWhitespace(condition.charAt(untilEnd))) {
-                untilEnd++;
-            }
-            condition = untilEnd < condition.length() ?
-                condition.substring(untilEnd).trim() : "";
-
-            // Pre-parse on first execution if not already parsed
-            if (loop.conditionNode == null && !condition.isEmpty()) {
-                loop.conditionNode = ASTBuilder.buildAST(condition);
+        } else if (stmt.isUntil) {
+            if (loop.conditionNode == null) {
+                loop.conditionNode = stmt.condition;
             }
 
-            // Use pre-parsed AST for evaluation (no re-parsing on each iteration!)
             if (loop.conditionNode != null && !evaluateConditionAST(loop.conditionNode)) {
+                backEdge(loop.startLine);
                 currentLine = loop.startLine; // Jump back to DO line, will auto-increment to next
             } else {
                 doStack.pop();
@@ -1146,12 +1283,14 @@ public class Interpreter {
             // Condition was at DO statement - use pre-parsed AST
             if (loop.isWhile) {
                 if (loop.conditionNode != null && evaluateConditionAST(loop.conditionNode)) {
+                    backEdge(loop.startLine);
                     currentLine = loop.startLine;
                 } else {
                     doStack.pop();
                 }
             } else if (loop.isUntil) {
                 if (loop.conditionNode != null && !evaluateConditionAST(loop.conditionNode)) {
+                    backEdge(loop.startLine);
                     currentLine = loop.startLine;
                 } else {
                     doStack.pop();
@@ -1159,113 +1298,166 @@ public class Interpreter {
             }
         } else {
             // Infinite loop
+            backEdge(loop.startLine);
             currentLine = loop.startLine;
         }
     }
 
-    private void executeDim(CommandParser parser) {
-        String remainder = parser.getRemainder();
-        String[] parts = remainder.split("\\(");
-        if (parts.length < 2) return;
-
-        String varName = parts[0].trim().toUpperCase();
-        String dimensions = parts[1].replace(")", "").trim();
-
-        int size = (int)evaluateExpression(dimensions);
-        if (size < 0) {
-            throw new RuntimeException("Array size cannot be negative: " + size);
+    /**
+     * Count a jump from the current line back to a loop header. When a loop
+     * crosses the tier threshold, every expression from the header to here
+     * is compiled to bytecode while the program keeps running. Code the loop
+     * calls (GOSUB, FN) still tiers up through its own expression counters.
+     */
+    private void backEdge(int header) {
+        if (tierThreshold > 0 && backEdgeCounts[header] < tierThreshold &&
+                ++backEdgeCounts[header] == tierThreshold) {
+            for (int i = header; i <= currentLine; i++) {
+                for (JitExpressionNode node : lineExpressions[i]) {
+                    node.promote();
+                }
+            }
+            promotedLoops++;
         }
-        // BASIC arrays are inclusive: DIM X(10) creates indices 0-10 (11 elements)
-        arrays.put(varName, new double[size + 1]);
     }
 
-    private void executeDef(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        if (!remainder.toUpperCase().startsWith("FN")) return;
+    void executeDim(DimStmt stmt) {
+        // BASIC arrays are inclusive: DIM X(10) creates indices 0-10 (11 elements)
+        int[] extents = new int[stmt.sizes.length];
+        long length = 1;
+        for (int d = 0; d < extents.length; d++) {
+            int size = evaluateInt(stmt.sizes[d]);
+            if (size < 0) {
+                throw new RuntimeException("Array size cannot be negative: " + size);
+            }
+            length *= size + 1L;
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new RuntimeException("Array too large: " + stmt.arrayName);
+            }
+            extents[d] = size + 1;
+        }
+        arrayExtents.put(stmt.arrayName, extents);
+        if (stmt.arrayName.endsWith("$")) {
+            stringArrays.put(stmt.arrayName, new StringArray((int) length, stmt.interned));
+        } else {
+            arrays.put(stmt.arrayName, new double[(int) length]);
+        }
+        arraysChanged();
+    }
 
-        remainder = remainder.substring(2).trim();
-        int parenPos = remainder.indexOf('(');
-        if (parenPos == -1) return;
+    void executeRandomize(RandomizeStmt stmt) {
+        if (stmt.seed != null) {
+            randomize((long) evaluate(stmt.seed));
+        } else {
+            random = new SplittableRandom();
+        }
+    }
 
-        String funcName = remainder.substring(0, parenPos).trim().toUpperCase();
-        int closeParen = remainder.indexOf(')');
-        String params = remainder.substring(parenPos + 1, closeParen);
-        int eqPos = remainder.indexOf('=', closeParen);
-        String expr = remainder.substring(eqPos + 1).trim();
+    void executeRndFill(RndFillStmt stmt) {
+        double[] array = arrays.get(stmt.arrayName);
+        if (array == null) {
+            throw new RuntimeException("Array not defined: " + stmt.arrayName);
+        }
+        double scale = stmt.scale != null ? evaluate(stmt.scale) : 1.0;
+        SplittableRandom random = this.random;
+        for (int i = 0; i < array.length; i++) {
+            array[i] = random.nextDouble() * scale;
+        }
+    }
 
-        UserFunction func = new UserFunction();
-        func.name = funcName;
-        func.parameters = new ArrayList<>(Arrays.asList(params.split(",")));
-        for (int i = 0; i < func.parameters.size(); i++) {
-            func.parameters.set(i, func.parameters.get(i).trim().toUpperCase());
+    void executeErase(EraseStmt stmt) {
+        for (String name : stmt.arrayNames) {
+            arrays.remove(name);
+            stringArrays.remove(name);
+            arrayExtents.remove(name);
         }
-        func.expression = expr;
+        arraysChanged();
+    }
 
-        userFunctions.put(funcName, func);
+    void executeDef(DefStmt stmt) {
+        // Redefining updates the same object, which call sites have cached
+        userFunctions.computeIfAbsent(stmt.funcName, UserFunction::new).define(stmt);
     }
 
-    private void executeRead(CommandParser parser) {
-        String[] vars = parser.getRemainder().split(",");
-        for (String var : vars) {
-            var = var.trim();
+    void executeRead(ReadStmt stmt) {
+        for (int i = 0; i < stmt.varNames.length; i++) {
+            String var = stmt.varNames[i];
             if (dataPointer < dataStatements.size()) {
-                String data = dataStatements.get(dataPointer++);
+                int dataIndex = dataPointer++;
+                String data = dataStatements.get(dataIndex);
 
                 if (var.endsWith("$")) {
                     // String variable
                     if (data.startsWith("\"") && data.endsWith("\"")) {
                         data = data.substring(1, data.length() - 1);
                     }
-                    stringVars.put(var.toUpperCase(), data);
+                    stringVars.set(var, data);
                 } else {
                     // Numeric variable
-                    double value = evaluateExpression(data);
-                    variables.put(var.toUpperCase(), value);
+                    ExpressionNode node = dataNodes[dataIndex];
+                    if (node == null) {
+                        node = ASTBuilder.buildAST(data, variables);
+                        dataNodes[dataIndex] = node;
+                    }
+                    variables.assign(stmt.slots[i], evaluate(node));
                 }
             }
         }
     }
 
-    private void executeRestore(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        if (remainder.isEmpty()) {
-            dataPointer = 0;
-        } else {
-            int lineNum = (int)evaluateExpression(remainder);
-            // For simplicity, just reset to beginning
-            dataPointer = 0;
+    void executeRestore(RestoreStmt stmt) {
+        dataPointer = stmt.dataOffset;
+    }
+
+    void executeCls(ClsStmt stmt) {
+        requireGraphics();
+        graphics.clear();
+        graphicsModified = true;
+    }
+
+    void executeRefresh(RefreshStmt stmt) {
+        autoRefresh = stmt.autoRefresh;
+        if (autoRefresh && graphics != null) {
+            graphics.repaint();
         }
     }
 
-    private void executeColor(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 3) {
-            int r = (int)evaluateExpression(parts[0].trim());
-            int g = (int)evaluateExpression(parts[1].trim());
-            int b = (int)evaluateExpression(parts[2].trim());
+    void executeColor(ColorStmt stmt) {
+        requireGraphics();
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 3) {
+            int r = evaluateInt(args[0]);
+            int g = evaluateInt(args[1]);
+            int b = evaluateInt(args[2]);
             graphics.setColor(r, g, b);
         }
     }
 
-    private void executeLineCommand(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 4) {
-            int x1 = (int)evaluateExpression(parts[0].trim());
-            int y1 = (int)evaluateExpression(parts[1].trim());
-            int x2 = (int)evaluateExpression(parts[2].trim());
-            int y2 = (int)evaluateExpression(parts[3].trim());
+    void executeLineCommand(LineStmt stmt) {
+        requireGraphics();
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 4) {
+            int x1 = evaluateInt(args[0]);
+            int y1 = evaluateInt(args[1]);
+            int x2 = evaluateInt(args[2]);
+            int y2 = evaluateInt(args[3]);
             graphics.drawLine(x1, y1, x2, y2);
         }
+        graphicsModified = true;
     }
 
-    private void executeCircle(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 3) {
-            int x = (int)evaluateExpression(parts[0].trim());
-            int y = (int)evaluateExpression(parts[1].trim());
-            int r = (int)evaluateExpression(parts[2].trim());
+    void executeCircle(CircleStmt stmt) {
+        if (graphics == null) {
+            System.err.println("Graphics not initialized");
+            return;
+        }
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 3) {
+            int x = evaluateInt(args[0]);
+            int y = evaluateInt(args[1]);
+            int r = evaluateInt(args[2]);
 
-            boolean fill = parts.length >= 4 && evaluateExpression(parts[3].trim()) != 0;
+            boolean fill = args.length >= 4 && evaluate(args[3]) != 0;
 
             if (fill) {
                 graphics.fillCircle(x, y, r);
@@ -1273,17 +1465,22 @@ public class Interpreter {
                 graphics.drawCircle(x, y, r);
             }
         }
+        graphicsModified = true;
     }
 
-    private void executeEllipse(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 3) {
-            int x = (int)evaluateExpression(parts[0].trim());
-            int y = (int)evaluateExpression(parts[1].trim());
-            int w = (int)evaluateExpression(parts[2].trim());
-            int h = parts.length >= 4 ? (int)evaluateExpression(parts[3].trim()) : w;
+    void executeEllipse(EllipseStmt stmt) {
+        if (graphics == null) {
+            System.err.println("Graphics not initialized");
+            return;
+        }
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 3) {
+            int x = evaluateInt(args[0]);
+            int y = evaluateInt(args[1]);
+            int w = evaluateInt(args[2]);
+            int h = args.length >= 4 ? evaluateInt(args[3]) : w;
 
-            boolean fill = parts.length >= 5 && evaluateExpression(parts[4].trim()) != 0;
+            boolean fill = args.length >= 5 && evaluate(args[4]) != 0;
 
             if (fill) {
                 graphics.fillEllipse(x, y, w, h);
@@ -1291,35 +1488,44 @@ public class Interpreter {
                 graphics.drawEllipse(x, y, w, h);
             }
         }
+        graphicsModified = true;
     }
 
-    private void executePolygon(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        String[] parts = remainder.split(",");
+    void executePolygon(PolygonStmt stmt) {
+        if (graphics == null) {
+            System.err.println("Graphics not initialized");
+            return;
+        }
+        graphicsModified = true;
+        ExpressionNode[] args = stmt.args;
 
-        if (parts.length < 6) return; // Need at least 3 points (x1,y1,x2,y2,x3,y3)
+        if (args.length < 6) return; // Need at least 3 points (x1,y1,x2,y2,x3,y3)
 
-        int numPoints = parts.length / 2;
+        int numPoints = args.length / 2;
         int[] xPoints = new int[numPoints];
         int[] yPoints = new int[numPoints];
 
         for (int i = 0; i < numPoints; i++) {
-            xPoints[i] = (int)evaluateExpression(parts[i * 2].trim());
-            yPoints[i] = (int)evaluateExpression(parts[i * 2 + 1].trim());
+            xPoints[i] = evaluateInt(args[i * 2]);
+            yPoints[i] = evaluateInt(args[i * 2 + 1]);
         }
 
         graphics.drawPolygon(xPoints, yPoints, numPoints);
     }
 
-    private void executeRect(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 4) {
-            int x = (int)evaluateExpression(parts[0].trim());
-            int y = (int)evaluateExpression(parts[1].trim());
-            int w = (int)evaluateExpression(parts[2].trim());
-            int h = (int)evaluateExpression(parts[3].trim());
+    void executeRect(RectStmt stmt) {
+        if (graphics == null) {
+            System.err.println("Graphics not initialized");
+            return;
+        }
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 4) {
+            int x = evaluateInt(args[0]);
+            int y = evaluateInt(args[1]);
+            int w = evaluateInt(args[2]);
+            int h = evaluateInt(args[3]);
 
-            boolean fill = parts.length >= 5 && evaluateExpression(parts[4].trim()) != 0;
+            boolean fill = args.length >= 5 && evaluate(args[4]) != 0;
 
             if (fill) {
                 graphics.fillRect(x, y, w, h);
@@ -1327,275 +1533,307 @@ public class Interpreter {
                 graphics.drawRect(x, y, w, h);
             }
         }
+        graphicsModified = true;
     }
 
-    private void executeText(CommandParser parser) {
-        String remainder = parser.getRemainder();
-        String[] parts = remainder.split(",", 3);
-        if (parts.length >= 3) {
-            int x = (int)evaluateExpression(parts[0].trim());
-            int y = (int)evaluateExpression(parts[1].trim());
-            String text = parts[2].trim();
-            
-            // Check if it's a string expression (contains + or variables)
-            if (text.contains("+") || text.contains("$") || (!text.startsWith("\"") && !text.endsWith("\""))) {
-                // Evaluate as string expression
-                text = expressionParser.evaluateString(text);
-            } else if (text.startsWith("\"") && text.endsWith("\"")) {
-                // Remove quotes from literal string
-                text = text.substring(1, text.length() - 1);
-            }
-            
-            graphics.drawText(x, y, text);
+    void executeText(TextStmt stmt) {
+        if (graphics == null) {
+            System.err.println("Graphics not initialized");
+            return;
         }
+        graphicsModified = true;
+        if (stmt.x == null) return;
+
+        int x = evaluateInt(stmt.x);
+        int y = evaluateInt(stmt.y);
+        graphics.drawText(x, y, stmt.text.evaluateString(context));
     }
 
-    private void executePixel(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 2) {
-            int x = (int)evaluateExpression(parts[0].trim());
-            int y = (int)evaluateExpression(parts[1].trim());
+    void executePixel(PixelStmt stmt) {
+        if (graphics == null) {
+            System.err.println("Graphics not initialized");
+            return;
+        }
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 2) {
+            int x = evaluateInt(args[0]);
+            int y = evaluateInt(args[1]);
             graphics.drawPixel(x, y);
         }
+        graphicsModified = true;
     }
 
-    private void executePage(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        if (remainder.isEmpty()) return;
+    void executePage(PageStmt stmt) {
+        if (graphics == null) {
+            System.err.println("Graphics not initialized");
+            return;
+        }
+        graphicsModified = true;
+        if (stmt.args.length == 0) return;
 
-        int pageNum = (int)evaluateExpression(remainder);
+        int pageNum = evaluateInt(stmt.args[0]);
         graphics.setPage(pageNum);
     }
 
-    private void executeSound(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 2) {
-            double freq = evaluateExpression(parts[0].trim());
-            int duration = (int)evaluateExpression(parts[1].trim());
-            double volume = parts.length >= 3 ? evaluateExpression(parts[2].trim()) / 100.0 : 0.5;
+    void executeSound(SoundStmt stmt) {
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 2) {
+            double freq = evaluate(args[0]);
+            int duration = evaluateInt(args[1]);
+            double volume = args.length >= 3 ? evaluate(args[2]) / 100.0 : 0.5;
             sound.playTone(freq, duration, volume);
         }
     }
 
-    private void executeWaveform(CommandParser parser) {
-        String waveform = parser.getRemainder().trim();
-        if (waveform.startsWith("\"") && waveform.endsWith("\"")) {
-            waveform = waveform.substring(1, waveform.length() - 1);
-        }
-        sound.setWaveform(waveform);
+    void executeWaveform(WaveformStmt stmt) {
+        sound.setWaveform(stmt.waveform);
     }
 
-    private void executeBeep(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        int duration = remainder.isEmpty() ? 500 : (int)evaluateExpression(remainder);
+    void executeBeep(BeepStmt stmt) {
+        int duration = stmt.args.length == 0 ? 500 : evaluateInt(stmt.args[0]);
         sound.beep(duration);
     }
 
-    private void executePlay(CommandParser parser) {
-        String sequence = parser.getRemainder().trim();
-        if (sequence.startsWith("\"") && sequence.endsWith("\"")) {
-            sequence = sequence.substring(1, sequence.length() - 1);
-        }
-        sound.playSequence(sequence);
+    void executePlay(PlayStmt stmt) {
+        sound.playSequence(stmt.sequence);
     }
 
-    private void executeRecord(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        int duration = remainder.isEmpty() ? 5000 : (int)evaluateExpression(remainder);
+    void executeRecord(RecordStmt stmt) {
+        int duration = stmt.args.length == 0 ? 5000 : evaluateInt(stmt.args[0]);
         sound.startRecording(duration);
     }
 
-    private void executePlayback(CommandParser parser) {
+    void executePlayback(PlaybackStmt stmt) {
         sound.playRecording();
     }
 
-    private void executeSprite(CommandParser parser) {
-        String remainder = parser.getRemainder();
-        String[] parts = remainder.split(",");
-
-        if (parts.length < 2) return;
-
-        String action = parts[0].trim().toUpperCase();
-        int id = (int)evaluateExpression(parts[1].trim());
+    void executeSprite(SpriteStmt stmt) {
+        requireGraphics();
+        int id = evaluateInt(stmt.id);
+        ExpressionNode[] args = stmt.args;
 
-        switch (action) {
-            case "CREATE":
-                if (parts.length >= 4) {
-                    int width = (int)evaluateExpression(parts[2].trim());
-                    int height = (int)evaluateExpression(parts[3].trim());
+        switch (stmt.action) {
+            case CREATE:
+                if (args.length >= 2) {
+                    int width = evaluateInt(args[0]);
+                    int height = evaluateInt(args[1]);
                     sprites.createSprite(id, width, height);
                     graphicsModified = true;
                 }
                 break;
-            case "FILL":
+            case FILL:
                 // SPRITE FILL, id - fills entire sprite with current color
-                if (graphics != null) {
-                    SpriteSystem.Sprite sprite = sprites.getSprite(id);
-                    if (sprite != null) {
-                        sprite.fillRect(0, 0, sprite.width, sprite.height, graphics.getCurrentColor());
-                        graphicsModified = true;
-                    }
+                SpriteSystem.Sprite sprite = sprites.getSprite(id);
+                if (sprite != null) {
+                    sprite.fillRect(0, 0, sprite.width, sprite.height, graphics.getCurrentColor());
+                    graphicsModified = true;
                 }
                 break;
-            case "LOAD":
-                if (parts.length >= 3) {
-                    String filename = parts[2].trim();
-                    if (filename.startsWith("\"") && filename.endsWith("\"")) {
-                        filename = filename.substring(1, filename.length() - 1);
-                    }
+            case LOAD:
+                if (stmt.filename != null) {
                     try {
-                        sprites.loadSpriteImage(id, filename);
+                        sprites.loadSpriteImage(id, stmt.filename);
                     } catch (Exception e) {
                         System.err.println("Error loading sprite image: " + e.getMessage());
                     }
                 }
                 break;
-            case "MOVE":
-                if (parts.length >= 4) {
-                    int x = (int)evaluateExpression(parts[2].trim());
-                    int y = (int)evaluateExpression(parts[3].trim());
+            case MOVE:
+                if (args.length >= 2) {
+                    int x = evaluateInt(args[0]);
+                    int y = evaluateInt(args[1]);
                     sprites.setSpritePosition(id, x, y);
                     graphicsModified = true;
                 }
                 break;
-            case "SHOW":
+            case SHOW:
                 sprites.setSpriteVisible(id, true);
                 graphicsModified = true;
                 break;
-            case "HIDE":
+            case HIDE:
                 sprites.setSpriteVisible(id, false);
                 graphicsModified = true;
                 break;
-            case "DELETE":
+            case DELETE:
                 sprites.deleteSprite(id);
                 graphicsModified = true;
                 break;
-            case "PIXEL":
-                if (parts.length >= 4 && graphics != null) {
-                    int x = (int)evaluateExpression(parts[2].trim());
-                    int y = (int)evaluateExpression(parts[3].trim());
+            case PIXEL:
+                if (args.length >= 2) {
+                    int x = evaluateInt(args[0]);
+                    int y = evaluateInt(args[1]);
                     sprites.setSpritePixel(id, x, y, graphics.getCurrentColor());
                     graphicsModified = true;
                 }
                 break;
+            default:
+                break;
         }
     }
 
-    private void executeCollision(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        String[] parts = remainder.split(",");
-
-        if (parts.length >= 2) {
-            int id1 = (int)evaluateExpression(parts[0].trim());
-            int id2 = (int)evaluateExpression(parts[1].trim());
+    void executeCollision(CollisionStmt stmt) {
+        if (graphics == null) {
+            System.err.println("Graphics not initialized");
+            return;
+        }
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 2) {
+            int id1 = evaluateInt(args[0]);
+            int id2 = evaluateInt(args[1]);
 
             boolean collided = sprites.checkCollision(id1, id2);
-            variables.put("COLLISION", collided ? 1.0 : 0.0);
+            variables.set("COLLISION", collided ? 1.0 : 0.0);
         }
     }
 
-    private void executeTurtle(CommandParser parser) {
-        String cmd = parser.getRemainder().trim().toUpperCase();
-        if (cmd.equals("ON")) {
-            turtleMode = true;
-        } else if (cmd.equals("OFF")) {
-            turtleMode = false;
+    void executeTurtle(TurtleStmt stmt) {
+        switch (stmt.op) {
+            case ON:
+                turtleMode = true;
+                break;
+            case OFF:
+                turtleMode = false;
+                break;
+            case FORWARD:
+                if (turtle != null && graphics != null) {
+                    turtle.forward(evaluate(stmt.amount));
+                    graphics.repaint();
+                }
+                break;
+            case BACKWARD:
+                if (turtle != null && graphics != null) {
+                    turtle.backward(evaluate(stmt.amount));
+                    graphics.repaint();
+                }
+                break;
+            case RIGHT:
+                if (turtle != null) {
+                    turtle.right(evaluate(stmt.amount));
+                }
+                break;
+            case LEFT:
+                if (turtle != null) {
+                    turtle.left(evaluate(stmt.amount));
+                }
+                break;
+            case PENUP:
+                if (turtle != null) {
+                    turtle.penUp();
+                }
+                break;
+            case PENDOWN:
+                if (turtle != null) {
+                    turtle.penDown();
+                }
+                break;
+            case HOME:
+                if (turtle != null && graphics != null) {
+                    turtle.home();
+                    graphics.repaint();
+                }
+                break;
+            default:
+                break;
         }
     }
 
-    private void executeBox3D(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 6) {
-            double x = evaluateExpression(parts[0].trim());
-            double y = evaluateExpression(parts[1].trim());
-            double z = evaluateExpression(parts[2].trim());
-            double w = evaluateExpression(parts[3].trim());
-            double h = evaluateExpression(parts[4].trim());
-            double d = evaluateExpression(parts[5].trim());
+    void executeBox3D(Box3DStmt stmt) {
+        if (graphics == null) return;
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 6) {
+            double x = evaluate(args[0]);
+            double y = evaluate(args[1]);
+            double z = evaluate(args[2]);
+            double w = evaluate(args[3]);
+            double h = evaluate(args[4]);
+            double d = evaluate(args[5]);
 
             graphics3D.drawBox(x, y, z, w, h, d);
             graphics.repaint();
         }
     }
 
-    private void executeSphere3D(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 4) {
-            double x = evaluateExpression(parts[0].trim());
-            double y = evaluateExpression(parts[1].trim());
-            double z = evaluateExpression(parts[2].trim());
-            double radius = evaluateExpression(parts[3].trim());
+    void executeSphere3D(Sphere3DStmt stmt) {
+        if (graphics == null) return;
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 4) {
+            double x = evaluate(args[0]);
+            double y = evaluate(args[1]);
+            double z = evaluate(args[2]);
+            double radius = evaluate(args[3]);
 
             graphics3D.drawSphere(x, y, z, radius);
             graphics.repaint();
         }
     }
 
-    private void executeRotate3D(CommandParser parser) {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 3) {
-            double rx = evaluateExpression(parts[0].trim());
-            double ry = evaluateExpression(parts[1].trim());
-            double rz = evaluateExpression(parts[2].trim());
+    void executeRotate3D(Rotate3DStmt stmt) {
+        if (graphics3D == null) return;
+        ExpressionNode[] args = stmt.args;
+        if (args.length >= 3) {
+            double rx = evaluate(args[0]);
+            double ry = evaluate(args[1]);
+            double rz = evaluate(args[2]);
 
             graphics3D.rotate(rx, ry, rz);
         }
     }
 
-    private void executeNetOpen(CommandParser parser) throws Exception {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 2) {
-            String host = parts[0].trim();
-            if (host.startsWith("\"") && host.endsWith("\"")) {
-                host = host.substring(1, host.length() - 1);
-            }
-            int port = (int)evaluateExpression(parts[1].trim());
-
-            int id = parts.length >= 3 ? (int)evaluateExpression(parts[2].trim()) : 0;
-            network.openConnection(id, host, port);
-        }
+    void executeNetOpen(NetOpenStmt stmt) throws Exception {
+        int port = evaluateInt(stmt.port);
+        int id = stmt.id != null ? evaluateInt(stmt.id) : 0;
+        console.flush();  // Connecting can block
+        network.openConnection(id, stmt.host, port);
     }
 
-    private void executeNetSend(CommandParser parser) throws Exception {
-        String[] parts = parser.getRemainder().split(",", 2);
-        if (parts.length >= 2) {
-            int id = (int)evaluateExpression(parts[0].trim());
-            String data = parts[1].trim();
-            if (data.startsWith("\"") && data.endsWith("\"")) {
-                data = data.substring(1, data.length() - 1);
-            }
-            network.sendData(id, data);
-        }
+    void executeNetSend(NetSendStmt stmt) throws Exception {
+        int id = evaluateInt(stmt.id);
+        network.sendData(id, stmt.data);
     }
 
-    private void executeNetRecv(CommandParser parser) throws Exception {
-        String[] parts = parser.getRemainder().split(",");
-        if (parts.length >= 2) {
-            int id = (int)evaluateExpression(parts[0].trim());
-            String varName = parts[1].trim().toUpperCase();
-            String data = network.receiveData(id);
+    void executeNetRecv(NetRecvStmt stmt) throws Exception {
+        int id = evaluateInt(stmt.id);
+        console.flush();  // Waits for a line from the connection
+        String data = network.receiveData(id);
 
-            if (varName.endsWith("$")) {
-                stringVars.put(varName, data);
-            } else {
-                try {
-                    variables.put(varName, Double.parseDouble(data));
-                } catch (NumberFormatException e) {
-                    variables.put(varName, 0.0);
-                }
+        if (stmt.varName.endsWith("$")) {
+            stringVars.set(stmt.varName, data);
+        } else {
+            try {
+                variables.set(stmt.varName, Double.parseDouble(data));
+            } catch (NumberFormatException e) {
+                variables.set(stmt.varName, 0.0);
             }
         }
     }
 
-    private void executeNetClose(CommandParser parser) throws Exception {
-        String remainder = parser.getRemainder().trim();
-        int id = remainder.isEmpty() ? 0 : (int)evaluateExpression(remainder);
+    void executeNetClose(NetCloseStmt stmt) throws Exception {
+        int id = stmt.args.length == 0 ? 0 : evaluateInt(stmt.args[0]);
         network.closeConnection(id);
     }
 
-    private void executeWait(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        double seconds = evaluateExpression(remainder);
+    void executeInputPoll(InputPollStmt stmt) {
+        if (input == null) return;
+
+        switch (stmt.source) {
+            case MOUSEX:
+                variables.set("MOUSEX", (double)input.getMouseX());
+                break;
+            case MOUSEY:
+                variables.set("MOUSEY", (double)input.getMouseY());
+                break;
+            case MOUSEBUTTON:
+                variables.set("MOUSEBUTTON", input.isMouseButton(1) ? 1.0 : 0.0);
+                break;
+            case KEYPRESS:
+                variables.set("KEYPRESS", (double)input.getLastKey());
+                break;
+        }
+    }
+
+    void executeWait(WaitStmt stmt) {
+        double seconds = evaluate(stmt.args[0]);
+        console.flush();  // Show the output so far before sleeping
         try {
             Thread.sleep((long)(seconds * 1000));
         } catch (InterruptedException e) {
@@ -1603,45 +1841,15 @@ public class Interpreter {
         }
     }
 
-    private void executeFont(CommandParser parser) {
-        String remainder = parser.getRemainder().trim();
-        String[] parts = remainder.split(",");
-        
-        if (parts.length >= 2) {
-            String fontName = parts[0].trim();
-            if (fontName.startsWith("\"") && fontName.endsWith("\"")) {
-                fontName = fontName.substring(1, fontName.length() - 1);
-            }
-            int fontSize = (int)evaluateExpression(parts[1].trim());
-            
-            int fontStyle = java.awt.Font.PLAIN;
-            if (parts.length >= 3) {
-                String style = parts[2].trim().toUpperCase();
-                if (style.startsWith("\"") && style.endsWith("\"")) {
-                    style = style.substring(1, style.length() - 1);
-                }
-                
-                if (style.equals("BOLD")) {
-                    fontStyle = java.awt.Font.BOLD;
-                } else if (style.equals("ITALIC")) {
-                    fontStyle = java.awt.Font.ITALIC;
-                } else if (style.equals("BOLDITALIC") || style.equals("BOLD ITALIC")) {
-                    fontStyle = java.awt.Font.BOLD | java.awt.Font.ITALIC;
-                }
-            }
-            
-            graphics.setFont(fontName, fontSize, fontStyle);
-        }
+    void executeFont(FontStmt stmt) {
+        if (graphics == null) return;
+        int fontSize = evaluateInt(stmt.size);
+        graphics.setFont(stmt.fontName, fontSize, stmt.style);
     }
 
-    private void executeLoad(CommandParser parser) throws Exception {
-        String filename = parser.getRemainder().trim();
-        if (filename.startsWith("\"") && filename.endsWith("\"")) {
-            filename = filename.substring(1, filename.length() - 1);
-        }
-
+    void executeLoad(LoadStmt stmt) throws Exception {
         StringBuilder code = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(stmt.filename))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 code.append(line).append("\n");
@@ -1652,13 +1860,8 @@ public class Interpreter {
         loadProgram(code.toString());
     }
 
-    private void executeSave(CommandParser parser) throws Exception {
-        String filename = parser.getRemainder().trim();
-        if (filename.startsWith("\"") && filename.endsWith("\"")) {
-            filename = filename.substring(1, filename.length() - 1);
-        }
-
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+    void executeSave(SaveStmt stmt) throws Exception {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(stmt.filename))) {
             for (CodeLine line : lines) {
                 if (line.lineNumber > 0) {
                     writer.write(line.lineNumber + " ");
@@ -1671,22 +1874,36 @@ public class Interpreter {
         }
     }
 
-    private double evaluateExpression(String expr) {
-        // Use AST for evaluation to support user-defined functions
-        try {
-            ExpressionNode node = ASTBuilder.buildAST(expr);
-            ExecutionContext context = new ExecutionContext(this);
-            return node.evaluate(context);
-        } catch (Exception e) {
-            // Fallback to old parser if AST fails
-            return expressionParser.evaluate(expr);
+    /**
+     * Evaluate a pre-parsed expression node.
+     */
+    private double evaluate(ExpressionNode node) {
+        return node.evaluate(context);
+    }
+
+    // Truncated to an int, without the round trip through double for integer expressions
+    private int evaluateInt(ExpressionNode node) {
+        if (node instanceof IntegerNode) {
+            return ((IntegerNode) node).evaluateInt(context);
         }
+        return (int) node.evaluate(context);
     }
 
-    private boolean evaluateCondition(String condition) {
+    boolean evaluateCondition(String condition) {
         return expressionParser.evaluate(condition) != 0.0;
     }
 
+    /**
+     * IF and ELSEIF conditions: the pre-parsed AST when there is one,
+     * otherwise the text through ExpressionParser
+     */
+    boolean testCondition(String condition, ExpressionNode conditionNode) {
+        if (conditionNode != null) {
+            return conditionNode.test(context);
+        }
+        return evaluateCondition(condition);
+    }
+
     /**
      * Evaluate a pre-parsed condition AST node.
      * This is the core of the double-pass optimization - no re-parsing!
@@ -1695,8 +1912,7 @@ public class Interpreter {
         if (conditionNode == null) {
             return false;
         }
-        ExecutionContext context = new ExecutionContext(this);
-        return conditionNode.evaluate(context) != 0.0;
+        return conditionNode.test(context);
     }
 
     /**
@@ -1706,54 +1922,55 @@ public class Interpreter {
      *         ANIMATE STOPALL
      *         ANIMATE VELOCITY, id, vx, vy
      */
-    private void executeAnimate(CommandParser parser) {
-        String remainder = parser.getRemainder();
-        String[] parts = remainder.split(",");
-
-        if (parts.length < 1) return;
-
-        String action = parts[0].trim().toUpperCase();
-
-        switch (action) {
-            case "START":
-                if (parts.length >= 6) {
-                    int id = (int)evaluateExpression(parts[1].trim());
-                    double vx = evaluateExpression(parts[2].trim());
-                    double vy = evaluateExpression(parts[3].trim());
-                    int fps = (int)evaluateExpression(parts[4].trim());
-                    int bounceMode = (int)evaluateExpression(parts[5].trim());
+    void executeAnimate(AnimateStmt stmt) {
+        if (spriteAnimator == null) {
+            System.err.println("Sprite animator not initialized");
+            return;
+        }
+        ExpressionNode[] args = stmt.args;
+
+        switch (stmt.action) {
+            case START:
+                if (args.length >= 5) {
+                    int id = evaluateInt(args[0]);
+                    double vx = evaluate(args[1]);
+                    double vy = evaluate(args[2]);
+                    int fps = evaluateInt(args[3]);
+                    int bounceMode = evaluateInt(args[4]);
                     spriteAnimator.startAnimation(id, vx, vy, fps, bounceMode);
                 }
                 break;
 
-            case "STOP":
-                if (parts.length >= 2) {
-                    int id = (int)evaluateExpression(parts[1].trim());
+            case STOP:
+                if (args.length >= 1) {
+                    int id = evaluateInt(args[0]);
                     spriteAnimator.stopAnimation(id);
                 }
                 break;
 
-            case "STOPALL":
+            case STOPALL:
                 spriteAnimator.stopAll();
                 break;
 
-            case "VELOCITY":
-                if (parts.length >= 4) {
-                    int id = (int)evaluateExpression(parts[1].trim());
-                    double vx = evaluateExpression(parts[2].trim());
-                    double vy = evaluateExpression(parts[3].trim());
+            case VELOCITY:
+                if (args.length >= 3) {
+                    int id = evaluateInt(args[0]);
+                    double vx = evaluate(args[1]);
+                    double vy = evaluate(args[2]);
                     spriteAnimator.setVelocity(id, vx, vy);
                 }
                 break;
 
             default:
-                System.err.println("Unknown ANIMATE action: " + action);
+                System.err.println("Unknown ANIMATE action: " + stmt.actionName);
         }
     }
 
     // Inner classes
-    private static class ForLoop {
+    static class ForLoop {
         String varName;
+        int slot;
+        boolean integer;  // Integer loop variable: counts in the int slot
         double targetValue;
         double stepValue;
         int startLine;
@@ -1773,15 +1990,10 @@ public class Interpreter {
         boolean isUntil;
     }
 
-    private static class UserFunction {
-        String name;
-        List<String> parameters;
-        String expression;
-    }
-
     private static class CodeLine {
         int lineNumber = 0;
         String label = null;
         String code = "";
+        int dataOffset = 0;  // DATA items read before this line in the source
     }
 }
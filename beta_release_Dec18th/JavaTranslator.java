@@ -0,0 +1,700 @@
+import java.util.*;
+
+/**
+ * Translates a BASIC program into the source of a single Java class.
+ *
+ * The program is loaded into an Interpreter first, so the translator works
+ * on the same compiled statements, resolved jump targets and block table
+ * the interpreter runs. Every program line becomes a case of a switch
+ * driven state machine:
+ *
+ * - numeric variables become double fields, arrays become double[] fields
+ * - expressions become plain Java arithmetic
+ * - GOTO/GOSUB and the block statements become assignments to the
+ *   program counter; falling off a case is falling through to the next line
+ *
+ * Lines are grouped into chunks of CHUNK_SIZE cases, one method per chunk,
+ * so that no method grows past the size HotSpot is willing to compile.
+ * Jumps inside a chunk loop in place, jumps out of it return the new
+ * program counter to run().
+ *
+ * Only the numeric core of the language is translated. Programs using
+ * anything else (strings, graphics, sound, user functions, ...) are
+ * rejected with an UnsupportedOperationException naming the first
+ * offending line, and Compiler embeds the interpreter for them instead.
+ */
+public class JavaTranslator {
+    static final int CHUNK_SIZE = 64;
+
+    private final String className;
+    private final Interpreter interpreter;
+    private final Statement[] program;
+    private final int[] blockMatch;
+    private final int[] caseChain;
+    private final int[] forOfNext;       // NEXT index -> its FOR index, -1 elsewhere
+    private final Set<String> variables = new TreeSet<>();
+    private final Set<String> arrays = new TreeSet<>();
+    private final Set<Integer> forLoops = new TreeSet<>();
+    private final StringBuilder out = new StringBuilder();
+    private int currentChunk;
+    private int currentLine;  // Line being translated, for error messages
+
+    private JavaTranslator(String className, Interpreter interpreter) {
+        this.className = className;
+        this.interpreter = interpreter;
+        this.program = interpreter.getProgram();
+        this.blockMatch = interpreter.getBlockMatch();
+        this.caseChain = interpreter.getCaseChain();
+        this.forOfNext = new int[program.length];
+    }
+
+    /**
+     * Translate a BASIC program into the source of a Java class with a main method
+     *
+     * @throws UnsupportedOperationException if the program uses a statement
+     *         or expression the translator cannot handle
+     */
+    public static String translate(String programCode, String className) {
+        Interpreter interpreter = new Interpreter();
+        try {
+            interpreter.setJitThreshold(0);
+            interpreter.loadProgram(programCode);
+            if (!interpreter.getLoadErrors().isEmpty()) {
+                throw new UnsupportedOperationException(interpreter.getLoadErrors().get(0));
+            }
+            return new JavaTranslator(className, interpreter).generate();
+        } finally {
+            interpreter.shutdown();
+        }
+    }
+
+    /**
+     * Turn an output file name into a valid Java class name
+     */
+    public static String toClassName(String name) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            sb.append(Character.isJavaIdentifierPart(c) ? c : '_');
+        }
+        if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) {
+            sb.insert(0, "Basic");
+        }
+        return sb.toString();
+    }
+
+    private String generate() {
+        pairForLoops();
+
+        // Chunks are generated first so that the fields they use are known
+        int chunks = (program.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        StringBuilder body = new StringBuilder();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            generateChunk(chunk);
+            body.append(out);
+            out.setLength(0);
+        }
+
+        out.append("/**\n");
+        out.append(" * Generated from a BASIC program by JavaTranslator.\n");
+        out.append(" */\n");
+        out.append("public class ").append(className).append(" {\n");
+        out.append("    private static final double[] DATA = {");
+        List<String> data = interpreter.getDataStatements();
+        for (int i = 0; i < data.size(); i++) {
+            out.append(i > 0 ? ", " : "").append(literal(dataValue(data.get(i))));
+        }
+        out.append("};\n\n");
+
+        for (String name : variables) {
+            out.append("    private double ").append(variable(name)).append(";\n");
+        }
+        for (String name : arrays) {
+            out.append("    private double[] ").append(array(name)).append(";\n");
+        }
+        for (int forLine : forLoops) {
+            out.append("    private double forEnd").append(forLine)
+               .append(", forStep").append(forLine).append(";\n");
+        }
+        out.append("    private int[] gosubStack = new int[16];\n");
+        out.append("    private int gosubDepth;\n");
+        out.append("    private int dataPointer;\n");
+        out.append("    private final java.util.SplittableRandom random = new java.util.SplittableRandom();\n\n");
+
+        out.append("    public static void main(String[] args) {\n");
+        out.append("        new ").append(className).append("().run();\n");
+        out.append("    }\n\n");
+
+        out.append("    public void run() {\n");
+        out.append("        int pc = 0;\n");
+        out.append("        while (pc >= 0 && pc < ").append(program.length).append(") {\n");
+        out.append("            switch (pc / ").append(CHUNK_SIZE).append(") {\n");
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            out.append("                case ").append(chunk).append(": pc = chunk").append(chunk)
+               .append("(pc); break;\n");
+        }
+        out.append("                default: return;\n");
+        out.append("            }\n");
+        out.append("        }\n");
+        out.append("    }\n");
+
+        out.append(body);
+        appendHelpers();
+        out.append("}\n");
+        return out.toString();
+    }
+
+    // NEXT continues the innermost FOR still open before it in the source
+    private void pairForLoops() {
+        Arrays.fill(forOfNext, -1);
+        Deque<Integer> open = new ArrayDeque<>();
+        for (int i = 0; i < program.length; i++) {
+            currentLine = i;
+            if (program[i] instanceof ForStmt) {
+                open.push(i);
+                forLoops.add(i);
+            } else if (program[i] instanceof NextStmt) {
+                if (open.isEmpty()) {
+                    throw unsupported("NEXT without FOR");
+                }
+                forOfNext[i] = open.pop();
+            }
+        }
+    }
+
+    private void generateChunk(int chunk) {
+        currentChunk = chunk;
+        int first = chunk * CHUNK_SIZE;
+        int last = Math.min(program.length, first + CHUNK_SIZE);
+
+        out.append("\n    private int chunk").append(chunk).append("(int pc) {\n");
+        out.append("        while (true) {\n");
+        out.append("            switch (pc) {\n");
+        for (int i = first; i < last; i++) {
+            currentLine = i;
+            out.append("                case ").append(i).append(":  // ")
+               .append(comment(interpreter.getLineCode(i))).append("\n");
+            statement(program[i], i, "                    ", false);
+        }
+        out.append("            }\n");
+        out.append("            return ").append(last).append(";\n");
+        out.append("        }\n");
+        out.append("    }\n");
+    }
+
+    /**
+     * Emit the code for one statement. Nested statements are the branches
+     * of a single-line IF; block statements cannot appear there.
+     */
+    private void statement(Statement stmt, int line, String indent, boolean nested) {
+        if (stmt instanceof NoOpStmt || stmt instanceof EndIfStmt || stmt instanceof EndSelectStmt) {
+            return;
+        }
+
+        if (stmt instanceof LetStmt) {
+            LetStmt let = (LetStmt) stmt;
+            out.append(indent).append(variableRef(let.varName)).append(" = ")
+               .append(expression(let.value)).append(";\n");
+        } else if (stmt instanceof ArrayLetStmt) {
+            ArrayLetStmt let = (ArrayLetStmt) stmt;
+            out.append(indent).append("store(checkArray(").append(arrayRef(let.arrayName)).append(", ")
+               .append(string(let.arrayName)).append("), (int) ").append(expression(singleIndex(let.target))).append(", ")
+               .append(expression(let.value)).append(");\n");
+        } else if (stmt instanceof PrintStmt) {
+            print((PrintStmt) stmt, indent);
+        } else if (stmt instanceof InputStmt) {
+            // The interpreter has no console input yet: INPUT stores 0
+            out.append(indent).append(variableRef(((InputStmt) stmt).varName)).append(" = 0.0;\n");
+        } else if (stmt instanceof DimStmt) {
+            DimStmt dim = (DimStmt) stmt;
+            if (dim.arrayName.endsWith("$")) {
+                throw unsupported("DIM of a string array");
+            }
+            if (dim.sizes.length != 1) {
+                throw unsupported("DIM of more than one dimension");
+            }
+            out.append(indent).append(arrayRef(dim.arrayName)).append(" = dim((int) ")
+               .append(expression(dim.sizes[0])).append(");\n");
+        } else if (stmt instanceof ReadStmt) {
+            ReadStmt read = (ReadStmt) stmt;
+            for (String name : read.varNames) {
+                if (name.endsWith("$")) {
+                    throw unsupported("READ into a string variable");
+                }
+                out.append(indent).append("if (dataPointer < DATA.length) ").append(variableRef(name))
+                   .append(" = DATA[dataPointer++];\n");
+            }
+        } else if (stmt instanceof RestoreStmt) {
+            out.append(indent).append("dataPointer = ").append(((RestoreStmt) stmt).dataOffset).append(";\n");
+        } else if (stmt instanceof GotoStmt) {
+            int target = ((GotoStmt) stmt).targetIndex;
+            if (target >= 0) {
+                jump(target, indent);
+            }
+        } else if (stmt instanceof GosubStmt) {
+            out.append(indent).append("push(").append(line + 1).append(");\n");
+            int target = ((GosubStmt) stmt).targetIndex;
+            if (target >= 0) {
+                jump(target, indent);
+            }
+        } else if (stmt instanceof OnGotoStmt) {
+            onGoto((OnGotoStmt) stmt, line, indent);
+        } else if (stmt instanceof ReturnStmt) {
+            out.append(indent).append("if (gosubDepth > 0) return gosubStack[--gosubDepth];\n");
+        } else if (stmt instanceof EndStmt) {
+            out.append(indent).append("return -1;\n");
+        } else if (stmt instanceof IfStmt) {
+            ifStatement((IfStmt) stmt, line, indent, nested);
+        } else if (nested) {
+            throw unsupported(statementName(stmt) + " inside a single-line IF");
+        } else if (stmt instanceof ElseStmt || stmt instanceof ElseIfStmt || stmt instanceof CaseStmt) {
+            // Reached at the end of the previous branch: skip to the end of the block
+            if (blockMatch[line] >= 0) {
+                jump(blockMatch[line] + 1, indent);
+            }
+        } else if (stmt instanceof ForStmt) {
+            ForStmt loop = (ForStmt) stmt;
+            out.append(indent).append("{\n");
+            out.append(indent).append("    double start = ").append(expression(loop.start)).append(";\n");
+            out.append(indent).append("    forEnd").append(line).append(" = ").append(expression(loop.end)).append(";\n");
+            out.append(indent).append("    forStep").append(line).append(" = ")
+               .append(loop.step != null ? expression(loop.step) : "1.0").append(";\n");
+            out.append(indent).append("    ").append(variableRef(loop.varName)).append(" = start;\n");
+            out.append(indent).append("}\n");
+        } else if (stmt instanceof NextStmt) {
+            int forLine = forOfNext[line];
+            String var = variableRef(((ForStmt) program[forLine]).varName);
+            String step = "forStep" + forLine;
+            String end = "forEnd" + forLine;
+            out.append(indent).append(var).append(" += ").append(step).append(";\n");
+            out.append(indent).append("if (!((").append(step).append(" > 0 && ").append(var).append(" > ").append(end)
+               .append(") || (").append(step).append(" < 0 && ").append(var).append(" < ").append(end).append("))) {\n");
+            jump(forLine + 1, indent + "    ");
+            out.append(indent).append("}\n");
+        } else if (stmt instanceof WhileStmt) {
+            if (blockMatch[line] >= 0) {
+                out.append(indent).append("if (").append(condition(((WhileStmt) stmt).condition)).append(" == 0) {\n");
+                jump(blockMatch[line] + 1, indent + "    ");
+                out.append(indent).append("}\n");
+            }
+        } else if (stmt instanceof WendStmt) {
+            int start = blockMatch[line];
+            out.append(indent).append("if (").append(condition(((WhileStmt) program[start]).condition)).append(" != 0) {\n");
+            jump(start + 1, indent + "    ");
+            out.append(indent).append("}\n");
+        } else if (stmt instanceof DoStmt) {
+            doStatement((DoStmt) stmt, line, indent);
+        } else if (stmt instanceof LoopStmt) {
+            loopStatement((LoopStmt) stmt, line, indent);
+        } else if (stmt instanceof SelectStmt) {
+            selectStatement((SelectStmt) stmt, line, indent);
+        } else {
+            throw unsupported(statementName(stmt));
+        }
+    }
+
+    private void print(PrintStmt stmt, String indent) {
+        for (PrintStmt.Item item : stmt.items) {
+            String text;
+            switch (item.kind) {
+                case LITERAL:
+                    text = string(item.text);
+                    break;
+                case NUMBER:
+                    text = expression(item.node);
+                    break;
+                default:
+                    throw unsupported("PRINT of a string expression");
+            }
+            out.append(indent).append("System.out.print(").append(text).append(");\n");
+            if (item.spaceAfter) {
+                out.append(indent).append("System.out.print(\" \");\n");
+            }
+        }
+        if (stmt.newline) {
+            out.append(indent).append("System.out.println();\n");
+        }
+    }
+
+    private void ifStatement(IfStmt stmt, int line, String indent, boolean nested) {
+        String condition = ifCondition(stmt.conditionNode);
+
+        if (stmt.isBlock()) {
+            if (nested) {
+                throw unsupported("block IF inside a single-line IF");
+            }
+            out.append(indent).append("if (").append(condition).append(" == 0) {\n");
+            String inner = indent + "    ";
+
+            // Into the first ELSEIF that holds, else the ELSE; without one past END IF, or the program ends
+            int target = blockMatch[line] >= 0 ? blockMatch[line] + 1 : program.length;
+            for (int b = caseChain[line]; b >= 0; b = caseChain[b]) {
+                if (program[b] instanceof ElseStmt) {
+                    target = b + 1;
+                    break;
+                }
+                out.append(inner).append("if (").append(ifCondition(((ElseIfStmt) program[b]).conditionNode))
+                   .append(" != 0) {\n");
+                jump(b + 1, inner + "    ");
+                out.append(inner).append("}\n");
+            }
+            jump(target, inner);
+            out.append(indent).append("}\n");
+            return;
+        }
+
+        out.append(indent).append("if (").append(condition).append(" != 0) {\n");
+        statement(stmt.thenStmt, line, indent + "    ", true);
+        if (stmt.elseStmt != null) {
+            out.append(indent).append("} else {\n");
+            statement(stmt.elseStmt, line, indent + "    ", true);
+        }
+        out.append(indent).append("}\n");
+    }
+
+    private void onGoto(OnGotoStmt stmt, int line, String indent) {
+        out.append(indent).append("switch ((int) ").append(expression(stmt.selector)).append(") {\n");
+        for (int i = 0; i < stmt.targetIndices.length; i++) {
+            int target = stmt.targetIndices[i];
+            out.append(indent).append("    case ").append(i + 1).append(":\n");
+            if (target >= 0) {
+                if (stmt.isGosub) {
+                    out.append(indent).append("        push(").append(line + 1).append(");\n");
+                }
+                jump(target, indent + "        ");
+            } else {
+                out.append(indent).append("        break;\n");
+            }
+        }
+        out.append(indent).append("}\n");
+    }
+
+    private void doStatement(DoStmt stmt, int line, String indent) {
+        int end = blockMatch[line];
+        if (end < 0 || stmt.condition == null || !(stmt.isWhile || stmt.isUntil)) {
+            return;
+        }
+        out.append(indent).append("if (").append(condition(stmt.condition))
+           .append(stmt.isWhile ? " == 0" : " != 0").append(") {\n");
+        jump(end + 1, indent + "    ");
+        out.append(indent).append("}\n");
+    }
+
+    // Mirrors Interpreter.executeLoop, including which condition it falls back to
+    private void loopStatement(LoopStmt stmt, int line, String indent) {
+        int start = blockMatch[line];
+        DoStmt doStmt = (DoStmt) program[start];
+        ExpressionNode condition = doStmt.condition != null ? doStmt.condition : stmt.condition;
+        String repeatTest;
+
+        if (stmt.isWhile || stmt.isUntil) {
+            if (condition == null) return;
+            repeatTest = condition(condition) + (stmt.isWhile ? " != 0" : " == 0");
+        } else if (!doStmt.conditionText.isEmpty()) {
+            if (doStmt.condition == null || !(doStmt.isWhile || doStmt.isUntil)) return;
+            repeatTest = condition(doStmt.condition) + (doStmt.isWhile ? " != 0" : " == 0");
+        } else {
+            jump(start + 1, indent);
+            return;
+        }
+
+        out.append(indent).append("if (").append(repeatTest).append(") {\n");
+        jump(start + 1, indent + "    ");
+        out.append(indent).append("}\n");
+    }
+
+    private void selectStatement(SelectStmt stmt, int line, String indent) {
+        out.append(indent).append("{\n");
+        out.append(indent).append("    double value = ").append(expression(stmt.value)).append(";\n");
+
+        String inner = indent + "    ";
+        String keyword = "if";
+        for (int c = caseChain[line]; c >= 0; c = caseChain[c]) {
+            CaseStmt caseStmt = (CaseStmt) program[c];
+            if (caseStmt.isElse()) {
+                out.append(inner).append(keyword.equals("if") ? "{\n" : "} else {\n");
+                jump(c + 1, inner + "    ");
+                out.append(inner).append("}\n");
+                out.append(indent).append("}\n");
+                return;
+            }
+            out.append(inner).append(keyword.equals("if") ? "if" : "} else if").append(" (Math.abs(")
+               .append(expression(caseStmt.value)).append(" - value) < 0.0001) {\n");
+            jump(c + 1, inner + "    ");
+            keyword = "else if";
+        }
+        if (!keyword.equals("if")) {
+            out.append(inner).append("}\n");
+        }
+        out.append(indent).append("}\n");
+
+        // No CASE matched
+        if (blockMatch[line] >= 0) {
+            jump(blockMatch[line] + 1, indent);
+        }
+    }
+
+    // Stay in this chunk's loop when possible, otherwise hand the target back to run()
+    private void jump(int target, String indent) {
+        if (target / CHUNK_SIZE == currentChunk && target < program.length) {
+            out.append(indent).append("pc = ").append(target).append("; continue;\n");
+        } else {
+            out.append(indent).append("return ").append(target).append(";\n");
+        }
+    }
+
+    /**
+     * Java source for a numeric expression, evaluated in the same order
+     * and with the same edge cases as the AST
+     */
+    private String expression(ExpressionNode node) {
+        if (node instanceof JitExpressionNode) {
+            return expression(((JitExpressionNode) node).getSource());
+        }
+        if (node instanceof ConstantNode) {
+            return literal(((ConstantNode) node).getValue());
+        }
+        if (node instanceof VariableNode) {
+            return variableRef(((VariableNode) node).getVarName());
+        }
+        if (node instanceof UnaryOpNode) {
+            UnaryOpNode unary = (UnaryOpNode) node;
+            String operand = expression(unary.getOperand());
+            return unary.getOperator() == UnaryOpNode.UnaryOperator.NEGATE
+                ? "(-" + operand + ")" : "not(" + operand + ")";
+        }
+        if (node instanceof BinaryOpNode) {
+            return binary((BinaryOpNode) node);
+        }
+        if (node instanceof PowerNode) {
+            PowerNode power = (PowerNode) node;
+            return "power(" + expression(power.getBase()) + ", " + power.getExponent() + ")";
+        }
+        if (node instanceof FunctionCallNode) {
+            return call((FunctionCallNode) node);
+        }
+        if (node instanceof ArrayAccessNode) {
+            ArrayAccessNode access = (ArrayAccessNode) node;
+            if (access.getIndices().isEmpty()) {
+                return "0.0";
+            }
+            return "load(" + arrayRef(access.getArrayName()) + ", (int) "
+                + expression(singleIndex(access)) + ")";
+        }
+        if (node instanceof IntegerNode) {
+            // NOT 0 or 7 AND 3: bitwise operations on constants fold to a constant
+            ExpressionNode folded = ExpressionOptimizer.optimize(node);
+            if (folded instanceof ConstantNode) {
+                return literal(((ConstantNode) folded).getValue());
+            }
+        }
+        throw unsupported("expression " + node);
+    }
+
+    // The generated arrays are one-dimensional
+    private ExpressionNode singleIndex(ArrayAccessNode access) {
+        if (access.getIndices().size() != 1) {
+            throw unsupported("array access with " + access.getIndices().size() + " indices");
+        }
+        return access.getIndices().get(0);
+    }
+
+    private String binary(BinaryOpNode node) {
+        String left = expression(node.getLeft());
+        String right = expression(node.getRight());
+
+        switch (node.getOperator()) {
+            case ADD: return "(" + left + " + " + right + ")";
+            case SUBTRACT: return "(" + left + " - " + right + ")";
+            case MULTIPLY: return "(" + left + " * " + right + ")";
+            case MODULO: return "(" + left + " % " + right + ")";
+            case DIVIDE: return "div(" + left + ", " + right + ")";
+            case POWER: return "Math.pow(" + left + ", " + right + ")";
+            case EQUAL: return "eq(" + left + ", " + right + ")";
+            case APPROX_EQUAL: return "approxEq(" + left + ", " + right + ")";
+            case NOT_EQUAL: return "ne(" + left + ", " + right + ")";
+            case LESS_THAN: return "lt(" + left + ", " + right + ")";
+            case GREATER_THAN: return "gt(" + left + ", " + right + ")";
+            case LESS_EQUAL: return "le(" + left + ", " + right + ")";
+            case GREATER_EQUAL: return "ge(" + left + ", " + right + ")";
+            case AND: return "(" + left + " != 0 && " + right + " != 0 ? 1.0 : 0.0)";
+            case OR: return "(" + left + " != 0 || " + right + " != 0 ? 1.0 : 0.0)";
+            default: throw unsupported("operator " + node.getOperator());
+        }
+    }
+
+    private String call(FunctionCallNode node) {
+        List<ExpressionNode> args = node.getArguments();
+        String name = node.getFunctionName();
+
+        if (name.equals("RND")) {
+            // RND(x) scales by x
+            return args.isEmpty() ? "random.nextDouble()" : "rnd(" + expression(args.get(0)) + ")";
+        }
+        if (args.size() > 1) {
+            throw unsupported("extra arguments to " + name);
+        }
+
+        String method;
+        switch (name) {
+            case "SIN": method = "Math.sin"; break;
+            case "COS": method = "Math.cos"; break;
+            case "TAN": method = "Math.tan"; break;
+            case "ABS": method = "Math.abs"; break;
+            case "INT": method = "Math.floor"; break;
+            case "SQR": method = "Math.sqrt"; break;
+            case "LOG": method = "Math.log"; break;
+            case "EXP": method = "Math.exp"; break;
+            case "ATN": method = "Math.atan"; break;
+            case "SGN": method = "sgn"; break;
+            default: throw unsupported("function " + name);
+        }
+        return args.isEmpty() ? "0.0" : method + "(" + expression(args.get(0)) + ")";
+    }
+
+    // WHILE, DO and LOOP conditions are ASTs
+    private String condition(ExpressionNode node) {
+        return node != null ? expression(node) : "0.0";
+    }
+
+    // IF and ELSEIF conditions without an AST are left to ExpressionParser
+    private String ifCondition(ExpressionNode node) {
+        if (node == null) {
+            throw unsupported("string or ^ condition");
+        }
+        return expression(node);
+    }
+
+    private double dataValue(String item) {
+        ExpressionNode node = ExpressionOptimizer.optimize(ASTBuilder.buildAST(item));
+        if (!(node instanceof ConstantNode)) {
+            throw new UnsupportedOperationException("Non-numeric DATA item: " + item);
+        }
+        return ((ConstantNode) node).getValue();
+    }
+
+    private String variableRef(String name) {
+        if (VariableStore.isInteger(name)) {
+            throw unsupported("integer variable " + name);
+        }
+        variables.add(name);
+        return variable(name);
+    }
+
+    private String arrayRef(String name) {
+        arrays.add(name);
+        return array(name);
+    }
+
+    private static String variable(String name) {
+        return "v" + identifier(name);
+    }
+
+    private static String array(String name) {
+        return "a" + identifier(name);
+    }
+
+    // BASIC names may contain characters Java identifiers cannot
+    private static String identifier(String name) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : name.toCharArray()) {
+            if (c < 128 && Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            } else {
+                sb.append('_').append(Integer.toHexString(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String literal(double value) {
+        if (Double.isNaN(value)) return "Double.NaN";
+        if (value == Double.POSITIVE_INFINITY) return "Double.POSITIVE_INFINITY";
+        if (value == Double.NEGATIVE_INFINITY) return "Double.NEGATIVE_INFINITY";
+        String text = Double.toString(value);
+        return value < 0 || text.startsWith("-") ? "(" + text + ")" : text;
+    }
+
+    private static String string(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 32 || c > 126) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // javac reads \\u escapes even inside comments
+    private static String comment(String text) {
+        return text.replace("\\u", "\\ u").replaceAll("[\\r\\n]", " ");
+    }
+
+    private static String statementName(Statement stmt) {
+        String name = stmt.getClass().getSimpleName();
+        return name.endsWith("Stmt") ? name.substring(0, name.length() - 4).toUpperCase() : name;
+    }
+
+    private UnsupportedOperationException unsupported(String what) {
+        return new UnsupportedOperationException(what + " at " + interpreter.describeLine(currentLine));
+    }
+
+    // Same semantics as the interpreter's BinaryOpNode, UnaryOpNode and array access
+    private void appendHelpers() {
+        out.append("\n");
+        out.append("    private double rnd(double scale) { return random.nextDouble() * scale; }\n");
+        out.append("    private static double div(double a, double b) { return b != 0 ? a / b : 0.0; }\n");
+        out.append("    private static double eq(double a, double b) { return a == b ? 1.0 : 0.0; }\n");
+        out.append("    private static double approxEq(double a, double b) { return Math.abs(a - b) < 0.0001 ? 1.0 : 0.0; }\n");
+        out.append("    private static double ne(double a, double b) { return a != b ? 1.0 : 0.0; }\n");
+        out.append("    private static double lt(double a, double b) { return a < b ? 1.0 : 0.0; }\n");
+        out.append("    private static double gt(double a, double b) { return a > b ? 1.0 : 0.0; }\n");
+        out.append("    private static double le(double a, double b) { return a <= b ? 1.0 : 0.0; }\n");
+        out.append("    private static double ge(double a, double b) { return a >= b ? 1.0 : 0.0; }\n");
+        out.append("    private static double not(double a) { return a == 0 ? 1.0 : 0.0; }\n");
+        out.append("    private static double sgn(double a) { return a > 0 ? 1.0 : (a < 0 ? -1.0 : 0.0); }\n");
+        out.append("\n");
+        out.append("    private static double power(double x, int n) {\n");
+        out.append("        double result = x;\n");
+        out.append("        for (int bit = Integer.highestOneBit(n) >> 1; bit != 0; bit >>= 1) {\n");
+        out.append("            result *= result;\n");
+        out.append("            if ((n & bit) != 0) result *= x;\n");
+        out.append("        }\n");
+        out.append("        return result;\n");
+        out.append("    }\n");
+        out.append("\n");
+        out.append("    private static double load(double[] array, int index) {\n");
+        out.append("        return array != null && index >= 0 && index < array.length ? array[index] : 0.0;\n");
+        out.append("    }\n\n");
+        out.append("    private static double[] checkArray(double[] array, String name) {\n");
+        out.append("        if (array == null) throw new RuntimeException(\"Array not defined: \" + name);\n");
+        out.append("        return array;\n");
+        out.append("    }\n\n");
+        out.append("    private static void store(double[] array, int index, double value) {\n");
+        out.append("        if (index < 0 || index >= array.length) {\n");
+        out.append("            throw new RuntimeException(\"Array index out of bounds: \" + index +\n");
+        out.append("                \" (array size: \" + array.length + \")\");\n");
+        out.append("        }\n");
+        out.append("        array[index] = value;\n");
+        out.append("    }\n\n");
+        out.append("    private static double[] dim(int size) {\n");
+        out.append("        if (size < 0) throw new RuntimeException(\"Array size cannot be negative: \" + size);\n");
+        out.append("        return new double[size + 1];\n");
+        out.append("    }\n\n");
+        out.append("    private void push(int returnLine) {\n");
+        out.append("        if (gosubDepth == gosubStack.length) {\n");
+        out.append("            gosubStack = java.util.Arrays.copyOf(gosubStack, gosubDepth * 2);\n");
+        out.append("        }\n");
+        out.append("        gosubStack[gosubDepth++] = returnLine;\n");
+        out.append("    }\n");
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Counts evaluations of an expression and swaps in a compiled version
+ * once it gets hot.
+ *
+ * Until the threshold is reached this is just the AST. On the threshold-th
+ * evaluation the tree is handed to ExpressionJIT; if that fails (or the JVM
+ * has no hidden classes) the AST keeps being used, so results never depend
+ * on whether compilation happened. The interpreter can also promote the
+ * expression early, when the loop it sits in gets hot.
+ */
+public class JitExpressionNode implements ExpressionNode {
+    private final ExpressionNode source;
+    private final int threshold;
+    private ExpressionNode target;  // source, or the compiled expression once hot
+    private int count = 0;
+
+    public JitExpressionNode(ExpressionNode source, int threshold) {
+        this.source = source;
+        this.threshold = threshold;
+        this.target = source;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        if (count < threshold && ++count == threshold) {
+            compile();
+        }
+        return target.evaluate(context);
+    }
+
+    @Override
+    public boolean test(ExecutionContext context) {
+        if (count < threshold && ++count == threshold) {
+            compile();
+        }
+        return target.test(context);
+    }
+
+    /**
+     * Compile now instead of waiting for the evaluation count
+     */
+    public void promote() {
+        if (count < threshold) {
+            count = threshold;
+            compile();
+        }
+    }
+
+    private void compile() {
+        ExpressionNode compiled = ExpressionJIT.compile(source);
+        if (compiled != null) {
+            target = compiled;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    public ExpressionNode getSource() {
+        return source;
+    }
+
+    public boolean isCompiled() {
+        return target != source;
+    }
+}
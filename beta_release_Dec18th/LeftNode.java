@@ -0,0 +1,18 @@
+/**
+ * LEFT$(s, n): the first n characters of s
+ */
+public class LeftNode extends StringFunctionNode {
+    private final StringNode string;
+    private final ExpressionNode count;
+
+    public LeftNode(StringNode string, ExpressionNode count) {
+        super("LEFT$", string, count);
+        this.string = string;
+        this.count = count;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.left(string.evaluateString(context), (int) count.evaluate(context));
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Numeric assignment: [LET] X = expr
+ */
+public class LetStmt implements Statement {
+    final String varName;
+    final int slot;
+    final ExpressionNode value;
+
+    public LetStmt(String varName, int slot, ExpressionNode value) {
+        this.varName = varName;
+        this.slot = slot;
+        this.value = value;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeLet(this);
+    }
+}
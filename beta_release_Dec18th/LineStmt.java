@@ -0,0 +1,13 @@
+/**
+ * LINE x1, y1, x2, y2
+ */
+public class LineStmt extends CommandStmt {
+    public LineStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeLineCommand(this);
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * LOAD "filename"
+ */
+public class LoadStmt implements Statement {
+    final String filename;
+
+    public LoadStmt(String filename) {
+        this.filename = filename;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) throws Exception {
+        interpreter.executeLoad(this);
+    }
+}
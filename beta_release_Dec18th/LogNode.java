@@ -0,0 +1,14 @@
+/**
+ * LOG(x): natural logarithm
+ */
+public class LogNode extends UnaryFunctionNode {
+
+    public LogNode(ExpressionNode argument) {
+        super("LOG", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.log(argument.evaluate(context));
+    }
+}
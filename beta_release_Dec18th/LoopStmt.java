@@ -0,0 +1,19 @@
+/**
+ * LOOP [WHILE condition | UNTIL condition]
+ */
+public class LoopStmt implements Statement {
+    final ExpressionNode condition;  // null when the LOOP line has no condition
+    final boolean isWhile;
+    final boolean isUntil;
+
+    public LoopStmt(ExpressionNode condition, boolean isWhile, boolean isUntil) {
+        this.condition = condition;
+        this.isWhile = isWhile;
+        this.isUntil = isUntil;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeLoop(this);
+    }
+}
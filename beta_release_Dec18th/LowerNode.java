@@ -0,0 +1,16 @@
+/**
+ * LOWER$(s): s in lower case
+ */
+public class LowerNode extends StringFunctionNode {
+    private final StringNode string;
+
+    public LowerNode(StringNode string) {
+        super("LOWER$", string);
+        this.string = string;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.lower(string.evaluateString(context));
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * MAX(a, b): the larger argument
+ */
+public class MaxNode extends BinaryFunctionNode {
+
+    public MaxNode(ExpressionNode first, ExpressionNode second) {
+        super("MAX", first, second);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.max(first.evaluate(context), second.evaluate(context));
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * MID$(s, start [, n]): n characters of s from the 1-based start, or the
+ * rest of s when n is left out
+ */
+public class MidNode extends StringFunctionNode {
+    private final StringNode string;
+    private final ExpressionNode start;
+    private final ExpressionNode count;  // null: to the end
+
+    public MidNode(StringNode string, ExpressionNode start, ExpressionNode count) {
+        super("MID$", count != null ? new Object[] {string, start, count} : new Object[] {string, start});
+        this.string = string;
+        this.start = start;
+        this.count = count;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        String value = string.evaluateString(context);
+        int from = (int) start.evaluate(context);
+        return StringFunctions.mid(value, from, count != null ? (int) count.evaluate(context) : value.length());
+    }
+}
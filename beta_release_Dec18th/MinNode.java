@@ -0,0 +1,14 @@
+/**
+ * MIN(a, b): the smaller argument
+ */
+public class MinNode extends BinaryFunctionNode {
+
+    public MinNode(ExpressionNode first, ExpressionNode second) {
+        super("MIN", first, second);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.min(first.evaluate(context), second.evaluate(context));
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * NETCLOSE [id]
+ */
+public class NetCloseStmt extends CommandStmt {
+    public NetCloseStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) throws Exception {
+        interpreter.executeNetClose(this);
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * NETOPEN "host", port [, id]
+ */
+public class NetOpenStmt implements Statement {
+    final String host;
+    final ExpressionNode port;
+    final ExpressionNode id;  // null means connection 0
+
+    public NetOpenStmt(String host, ExpressionNode port, ExpressionNode id) {
+        this.host = host;
+        this.port = port;
+        this.id = id;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) throws Exception {
+        interpreter.executeNetOpen(this);
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * NETRECV id, var
+ */
+public class NetRecvStmt implements Statement {
+    final ExpressionNode id;
+    final String varName;
+
+    public NetRecvStmt(ExpressionNode id, String varName) {
+        this.id = id;
+        this.varName = varName;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) throws Exception {
+        interpreter.executeNetRecv(this);
+    }
+}
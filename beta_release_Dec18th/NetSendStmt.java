@@ -0,0 +1,17 @@
+/**
+ * NETSEND id, "data"
+ */
+public class NetSendStmt implements Statement {
+    final ExpressionNode id;
+    final String data;
+
+    public NetSendStmt(ExpressionNode id, String data) {
+        this.id = id;
+        this.data = data;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) throws Exception {
+        interpreter.executeNetSend(this);
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * NEXT [var] - closes the innermost FOR loop.
+ */
+public class NextStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeNext(this);
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * Represents a line that does nothing when executed:
+ * REM, DATA (collected at load time), blank label lines and unknown commands.
+ */
+public class NoOpStmt implements Statement {
+    public static final NoOpStmt INSTANCE = new NoOpStmt();
+
+    private NoOpStmt() {
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        // Nothing to do
+    }
+}
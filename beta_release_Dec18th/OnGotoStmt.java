@@ -0,0 +1,26 @@
+/**
+ * ON selector GOTO target1, target2, ...
+ * ON selector GOSUB target1, target2, ...
+ *
+ * A selector of 1 jumps to the first target, 2 to the second, and so on.
+ * Values outside the list fall through to the next line.
+ */
+public class OnGotoStmt implements Statement {
+    final ExpressionNode selector;
+    final String[] targets;  // Upper-cased labels or line numbers
+    final boolean isGosub;
+    final int[] targetIndices;  // Resolved by the interpreter's link phase
+
+    public OnGotoStmt(ExpressionNode selector, String[] targets, boolean isGosub) {
+        this.selector = selector;
+        this.targets = targets;
+        this.isGosub = isGosub;
+        this.targetIndices = new int[targets.length];
+        java.util.Arrays.fill(targetIndices, -1);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeOnGoto(this);
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * PAGE n
+ */
+public class PageStmt extends CommandStmt {
+    public PageStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executePage(this);
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Represents a parameter inside a DEF FN body
+ *
+ * Reads the argument at a fixed index of the current call frame, so a
+ * call never touches the global variable of the same name.
+ */
+public class ParameterNode implements ExpressionNode {
+    private final String name;
+    private final int index;
+
+    public ParameterNode(String name, int index) {
+        this.name = name.toUpperCase();
+        this.index = index;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return context.getArgument(index);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * PIXEL x, y (also PSET)
+ */
+public class PixelStmt extends CommandStmt {
+    public PixelStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executePixel(this);
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * PLAY "note sequence"
+ */
+public class PlayStmt implements Statement {
+    final String sequence;
+
+    public PlayStmt(String sequence) {
+        this.sequence = sequence;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executePlay(this);
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * PLAYBACK - plays the last recording.
+ */
+public class PlaybackStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executePlayback(this);
+    }
+}
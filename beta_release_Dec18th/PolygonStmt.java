@@ -0,0 +1,13 @@
+/**
+ * POLYGON x1, y1, x2, y2, x3, y3 [, ...]
+ */
+public class PolygonStmt extends CommandStmt {
+    public PolygonStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executePolygon(this);
+    }
+}
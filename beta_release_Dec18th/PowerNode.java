@@ -0,0 +1,56 @@
+/**
+ * x^n for a small constant integer n, by multiplication instead of Math.pow.
+ *
+ * ASTBuilder makes one for X^2, X^3 and X^4. The base is evaluated once,
+ * so (X - Y)^2 and RND^2 mean the same as with Math.pow. X^2 is exactly
+ * X * X, which is also what Math.pow returns; higher powers are within
+ * an ulp or two of Math.pow and exact whenever the result is an integer
+ * below 2^53.
+ */
+public class PowerNode implements ExpressionNode {
+    public static final int MAX_EXPONENT = 4;
+
+    private final ExpressionNode base;
+    private final int exponent;  // 2 .. MAX_EXPONENT
+
+    public PowerNode(ExpressionNode base, int exponent) {
+        if (exponent < 2 || exponent > MAX_EXPONENT) {
+            throw new IllegalArgumentException("exponent " + exponent);
+        }
+        this.base = base;
+        this.exponent = exponent;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return power(base.evaluate(context), exponent);
+    }
+
+    /**
+     * x^n by squaring, from the top bit of n down: x^3 is (x * x) * x.
+     * The VM and the expression JIT multiply in the same order.
+     */
+    public static double power(double x, int n) {
+        double result = x;
+        for (int bit = Integer.highestOneBit(n) >> 1; bit != 0; bit >>= 1) {
+            result *= result;
+            if ((n & bit) != 0) {
+                result *= x;
+            }
+        }
+        return result;
+    }
+
+    public ExpressionNode getBase() {
+        return base;
+    }
+
+    public int getExponent() {
+        return exponent;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + base + " POWER " + exponent + ")";
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * PRINT item, item; item ... [;]
+ *
+ * Items are classified once at load time into literals, pre-parsed
+ * string expressions and pre-parsed numeric expressions.
+ */
+public class PrintStmt implements Statement {
+    final Item[] items;
+    final boolean newline;
+
+    public enum Kind {
+        LITERAL, STRING, NUMBER
+    }
+
+    public static class Item {
+        final Kind kind;
+        final String text;          // Literal text or expression source
+        final ExpressionNode node;  // Pre-parsed numeric expression
+        final StringNode string;    // Pre-parsed string expression
+        final boolean spaceAfter;
+
+        Item(Kind kind, String text, ExpressionNode node, StringNode string, boolean spaceAfter) {
+            this.kind = kind;
+            this.text = text;
+            this.node = node;
+            this.string = string;
+            this.spaceAfter = spaceAfter;
+        }
+    }
+
+    public PrintStmt(Item[] items, boolean newline) {
+        this.items = items;
+        this.newline = newline;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executePrint(this);
+    }
+}
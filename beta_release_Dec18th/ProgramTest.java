@@ -0,0 +1,88 @@
+/**
+ * Shared fixture for the tests that run small BASIC programs and check
+ * the variables they leave behind: PASS/FAIL counting, running a program
+ * on a chosen backend, reading a variable and checking a runtime error.
+ * A test extends this class and ends its main with summary().
+ */
+public abstract class ProgramTest {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    protected static Interpreter run(String program) {
+        return run(program, Interpreter.Backend.AST);
+    }
+
+    protected static Interpreter run(String program, Interpreter.Backend backend) {
+        Interpreter interp = new Interpreter();
+        interp.setBackend(backend);
+        interp.loadProgram(program);
+        runQuietly(interp);
+        interp.shutdown();
+        return interp;
+    }
+
+    /**
+     * Run with a JIT threshold, so a test can force compiled or
+     * interpreted expressions
+     */
+    protected static Interpreter run(String program, Interpreter.Backend backend, int jitThreshold) {
+        Interpreter interp = new Interpreter();
+        interp.setBackend(backend);
+        interp.setJitThreshold(jitThreshold);
+        interp.loadProgram(program);
+        runQuietly(interp);
+        interp.shutdown();
+        return interp;
+    }
+
+    /**
+     * Run a loaded program; an error counts as a failure
+     */
+    protected static void runQuietly(Interpreter interp) {
+        try {
+            interp.run();
+        } catch (Exception e) {
+            report("run: " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * The program must stop with exactly this error message
+     */
+    protected static void checkError(String program, String expected) {
+        Interpreter interp = new Interpreter();
+        interp.loadProgram(program);
+        try {
+            interp.run();
+            report(expected, false);
+        } catch (Exception e) {
+            report(expected, expected.equals(e.getMessage()));
+            if (!expected.equals(e.getMessage())) {
+                System.out.println("    got " + e.getMessage());
+            }
+        }
+        interp.shutdown();
+    }
+
+    /**
+     * A variable's value, NaN when the program never set it
+     */
+    protected static double value(Interpreter interp, String name) {
+        Double value = interp.getVariables().get(name);
+        return value != null ? value : Double.NaN;
+    }
+
+    protected static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+
+    protected static void summary() {
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+}
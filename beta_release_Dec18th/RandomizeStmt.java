@@ -0,0 +1,15 @@
+/**
+ * RANDOMIZE [seed]: restart RND from a seed, or from a fresh one
+ */
+public class RandomizeStmt implements Statement {
+    final ExpressionNode seed;  // May be null
+
+    public RandomizeStmt(ExpressionNode seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeRandomize(this);
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * READ var, var, ...
+ */
+public class ReadStmt implements Statement {
+    final String[] varNames;  // Upper-cased, string variables end with $
+    final int[] slots;        // Numeric variable slots, -1 for string variables
+
+    public ReadStmt(String[] varNames, int[] slots) {
+        this.varNames = varNames;
+        this.slots = slots;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeRead(this);
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * RECORD [duration]
+ */
+public class RecordStmt extends CommandStmt {
+    public RecordStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeRecord(this);
+    }
+}
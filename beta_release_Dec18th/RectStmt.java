@@ -0,0 +1,13 @@
+/**
+ * RECT x, y, w, h [, fill] (also BOX)
+ */
+public class RectStmt extends CommandStmt {
+    public RectStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeRect(this);
+    }
+}
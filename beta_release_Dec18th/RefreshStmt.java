@@ -0,0 +1,15 @@
+/**
+ * REFRESH / NOREFRESH - toggles automatic screen refresh.
+ */
+public class RefreshStmt implements Statement {
+    final boolean autoRefresh;
+
+    public RefreshStmt(boolean autoRefresh) {
+        this.autoRefresh = autoRefresh;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeRefresh(this);
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * REPLACE$(s, old, new): s with every occurrence of old replaced by new
+ */
+public class ReplaceNode extends StringFunctionNode {
+    private final StringNode string;
+    private final StringNode oldText;
+    private final StringNode newText;
+
+    public ReplaceNode(StringNode string, StringNode oldText, StringNode newText) {
+        super("REPLACE$", string, oldText, newText);
+        this.string = string;
+        this.oldText = oldText;
+        this.newText = newText;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.replace(string.evaluateString(context), oldText.evaluateString(context),
+            newText.evaluateString(context));
+    }
+}
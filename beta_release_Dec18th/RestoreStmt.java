@@ -0,0 +1,16 @@
+/**
+ * RESTORE [line]
+ */
+public class RestoreStmt implements Statement {
+    final String target;  // Upper-cased line number or label, null when no line is given
+    int dataOffset = 0;   // Index into the DATA list, resolved by the link phase
+
+    public RestoreStmt(String target) {
+        this.target = target;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeRestore(this);
+    }
+}
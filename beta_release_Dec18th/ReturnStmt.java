@@ -0,0 +1,9 @@
+/**
+ * RETURN from GOSUB
+ */
+public class ReturnStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeReturn(this);
+    }
+}
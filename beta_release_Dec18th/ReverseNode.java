@@ -0,0 +1,16 @@
+/**
+ * REVERSE$(s): s backwards
+ */
+public class ReverseNode extends StringFunctionNode {
+    private final StringNode string;
+
+    public ReverseNode(StringNode string) {
+        super("REVERSE$", string);
+        this.string = string;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.reverse(string.evaluateString(context));
+    }
+}
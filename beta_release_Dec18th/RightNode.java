@@ -0,0 +1,18 @@
+/**
+ * RIGHT$(s, n): the last n characters of s
+ */
+public class RightNode extends StringFunctionNode {
+    private final StringNode string;
+    private final ExpressionNode count;
+
+    public RightNode(StringNode string, ExpressionNode count) {
+        super("RIGHT$", string, count);
+        this.string = string;
+        this.count = count;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.right(string.evaluateString(context), (int) count.evaluate(context));
+    }
+}
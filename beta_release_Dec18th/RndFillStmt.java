@@ -0,0 +1,17 @@
+/**
+ * RNDFILL name() [, scale]: fill a numeric array with RND(scale) values
+ */
+public class RndFillStmt implements Statement {
+    final String arrayName;
+    final ExpressionNode scale;  // May be null
+
+    public RndFillStmt(String arrayName, ExpressionNode scale) {
+        this.arrayName = arrayName;
+        this.scale = scale;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeRndFill(this);
+    }
+}
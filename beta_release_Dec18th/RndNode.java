@@ -0,0 +1,23 @@
+/**
+ * RND or RND(x): random number from 0 up to (not including) 1, or up to x
+ *
+ * The numbers come from the interpreter's own SplittableRandom, which
+ * RANDOMIZE reseeds.
+ */
+public class RndNode extends FunctionCallNode {
+    private final ExpressionNode argument;  // May be null
+
+    public RndNode(ExpressionNode argument) {
+        super("RND", argument != null ? new ExpressionNode[] { argument } : new ExpressionNode[0]);
+        this.argument = argument;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        if (argument == null) {
+            return context.getInterpreter().getRandom().nextDouble();
+        }
+        double scale = argument.evaluate(context);
+        return context.getInterpreter().getRandom().nextDouble() * scale;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * ROTATE3D rx, ry, rz
+ */
+public class Rotate3DStmt extends CommandStmt {
+    public Rotate3DStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeRotate3D(this);
+    }
+}
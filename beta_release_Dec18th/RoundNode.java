@@ -0,0 +1,17 @@
+/**
+ * ROUND(x): nearest integer, halves rounded away from zero: ROUND(-2.5) is -3
+ */
+public class RoundNode extends UnaryFunctionNode {
+
+    public RoundNode(ExpressionNode argument) {
+        super("ROUND", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        double x = argument.evaluate(context);
+        double magnitude = Math.abs(x);
+        // From 2^52 up every double is already an integer (and would overflow a long)
+        return magnitude < 0x1p52 ? Math.copySign((double) Math.round(magnitude), x) : x;
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * SAVE "filename"
+ */
+public class SaveStmt implements Statement {
+    final String filename;
+
+    public SaveStmt(String filename) {
+        this.filename = filename;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) throws Exception {
+        interpreter.executeSave(this);
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * SELECT CASE expr
+ */
+public class SelectStmt implements Statement {
+    final ExpressionNode value;
+
+    public SelectStmt(ExpressionNode value) {
+        this.value = value;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) throws Exception {
+        interpreter.executeSelect(this);
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * SGN(x): sign: -1, 0 or 1
+ */
+public class SgnNode extends UnaryFunctionNode {
+
+    public SgnNode(ExpressionNode argument) {
+        super("SGN", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        double x = argument.evaluate(context);
+        return x > 0 ? 1.0 : (x < 0 ? -1.0 : 0.0);
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * SIN(x): sine of an angle in radians
+ */
+public class SinNode extends UnaryFunctionNode {
+
+    public SinNode(ExpressionNode argument) {
+        super("SIN", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.sin(argument.evaluate(context));
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * SOUND freq, duration [, volume] (also TONE)
+ */
+public class SoundStmt extends CommandStmt {
+    public SoundStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeSound(this);
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * SPHERE3D x, y, z, radius
+ */
+public class Sphere3DStmt extends CommandStmt {
+    public Sphere3DStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeSphere3D(this);
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * SPRITE action, id [, args...]
+ */
+public class SpriteStmt implements Statement {
+    final Action action;
+    final ExpressionNode id;
+    final ExpressionNode[] args;  // Arguments after the id
+    final String filename;        // SPRITE LOAD only
+
+    public enum Action {
+        CREATE, FILL, LOAD, MOVE, SHOW, HIDE, DELETE, PIXEL, UNKNOWN
+    }
+
+    public SpriteStmt(Action action, ExpressionNode id, ExpressionNode[] args, String filename) {
+        this.action = action;
+        this.id = id;
+        this.args = args;
+        this.filename = filename;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeSprite(this);
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * SQR(x): square root
+ */
+public class SqrNode extends UnaryFunctionNode {
+
+    public SqrNode(ExpressionNode argument) {
+        super("SQR", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.sqrt(argument.evaluate(context));
+    }
+}
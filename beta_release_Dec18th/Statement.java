@@ -0,0 +1,14 @@
+/**
+ * Base interface for all pre-decoded program statements.
+ *
+ * Statements are built once by StatementCompiler when a program is loaded,
+ * so the run loop dispatches straight to the interpreter without
+ * re-splitting or upper-casing the source line on every execution.
+ */
+public interface Statement {
+    /**
+     * Execute this statement against the given interpreter.
+     * @param interpreter - The interpreter that owns the program state
+     */
+    void execute(Interpreter interpreter) throws Exception;
+}
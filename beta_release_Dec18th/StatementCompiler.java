@@ -0,0 +1,1027 @@
+import java.util.*;
+
+/**
+ * Compiles program lines into pre-decoded Statement objects.
+ *
+ * This is the statement-level counterpart of ASTBuilder: each line is split
+ * into its command and arguments once, when the program is loaded, and every
+ * numeric argument is pre-parsed into an AST. The run loop then dispatches
+ * over the compiled statements without touching the source text again.
+ */
+public class StatementCompiler {
+    private final VariableStore variables;  // Numeric variables are bound to slots here
+    private final boolean optimize;          // Run ExpressionOptimizer over every AST
+    private final int jitThreshold;          // Evaluations before an expression is JIT compiled, 0 = never
+    private final List<JitExpressionNode> jitNodes;  // Collects the JIT wrappers created, may be null
+
+    private StatementCompiler(VariableStore variables, boolean optimize, int jitThreshold,
+                              List<JitExpressionNode> jitNodes) {
+        this.variables = variables;
+        this.optimize = optimize;
+        this.jitThreshold = jitThreshold;
+        this.jitNodes = jitNodes;
+    }
+
+    /**
+     * Compile a single line of code (without line number or label)
+     */
+    public static Statement compile(String line) {
+        return compile(line, new VariableStore());
+    }
+
+    /**
+     * Compile a line, resolving numeric variables to slots in the given store
+     */
+    public static Statement compile(String line, VariableStore variables) {
+        return compile(line, variables, false);
+    }
+
+    /**
+     * Compile a line, optionally folding and simplifying its expressions
+     */
+    public static Statement compile(String line, VariableStore variables, boolean optimize) {
+        return compile(line, variables, optimize, 0);
+    }
+
+    /**
+     * Compile a line whose expressions are JIT compiled to bytecode after
+     * jitThreshold evaluations (0 keeps them on the AST)
+     */
+    public static Statement compile(String line, VariableStore variables, boolean optimize, int jitThreshold) {
+        return compile(line, variables, optimize, jitThreshold, null);
+    }
+
+    /**
+     * Compile a line and add every JIT wrapper it creates to jitNodes,
+     * so the caller can promote them when the line turns out to be hot
+     */
+    public static Statement compile(String line, VariableStore variables, boolean optimize, int jitThreshold,
+                                    List<JitExpressionNode> jitNodes) {
+        return new StatementCompiler(variables, optimize, jitThreshold, jitNodes).compileLine(line);
+    }
+
+    private Statement compileLine(String line) {
+        line = line.trim();
+        if (line.isEmpty()) {
+            return NoOpStmt.INSTANCE;
+        }
+
+        CommandParser parser = new CommandParser(line);
+        String cmd = parser.getCommand().toUpperCase();
+        String remainder = parser.getRemainder();
+
+        // Handle multi-word commands
+        String lineUpper = line.toUpperCase();
+        if (lineUpper.startsWith("END SELECT") || lineUpper.equals("ENDSELECT")) {
+            return new EndSelectStmt();
+        }
+        if (lineUpper.startsWith("END IF") || lineUpper.equals("ENDIF")) {
+            return new EndIfStmt();
+        }
+
+        switch (cmd) {
+            case "PRINT":
+                return compilePrint(remainder);
+            case "LET":
+                return compileLet(remainder);
+            case "INPUT":
+                return compileInput(remainder);
+            case "IF":
+                return compileIf(remainder);
+            case "ELSE":
+                if (remainder.isEmpty()) {
+                    return new ElseStmt();
+                }
+                if (remainder.toUpperCase().startsWith("IF ")) {
+                    return compileElseIf(remainder.substring(3));  // ELSE IF, spelled apart
+                }
+                break;
+            case "ELSEIF":
+                return compileElseIf(remainder);
+            case "SELECT":
+                return compileSelect(remainder);
+            case "CASE":
+                return compileCase(remainder);
+            case "WHILE":
+                return compileWhile(remainder);
+            case "WEND":
+                return new WendStmt();
+            case "DO":
+                return compileDo(remainder);
+            case "LOOP":
+                return compileLoop(remainder);
+            case "DEF":
+                return compileDef(remainder);
+            case "DEFINT":
+                return compileDefInt(remainder);
+            case "DATA":
+                // Already handled in loadProgram
+                return NoOpStmt.INSTANCE;
+            case "READ":
+                return compileRead(remainder);
+            case "RESTORE":
+                return new RestoreStmt(remainder.trim().isEmpty() ? null : remainder.trim().toUpperCase());
+            case "GOTO":
+            case "GO":
+                return new GotoStmt(compileTarget(remainder));
+            case "GOSUB":
+                return new GosubStmt(remainder.trim().toUpperCase());
+            case "ON":
+                return compileOn(remainder);
+            case "RETURN":
+                return new ReturnStmt();
+            case "FOR":
+                return compileFor(remainder);
+            case "NEXT":
+                return new NextStmt();
+            case "DIM":
+                return compileDim(remainder);
+            case "ERASE":
+                return compileErase(remainder);
+            case "RANDOMIZE":
+                return new RandomizeStmt(remainder.trim().isEmpty() ? null : build(remainder));
+            case "RNDFILL":
+                return compileRndFill(remainder);
+            case "CLS":
+                return new ClsStmt();
+            case "COLOR":
+            case "COLOUR":
+                return new ColorStmt(compileArgs(remainder));
+            case "LINE":
+                return new LineStmt(compileArgs(remainder));
+            case "CIRCLE":
+                return new CircleStmt(compileArgs(remainder));
+            case "ELLIPSE":
+                return new EllipseStmt(compileArgs(remainder));
+            case "POLYGON":
+                return new PolygonStmt(compileArgs(remainder));
+            case "RECT":
+            case "BOX":
+                return new RectStmt(compileArgs(remainder));
+            case "TEXT":
+                return compileText(remainder);
+            case "PSET":
+            case "PIXEL":
+                return new PixelStmt(compileArgs(remainder));
+            case "PAGE":
+                return new PageStmt(compileArgs(remainder));
+            case "NOREFRESH":
+                return new RefreshStmt(false);
+            case "REFRESH":
+                return new RefreshStmt(true);
+            case "SOUND":
+            case "TONE":
+                return new SoundStmt(compileArgs(remainder));
+            case "WAVEFORM":
+                return new WaveformStmt(unquote(remainder.trim()));
+            case "BEEP":
+                return new BeepStmt(compileArgs(remainder));
+            case "PLAY":
+                return new PlayStmt(unquote(remainder.trim()));
+            case "RECORD":
+                return new RecordStmt(compileArgs(remainder));
+            case "PLAYBACK":
+                return new PlaybackStmt();
+            case "SPRITE":
+                return compileSprite(remainder);
+            case "COLLISION":
+                return new CollisionStmt(compileArgs(remainder));
+            case "ANIMATE":
+                return compileAnimate(remainder);
+            case "TURTLE":
+                return compileTurtle(remainder);
+            case "FORWARD":
+            case "FD":
+                return new TurtleStmt(TurtleStmt.Op.FORWARD, build(remainder));
+            case "BACKWARD":
+            case "BK":
+                return new TurtleStmt(TurtleStmt.Op.BACKWARD, build(remainder));
+            case "RIGHT":
+            case "RT":
+                return new TurtleStmt(TurtleStmt.Op.RIGHT, build(remainder));
+            case "LEFT":
+            case "LT":
+                return new TurtleStmt(TurtleStmt.Op.LEFT, build(remainder));
+            case "PENUP":
+            case "PU":
+                return new TurtleStmt(TurtleStmt.Op.PENUP, null);
+            case "PENDOWN":
+            case "PD":
+                return new TurtleStmt(TurtleStmt.Op.PENDOWN, null);
+            case "HOME":
+                return new TurtleStmt(TurtleStmt.Op.HOME, null);
+            case "BOX3D":
+                return new Box3DStmt(compileArgs(remainder));
+            case "SPHERE3D":
+                return new Sphere3DStmt(compileArgs(remainder));
+            case "ROTATE3D":
+                return new Rotate3DStmt(compileArgs(remainder));
+            case "NETOPEN":
+                return compileNetOpen(remainder);
+            case "NETSEND":
+                return compileNetSend(remainder);
+            case "NETRECV":
+                return compileNetRecv(remainder);
+            case "NETCLOSE":
+                return new NetCloseStmt(compileArgs(remainder));
+            case "MOUSEX":
+                return new InputPollStmt(InputPollStmt.Source.MOUSEX);
+            case "MOUSEY":
+                return new InputPollStmt(InputPollStmt.Source.MOUSEY);
+            case "MOUSEBUTTON":
+                return new InputPollStmt(InputPollStmt.Source.MOUSEBUTTON);
+            case "KEYPRESS":
+                return new InputPollStmt(InputPollStmt.Source.KEYPRESS);
+            case "LOAD":
+                return new LoadStmt(unquote(remainder.trim()));
+            case "SAVE":
+                return new SaveStmt(unquote(remainder.trim()));
+            case "END":
+                return new EndStmt();
+            case "REM":
+                // Comment - do nothing
+                return NoOpStmt.INSTANCE;
+            case "WAIT":
+                return new WaitStmt(new ExpressionNode[] { build(remainder) });
+            case "FONT":
+                return compileFont(remainder);
+        }
+
+        // Try as assignment
+        if (line.contains("=")) {
+            return compileLet(line);
+        }
+        return NoOpStmt.INSTANCE;
+    }
+
+    private Statement compilePrint(String expr) {
+        if (expr.isEmpty()) {
+            return new PrintStmt(new PrintStmt.Item[0], true);
+        }
+
+        // Check if line ends with semicolon (suppress newline)
+        boolean suppressNewline = expr.trim().endsWith(";");
+        if (suppressNewline) {
+            expr = expr.trim().substring(0, expr.trim().length() - 1);
+        }
+
+        // Split by comma to handle PRINT "text", var1, var2; a semicolon joins items without a space
+        List<String> fields = splitArgs(expr, 0);
+        List<String> parts = new ArrayList<>();
+        List<Boolean> spaces = new ArrayList<>();
+        for (int f = 0; f < fields.size(); f++) {
+            List<String> joined = split(fields.get(f), ';', 0);
+            for (int j = 0; j < joined.size(); j++) {
+                parts.add(joined.get(j));
+                spaces.add(j == joined.size() - 1 && f < fields.size() - 1);
+            }
+        }
+
+        List<PrintStmt.Item> items = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            String part = parts.get(i);
+            if (part.isEmpty()) continue;
+
+            boolean spaceAfter = spaces.get(i);
+            if (isQuoted(part) && part.indexOf('"', 1) == part.length() - 1) {
+                items.add(new PrintStmt.Item(PrintStmt.Kind.LITERAL,
+                    part.substring(1, part.length() - 1), null, null, spaceAfter));
+                continue;
+            }
+            Object value = part.contains("$") || part.contains("\"") ? ASTBuilder.buildEither(part, variables) : null;
+            if (value instanceof StringNode) {
+                // String variable or expression
+                items.add(new PrintStmt.Item(PrintStmt.Kind.STRING, part, null, (StringNode) value, spaceAfter));
+            } else {
+                items.add(new PrintStmt.Item(PrintStmt.Kind.NUMBER, part,
+                    value != null ? wrap(optimize((ExpressionNode) value)) : build(part), null, spaceAfter));
+            }
+        }
+        return new PrintStmt(items.toArray(new PrintStmt.Item[0]), !suppressNewline);
+    }
+
+    private Statement compileLet(String remainder) {
+        if (remainder.startsWith("LET ")) {
+            remainder = remainder.substring(4);
+        }
+
+        int eqPos = remainder.indexOf('=');
+        if (eqPos == -1) return NoOpStmt.INSTANCE;
+
+        String varName = remainder.substring(0, eqPos).trim();
+        String expr = remainder.substring(eqPos + 1).trim();
+
+        // Check for array assignment
+        if (varName.contains("(") && varName.endsWith(")")) {
+            int parenPos = varName.indexOf('(');
+            String arrayName = varName.substring(0, parenPos).trim().toUpperCase();
+            String indexExpr = varName.substring(parenPos + 1, varName.length() - 1);
+            List<ExpressionNode> indices = parseList(indexExpr);
+            if (arrayName.endsWith("$")) {
+                return new StringArrayLetStmt(new StringArrayAccessNode(arrayName, Arrays.asList(wrapAll(indices))),
+                    ASTBuilder.buildString(expr, variables));
+            }
+            ExpressionNode index = indices.get(0);
+            if (indices.size() == 1 && index instanceof VariableNode && ((VariableNode) index).getSlot() >= 0) {
+                return new ArrayStoreStmt(new ArrayAccessNode(arrayName, indices), ((VariableNode) index).getSlot(),
+                    build(expr));
+            }
+            return new ArrayLetStmt(new ArrayAccessNode(arrayName, Arrays.asList(wrapAll(indices))), build(expr));
+        }
+
+        // Check if it's a string variable (ends with $)
+        if (varName.endsWith("$")) {
+            return stringLet(varName.toUpperCase(), ASTBuilder.buildString(expr, variables));
+        }
+        varName = variables.typedName(varName.toUpperCase());
+        int slot = variables.slotOf(varName);
+        ExpressionNode value = parse(expr);
+
+        if (VariableStore.isInteger(varName)) {
+            IntegerNode intValue = ASTBuilder.integerOperand(value);
+            return new IntegerLetStmt(varName, slot, intValue != null ? intValue : new CIntNode(wrap(value)));
+        }
+
+        Double delta = incrementOf(value, slot);
+        if (delta != null) {
+            return new IncrementStmt(varName, slot, value, delta);
+        }
+        return new LetStmt(varName, slot, wrap(value));
+    }
+
+    // X + c, c + X or X - c, as the constant added to X; null for anything else
+    private static Double incrementOf(ExpressionNode value, int slot) {
+        if (!(value instanceof BinaryOpNode)) {
+            return null;
+        }
+        BinaryOpNode op = (BinaryOpNode) value;
+        ExpressionNode left = op.getLeft();
+        ExpressionNode right = op.getRight();
+
+        if (op.getOperator() == BinaryOpNode.BinaryOperator.ADD) {
+            if (isSlot(left, slot) && right instanceof ConstantNode) {
+                return ((ConstantNode) right).getValue();
+            }
+            if (left instanceof ConstantNode && isSlot(right, slot)) {
+                return ((ConstantNode) left).getValue();
+            }
+        } else if (op.getOperator() == BinaryOpNode.BinaryOperator.SUBTRACT) {
+            // x - c and x + (-c) are the same IEEE operation
+            if (isSlot(left, slot) && right instanceof ConstantNode) {
+                return -((ConstantNode) right).getValue();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSlot(ExpressionNode node, int slot) {
+        return node instanceof VariableNode && ((VariableNode) node).getSlot() == slot;
+    }
+
+    private Statement compileInput(String remainder) {
+        String varName = variables.typedName(remainder.trim().toUpperCase());
+        return new InputStmt(varName, variables.slotOf(varName));
+    }
+
+    private Statement compileIf(String remainder) {
+        int thenPos = indexOfKeyword(remainder, "THEN", 0);
+        if (thenPos == -1) return NoOpStmt.INSTANCE;
+
+        String condition = remainder.substring(0, thenPos).trim();
+        String afterThen = remainder.substring(thenPos + 4).trim();
+
+        String thenPart = afterThen;
+        String elsePart = "";
+
+        // IF a THEN x ELSEIF b THEN y is IF a THEN x ELSE IF b THEN y
+        int elsePos = indexOfKeyword(afterThen, "ELSE", 0);
+        int elseIfPos = indexOfKeyword(afterThen, "ELSEIF", 0);
+        if (elseIfPos != -1 && (elsePos == -1 || elseIfPos < elsePos)) {
+            thenPart = afterThen.substring(0, elseIfPos).trim();
+            elsePart = "IF " + afterThen.substring(elseIfPos + 6).trim();
+        } else if (elsePos != -1) {
+            thenPart = afterThen.substring(0, elsePos).trim();
+            elsePart = afterThen.substring(elsePos + 4).trim();
+        }
+
+        ExpressionNode conditionNode = parseCondition(condition);
+
+        // Multi-line IF/END IF block (nothing after THEN)
+        if (thenPart.isEmpty()) {
+            return new IfStmt(condition, wrapCondition(conditionNode), null, null);
+        }
+
+        Statement thenStmt = compileBranch(thenPart);
+        if (elsePart.isEmpty() && thenStmt instanceof GotoStmt) {
+            Statement fused = compileCompareBranch(condition, conditionNode, (GotoStmt) thenStmt);
+            if (fused != null) {
+                return fused;
+            }
+        }
+        return new IfStmt(condition, wrapCondition(conditionNode), thenStmt,
+            elsePart.isEmpty() ? null : compileBranch(elsePart));
+    }
+
+    // ELSEIF condition THEN, a branch of a block IF
+    private Statement compileElseIf(String remainder) {
+        int thenPos = indexOfKeyword(remainder, "THEN", 0);
+        String condition = (thenPos == -1 ? remainder : remainder.substring(0, thenPos)).trim();
+        return new ElseIfStmt(condition, wrapCondition(parseCondition(condition)));
+    }
+
+    /**
+     * Pre-parse an IF or ELSEIF condition. ExpressionParser compares with
+     * "=" to within 0.0001, and so do these ASTs: every EQUAL becomes
+     * APPROX_EQUAL before the tree is optimized. Returns null for what
+     * ASTBuilder cannot parse (string functions such as LEFT$); those
+     * conditions stay with ExpressionParser.
+     */
+    private ExpressionNode parseCondition(String condition) {
+        ExpressionNode node;
+        try {
+            node = approximateEquals(ASTBuilder.parse(condition, variables));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (optimize) {
+            node = ExpressionOptimizer.optimize(node);
+        }
+        return node;
+    }
+
+    /**
+     * Condition tree for the text of a TESTC instruction, bound to the
+     * given variables; null if only ExpressionParser can evaluate it
+     */
+    static ExpressionNode compileCondition(String condition, VariableStore variables) {
+        return new StatementCompiler(variables, false, 0, null).parseCondition(condition);
+    }
+
+    private ExpressionNode wrapCondition(ExpressionNode node) {
+        return node != null ? wrap(node) : null;
+    }
+
+    private static ExpressionNode approximateEquals(ExpressionNode node) {
+        if (node instanceof BinaryOpNode) {
+            BinaryOpNode op = (BinaryOpNode) node;
+            BinaryOpNode.BinaryOperator operator = op.getOperator() == BinaryOpNode.BinaryOperator.EQUAL
+                ? BinaryOpNode.BinaryOperator.APPROX_EQUAL : op.getOperator();
+            return new BinaryOpNode(approximateEquals(op.getLeft()), operator, approximateEquals(op.getRight()));
+        }
+        if (node instanceof UnaryOpNode) {
+            UnaryOpNode op = (UnaryOpNode) node;
+            return new UnaryOpNode(op.getOperator(), approximateEquals(op.getOperand()));
+        }
+        if (node instanceof PowerNode) {
+            PowerNode power = (PowerNode) node;
+            return new PowerNode(approximateEquals(power.getBase()), power.getExponent());
+        }
+        if (node instanceof FunctionCallNode) {
+            FunctionCallNode call = (FunctionCallNode) node;
+            return BuiltinFunctions.create(call.getFunctionName(), approximateAll(call.getArguments()));
+        }
+        if (node instanceof UserFunctionCallNode) {
+            UserFunctionCallNode call = (UserFunctionCallNode) node;
+            return new UserFunctionCallNode(call.getFunctionName(), approximateAll(call.getArguments()));
+        }
+        if (node instanceof ArrayAccessNode) {
+            ArrayAccessNode access = (ArrayAccessNode) node;
+            return new ArrayAccessNode(access.getArrayName(), approximateAll(access.getIndices()));
+        }
+        return node;
+    }
+
+    private static List<ExpressionNode> approximateAll(List<ExpressionNode> nodes) {
+        List<ExpressionNode> result = new ArrayList<>(nodes.size());
+        for (ExpressionNode node : nodes) {
+            result.add(approximateEquals(node));
+        }
+        return result;
+    }
+
+    /**
+     * IF a <op> b THEN GOTO n, when the condition is one numeric comparison.
+     * Anything with AND/OR/NOT or nested comparisons is left to the general IF.
+     */
+    private Statement compileCompareBranch(String condition, ExpressionNode node, GotoStmt branch) {
+        if (!(node instanceof BinaryOpNode)) {
+            return null;
+        }
+
+        BinaryOpNode compare = (BinaryOpNode) node;
+        switch (compare.getOperator()) {
+            case APPROX_EQUAL: case NOT_EQUAL: case LESS_THAN:
+            case GREATER_THAN: case LESS_EQUAL: case GREATER_EQUAL:
+                break;
+            default:
+                return null;
+        }
+        if (!isArithmetic(compare.getLeft()) || !isArithmetic(compare.getRight())) {
+            return null;
+        }
+        return new CompareBranchStmt(condition, compare, wrap(compare.getLeft()),
+            wrap(compare.getRight()), branch);
+    }
+
+    private static boolean isArithmetic(ExpressionNode node) {
+        if (node instanceof BinaryOpNode) {
+            BinaryOpNode op = (BinaryOpNode) node;
+            switch (op.getOperator()) {
+                case ADD: case SUBTRACT: case MULTIPLY: case DIVIDE: case MODULO: case POWER:
+                    return isArithmetic(op.getLeft()) && isArithmetic(op.getRight());
+                default:
+                    return false;
+            }
+        }
+        if (node instanceof UnaryOpNode) {
+            UnaryOpNode op = (UnaryOpNode) node;
+            return op.getOperator() == UnaryOpNode.UnaryOperator.NEGATE && isArithmetic(op.getOperand());
+        }
+        if (node instanceof PowerNode) {
+            return isArithmetic(((PowerNode) node).getBase());
+        }
+        return node instanceof ConstantNode || node instanceof VariableNode || node instanceof FunctionCallNode
+            || node instanceof UserFunctionCallNode || node instanceof ArrayAccessNode;
+    }
+
+    // A bare line number after THEN or ELSE is shorthand for GOTO
+    private Statement compileBranch(String part) {
+        if (part.matches("\\d+")) {
+            return new GotoStmt(part);
+        }
+        return compileLine(part);
+    }
+
+    private Statement compileOn(String remainder) {
+        boolean isGosub = false;
+        int keywordPos = indexOfKeyword(remainder, "GOTO", 0);
+        if (keywordPos == -1) {
+            keywordPos = indexOfKeyword(remainder, "GOSUB", 0);
+            isGosub = true;
+        }
+        if (keywordPos == -1) return NoOpStmt.INSTANCE;
+
+        String selector = remainder.substring(0, keywordPos).trim();
+        String list = remainder.substring(keywordPos + (isGosub ? 5 : 4)).trim();
+
+        List<String> parts = splitArgs(list, 0);
+        String[] targets = new String[parts.size()];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = parts.get(i).toUpperCase();
+        }
+        return new OnGotoStmt(build(selector), targets, isGosub);
+    }
+
+    private Statement compileSelect(String remainder) {
+        String expr = remainder.trim();
+        if (expr.toUpperCase().startsWith("CASE ")) {
+            expr = expr.substring(5).trim();
+        }
+        return new SelectStmt(build(expr));
+    }
+
+    private Statement compileCase(String remainder) {
+        String caseExpr = remainder.trim();
+        if (caseExpr.toUpperCase().equals("ELSE")) {
+            return new CaseStmt(null);
+        }
+        return new CaseStmt(build(caseExpr));
+    }
+
+    private Statement compileWhile(String remainder) {
+        String condition = remainder.trim();
+        return new WhileStmt(condition, build(condition));
+    }
+
+    private Statement compileDo(String remainder) {
+        String condition = remainder.trim();
+        String conditionUpper = condition.toUpperCase();
+        boolean isWhile = conditionUpper.startsWith("WHILE");
+        boolean isUntil = conditionUpper.startsWith("UNTIL");
+
+        if (isWhile || isUntil) {
+            // Skip the keyword ("WHILE" and "UNTIL" are both 5 characters)
+            condition = condition.substring(5).trim();
+        }
+
+        ExpressionNode node = null;
+        if ((isWhile || isUntil) && !condition.isEmpty()) {
+            node = build(condition);
+        }
+        return new DoStmt(condition, node, isWhile, isUntil);
+    }
+
+    private Statement compileLoop(String remainder) {
+        String condition = remainder.trim();
+        String conditionUpper = condition.toUpperCase();
+        boolean isWhile = conditionUpper.startsWith("WHILE");
+        boolean isUntil = conditionUpper.startsWith("UNTIL");
+
+        ExpressionNode node = null;
+        if (isWhile || isUntil) {
+            condition = condition.substring(5).trim();
+            if (!condition.isEmpty()) {
+                node = build(condition);
+            }
+        }
+        return new LoopStmt(node, isWhile, isUntil);
+    }
+
+    private Statement compileDef(String remainder) {
+        remainder = remainder.trim();
+        if (!remainder.toUpperCase().startsWith("FN")) return NoOpStmt.INSTANCE;
+
+        remainder = remainder.substring(2).trim();
+        int parenPos = remainder.indexOf('(');
+        int closeParen = remainder.indexOf(')');
+        if (parenPos == -1 || closeParen < parenPos) return NoOpStmt.INSTANCE;
+        int eqPos = remainder.indexOf('=', closeParen);
+        if (eqPos == -1) return NoOpStmt.INSTANCE;
+
+        String funcName = remainder.substring(0, parenPos).trim().toUpperCase();
+        String params = remainder.substring(parenPos + 1, closeParen);
+        String expr = remainder.substring(eqPos + 1).trim();
+
+        List<String> parameters = new ArrayList<>();
+        for (String param : params.split(",")) {
+            if (!param.trim().isEmpty()) {
+                parameters.add(param.trim().toUpperCase());
+            }
+        }
+
+        // Parameters become frame slots; other names are global variables
+        ExpressionNode body = ASTBuilder.buildAST(expr, variables, parameters);
+        if (optimize) {
+            body = ExpressionOptimizer.optimize(body);
+        }
+        return new DefStmt(funcName, parameters, expr, wrap(body));
+    }
+
+    /**
+     * DEFINT A-C, I: a declaration, applied while the program is compiled.
+     * Lines after it see plain names with those initials as integer variables.
+     */
+    private Statement compileDefInt(String remainder) {
+        for (String range : remainder.split(",")) {
+            String[] letters = range.trim().toUpperCase().split("\\s*-\\s*");
+            if (letters[0].length() != 1 || letters.length > 2 || (letters.length == 2 && letters[1].length() != 1)) {
+                System.err.println("DEFINT error: expected a letter or a letter range, not " + range.trim());
+                continue;
+            }
+            char first = letters[0].charAt(0);
+            variables.defineIntegers(first, letters.length == 2 ? letters[1].charAt(0) : first);
+        }
+        return NoOpStmt.INSTANCE;
+    }
+
+    private Statement compileRead(String remainder) {
+        String[] vars = remainder.split(",");
+        for (int i = 0; i < vars.length; i++) {
+            vars[i] = variables.typedName(vars[i].trim().toUpperCase());
+        }
+
+        // String variables have no numeric slot
+        int[] slots = new int[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            slots[i] = vars[i].endsWith("$") ? -1 : variables.slotOf(vars[i]);
+        }
+        return new ReadStmt(vars, slots);
+    }
+
+    private static String compileTarget(String remainder) {
+        String target = remainder.trim();
+        if (target.toUpperCase().startsWith("TO ")) {
+            target = target.substring(3).trim();
+        }
+        return target.toUpperCase();
+    }
+
+    private Statement compileFor(String remainder) {
+        int eqPos = remainder.indexOf('=');
+        if (eqPos == -1) return NoOpStmt.INSTANCE;
+
+        String varName = variables.typedName(remainder.substring(0, eqPos).trim().toUpperCase());
+        String rest = remainder.substring(eqPos + 1);
+
+        int toPos = indexOfKeyword(rest, "TO", 0);
+        if (toPos == -1) return NoOpStmt.INSTANCE;
+
+        ExpressionNode start = parse(rest.substring(0, toPos));
+        String afterTo = rest.substring(toPos + 2).trim();
+
+        ExpressionNode end;
+        ExpressionNode step = null;
+
+        int stepPos = indexOfKeyword(afterTo, "STEP", 0);
+        if (stepPos != -1) {
+            end = parse(afterTo.substring(0, stepPos));
+            step = parse(afterTo.substring(stepPos + 4));
+        } else {
+            end = parse(afterTo);
+        }
+
+        int slot = variables.slotOf(varName);
+        if (isInteger(start) && isInteger(end) && (step == null || isInteger(step))) {
+            return new CountedForStmt(varName, slot, start, end, step,
+                intValue(start), intValue(end), step != null ? intValue(step) : 1);
+        }
+        return new ForStmt(varName, slot, wrap(start), wrap(end), step != null ? wrap(step) : null);
+    }
+
+    private static boolean isInteger(ExpressionNode node) {
+        Double value = constantOf(node);
+        return value != null && Double.compare(value, (int) (double) value) == 0;  // Also rejects -0.0
+    }
+
+    private static int intValue(ExpressionNode node) {
+        return (int) (double) constantOf(node);
+    }
+
+    // A number, or a negated number (STEP -1 parses as NEGATE(1) unless optimized)
+    private static Double constantOf(ExpressionNode node) {
+        if (node instanceof ConstantNode) {
+            return ((ConstantNode) node).getValue();
+        }
+        if (node instanceof UnaryOpNode && ((UnaryOpNode) node).getOperator() == UnaryOpNode.UnaryOperator.NEGATE
+                && ((UnaryOpNode) node).getOperand() instanceof ConstantNode) {
+            return -((ConstantNode) ((UnaryOpNode) node).getOperand()).getValue();
+        }
+        return null;
+    }
+
+    private Statement compileDim(String remainder) {
+        int parenPos = remainder.indexOf('(');
+        if (parenPos == -1) return NoOpStmt.INSTANCE;
+
+        String varName = remainder.substring(0, parenPos).trim().toUpperCase();
+        int closeParen = remainder.lastIndexOf(')');
+        String dimensions = closeParen > parenPos
+            ? remainder.substring(parenPos + 1, closeParen)
+            : remainder.substring(parenPos + 1);
+        boolean interned = closeParen > parenPos
+            && remainder.substring(closeParen + 1).trim().equalsIgnoreCase("INTERNED");
+        return new DimStmt(varName, wrapAll(parseList(dimensions)), interned);
+    }
+
+    // A$ = A$ + X + Y appends X and Y in place
+    private static Statement stringLet(String varName, StringNode value) {
+        Deque<StringNode> parts = new ArrayDeque<>();
+        StringNode node = value;
+        while (node instanceof StringConcatNode) {
+            parts.addFirst(((StringConcatNode) node).getRight());
+            node = ((StringConcatNode) node).getLeft();
+        }
+        if (node instanceof StringVariableNode && ((StringVariableNode) node).getVarName().equals(varName)
+                && !parts.isEmpty()) {
+            return new StringAppendStmt(varName, parts.toArray(new StringNode[0]));
+        }
+        return new StringLetStmt(varName, value);
+    }
+
+    private Statement compileErase(String remainder) {
+        List<String> names = splitArgs(remainder, 0);
+        String[] arrayNames = new String[names.size()];
+        for (int i = 0; i < arrayNames.length; i++) {
+            arrayNames[i] = names.get(i).trim().toUpperCase();
+        }
+        return new EraseStmt(arrayNames);
+    }
+
+    private Statement compileRndFill(String remainder) {
+        List<String> parts = splitArgs(remainder, 0);
+        if (parts.isEmpty()) return NoOpStmt.INSTANCE;
+
+        String arrayName = parts.get(0).trim();
+        int parenPos = arrayName.indexOf('(');
+        if (parenPos != -1) {
+            arrayName = arrayName.substring(0, parenPos).trim();
+        }
+        return new RndFillStmt(arrayName.toUpperCase(), parts.size() > 1 ? build(parts.get(1)) : null);
+    }
+
+    private Statement compileText(String remainder) {
+        List<String> parts = splitArgs(remainder, 3);
+        if (parts.size() < 3) {
+            return new TextStmt(null, null, new StringLiteralNode(""));
+        }
+
+        // A number (TEXT 10, 10, SCORE) is shown as with STR$
+        Object text = ASTBuilder.buildEither(parts.get(2), variables);
+        if (!(text instanceof StringNode)) {
+            text = new StrNode(optimize((ExpressionNode) text));
+        }
+        return new TextStmt(build(parts.get(0)), build(parts.get(1)), (StringNode) text);
+    }
+
+    private Statement compileSprite(String remainder) {
+        List<String> parts = splitArgs(remainder, 0);
+        if (parts.size() < 2) return NoOpStmt.INSTANCE;
+
+        String actionName = parts.get(0).toUpperCase();
+        SpriteStmt.Action action;
+        try {
+            action = SpriteStmt.Action.valueOf(actionName);
+        } catch (IllegalArgumentException e) {
+            action = SpriteStmt.Action.UNKNOWN;
+        }
+
+        String filename = null;
+        if (action == SpriteStmt.Action.LOAD) {
+            filename = parts.size() >= 3 ? unquote(parts.get(2)) : null;
+            parts = parts.subList(0, 2);
+        }
+        return new SpriteStmt(action, build(parts.get(1)),
+            buildAll(parts.subList(2, parts.size())), filename);
+    }
+
+    private Statement compileAnimate(String remainder) {
+        List<String> parts = splitArgs(remainder, 0);
+        String actionName = parts.isEmpty() ? "" : parts.get(0).toUpperCase();
+        AnimateStmt.Action action;
+        try {
+            action = AnimateStmt.Action.valueOf(actionName);
+        } catch (IllegalArgumentException e) {
+            action = AnimateStmt.Action.UNKNOWN;
+        }
+        ExpressionNode[] args = parts.isEmpty()
+            ? new ExpressionNode[0] : buildAll(parts.subList(1, parts.size()));
+        return new AnimateStmt(action, actionName, args);
+    }
+
+    private Statement compileTurtle(String remainder) {
+        String mode = remainder.trim().toUpperCase();
+        if (mode.equals("ON")) return new TurtleStmt(TurtleStmt.Op.ON, null);
+        if (mode.equals("OFF")) return new TurtleStmt(TurtleStmt.Op.OFF, null);
+        return new TurtleStmt(TurtleStmt.Op.NONE, null);
+    }
+
+    private Statement compileNetOpen(String remainder) {
+        List<String> parts = splitArgs(remainder, 0);
+        if (parts.size() < 2) return NoOpStmt.INSTANCE;
+        ExpressionNode id = parts.size() >= 3 ? build(parts.get(2)) : null;
+        return new NetOpenStmt(unquote(parts.get(0)), build(parts.get(1)), id);
+    }
+
+    private Statement compileNetSend(String remainder) {
+        List<String> parts = splitArgs(remainder, 2);
+        if (parts.size() < 2) return NoOpStmt.INSTANCE;
+        return new NetSendStmt(build(parts.get(0)), unquote(parts.get(1)));
+    }
+
+    private Statement compileNetRecv(String remainder) {
+        List<String> parts = splitArgs(remainder, 0);
+        if (parts.size() < 2) return NoOpStmt.INSTANCE;
+        return new NetRecvStmt(build(parts.get(0)), parts.get(1).toUpperCase());
+    }
+
+    private Statement compileFont(String remainder) {
+        List<String> parts = splitArgs(remainder, 0);
+        if (parts.size() < 2) return NoOpStmt.INSTANCE;
+
+        int fontStyle = java.awt.Font.PLAIN;
+        if (parts.size() >= 3) {
+            String style = unquote(parts.get(2).toUpperCase());
+            if (style.equals("BOLD")) {
+                fontStyle = java.awt.Font.BOLD;
+            } else if (style.equals("ITALIC")) {
+                fontStyle = java.awt.Font.ITALIC;
+            } else if (style.equals("BOLDITALIC") || style.equals("BOLD ITALIC")) {
+                fontStyle = java.awt.Font.BOLD | java.awt.Font.ITALIC;
+            }
+        }
+        return new FontStmt(unquote(parts.get(0)), build(parts.get(1)), fontStyle);
+    }
+
+    private ExpressionNode build(String expr) {
+        return wrap(parse(expr));
+    }
+
+    // Plain AST, before any JIT wrapper - for spotting superinstruction shapes
+    private ExpressionNode parse(String expr) {
+        return optimize(ASTBuilder.buildAST(expr, variables));
+    }
+
+    private ExpressionNode optimize(ExpressionNode node) {
+        return optimize ? ExpressionOptimizer.optimize(node) : node;
+    }
+
+    private List<ExpressionNode> parseList(String text) {
+        List<ExpressionNode> nodes = ASTBuilder.buildList(text, variables);
+        if (optimize) {
+            List<ExpressionNode> optimized = new ArrayList<>(nodes.size());
+            for (ExpressionNode node : nodes) {
+                optimized.add(ExpressionOptimizer.optimize(node));
+            }
+            nodes = optimized;
+        }
+        return nodes;
+    }
+
+    private ExpressionNode[] wrapAll(List<ExpressionNode> nodes) {
+        ExpressionNode[] wrapped = new ExpressionNode[nodes.size()];
+        for (int i = 0; i < wrapped.length; i++) {
+            wrapped[i] = wrap(nodes.get(i));
+        }
+        return wrapped;
+    }
+
+    private ExpressionNode wrap(ExpressionNode node) {
+        if (jitThreshold > 0 && ExpressionJIT.isWorthCompiling(node)) {
+            JitExpressionNode jitNode = new JitExpressionNode(node, jitThreshold);
+            if (jitNodes != null) {
+                jitNodes.add(jitNode);
+            }
+            node = jitNode;
+        }
+        return node;
+    }
+
+    private ExpressionNode[] compileArgs(String remainder) {
+        return buildAll(splitArgs(remainder, 0));
+    }
+
+    private ExpressionNode[] buildAll(List<String> parts) {
+        ExpressionNode[] nodes = new ExpressionNode[parts.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = build(parts.get(i));
+        }
+        return nodes;
+    }
+
+    /**
+     * Split an argument list by commas, respecting quoted strings and
+     * parentheses. Parts are trimmed. A limit greater than zero caps the
+     * number of parts; the last part then holds the rest of the text.
+     */
+    static List<String> splitArgs(String args, int limit) {
+        return split(args, ',', limit);
+    }
+
+    private static List<String> split(String args, char separator, int limit) {
+        List<String> parts = new ArrayList<>();
+        if (args.trim().isEmpty()) {
+            return parts;
+        }
+
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+        int parenDepth = 0;
+
+        for (int i = 0; i < args.length(); i++) {
+            char c = args.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == '(' && !inQuotes) {
+                parenDepth++;
+            } else if (c == ')' && !inQuotes) {
+                parenDepth--;
+            } else if (c == separator && !inQuotes && parenDepth == 0
+                    && (limit <= 0 || parts.size() < limit - 1)) {
+                parts.add(current.toString().trim());
+                current = new StringBuilder();
+                continue;
+            }
+            current.append(c);
+        }
+        parts.add(current.toString().trim());
+
+        return parts;
+    }
+
+    /**
+     * Find a keyword as a whole word outside of string literals.
+     * Digits may touch the keyword so that "1TO10" still splits.
+     */
+    static int indexOfKeyword(String text, String keyword, int from) {
+        boolean inQuotes = false;
+        int len = keyword.length();
+        for (int i = from; i <= text.length() - len; i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                continue;
+            }
+            if (inQuotes || !text.regionMatches(true, i, keyword, 0, len)) {
+                continue;
+            }
+            boolean startOk = i == 0 || !isWordChar(text.charAt(i - 1));
+            boolean endOk = i + len == text.length() || !isWordChar(text.charAt(i + len));
+            if (startOk && endOk) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetter(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isQuoted(String text) {
+        return text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"");
+    }
+
+    private static String unquote(String text) {
+        return isQuoted(text) ? text.substring(1, text.length() - 1) : text;
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * STR$(x): x as text, without a fraction when it is whole
+ */
+public class StrNode extends StringFunctionNode {
+    private final ExpressionNode value;
+
+    public StrNode(ExpressionNode value) {
+        super("STR$", value);
+        this.value = value;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.str(value.evaluate(context));
+    }
+}
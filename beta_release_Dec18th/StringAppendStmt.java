@@ -0,0 +1,20 @@
+/**
+ * String append: [LET] A$ = A$ + expr [+ expr ...]
+ *
+ * Compiled from a StringLetStmt whose value starts with its own variable.
+ * The parts are appended to the variable in place (see StringStore).
+ */
+public class StringAppendStmt implements Statement {
+    final String varName;
+    final StringNode[] parts;
+
+    public StringAppendStmt(String varName, StringNode[] parts) {
+        this.varName = varName;
+        this.parts = parts;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeStringAppend(this);
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.*;
+
+/**
+ * Storage of a string array: DIM A$(n [, m ...]) [INTERNED]
+ *
+ * Elements live in one flat String[] in the same row-major order as
+ * numeric arrays, and start out as "". An INTERNED array keeps a pool of
+ * the distinct values its elements hold, so a large table of repeated
+ * values (codes, names, room descriptions) holds one copy of each. Each
+ * pooled value counts the elements that hold it and leaves the pool when
+ * the last one is overwritten, so the pool never outgrows the array.
+ */
+public class StringArray {
+    final String[] data;
+    private final Map<String, Shared> pool;  // null unless interned; "" is never pooled
+
+    // A pooled value and the number of elements holding it
+    private static final class Shared {
+        final String value;
+        int uses;
+
+        Shared(String value) {
+            this.value = value;
+        }
+    }
+
+    public StringArray(int length, boolean interned) {
+        this.data = new String[length];
+        this.pool = interned ? new HashMap<>() : null;
+        Arrays.fill(data, "");
+    }
+
+    /**
+     * Store a value, sharing an equal value already in the array when interned
+     */
+    void set(int offset, String value) {
+        if (pool != null) {
+            release(data[offset]);
+            value = acquire(value);
+        }
+        data[offset] = value;
+    }
+
+    private String acquire(String value) {
+        if (value.isEmpty()) {
+            return "";
+        }
+        Shared shared = pool.get(value);
+        if (shared == null) {
+            shared = new Shared(value);
+            pool.put(value, shared);
+        }
+        shared.uses++;
+        return shared.value;
+    }
+
+    private void release(String value) {
+        if (value.isEmpty()) {
+            return;
+        }
+        Shared shared = pool.get(value);
+        if (--shared.uses == 0) {
+            pool.remove(value);
+        }
+    }
+
+    public String get(int offset) {
+        return data[offset];
+    }
+
+    public int length() {
+        return data.length;
+    }
+
+    public boolean isInterned() {
+        return pool != null;
+    }
+
+    /**
+     * Number of distinct non-empty values an interned array holds, 0 otherwise
+     */
+    public int distinctValues() {
+        return pool != null ? pool.size() : 0;
+    }
+}
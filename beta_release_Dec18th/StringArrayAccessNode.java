@@ -0,0 +1,73 @@
+import java.util.*;
+
+/**
+ * Represents string array element access: NAMES$(I), MAP$(X, Y)
+ *
+ * Elements are addressed exactly as in numeric arrays; the indices are
+ * kept in an ArrayAccessNode, which computes the offset. The StringArray
+ * is cached against the array generation in the same way.
+ */
+public class StringArrayAccessNode implements StringNode {
+    private final ArrayAccessNode position;
+    private ArrayRef cache;
+
+    /**
+     * A string array as resolved at one array generation
+     */
+    static final class ArrayRef {
+        final int generation;
+        final StringArray array;  // null if the array is not dimensioned
+        final int[] extents;
+
+        ArrayRef(int generation, StringArray array, int[] extents) {
+            this.generation = generation;
+            this.array = array;
+            this.extents = extents;
+        }
+    }
+
+    public StringArrayAccessNode(String arrayName, List<ExpressionNode> indices) {
+        this.position = new ArrayAccessNode(arrayName, indices);
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        ArrayRef ref = resolve(context);
+        if (ref.array == null) {
+            return "";
+        }
+        int offset = offset(context, ref);
+        return offset >= 0 ? ref.array.data[offset] : "";
+    }
+
+    ArrayRef resolve(ExecutionContext context) {
+        ArrayRef ref = cache;
+        int generation = context.getArrayGeneration();
+        if (ref == null || ref.generation != generation) {
+            String name = position.getArrayName();
+            ref = new ArrayRef(generation, context.getStringArray(name), context.getArrayExtents(name));
+            cache = ref;
+        }
+        return ref;
+    }
+
+    /**
+     * Position of the element in the array's flat storage, or -1
+     */
+    int offset(ExecutionContext context, ArrayRef ref) {
+        return position.offset(context, ref.array.length(), ref.extents);
+    }
+
+    @Override
+    public String toString() {
+        return position.toString();
+    }
+
+    public String getArrayName() {
+        return position.getArrayName();
+    }
+
+    public List<ExpressionNode> getIndices() {
+        return position.getIndices();
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * String array assignment: [LET] A$(i [, j ...]) = expr
+ */
+public class StringArrayLetStmt implements Statement {
+    final String arrayName;
+    final StringArrayAccessNode target;
+    final StringNode value;
+
+    public StringArrayLetStmt(StringArrayAccessNode target, StringNode value) {
+        this.arrayName = target.getArrayName();
+        this.target = target;
+        this.value = value;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeStringArrayLet(this);
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Represents a comparison of two strings: =, <>, <, >, <=, >=
+ *
+ * Strings compare by character code, like String.compareTo. The result
+ * is 1.0 or 0.0 as for numeric comparisons.
+ */
+public class StringCompareNode implements ExpressionNode {
+    private final StringNode left;
+    private final StringNode right;
+    private final BinaryOpNode.BinaryOperator operator;
+
+    public StringCompareNode(StringNode left, BinaryOpNode.BinaryOperator operator, StringNode right) {
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return test(context) ? 1.0 : 0.0;
+    }
+
+    @Override
+    public boolean test(ExecutionContext context) {
+        String leftVal = left.evaluateString(context);
+        String rightVal = right.evaluateString(context);
+
+        switch (operator) {
+            case EQUAL: return leftVal.equals(rightVal);
+            case NOT_EQUAL: return !leftVal.equals(rightVal);
+            case LESS_THAN: return leftVal.compareTo(rightVal) < 0;
+            case GREATER_THAN: return leftVal.compareTo(rightVal) > 0;
+            case LESS_EQUAL: return leftVal.compareTo(rightVal) <= 0;
+            case GREATER_EQUAL: return leftVal.compareTo(rightVal) >= 0;
+            default: return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "(" + left + " " + operator + " " + right + ")";
+    }
+
+    public StringNode getLeft() {
+        return left;
+    }
+
+    public StringNode getRight() {
+        return right;
+    }
+
+    public BinaryOpNode.BinaryOperator getOperator() {
+        return operator;
+    }
+}
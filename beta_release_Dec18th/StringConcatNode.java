@@ -0,0 +1,30 @@
+/**
+ * Represents string concatenation with + (e.g., A$ + "!")
+ */
+public class StringConcatNode implements StringNode {
+    private final StringNode left;
+    private final StringNode right;
+
+    public StringConcatNode(StringNode left, StringNode right) {
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return left.evaluateString(context).concat(right.evaluateString(context));
+    }
+
+    @Override
+    public String toString() {
+        return "(" + left + " + " + right + ")";
+    }
+
+    public StringNode getLeft() {
+        return left;
+    }
+
+    public StringNode getRight() {
+        return right;
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.*;
+
+/**
+ * Base class of the built-in string functions: LEFT$, MID$, CHR$, STR$, etc.
+ *
+ * As with FunctionCallNode, each function has its own node class with
+ * typed fields, so evaluation calls straight into StringFunctions. The
+ * arguments (StringNodes and ExpressionNodes) are kept for printing.
+ *
+ * The table below gives each function's argument types; ASTBuilder
+ * checks calls against it and create() builds the node. The $ may be
+ * left off (STR(SCORE)), as the older string evaluator allowed.
+ */
+public abstract class StringFunctionNode implements StringNode {
+    // S a string, N a number; arguments after the | are optional
+    private static final Map<String, String> SIGNATURES = new HashMap<>();
+
+    static {
+        SIGNATURES.put("LEFT$", "SN");
+        SIGNATURES.put("RIGHT$", "SN");
+        SIGNATURES.put("MID$", "SN|N");
+        SIGNATURES.put("UPPER$", "S");
+        SIGNATURES.put("LOWER$", "S");
+        SIGNATURES.put("TRIM$", "S");
+        SIGNATURES.put("REVERSE$", "S");
+        SIGNATURES.put("REPLACE$", "SSS");
+        SIGNATURES.put("CHR$", "N");
+        SIGNATURES.put("STR$", "N");
+        SIGNATURES.put("INSTR", "SS");  // The one numeric result
+    }
+
+    private final String functionName;
+    private final List<Object> arguments;
+
+    protected StringFunctionNode(String functionName, Object... arguments) {
+        this.functionName = functionName;
+        this.arguments = Collections.unmodifiableList(Arrays.asList(arguments));
+    }
+
+    /**
+     * The table name of a string function (LEFT$ for LEFT$ or LEFT), or null
+     */
+    static String canonicalName(String name) {
+        if (SIGNATURES.containsKey(name)) {
+            return name;
+        }
+        if (!name.endsWith("$") && SIGNATURES.containsKey(name + "$")) {
+            return name + "$";
+        }
+        return null;
+    }
+
+    /**
+     * Argument types of a function: S or N for each, optional ones after a |
+     */
+    static String signature(String name) {
+        return SIGNATURES.get(name);
+    }
+
+    /**
+     * Node for a call whose arguments already match signature(name).
+     * Returns a StringNode, or an ExpressionNode for INSTR.
+     */
+    static Object create(String name, Object[] args) {
+        switch (name) {
+            case "LEFT$": return new LeftNode((StringNode) args[0], (ExpressionNode) args[1]);
+            case "RIGHT$": return new RightNode((StringNode) args[0], (ExpressionNode) args[1]);
+            case "MID$": return new MidNode((StringNode) args[0], (ExpressionNode) args[1],
+                args.length > 2 ? (ExpressionNode) args[2] : null);
+            case "UPPER$": return new UpperNode((StringNode) args[0]);
+            case "LOWER$": return new LowerNode((StringNode) args[0]);
+            case "TRIM$": return new TrimNode((StringNode) args[0]);
+            case "REVERSE$": return new ReverseNode((StringNode) args[0]);
+            case "REPLACE$": return new ReplaceNode((StringNode) args[0], (StringNode) args[1], (StringNode) args[2]);
+            case "CHR$": return new ChrNode((ExpressionNode) args[0]);
+            case "STR$": return new StrNode((ExpressionNode) args[0]);
+            case "INSTR": return new InstrNode((StringNode) args[0], (StringNode) args[1]);
+            default: throw new IllegalArgumentException("unknown string function " + name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(functionName).append("(");
+        for (int i = 0; i < arguments.size(); i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(arguments.get(i));
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    /**
+     * The arguments, each a StringNode or an ExpressionNode
+     */
+    public List<Object> getArguments() {
+        return arguments;
+    }
+}
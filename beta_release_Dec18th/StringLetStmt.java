@@ -0,0 +1,17 @@
+/**
+ * String assignment: [LET] A$ = expr
+ */
+public class StringLetStmt implements Statement {
+    final String varName;
+    final StringNode value;
+
+    public StringLetStmt(String varName, StringNode value) {
+        this.varName = varName;
+        this.value = value;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeStringLet(this);
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Represents a string literal (e.g., "HELLO")
+ */
+public class StringLiteralNode implements StringNode {
+    private final String value;
+
+    public StringLiteralNode(String value) {
+        this.value = value;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "\"" + value + "\"";
+    }
+
+    public String getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Base interface for string-valued expression nodes.
+ *
+ * The parser builds these for string operands inside numeric expressions
+ * (comparisons, LEN, ASC, VAL), so they are evaluated without re-parsing
+ * just like ExpressionNode trees.
+ */
+public interface StringNode {
+    /**
+     * Evaluate this node and return the string result.
+     * @param context - The execution context containing variables, arrays, etc.
+     */
+    String evaluateString(ExecutionContext context);
+
+    /**
+     * Get a string representation for debugging
+     */
+    String toString();
+}
@@ -0,0 +1,142 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Storage for string variables.
+ *
+ * A variable that is only ever assigned holds a plain String. The first
+ * append (A$ = A$ + ...) gives it a StringBuilder, and later appends add
+ * to the builder in place, so building a long string in a loop takes
+ * time linear in its length instead of copying it on every iteration.
+ * The builder is turned into a String only when the value is read, and
+ * that String is kept until the next append.
+ *
+ * asMap() exposes the variables as a Map<String, String> for the
+ * debugger, the legacy ExpressionParser and tests.
+ */
+public class StringStore {
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
+    private final Map<String, String> view = new MapView();
+
+    // Reads may come from the debugger thread while the program appends
+    private static final class Value {
+        private String string;         // null while the builder is ahead of it
+        private StringBuilder builder; // null until the first append
+
+        Value(String string) {
+            this.string = string;
+        }
+
+        synchronized String get() {
+            if (string == null && builder != null) {
+                string = builder.toString();
+            }
+            return string;
+        }
+
+        synchronized void append(String suffix) {
+            if (builder == null) {
+                builder = new StringBuilder(string != null ? string : "");
+            }
+            builder.append(suffix);
+            string = null;
+        }
+    }
+
+    /**
+     * The value of a variable, or null if it has not been assigned
+     */
+    public String get(String name) {
+        Value value = values.get(name);
+        return value != null ? value.get() : null;
+    }
+
+    public void set(String name, String value) {
+        values.put(name, new Value(value));
+    }
+
+    /**
+     * Append to a variable in place; an unassigned variable starts out empty
+     */
+    public void append(String name, String suffix) {
+        Value value = values.get(name);
+        if (value == null) {
+            value = new Value("");
+            values.put(name, value);
+        }
+        value.append(suffix);
+    }
+
+    public void clear() {
+        values.clear();
+    }
+
+    public Map<String, String> asMap() {
+        return view;
+    }
+
+    /**
+     * Live Map view. Iteration reads the values as it goes.
+     */
+    private class MapView extends AbstractMap<String, String> {
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? StringStore.this.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public String put(String key, String value) {
+            String old = StringStore.this.get(key);
+            set(key, value);
+            return old;
+        }
+
+        @Override
+        public String remove(Object key) {
+            Value old = values.remove(key);
+            return old != null ? old.get() : null;
+        }
+
+        @Override
+        public void clear() {
+            values.clear();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    Iterator<Map.Entry<String, Value>> entries = values.entrySet().iterator();
+                    return new Iterator<Entry<String, String>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            Map.Entry<String, Value> entry = entries.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().get());
+                        }
+
+                        @Override
+                        public void remove() {
+                            entries.remove();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return values.size();
+                }
+            };
+        }
+    }
+}
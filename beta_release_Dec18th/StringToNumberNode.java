@@ -0,0 +1,41 @@
+/**
+ * Represents the numeric functions of a string: LEN, ASC, VAL
+ */
+public class StringToNumberNode implements ExpressionNode {
+    private final String functionName;
+    private final StringNode argument;
+
+    public StringToNumberNode(String functionName, StringNode argument) {
+        this.functionName = functionName.toUpperCase();
+        this.argument = argument;
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        String value = argument.evaluateString(context);
+
+        switch (functionName) {
+            case "LEN": return StringFunctions.len(value);
+            case "ASC": return StringFunctions.asc(value);
+            case "VAL": return StringFunctions.val(value);
+            default: return 0.0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return functionName + "(" + argument + ")";
+    }
+
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    public StringNode getArgument() {
+        return argument;
+    }
+
+    static boolean isStringFunction(String name) {
+        return name.equals("LEN") || name.equals("ASC") || name.equals("VAL");
+    }
+}
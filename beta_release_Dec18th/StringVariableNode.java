@@ -0,0 +1,27 @@
+/**
+ * Represents a reference to a string variable (e.g., NAME$)
+ *
+ * Unset variables read as the empty string.
+ */
+public class StringVariableNode implements StringNode {
+    private final String varName;  // Uppercase, including the $
+
+    public StringVariableNode(String varName) {
+        this.varName = varName.toUpperCase();
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        String value = context.getString(varName);
+        return value != null ? value : "";
+    }
+
+    @Override
+    public String toString() {
+        return varName;
+    }
+
+    public String getVarName() {
+        return varName;
+    }
+}
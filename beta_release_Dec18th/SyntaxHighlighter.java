@@ -5,14 +5,14 @@ import java.util.regex.*;
 public class SyntaxHighlighter {
     private static final String[] KEYWORDS = {
         "PRINT", "LET", "INPUT", "IF", "THEN", "ELSE", "GOTO", "GO", "TO",
-        "GOSUB", "RETURN", "FOR", "NEXT", "STEP", "DIM", "END", "STOP",
+        "GOSUB", "RETURN", "FOR", "NEXT", "STEP", "DIM", "ERASE", "INTERNED", "END", "STOP",
         "CLS", "COLOR", "COLOUR", "LINE", "CIRCLE", "ELLIPSE", "POLYGON",
         "RECT", "BOX", "TEXT", "PIXEL", "PSET", "SPRITE", "SOUND", "PLAY", 
         "BEEP", "TONE", "WAVEFORM", "LOAD", "SAVE", "REM", "AND", "OR", "NOT", "MOD",
         "SELECT", "CASE", "TURTLE", "FORWARD", "FD", "BACKWARD", "BK",
         "RIGHT", "RT", "LEFT", "LT", "PENUP", "PU", "PENDOWN", "PD", "HOME",
         "PAGE", "MOUSEX", "MOUSEY", "WHILE", "WEND", "DO", "LOOP", "UNTIL",
-        "DEF", "FN", "DATA", "READ", "RESTORE", "COLLISION", "RECORD", "PLAYBACK",
+        "DEF", "FN", "DATA", "READ", "RESTORE", "RANDOMIZE", "RNDFILL", "COLLISION", "RECORD", "PLAYBACK",
         "BOX3D", "SPHERE3D", "ROTATE3D", "NETOPEN", "NETSEND", "NETRECV", "NETCLOSE",
         "WAIT", "FONT"
     };
@@ -0,0 +1,14 @@
+/**
+ * TAN(x): tangent of an angle in radians
+ */
+public class TanNode extends UnaryFunctionNode {
+
+    public TanNode(ExpressionNode argument) {
+        super("TAN", argument);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        return Math.tan(argument.evaluate(context));
+    }
+}
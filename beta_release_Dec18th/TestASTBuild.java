@@ -8,8 +8,8 @@ public class TestASTBuild {
             System.out.println("AST node: " + node);
             System.out.println("Node type: " + node.getClass().getName());
 
-            if (node instanceof FunctionCallNode) {
-                FunctionCallNode fn = (FunctionCallNode) node;
+            if (node instanceof UserFunctionCallNode) {
+                UserFunctionCallNode fn = (UserFunctionCallNode) node;
                 System.out.println("Function name: " + fn.getFunctionName());
                 System.out.println("Arguments: " + fn.getArguments());
             }
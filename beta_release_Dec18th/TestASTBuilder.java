@@ -0,0 +1,155 @@
+import java.util.*;
+
+/**
+ * Checks the tokenizer and Pratt parser behind ASTBuilder: precedence and
+ * associativity, ^ and MOD, string operands, error columns, syntax errors
+ * reported as load errors, and that a large program loads quickly.
+ */
+public class TestASTBuilder {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== AST Builder Test ===");
+
+        // Tree shapes
+        checkShape("1 + 2 * 3", "(1.0 ADD (2.0 MULTIPLY 3.0))");
+        checkShape("X - Y - Z", "((X SUBTRACT Y) SUBTRACT Z)");
+        checkShape("2 ^ 3 ^ 2", "((2.0 POWER 3.0) POWER 2)");
+        checkShape("-2 ^ 2", "NEGATE((2.0 POWER 2.0))");
+        checkShape("2 ^ -X", "(2.0 POWER NEGATE(X))");
+        checkShape("I MOD 16 + 1", "((I MODULO 16.0) ADD 1.0)");
+        checkShape("A < B AND C >= D OR NOT E", "(((A LESS_THAN B) AND (C GREATER_EQUAL D)) OR NOT(E))");
+        checkShape("X <> Y", "(X NOT_EQUAL Y)");
+        checkShape("SQR(DX^2 + DY^2)", "SQR(((DX POWER 2) ADD (DY POWER 2)))");
+        checkShape("A(I + 1, J) * .5E1", "(A((I ADD 1.0), J) MULTIPLY 5.0)");
+        checkShape("FN SQ(X, 2)", "FN SQ(X, 2.0)");
+        checkShape("RND * 10", "(RND() MULTIPLY 10.0)");
+        checkShape("N$ + \"!\" = \"HI!\"", "((N$ + \"!\") EQUAL \"HI!\")");
+        checkShape("LEN(A$) + VAL(\"12\")", "(LEN(A$) ADD VAL(\"12\"))");
+        checkShape("score or lives", "(CINT(SCORE) OR CINT(LIVES))");
+        checkShape("N$(I + 1, J) = \"Y\"", "(N$((I ADD 1.0), J) EQUAL \"Y\")");
+
+        // Values
+        checkValue("2 ^ 10", 1024);
+        checkValue("17 MOD 5 * 2", 4);
+        checkValue("(1 + 2) * (3 + 4)", 21);
+        checkValue("1 < 2 AND 2 < 3", 1);
+        checkValue("\"ABC\" < \"ABD\"", 1);
+        checkValue("LEN(\"HELLO\") + ASC(\"A\")", 70);
+        checkValue("FIX(-2.5) * 10 + ROUND(-2.5)", -23);
+        checkValue("INT(-2.5) + ROUND(2.5) + ROUND(0.49999999999999994)", 0);
+        checkValue("MIN(3, -4) + MAX(3, -4) + CLAMP(7, 0, 5) + HYPOT(3, 4)", 9);
+
+        // Built-ins are dedicated node classes from the registry
+        report("built-in node classes", ASTBuilder.parse("SIN(X)", null) instanceof SinNode
+            && ASTBuilder.parse("CLAMP(X, 0, 1)", null) instanceof ClampNode
+            && ASTBuilder.parse("RND", null) instanceof RndNode);
+        BuiltinFunctions.register("TWICE", 1, 1, true, a -> new UnaryFunctionNode("TWICE", a[0]) {
+            public double evaluate(ExecutionContext context) {
+                return argument.evaluate(context) * 2;
+            }
+        });
+        checkValue("TWICE(21)", 42);
+
+        // Errors carry their column
+        checkError("(X + 1", "expected ')' but found end of expression at column 7");
+        checkError("X + * 2", "unexpected '*' at column 5");
+        checkError("A$ * B$", "operator * does not apply to strings at column 4");
+        checkError("A$ + 1", "type mismatch: + between a string and a number at column 4");
+        checkError("X = \"OPEN", "unterminated string at column 5");
+        checkError("X # 2", "unexpected character '#' at column 3");
+        checkError("N$(A$) = \"Y\"", "type mismatch: string where a number is expected at column 4");
+        checkError("LEFT$(A$) = \"Y\"", "LEFT$ takes 2 arguments, not 1 at column 1");
+        checkError("MID$(A$, \"1\") = \"Y\"", "type mismatch: string where a number is expected at column 10");
+        checkError("X + SIN(1, 2)", "SIN takes 1 argument, not 2 at column 5");
+        checkError("CLAMP(X)", "CLAMP takes 3 arguments, not 1 at column 1");
+        report("lenient build gives 0", ASTBuilder.buildAST("X + * 2").toString().equals("0.0"));
+
+        // Strings in programs
+        Interpreter interp = new Interpreter();
+        interp.loadProgram("LET N$ = \"WORLD\"\nIF N$ = \"WORLD\" THEN LET A = 1\nIF N$ <> \"WORLD\" THEN LET B = 1\n" +
+                           "LET L = LEN(N$) * 2 ^ 2");
+        runQuietly(interp);
+        report("string conditions", interp.getVariables().get("A") == 1.0 && interp.getVariables().get("B") == null
+            && interp.getVariables().get("L") == 20.0);
+        interp.shutdown();
+
+        // Syntax errors are load errors, with their line and column
+        interp = new Interpreter();
+        interp.loadProgram("10 X = SIN(1, 2)\n20 H = ROUND(1.2345, 2)\n30 PRINT 1 +\n40 DIM A(3 +)\n50 LET Y = 1\n");
+        List<String> errors = interp.getLoadErrors();
+        report("syntax errors are load errors", errors.equals(Arrays.asList(
+            "Syntax error in 'SIN(1, 2)': SIN takes 1 argument, not 2 at line 10, column 5",
+            "Syntax error in 'ROUND(1.2345, 2)': ROUND takes 1 argument, not 2 at line 20, column 5",
+            "Syntax error in '1 +': unexpected end of expression at line 30, column 10",
+            "Syntax error in '3 +': unexpected end of expression at line 40, column 10")));
+        if (errors.size() != 4) {
+            System.out.println("    got " + errors);
+        }
+        interp.shutdown();
+
+        // 20,000 lines load in a few hundred milliseconds at most once the JVM is warm
+        StringBuilder big = new StringBuilder();
+        for (int i = 1; i <= 20000; i++) {
+            big.append(i).append(" LET X").append(i % 50).append(" = (X1 + ").append(i)
+               .append(") * 2 ^ 3 - SQR(ABS(Y)) / 4 MOD 7\n");
+        }
+        Interpreter loader = new Interpreter();
+        long millis = Long.MAX_VALUE;
+        for (int run = 0; run < 10; run++) {
+            long start = System.nanoTime();
+            loader.loadProgram(big.toString());
+            millis = Math.min(millis, (System.nanoTime() - start) / 1000000);
+        }
+        report("20000 lines load (" + millis + " ms)", millis < 400 && loader.getLoadErrors().isEmpty());
+        loader.shutdown();
+
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+
+    private static void checkShape(String expr, String expected) {
+        String actual = ASTBuilder.parse(expr, null).toString();
+        report(expr + " -> " + expected, actual.equals(expected));
+        if (!actual.equals(expected)) {
+            System.out.println("    got " + actual);
+        }
+    }
+
+    private static void checkValue(String expr, double expected) {
+        Interpreter interp = new Interpreter();
+        double actual = ASTBuilder.parse(expr, null).evaluate(new ExecutionContext(interp));
+        report(expr + " = " + expected, actual == expected);
+        interp.shutdown();
+    }
+
+    private static void checkError(String expr, String expected) {
+        try {
+            ASTBuilder.parse(expr, null);
+            report(expr + " fails", false);
+        } catch (IllegalArgumentException e) {
+            report(expr + " fails: " + expected, expected.equals(e.getMessage()));
+            if (!expected.equals(e.getMessage())) {
+                System.out.println("    got " + e.getMessage());
+            }
+        }
+    }
+
+    private static void runQuietly(Interpreter interp) {
+        try {
+            interp.run();
+        } catch (Exception e) {
+            report("run: " + e.getMessage(), false);
+        }
+    }
+
+    private static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Checks multi-dimensional arrays: row-major layout in one flat double[],
+ * reads and stores of the same element, the combined range check, and
+ * the VM handing multi-index statements back to the interpreter. Also
+ * checks that cached array references follow DIM and ERASE, and string
+ * arrays, plain and INTERNED.
+ */
+public class TestArrays extends ProgramTest {
+    public static void main(String[] args) {
+        System.out.println("=== Array Test ===");
+
+        String grid = "DIM G(3, 4)\nFOR X = 0 TO 3\nFOR Y = 0 TO 4\nLET G(X, Y) = X * 10 + Y\nNEXT Y\nNEXT X\n" +
+                      "LET A = G(2, 3)\nLET B = G(0, 5)\nLET C = G(2)\nLET D = G(1, 2, 0)\n";
+        Interpreter interp = run(grid, Interpreter.Backend.AST);
+        double[] data = interp.getArrays().get("G");
+        report("flat row-major storage", data.length == 20 && data[1 * 5 + 2] == 12 && data[19] == 34);
+        report("read back by X, Y", value(interp, "A") == 23);
+        report("out of range reads 0, not the next row", value(interp, "B") == 0);
+        report("a single index addresses the storage", value(interp, "C") == 2);
+        report("wrong number of indices reads 0", value(interp, "D") == 0);
+
+        interp = run("DIM C(2, 2, 2)\nLET C(1, 2, 0) = 5\nLET I% = 1\nLET J% = 2\nLET A = C(I%, J%, 0)\n" +
+                     "LET C(I%, 0, J%) = C(1, 2, 0) + 1\n", Interpreter.Backend.AST);
+        report("three dimensions, integer indices", value(interp, "A") == 5
+            && interp.getArrays().get("C")[9 + 2] == 6 && interp.getArrayExtents().get("C").length == 3);
+
+        checkError("DIM G(3, 4)\nLET G(1, 5) = 1\n", "Array index out of bounds in G(1.0, 5.0) (array size: 4 x 5)");
+        checkError("DIM G(3, 4)\nLET G(-1, 2) = 1\n", "Array index out of bounds in G(NEGATE(1.0), 2.0) (array size: 4 x 5)");
+        checkError("DIM V(3)\nLET V(4) = 1\n", "Array index out of bounds in V(4.0) (array size: 4)");
+        checkError("DIM G(3, 4)\nLET I = 25\nLET G(I) = 1\n", "Array index out of bounds in G(I) (array size: 4 x 5)");
+        checkError("DIM V(3)\nLET I = -1\nLET V(I) = 1\n", "Array index out of bounds in V(I) (array size: 4)");
+        checkError("DIM H(2, -1)\n", "Array size cannot be negative: -1");
+
+        // The VM runs the loops and leaves the two-index statements to the interpreter
+        Interpreter vm = run(grid, Interpreter.Backend.VM);
+        report("VM agrees", vm.getCompiledProgram() != null && value(vm, "A") == 23 && value(vm, "B") == 0
+            && value(vm, "C") == 2 && vm.getArrays().get("G")[19] == 34);
+
+        // Cached references follow re-DIM and ERASE
+        interp = run("DIM V(3)\nFOR I = 1 TO 2\nLET V(1) = V(1) + I\nLET A = V(1)\nDIM V(5)\nNEXT I\n" +
+                     "ERASE V\nLET B = V(1) + 7\n", Interpreter.Backend.AST);
+        report("re-DIM inside a loop", value(interp, "A") == 2 && value(interp, "B") == 7
+            && interp.getArrays().get("V") == null);
+        checkError("DIM V(3)\nERASE V\nLET V(1) = 1\n", "Array not defined: V");
+
+        ExpressionNode read = ASTBuilder.parse("V(1)", null);
+        Interpreter first = run("DIM V(2)\nLET V(1) = 1\n", Interpreter.Backend.AST);
+        Interpreter second = run("DIM V(2)\nLET V(1) = 2\n", Interpreter.Backend.AST);
+        report("one node, two interpreters", read.evaluate(new ExecutionContext(first)) == 1
+            && read.evaluate(new ExecutionContext(second)) == 2 && read.evaluate(new ExecutionContext(first)) == 1);
+
+        // String arrays
+        String names = "DIM N$(3)\nDIM M$(2, 2)\nFOR I = 0 TO 3\nLET N$(I) = CHR$(65 + I) + STR$(I)\nNEXT I\n" +
+                       "LET M$(1, 2) = N$(2) + N$(3)\nLET A$ = M$(1, 2)\nLET B$ = \"[\" + N$(4) + M$(0, 0) + \"]\"\n" +
+                       "IF N$(1) = \"B1\" THEN LET F = 1\nLET L = LEN(N$(0))\n";
+        interp = run(names, Interpreter.Backend.AST);
+        report("string array elements", "C2D3".equals(interp.getStringVariables().get("A$"))
+            && value(interp, "F") == 1 && value(interp, "L") == 2);
+        report("unset and out of range read \"\"", "[]".equals(interp.getStringVariables().get("B$")));
+        report("string and numeric arrays apart", interp.getArrays().get("N$") == null
+            && interp.getStringArrays().get("N$").length() == 4);
+        vm = run(names, Interpreter.Backend.VM);
+        report("VM hands string arrays to the interpreter", "C2D3".equals(vm.getStringVariables().get("A$")));
+        checkError("DIM N$(3)\nLET N$(4) = \"X\"\n", "Array index out of bounds in N$(4.0) (array size: 4)");
+        checkError("LET N$(1) = \"X\"\n", "Array not defined: N$");
+
+        interp = run("DIM C$(999) INTERNED\nFOR I = 0 TO 999\nLET C$(I) = \"ROOM\" + STR$(I MOD 3)\nNEXT I\n",
+                     Interpreter.Backend.AST);
+        StringArray codes = interp.getStringArrays().get("C$");
+        report("interned table", codes.isInterned() && codes.distinctValues() == 3
+            && codes.get(0) == codes.get(999) && "ROOM1".equals(codes.get(4)));
+        interp = run("DIM L$(9) INTERNED\nFOR I = 1 TO 5000\nLET L$(I MOD 10) = \"LOG\" + STR$(I)\nNEXT I\n" +
+                     "LET L$(0) = \"\"\nLET L$(1) = L$(2)\n", Interpreter.Backend.AST);
+        StringArray log = interp.getStringArrays().get("L$");
+        report("interned pool drops overwritten values", log.distinctValues() == 8
+            && log.get(1) == log.get(2) && "LOG4999".equals(log.get(9)));
+
+        summary();
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Checks short-circuit AND and OR and the boolean test() path of
+ * conditions, on the AST, through the expression JIT and in the VM.
+ * A counting built-in shows which operands were evaluated.
+ */
+public class TestConditions extends ProgramTest {
+    private static int ticks = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Condition Test ===");
+
+        BuiltinFunctions.register("TICK", 1, 1, false, a -> new UnaryFunctionNode("TICK", a[0]) {
+            public double evaluate(ExecutionContext context) {
+                ticks++;
+                return argument.evaluate(context);
+            }
+        });
+
+        // Expressions
+        checkTicks("0 AND TICK(1)", 0, 0);
+        checkTicks("1 AND TICK(1)", 1, 1);
+        checkTicks("1 AND TICK(0)", 0, 1);
+        checkTicks("2 OR TICK(1)", 3, 1);
+        checkTicks("2 > 1 OR TICK(1) > 0", 1, 0);
+        checkTicks("0 OR TICK(5)", 5, 1);
+        checkTicks("NOT (1 OR TICK(1))", -2, 1);
+        checkTicks("NOT (1 > 0 OR TICK(1) > 0)", 0, 0);
+        checkTicks("X > 1 AND TICK(1) OR TICK(1)", 1, 1);
+
+        // test() gives the same answers as evaluate()
+        Interpreter interp = new Interpreter();
+        ExecutionContext context = new ExecutionContext(interp);
+        String[] conditions = { "1 < 2", "2 <= 1", "3 = 3", "3 <> 3", "NOT 0", "-1", "0.5 * 0",
+                                "\"A\" < \"B\"", "\"A\" = \"B\"", "1 > 0 AND 2 > 1", "0 OR 0" };
+        boolean agree = true;
+        for (String condition : conditions) {
+            ExpressionNode node = ASTBuilder.parse(condition, null);
+            agree &= node.test(context) == (node.evaluate(context) != 0.0);
+        }
+        report("test() agrees with evaluate()", agree);
+        interp.shutdown();
+
+        // Integer AND and OR stay bitwise
+        interp = run("LET F% = 2\nLET I% = 1\nLET A% = F% OR (I% > 0)\nLET B% = 0 AND (I% > 0)\n" +
+                     "LET C% = 6 AND F%\nLET D% = 1 OR I% = 1\n", Interpreter.Backend.AST, 0);
+        report("integer AND and OR", value(interp, "A%") == 3 && value(interp, "B%") == 0
+            && value(interp, "C%") == 2 && value(interp, "D%") == 1);
+
+        // IF and WHILE conditions, on every backend
+        String program = "DIM A(5)\nFOR I = 1 TO 5\nLET A(I) = I\nNEXT I\nLET I = 1\n" +
+                         "WHILE I <= 5 AND A(I) > 0\nLET I = I + 1\nWEND\n" +
+                         "FOR J = 1 TO 10\nIF J > 6 AND TICK(J) > 0 THEN LET K = K + 1\nNEXT J\n" +
+                         "FOR J = 1 TO 10\nLET M = M + (J < 3 OR J > 8)\nNEXT J\n";
+        ticks = 0;
+        interp = run(program, Interpreter.Backend.AST, 0);
+        report("AST: IF evaluates the right side only when needed", ticks == 4 && value(interp, "K") == 4);
+        report("AST: WHILE and OR", value(interp, "I") == 6 && value(interp, "M") == 4);
+
+        ticks = 0;
+        interp = run(program, Interpreter.Backend.AST, 2);
+        report("JIT: same results and calls", ticks == 4 && value(interp, "K") == 4 && value(interp, "M") == 4);
+
+        ticks = 0;
+        interp = run(program, Interpreter.Backend.VM, 0);
+        report("VM: same results and calls", interp.getCompiledProgram() != null && ticks == 4
+            && value(interp, "K") == 4 && value(interp, "I") == 6 && value(interp, "M") == 4);
+
+        summary();
+    }
+
+    private static void checkTicks(String expr, double expected, int expectedTicks) {
+        Interpreter interp = new Interpreter();
+        ticks = 0;
+        double actual = ASTBuilder.parse(expr, null).evaluate(new ExecutionContext(interp));
+        report(expr + " = " + expected + " with " + expectedTicks + " call(s)", actual == expected && ticks == expectedTicks);
+        interp.shutdown();
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks the buffered PRINT console: output reaches a custom sink in a
+ * few large writes, the flush size and END, INPUT, WAIT and end-of-run
+ * flushes all deliver the text, output captured with System.setOut still works,
+ * and the VM prints through the same buffer.
+ */
+public class TestConsole {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Console Output Test ===");
+
+        // A custom sink sees everything, in few writes
+        List<String> writes = new ArrayList<>();
+        Interpreter interp = new Interpreter();
+        interp.getConsole().setSink(writes::add);
+        interp.getConsole().setFlushInterval(0);  // a cold first run may take longer than the interval
+        interp.loadProgram("FOR I = 1 TO 3\nPRINT \"LINE\"; I\nNEXT I\nPRINT \"A\", \"B\"\n");
+        interp.run();
+        report("custom sink receives the output", String.join("", writes).equals(
+            "LINE1.0\nLINE2.0\nLINE3.0\nA B\n"));
+        report("output arrives in one write", writes.size() == 1);
+        interp.shutdown();
+
+        // Flush size
+        ConsoleOutput console = new ConsoleOutput();
+        StringBuilder received = new StringBuilder();
+        console.setSink(received::append);
+        console.setFlushInterval(0);
+        console.setFlushSize(4);
+        console.print("AB");
+        boolean held = received.length() == 0 && console.pending() == 2;
+        console.print(1.5);
+        report("flush size", held && received.toString().equals("AB1.5") && console.pending() == 0);
+        console.setFlushSize(0);
+        console.println();
+        report("flush size 0 writes through", received.toString().equals("AB1.5\n"));
+
+        // Timed flush at the end of a line
+        received.setLength(0);
+        console.setFlushSize(1000);
+        console.setFlushInterval(10);
+        console.print("X");
+        console.println();
+        boolean waiting = received.length() == 0;
+        Thread.sleep(20);
+        console.print("Y");
+        console.println();
+        report("flush interval", waiting && received.toString().equals("X\nY\n"));
+
+        // END, INPUT and WAIT flush before the run goes on, on both backends
+        for (Interpreter.Backend backend : Interpreter.Backend.values()) {
+            writes.clear();
+            interp = new Interpreter();
+            interp.setBackend(backend);
+            interp.getConsole().setSink(writes::add);
+            interp.loadProgram("PRINT \"NAME\";\nINPUT N\nPRINT \"BYE\"\nEND\nPRINT \"NOT REACHED\"\n");
+            interp.run();
+            report("INPUT and END flush (" + backend + ")", writes.equals(Arrays.asList("NAME", "BYE\n")));
+            interp.shutdown();
+
+            writes.clear();
+            interp = new Interpreter();
+            interp.setBackend(backend);
+            interp.getConsole().setSink(writes::add);
+            interp.loadProgram("FOR I = 1 TO 2\nPRINT \"TICK\"; I;\nWAIT 0.01\nNEXT I\nPRINT\n");
+            interp.run();
+            report("WAIT flush (" + backend + ")", writes.equals(Arrays.asList("TICK1.0", "TICK2.0", "\n")));
+            interp.shutdown();
+        }
+
+        // System.setOut capture and the VM
+        String program = "FOR I = 1 TO 2\nPRINT \"N=\"; I\nNEXT I\n";
+        report("System.out capture (AST)", capture(program, Interpreter.Backend.AST).equals("N=1.0\nN=2.0\n"));
+        report("System.out capture (VM)", capture(program, Interpreter.Backend.VM).equals("N=1.0\nN=2.0\n"));
+
+        // Output is not lost when the program fails
+        writes.clear();
+        interp = new Interpreter();
+        interp.getConsole().setSink(writes::add);
+        interp.loadProgram("PRINT \"BEFORE\"\nLET A(5) = 1\n");
+        try {
+            interp.run();
+        } catch (Exception e) {
+            // expected
+        }
+        report("flush when the program fails", String.join("", writes).equals("BEFORE\n"));
+        interp.shutdown();
+
+        // Many lines, counted by the sink
+        final int[] chars = new int[1];
+        interp = new Interpreter();
+        interp.getConsole().setSink(text -> chars[0] += text.length());
+        interp.loadProgram("FOR I = 1 TO 200000\nPRINT \"ROW \"; I\nNEXT I\n");
+        long start = System.nanoTime();
+        interp.run();
+        long millis = (System.nanoTime() - start) / 1000000;
+        report("200000 PRINT lines (" + millis + " ms)", chars[0] > 200000 * 8 && millis < 5000);
+        interp.shutdown();
+
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+
+    private static String capture(String program, Interpreter.Backend backend) throws Exception {
+        Interpreter interp = new Interpreter();
+        interp.setBackend(backend);
+        interp.loadProgram(program);
+        PrintStream original = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true));
+        try {
+            interp.run();
+        } finally {
+            System.setOut(original);
+        }
+        interp.shutdown();
+        return buffer.toString();
+    }
+
+    private static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+}
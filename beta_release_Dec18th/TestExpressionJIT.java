@@ -0,0 +1,138 @@
+import java.util.*;
+
+/**
+ * Checks the expression JIT: compiled expressions evaluate exactly like
+ * their ASTs, unsupported subtrees fall back to the AST, a tree that
+ * cannot be compiled does not turn the JIT off, and programs give the
+ * same results with the JIT on and off.
+ */
+public class TestExpressionJIT {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Expression JIT Test ===");
+
+        String[] exprs = {
+            "X + Y * Z", "X - Y / Z", "X / 0", "X % Y", "-X * -Y",
+            "X < Y", "X <= Y AND Y >= Z", "X = Y OR NOT Z", "X <> Y",
+            "SIN(X) + COS(Y) * TAN(Z)", "ABS(X) + INT(Y) + SQR(ABS(Z))", "LOG(ABS(X) + 1) + EXP(Y / 1000) + ATN(Z)",
+            "SGN(X) * Y", "RND(1) * X + Y", "A(1) + X", "MIN(X, Y) - MAX(Y, Z * 2)",
+            "FIX(X) + ROUND(Y) * CLAMP(Z, -10, 10) + HYPOT(X, Y)", "(X + 1) * (Y - 1) / (Z + 2) - X * X * X"
+        };
+        for (String expr : exprs) {
+            String mismatch = verify(expr, 500, expr.hashCode());
+            report("compiled " + expr, mismatch == null);
+            if (mismatch != null) {
+                System.out.println("    " + mismatch);
+            }
+        }
+
+        report("leaves are not compiled", ExpressionJIT.compile(new ConstantNode(1)) == null
+            && ExpressionJIT.compile(new VariableNode("X", 0)) == null);
+
+        // A tree too big for one method stays on the AST; the JIT keeps compiling the others
+        VariableStore store = new VariableStore();
+        report("oversized tree is skipped", ExpressionJIT.compile(ASTBuilder.parse(sum(0, 8192), store)) == null
+            && ExpressionJIT.compile(ASTBuilder.parse("X * 2 + 1", store)) != null);
+
+        // Same program results with the JIT on and off
+        String prog = "DIM A(10)\nLET T = 0\nFOR I = 1 TO 2000\nLET A(I % 10) = I\n" +
+                      "LET T = T + I * 2 / 4 + A(I % 10) - SQR(I) + (I % 7)\nNEXT I";
+        int before = ExpressionJIT.getCompiledCount();
+        double withJit = runProgram(prog, 100);
+        report("hot expressions compiled", ExpressionJIT.getCompiledCount() > before);
+        report("program results match", withJit == runProgram(prog, 0));
+
+        // Loop promotion compiles a hot loop body long before the expression counters would
+        String loopProg = "LET T = 0\nLET K = 0\nFOR I = 1 TO 300\nLET T = T + I * I / 3 - SQR(I)\nNEXT I\n" +
+                          "AGAIN: LET K = K + 1\nLET T = T - K / 2\nIF K < 200 THEN GOTO AGAIN";
+        Interpreter tiered = new Interpreter();
+        tiered.setJitThreshold(1000000);
+        tiered.setTierThreshold(50);
+        before = ExpressionJIT.getCompiledCount();
+        double promoted = run(tiered, loopProg);
+        report("hot loops promoted", tiered.getPromotedLoopCount() == 2
+            && ExpressionJIT.getCompiledCount() >= before + 2);
+        report("promoted results match", promoted == runProgram(loopProg, 0));
+
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+
+    // X * lo + ... + X * (hi - 1) as a balanced tree, so neither parsing nor code generation recurses deeply
+    private static String sum(int lo, int hi) {
+        if (hi - lo == 1) {
+            return "X * " + lo;
+        }
+        int mid = (lo + hi) / 2;
+        return "(" + sum(lo, mid) + " + " + sum(mid, hi) + ")";
+    }
+
+    // Evaluate the AST and its compiled form on random variable values
+    private static String verify(String expr, int trials, long seed) {
+        Interpreter interpreter = new Interpreter();
+        try {
+            interpreter.loadProgram("DIM A(5)\nLET A(1) = 42");
+            interpreter.run();
+
+            VariableStore variables = interpreter.getVariableStore();
+            ExpressionNode ast = ASTBuilder.buildAST(expr, variables);
+            ExpressionNode compiled = ExpressionJIT.compile(ast);
+            if (compiled == null) {
+                return expr + ": not compiled";
+            }
+
+            ExecutionContext context = new ExecutionContext(interpreter);
+            Random random = new Random(seed);
+            for (int trial = 0; trial < trials; trial++) {
+                variables.set("X", random.nextInt(3) == 0 ? random.nextInt(5) : (random.nextDouble() - 0.5) * 200);
+                variables.set("Y", random.nextInt(3) == 0 ? random.nextInt(5) : (random.nextDouble() - 0.5) * 200);
+                variables.set("Z", random.nextInt(3) == 0 ? random.nextInt(5) : (random.nextDouble() - 0.5) * 200);
+
+                long rndSeed = random.nextLong();
+                interpreter.randomize(rndSeed);
+                double expected = ast.evaluate(context);
+                interpreter.randomize(rndSeed);
+                double actual = compiled.evaluate(context);
+
+                if (!(expected == actual || (Double.isNaN(expected) && Double.isNaN(actual)))) {
+                    return expr + " = " + expected + " but compiled = " + actual +
+                        " with " + interpreter.getVariables();
+                }
+            }
+            return null;
+        } catch (Exception e) {
+            return expr + ": " + e;
+        } finally {
+            interpreter.shutdown();
+        }
+    }
+
+    private static double runProgram(String prog, int jitThreshold) {
+        Interpreter interp = new Interpreter();
+        interp.setJitThreshold(jitThreshold);
+        return run(interp, prog);
+    }
+
+    private static double run(Interpreter interp, String prog) {
+        interp.loadProgram(prog);
+        try {
+            interp.run();
+        } catch (Exception e) {
+            return Double.NaN;
+        } finally {
+            interp.shutdown();
+        }
+        return interp.getVariables().get("T");
+    }
+
+    private static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+}
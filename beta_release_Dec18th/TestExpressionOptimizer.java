@@ -0,0 +1,79 @@
+/**
+ * Checks the expression optimizer: rewrites happen, and optimized trees
+ * evaluate exactly like the originals on random inputs, down to the sign
+ * of zero.
+ */
+public class TestExpressionOptimizer {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Expression Optimizer Test ===");
+
+        // Shape of the optimized trees
+        checkShape("(2 * 3.14159) * R", "(6.28318 MULTIPLY R)");
+        checkShape("X + 0", "(X ADD 0.0)");
+        checkShape("0 + X", "(0.0 ADD X)");
+        checkShape("1 * Y - 0", "Y");
+        checkShape("X - -0", "(X SUBTRACT -0.0)");
+        checkShape("X * 2", "(X ADD X)");
+        checkShape("-(-X)", "X");
+        checkShape("X / 4", "(X MULTIPLY 0.25)");
+        checkShape("X / 3", "(X DIVIDE 3.0)");
+        checkShape("SQR(16) + ABS(-2)", "6.0");
+        checkShape("RND(1) * 2", "(RND(1.0) MULTIPLY 2.0)");
+        checkShape("CLAMP(12, 0, MAX(5, 10)) + X", "(10.0 ADD X)");
+
+        // Random-input verification
+        String[] exprs = {
+            "(2 * 3.14159) * R", "X + 0", "0 + X", "X - 0", "X - -0", "X * 1", "1 * X", "X * 2", "2 * X",
+            "-(-X)", "-(-(-X))", "X / 2", "X / 0.5", "X / 1024", "X / 3", "X / 0",
+            "(X + 0) * (Y * 1) / 8 + SIN(3.14159 / 2) * Z", "SQR(2) * X - INT(7.5) / 2",
+            "X * 2 > Y + 0 AND NOT (Z / 4 = 0)", "RND(1) * 2 + X / 16", "A(I * 1 + 0)",
+            "(X * 2) * 2 / 2 - -(-Y)"
+        };
+        for (String expr : exprs) {
+            String mismatch = ExpressionOptimizer.verify(expr, 2000, expr.hashCode());
+            report("verify " + expr, mismatch == null);
+            if (mismatch != null) {
+                System.out.println("    " + mismatch);
+            }
+        }
+
+        // Same program results with the optimizer on and off
+        String prog = "LET T = 0\nFOR I = 1 TO 100\nLET T = T + I * 2 / 4 + (3 * 2) - 0\nNEXT I";
+        report("program results match", runProgram(prog, false) == runProgram(prog, true));
+
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+
+    private static void checkShape(String expr, String expected) {
+        String actual = ExpressionOptimizer.optimize(ASTBuilder.buildAST(expr)).toString();
+        report(expr + " -> " + expected, actual.equals(expected));
+        if (!actual.equals(expected)) {
+            System.out.println("    got " + actual);
+        }
+    }
+
+    private static double runProgram(String prog, boolean optimize) {
+        Interpreter interp = new Interpreter();
+        interp.setOptimizeExpressions(optimize);
+        interp.loadProgram(prog);
+        try {
+            interp.run();
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+        return interp.getVariables().get("T");
+    }
+
+    private static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+}
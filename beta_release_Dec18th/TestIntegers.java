@@ -0,0 +1,94 @@
+/**
+ * Checks integer variables: the % suffix and DEFINT, rounding on
+ * assignment, int arithmetic and its wrap-around, the bitwise operators,
+ * integer FOR loops, and that the VM hands integer programs back to the
+ * AST interpreter.
+ */
+public class TestIntegers extends ProgramTest {
+    public static void main(String[] args) {
+        System.out.println("=== Integer Variable Test ===");
+
+        Interpreter interp = run("LET A% = 7 / 2\nLET B% = 5 / 2\nLET C% = -2.5\nLET D% = 1E12\nLET X = A% / 2\n");
+        report("assignment rounds ties to even", value(interp, "A%") == 4 && value(interp, "B%") == 2
+            && value(interp, "C%") == -2 && value(interp, "D%") == Integer.MAX_VALUE);
+        report("division gives a double", value(interp, "X") == 2.0);
+
+        interp = run("DEFINT I-K, N\nLET I = 2.7\nLET N = I * 3\nLET M = 2.7\nLET K% = K% + I\n");
+        report("DEFINT", value(interp, "I%") == 3 && value(interp, "N%") == 9 && value(interp, "M") == 2.7
+            && value(interp, "K%") == 3 && value(interp, "I") == 3);
+
+        interp = run("LET J% = 17\nLET J% = J% MOD 5 * 3 - 20\n");
+        report("int arithmetic", value(interp, "J%") == -14);
+
+        // Arithmetic never wraps: a double target gets the exact value, an int target an error
+        interp = run("LET I% = 50000\nLET T = I% * 100000\nLET U = I% * I% - I%\nLET V = I% + 2147483647\n");
+        report("int arithmetic into a double", value(interp, "T") == 5E9 && value(interp, "U") == 2499950000.0
+            && value(interp, "V") == 2147533647.0);
+        interp = run("DEFINT N\nLET N = 70000\nLET A = N * N\nLET B = -N * N < 0\n");
+        report("DEFINT product into a double", value(interp, "A") == 4.9E9 && value(interp, "B") == 1);
+        interp = new Interpreter();
+        interp.loadProgram("LET I% = 2147483647\nLET I% = I% + 1\n");
+        String error = null;
+        try {
+            interp.run();
+        } catch (Exception e) {
+            error = e.getMessage();
+        }
+        interp.shutdown();
+        report("int overflow is an error", error != null && error.contains("overflow")
+            && value(interp, "I%") == Integer.MAX_VALUE);
+
+        interp = run("LET F% = 12\nLET A% = F% AND 10\nLET O% = F% OR 3\nLET X% = 5 XOR 3\n" +
+                     "LET L% = 1 SHL 4 + 1\nLET R% = -64 SHR 2\nLET P% = F% > 10 AND F% < 20\n" +
+                     "LET Q = 12 AND 10\n");
+        report("bitwise operators", value(interp, "A%") == 8 && value(interp, "O%") == 15 && value(interp, "X%") == 6
+            && value(interp, "L%") == 17 && value(interp, "R%") == -16 && value(interp, "P%") == 1);
+        report("AND of doubles is bitwise too", value(interp, "Q") == 8);
+
+        // One rule for AND, OR and NOT, whatever the operand types
+        interp = run("LET F% = 7 AND 3\nLET E% = 7\nLET G% = E% AND 3\nLET Z% = 1\nLET X = 1\nLET A = 0\nLET B = 0\n" +
+                     "IF Z% AND 2 THEN LET A = 1\nIF X AND 2 THEN LET B = 1\nLET H% = E% AND NOT 4\n" +
+                     "LET N = NOT 0\nLET L = NOT (X > 1)\nLET M = NOT X\nLET O = X OR 6\n");
+        report("AND and OR are bitwise for every operand", value(interp, "F%") == 3 && value(interp, "G%") == 3
+            && value(interp, "A") == 0 && value(interp, "B") == 0 && value(interp, "O") == 7);
+        report("NOT is bitwise for integers", value(interp, "H%") == 3 && value(interp, "N") == -1);
+        report("NOT is logical for conditions and doubles", value(interp, "L") == 1 && value(interp, "M") == 0);
+
+        interp = run("DIM A(20)\nFOR I% = 1 TO 10\nLET A(I% * 2) = I%\nLET S% = S% + I%\nNEXT I%\n" +
+                     "FOR J% = 10 TO 1 STEP -1.6\nLET C% = C% + 1\nNEXT J%\nLET T = A(I% - 3)\n");
+        report("integer FOR loops", value(interp, "S%") == 55 && value(interp, "I%") == 11
+            && value(interp, "C%") == 5 && value(interp, "J%") == 0 && value(interp, "T") == 4);
+
+        interp = run("LET N% = 6\nIF N% = 6 AND N% MOD 4 = 2 THEN LET A = 1\nREAD B%, C\nDATA 2.5, 2.5\n");
+        report("conditions and READ", value(interp, "A") == 1 && value(interp, "B%") == 2 && value(interp, "C") == 2.5);
+
+        // Tree shapes
+        VariableStore store = new VariableStore();
+        report("I% + 1 is int arithmetic", ASTBuilder.parse("I% + 1", store) instanceof IntegerOpNode);
+        report("I% + 0.5 and I% / 2 are not", ASTBuilder.parse("I% + 0.5", store) instanceof BinaryOpNode
+            && ASTBuilder.parse("I% / 2", store) instanceof BinaryOpNode);
+        report("AND of two conditions stays logical", ASTBuilder.parse("X > 1 AND I% < 2", store) instanceof BinaryOpNode
+            && ASTBuilder.parse("X AND 1", store) instanceof IntegerOpNode);
+        report("constants alone are not", ASTBuilder.parse("1 + 2", store) instanceof BinaryOpNode);
+        report("XOR rounds its operands", ASTBuilder.parse("X XOR 1", store).toString().equals("(CINT(X) XOR 1.0)"));
+        ExpressionNode folded = ExpressionOptimizer.optimize(ASTBuilder.parse("(1 SHL 3) OR CINT(2.5) + I%", store));
+        report("optimizer folds int constants", folded.toString().equals("(8.0 OR (2.0 ADD I%))")
+            && folded instanceof IntegerOpNode);
+        folded = ExpressionOptimizer.optimize(ASTBuilder.parse("I% + 2147483647 * CINT(2)", store));
+        report("optimizer leaves an overflowing fold", folded.toString().equals("(I% ADD (2.147483647E9 MULTIPLY 2.0))"));
+
+        // The VM leaves integer loops to the AST interpreter
+        Interpreter vm = new Interpreter();
+        vm.setBackend(Interpreter.Backend.VM);
+        vm.loadProgram("FOR I% = 1 TO 100\nLET S% = S% + I%\nNEXT I%\n");
+        try {
+            vm.run();
+        } catch (Exception e) {
+            report("run: " + e.getMessage(), false);
+        }
+        report("VM falls back", vm.getCompiledProgram() == null && value(vm, "S%") == 5050);
+        vm.shutdown();
+
+        summary();
+    }
+}
@@ -0,0 +1,130 @@
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.util.*;
+import javax.tools.*;
+
+/**
+ * Checks JavaTranslator: each program is translated, compiled with javac
+ * and run, and its output must match the interpreter's exactly.
+ */
+public class TestJavaTranslator {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Java Translator Test ===");
+
+        check("loops and arithmetic",
+            "10 LET T = 0\n20 FOR I = 1 TO 10\n30 LET T = T + I * I / 2\n40 NEXT I\n50 PRINT T\n" +
+            "60 FOR J = 10 TO 1 STEP -3\n70 PRINT J;\n80 NEXT J\n90 PRINT\n");
+        check("gosub and goto",
+            "10 LET N = 0\n20 GOSUB 100\n30 IF N < 5 THEN GOTO 20\n40 PRINT \"N =\"; N\n50 END\n" +
+            "100 LET N = N + 1\n110 PRINT N\n120 RETURN\n");
+        check("block if and else",
+            "10 FOR I = 1 TO 4\n20 IF I MOD 2 = 0 THEN\n30 PRINT \"even\"; I\n40 ELSE\n50 PRINT \"odd\"; I\n" +
+            "60 END IF\n70 NEXT I\n");
+        check("while and do",
+            "LET X = 1\nWHILE X < 100\nLET X = X * 3\nWEND\nPRINT X\nLET Y = 0\nDO\nLET Y = Y + 7\n" +
+            "LOOP UNTIL Y > 30\nPRINT Y\nDO WHILE Y > 0\nLET Y = Y - 10\nLOOP\nPRINT Y\n");
+        check("select case",
+            "FOR I = 1 TO 4\nSELECT CASE I\nCASE 1\nPRINT \"one\"\nCASE 2\nPRINT \"two\"\n" +
+            "CASE ELSE\nPRINT \"many\"\nEND SELECT\nNEXT I\n");
+        check("arrays, data and on goto",
+            "DIM A(5)\nFOR I = 0 TO 5\nREAD A(0)\nLET A(I) = A(0) * 2\nNEXT I\n" +
+            "RESTORE\nREAD P, Q\nPRINT P; Q; A(5); A(9)\nDATA 1, 2, 3, 4, 5, -6.5\n" +
+            "FOR K = 1 TO 3\nON K GOTO 100, 200, 300\n100 PRINT \"a\"\nGOTO 400\n200 PRINT \"b\"\nGOTO 400\n" +
+            "300 PRINT \"c\"\n400 NEXT K\n");
+        check("math functions",
+            "FOR I = -2 TO 2\nPRINT SGN(I); ABS(I); INT(I / 3); SQR(ABS(I)) + SIN(I) * COS(I) - ATN(I)\nNEXT I\n" +
+            "PRINT 7 % 3; 1 / 0; NOT 0; -(-4)\n");
+        check("powers",
+            "FOR I = -3 TO 3\nLET X = I + 0.5\nPRINT X ^ 2; X ^ 3; (X - 1) ^ 6; ABS(X) ^ 0.5; 2 ^ X\nNEXT I\n");
+
+        // A long program spans several chunks, with jumps between them
+        StringBuilder longProgram = new StringBuilder("LET S = 0\nFOR R = 1 TO 3\n");
+        for (int i = 0; i < 150; i++) {
+            longProgram.append("LET S = S + ").append(i).append(" * R\n");
+        }
+        longProgram.append("NEXT R\nPRINT S\n");
+        check("several chunks", longProgram.toString());
+
+        try {
+            JavaTranslator.translate("10 CLS\n20 PRINT 1\n", "Unsupported");
+            report("unsupported statement rejected", false);
+        } catch (UnsupportedOperationException e) {
+            report("unsupported statement rejected", e.getMessage().contains("line 10"));
+        }
+
+        report("class name", JavaTranslator.toClassName("my game-2").equals("my_game_2")
+            && JavaTranslator.toClassName("2048").equals("Basic2048"));
+
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+
+    private static void check(String name, String program) throws Exception {
+        String expected = runInterpreter(program);
+        String actual;
+        try {
+            actual = runTranslated(program);
+        } catch (Exception e) {
+            actual = e.toString();
+        }
+        report(name, expected.equals(actual));
+        if (!expected.equals(actual)) {
+            System.out.println("    expected: " + expected.replace("\n", "|"));
+            System.out.println("    actual:   " + actual.replace("\n", "|"));
+        }
+    }
+
+    private static String runInterpreter(String program) throws Exception {
+        Interpreter interp = new Interpreter();
+        interp.loadProgram(program);
+        return capture(() -> interp.run());
+    }
+
+    private static String runTranslated(String program) throws Exception {
+        String source = JavaTranslator.translate(program, "Translated");
+
+        Path dir = Files.createTempDirectory("translated");
+        Path file = dir.resolve("Translated.java");
+        Files.write(file, source.getBytes());
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-d", dir.toString(), file.toString());
+        if (result != 0) {
+            throw new IllegalStateException("javac failed for:\n" + source);
+        }
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { dir.toUri().toURL() }, null)) {
+            Class<?> cls = loader.loadClass("Translated");
+            return capture(() -> cls.getMethod("main", String[].class).invoke(null, (Object) new String[0]));
+        }
+    }
+
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    private static String capture(Action action) throws Exception {
+        PrintStream original = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true));
+        try {
+            action.run();
+        } finally {
+            System.setOut(original);
+        }
+        return buffer.toString();
+    }
+
+    private static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+}
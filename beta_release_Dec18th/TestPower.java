@@ -0,0 +1,97 @@
+/**
+ * Checks strength reduction of ^: constant exponents 2, 3 and 4 become
+ * multiplications, 0.5 becomes SQR and other exponents keep Math.pow.
+ * The reduced forms must agree with Math.pow on the AST, through the
+ * expression JIT and in the VM, and evaluate their base only once.
+ */
+public class TestPower extends ProgramTest {
+    public static void main(String[] args) {
+        System.out.println("=== Power Test ===");
+
+        // Tree shapes
+        checkShape("X ^ 2", "(X POWER 2)");
+        checkShape("(X - Y) ^ 3", "((X SUBTRACT Y) POWER 3)");
+        checkShape("X ^ 0.5", "SQR(X)");
+        checkShape("X ^ 1", "X");
+        checkShape("X ^ 2.5", "(X POWER 2.5)");
+        checkShape("X ^ 5", "(X POWER 5.0)");
+        checkShape("X ^ -2", "(X POWER NEGATE(2.0))");
+        checkShape("2 ^ 10", "(2.0 POWER 10.0)");
+        checkShape("-X ^ 2", "NEGATE((X POWER 2))");
+        report("optimizer reduces X ^ (1 + 1)", ExpressionOptimizer.optimize(
+            ASTBuilder.buildAST("X ^ (1 + 1)")).toString().equals("(X POWER 2)"));
+
+        // Values against Math.pow
+        java.util.Random random = new java.util.Random(25);
+        boolean squares = true;
+        boolean close = true;
+        boolean integers = true;
+        boolean roots = true;
+        for (int trial = 0; trial < 20000; trial++) {
+            double x = (random.nextDouble() - 0.5) * 200;
+            squares &= PowerNode.power(x, 2) == Math.pow(x, 2);
+            roots &= Math.sqrt(Math.abs(x)) == Math.pow(Math.abs(x), 0.5);
+            for (int n = 3; n <= PowerNode.MAX_EXPONENT; n++) {
+                double expected = Math.pow(x, n);
+                close &= Math.abs(PowerNode.power(x, n) - expected) <= 2 * Math.ulp(expected);
+            }
+            double whole = random.nextInt(201) - 100;
+            for (int n = 2; n <= PowerNode.MAX_EXPONENT; n++) {
+                integers &= PowerNode.power(whole, n) == Math.pow(whole, n);
+            }
+        }
+        report("X ^ 2 equals Math.pow exactly", squares);
+        report("X ^ 0.5 equals Math.pow exactly", roots);
+        report("X ^ 3 and X ^ 4 within 2 ulps of Math.pow", close);
+        report("integer powers are exact", integers);
+        report("special values", Double.isNaN(PowerNode.power(Double.NaN, 2))
+            && PowerNode.power(Double.NEGATIVE_INFINITY, 3) == Double.NEGATIVE_INFINITY
+            && PowerNode.power(1e200, 2) == Double.POSITIVE_INFINITY && PowerNode.power(-2, 3) == -8);
+
+        // The base is evaluated once
+        Interpreter twice = run("RANDOMIZE 9\nLET R = RND\nRANDOMIZE 9\nLET S = RND ^ 2\nLET T = RND\n" +
+                                "RANDOMIZE 9\nLET U = RND\nLET U = RND\n", Interpreter.Backend.AST, 0);
+        report("RND ^ 2 draws one number", value(twice, "S") == value(twice, "R") * value(twice, "R")
+            && value(twice, "T") == value(twice, "U"));
+
+        // Same results on every backend
+        String program = "DIM P(20)\nFOR I = 0 TO 20\nLET DX = I - 7.25\nLET DY = I / 3 - 1\n" +
+                         "LET P(I) = SQR(DX ^ 2 + DY ^ 2) + DX ^ 3 - (DY + 1) ^ 4 + ABS(DX) ^ 0.5 + DY ^ 5\n" +
+                         "IF DX ^ 2 > 40 THEN LET F = F + 1\nNEXT I\n";
+        Interpreter ast = run(program, Interpreter.Backend.AST, 0);
+        Interpreter jit = run(program, Interpreter.Backend.AST, 2);
+        Interpreter vm = run(program, Interpreter.Backend.VM, 0);
+        double[] expected = new double[21];
+        for (int i = 0; i <= 20; i++) {
+            double dx = i - 7.25;
+            double dy = i / 3.0 - 1;
+            expected[i] = Math.sqrt(PowerNode.power(dx, 2) + PowerNode.power(dy, 2)) + PowerNode.power(dx, 3)
+                - PowerNode.power(dy + 1, 4) + Math.sqrt(Math.abs(dx)) + Math.pow(dy, 5);
+        }
+        report("AST values", java.util.Arrays.equals(ast.getArrays().get("P"), expected) && value(ast, "F") == 8);
+        report("JIT values", java.util.Arrays.equals(jit.getArrays().get("P"), expected) && value(jit, "F") == 8);
+        report("VM values", vm.getCompiledProgram() != null
+            && java.util.Arrays.equals(vm.getArrays().get("P"), expected) && value(vm, "F") == 8);
+
+        // Distance loop: X ^ 2 against Math.pow
+        String loop = "FOR I = 1 TO 1000000\nLET DX = I - 500\nLET D = D + SQR(DX ^ 2 + 9 ^ 2)\nNEXT I\n";
+        long start = System.nanoTime();
+        Interpreter reduced = run(loop, Interpreter.Backend.AST, 0);
+        long reducedMillis = (System.nanoTime() - start) / 1000000;
+        start = System.nanoTime();
+        Interpreter general = run("LET Q = 2\n" + loop.replace("DX ^ 2", "DX ^ Q"), Interpreter.Backend.AST, 0);
+        long generalMillis = (System.nanoTime() - start) / 1000000;
+        System.out.println("  X ^ 2: " + reducedMillis + " ms, Math.pow: " + generalMillis + " ms");
+        report("distance loop", value(reduced, "D") == value(general, "D"));
+
+        summary();
+    }
+
+    private static void checkShape(String expr, String expected) {
+        String actual = ASTBuilder.buildAST(expr).toString();
+        report(expr + " -> " + expected, actual.equals(expected));
+        if (!actual.equals(expected)) {
+            System.out.println("    got " + actual);
+        }
+    }
+}
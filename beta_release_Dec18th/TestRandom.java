@@ -0,0 +1,50 @@
+/**
+ * Checks RND and RANDOMIZE: seeded runs repeat exactly on the AST and in
+ * the VM, RND(x) scales by x, and RNDFILL draws the same numbers as a
+ * loop of RND while filling a large array quickly.
+ */
+public class TestRandom extends ProgramTest {
+    public static void main(String[] args) {
+        System.out.println("=== Random Number Test ===");
+
+        String draws = "RANDOMIZE 42\nLET A = RND\nLET B = RND(100)\nLET C = RND(155) + 100\n";
+        Interpreter first = run(draws, Interpreter.Backend.AST);
+        Interpreter second = run(draws, Interpreter.Backend.AST);
+        report("RANDOMIZE repeats the sequence", first.getVariables().equals(second.getVariables()));
+        report("RND(x) is in [0, x)", value(first, "A") < 1 && value(first, "B") >= 0 && value(first, "B") < 100
+            && value(first, "C") >= 100 && value(first, "C") < 255);
+
+        Interpreter scaled = run("RANDOMIZE 7\nLET A = RND * 10\nRANDOMIZE 7\nLET B = RND(10)\n", Interpreter.Backend.AST);
+        report("RND(10) = 10 * RND", value(scaled, "A") == value(scaled, "B"));
+
+        Interpreter vm = run("FOR I = 1 TO 3\nNEXT I\n" + draws, Interpreter.Backend.VM);
+        report("VM draws the same numbers", vm.getCompiledProgram() != null && value(vm, "A") == value(first, "A")
+            && value(vm, "B") == value(first, "B") && value(vm, "C") == value(first, "C"));
+
+        // RNDFILL against a loop of RND
+        Interpreter fill = run("DIM A(99)\nDIM B(99)\nRANDOMIZE 3\nRNDFILL A(), 6\nRANDOMIZE 3\n" +
+                               "FOR I = 0 TO 99\nLET B(I) = RND(6)\nNEXT I\n", Interpreter.Backend.AST);
+        double[] a = fill.getArrays().get("A");
+        boolean inRange = true;
+        for (double x : a) {
+            inRange &= x >= 0 && x < 6;
+        }
+        report("RNDFILL matches RND in a loop", java.util.Arrays.equals(a, fill.getArrays().get("B")) && inRange);
+
+        Interpreter big = new Interpreter();
+        big.loadProgram("DIM S(999999)\nRNDFILL S\n");
+        long start = System.nanoTime();
+        runQuietly(big);
+        long millis = (System.nanoTime() - start) / 1000000;
+        double sum = 0;
+        for (double x : big.getArrays().get("S")) {
+            sum += x;
+        }
+        report("RNDFILL of a million elements (" + millis + " ms)", millis < 1000 && Math.abs(sum / 1e6 - 0.5) < 0.01);
+        big.shutdown();
+
+        checkError("RNDFILL Q()\n", "Array not defined: Q");
+
+        summary();
+    }
+}
@@ -130,6 +130,93 @@ public class TestRunner {
             return interp.getVariables().get("X") == 42.0;
         });
 
+        // Test 13: ON X GOTO jump table
+        allPassed &= runTest("ON GOTO/GOSUB", () -> {
+            Interpreter interp = new Interpreter();
+            String prog = "10 LET K = 2\n20 ON K GOTO 100, 200, 300\n30 END\n" +
+                         "100 LET R = 1\n110 END\n" +
+                         "200 LET R = 2\n210 ON 1 GOSUB 400\n220 END\n" +
+                         "300 LET R = 3\n310 END\n" +
+                         "400 LET S = 7\n410 RETURN";
+            interp.loadProgram(prog);
+            interp.run();
+            return interp.getVariables().get("R") == 2.0 &&
+                   interp.getVariables().get("S") == 7.0;
+        });
+
+        // Test 14: RESTORE to a DATA line
+        allPassed &= runTest("RESTORE Line", () -> {
+            Interpreter interp = new Interpreter();
+            String prog = "10 DATA 1, 2\n20 DATA 3, 4\n" +
+                         "30 READ A, B, C\n40 RESTORE 20\n50 READ D";
+            interp.loadProgram(prog);
+            interp.run();
+            return interp.getVariables().get("C") == 3.0 &&
+                   interp.getVariables().get("D") == 3.0;
+        });
+
+        // Test 15: Undefined labels reported at load time
+        allPassed &= runTest("Undefined Label", () -> {
+            Interpreter interp = new Interpreter();
+            interp.loadProgram("10 GOTO 999\n20 LET X = 1");
+            return interp.getLoadErrors().size() == 1;
+        });
+
+        // Test 16: Block IF/ELSE takes exactly one branch
+        allPassed &= runTest("Block IF/ELSE", () -> {
+            Interpreter interp = new Interpreter();
+            String prog = "LET A = 1\nIF A = 1 THEN\nLET R = 1\nELSE\nLET R = 2\nEND IF\n" +
+                         "IF A = 2 THEN\nLET S = 1\nELSE\nLET S = 2\nEND IF";
+            interp.loadProgram(prog);
+            interp.run();
+            return interp.getVariables().get("R") == 1.0 &&
+                   interp.getVariables().get("S") == 2.0;
+        });
+
+        // Test 17: Loop inside a CASE body
+        allPassed &= runTest("SELECT CASE Body Loop", () -> {
+            Interpreter interp = new Interpreter();
+            String prog = "LET K = 2\nLET T = 0\nSELECT CASE K\nCASE 1\nLET T = -1\n" +
+                         "CASE 2\nFOR I = 1 TO 4\nLET T = T + I\nNEXT I\n" +
+                         "CASE ELSE\nLET T = -2\nEND SELECT";
+            interp.loadProgram(prog);
+            interp.run();
+            return interp.getVariables().get("T") == 10.0;
+        });
+
+        // Test 18: Unbalanced blocks reported at load time
+        allPassed &= runTest("Unbalanced Blocks", () -> {
+            Interpreter interp = new Interpreter();
+            interp.loadProgram("WHILE X < 1\nLET X = 1\nLOOP");
+            return interp.getLoadErrors().size() == 2;
+        });
+
+        // Test 19: Slot storage and the getVariables() view
+        allPassed &= runTest("Variable Slots", () -> {
+            Interpreter interp = new Interpreter();
+            interp.loadProgram("LET Y = X * 2\nLET Z = UNSET");
+            interp.getVariables().put("X", 21.0);
+            interp.run();
+            return interp.getVariables().get("Y") == 42.0 &&
+                   interp.getVariables().get("Z") == 0.0 &&
+                   interp.getVariables().get("UNSET") == null &&
+                   interp.getVariables().size() == 3;
+        });
+
+        // Test 20: No expression is re-parsed while the program runs
+        allPassed &= runTest("Parse Count Flat", () -> {
+            Interpreter interp = new Interpreter();
+            String prog = "DEF FN SQ(V) = V * V\nDATA 1, 2, 3\nLET T = 0\n" +
+                         "FOR I = 1 TO 200\nRESTORE\nREAD A, B, C\n" +
+                         "LET T = T + FN SQ(A + B + C)\nNEXT I";
+            interp.loadProgram(prog);
+            interp.run();
+            long afterFirstRun = interp.getParseCount();
+            interp.run();
+            return interp.getParseCount() == afterFirstRun &&
+                   interp.getVariables().get("T") == 7200.0;
+        });
+
         System.out.println("\n" + ("=".repeat(50)));
         if (allPassed) {
             System.out.println("✓ ALL TESTS PASSED!");
@@ -0,0 +1,129 @@
+/**
+ * Checks that program lines decode into the expected statement classes.
+ */
+public class TestStatementIR {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Statement IR Test ===");
+
+        check("PRINT \"HI\"", PrintStmt.class);
+        check("LET X = 1", LetStmt.class);
+        check("X = X + 1", LetStmt.class);
+        check("A$ = \"HELLO\"", StringLetStmt.class);
+        check("A(3) = 7", ArrayLetStmt.class);
+        check("IF X > 1 THEN PRINT X", IfStmt.class);
+        check("IF X > 1 THEN", IfStmt.class);
+        check("ELSE", ElseStmt.class);
+        check("ELSEIF X > 2 THEN", ElseIfStmt.class);
+        check("END IF", EndIfStmt.class);
+        check("SELECT CASE X", SelectStmt.class);
+        check("CASE ELSE", CaseStmt.class);
+        check("END SELECT", EndSelectStmt.class);
+        check("FOR I = 1 TO 10 STEP 2", ForStmt.class);
+        check("NEXT I", NextStmt.class);
+        check("WHILE X < 10", WhileStmt.class);
+        check("WEND", WendStmt.class);
+        check("DO UNTIL X = 5", DoStmt.class);
+        check("LOOP", LoopStmt.class);
+        check("GOTO 100", GotoStmt.class);
+        check("GOSUB Sub1", GosubStmt.class);
+        check("RETURN", ReturnStmt.class);
+        check("DIM A(10)", DimStmt.class);
+        check("DEF FN SQ(X) = X * X", DefStmt.class);
+        check("CIRCLE 10, 10, 5, 1", CircleStmt.class);
+        check("END", EndStmt.class);
+        check("REM comment", NoOpStmt.class);
+
+        // Superinstructions for common shapes
+        check("X = X + 1", IncrementStmt.class);
+        check("X = 2 + X", IncrementStmt.class);
+        check("X = X - 0.5", IncrementStmt.class);
+        checkNot("X = Y + 1", IncrementStmt.class);
+        checkNot("X = X * 2", IncrementStmt.class);
+        check("A(I) = I * 2", ArrayStoreStmt.class);
+        checkNot("A(I + 1) = 0", ArrayStoreStmt.class);
+        check("IF X >= 10 THEN GOTO 100", CompareBranchStmt.class);
+        check("IF X * 2 = Y THEN 100", CompareBranchStmt.class);
+        checkNot("IF X > 1 AND Y > 1 THEN 100", CompareBranchStmt.class);
+        checkNot("IF X > 1 THEN 100 ELSE 200", CompareBranchStmt.class);
+        checkNot("IF A$ = \"Y\" THEN 100", CompareBranchStmt.class);
+        check("FOR I = 1 TO 10", CountedForStmt.class);
+        check("FOR I = 10 TO 0 STEP -2", CountedForStmt.class);
+        checkNot("FOR I = 1 TO N", CountedForStmt.class);
+        checkNot("FOR I = 0 TO 1 STEP 0.1", CountedForStmt.class);
+
+        // Single-line IF keeps both branches decoded
+        IfStmt ifStmt = (IfStmt) StatementCompiler.compile("IF X THEN Y = 1 ELSE Y = 2");
+        report("single-line IF branches",
+            ifStmt.thenStmt instanceof LetStmt && ifStmt.elseStmt instanceof LetStmt);
+
+        // Commas inside calls and strings are not argument separators
+        report("argument splitting",
+            StatementCompiler.splitArgs("MAX(1, 2), \"a,b\", 3", 0).size() == 3);
+
+        // Fused statements behave like the general ones
+        Interpreter fused = new Interpreter();
+        fused.loadProgram("10 DIM A(20)\n20 FOR I = 0 TO 20 STEP 2\n30 A(I) = I * I\n40 NEXT I\n" +
+            "50 K = 0\n60 K = K + 1\n70 S = S + A(K)\n80 IF K < 20 THEN 60\n90 FOR J = 3 TO 1 STEP -1\n" +
+            "100 FOR I = 1 TO 2\n110 T = T - 1\n120 NEXT I\n130 NEXT J");
+        try {
+            fused.run();
+            report("fused statements run", fused.getVariables().get("S") == 1540.0
+                && fused.getVariables().get("K") == 20.0 && fused.getVariables().get("T") == -6.0
+                && fused.getVariables().get("I") == 3.0 && fused.getVariables().get("J") == 0.0);
+        } catch (Exception e) {
+            report("fused statements run", false);
+        }
+
+        // NEXT of a counted FOR is fused; leaving the loop by GOTO falls back to the general NEXT
+        Interpreter counted = new Interpreter();
+        counted.loadProgram("10 FOR I% = 1 TO 5\n20 S = S + I%\n30 NEXT I%\n40 FOR J = 10 TO 1 STEP -3\n" +
+            "50 FOR K = 1 TO N\n60 NEXT K\n70 IF J = 4 THEN GOTO 90\n80 NEXT J\n90 FOR M = 1 TO 3\n" +
+            "100 FOR L = 1 TO 2\n110 IF L = 2 THEN NEXT M\n120 C = C + 1\n130 NEXT L\n");
+        Statement[] decoded = counted.getProgram();
+        report("NEXT of a counted FOR is fused", decoded[2] instanceof CountedNextStmt
+            && decoded[7] instanceof CountedNextStmt && !(decoded[5] instanceof CountedNextStmt));
+        try {
+            counted.run();
+            report("fused NEXT runs", counted.getVariables().get("S") == 15.0 && counted.getVariables().get("I%") == 6.0
+                && counted.getVariables().get("J") == 4.0 && counted.getVariables().get("C") == 6.0
+                && counted.getVariables().get("M") == 4.0);
+        } catch (Exception e) {
+            report("fused NEXT runs", false);
+        }
+
+        // Decoded program still runs
+        Interpreter interpreter = new Interpreter();
+        interpreter.loadProgram("10 S = 0\n20 FOR I = 1 TO 10\n30 S = S + I\n40 NEXT I\n50 END");
+        try {
+            interpreter.run();
+            report("FOR loop sum", interpreter.getVariables().get("S") == 55.0);
+        } catch (Exception e) {
+            report("FOR loop sum", false);
+        }
+
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+
+    private static void check(String line, Class<?> expected) {
+        Statement stmt = StatementCompiler.compile(line);
+        report(line + " -> " + expected.getSimpleName(), expected.isInstance(stmt));
+    }
+
+    private static void checkNot(String line, Class<?> unexpected) {
+        Statement stmt = StatementCompiler.compile(line);
+        report(line + " -> not " + unexpected.getSimpleName(), !unexpected.isInstance(stmt));
+    }
+
+    private static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.*;
+
+/**
+ * Checks string expressions: the string function nodes, PRINT items
+ * classified by the type of their tree, LET A$ and TEXT built once at
+ * load time, no parsing while a string-heavy loop runs, and A$ = A$ + ...
+ * appending in place.
+ */
+public class TestStrings {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== String Expression Test ===");
+
+        // Tree shapes
+        checkShape("LEFT$(A$, N + 1) + \"!\"", "(LEFT$(A$, (N ADD 1.0)) + \"!\")");
+        checkShape("MID$(A$, 2)", "MID$(A$, 2.0)");
+        checkShape("STR(SCORE)", "STR$(SCORE)");
+        checkShape("CHR$(65 + I) + REVERSE$(UPPER$(B$))", "(CHR$((65.0 ADD I)) + REVERSE$(UPPER$(B$)))");
+        report("string function node classes", ASTBuilder.parseString("LEFT$(A$, 1)", null) instanceof LeftNode
+            && ASTBuilder.parseString("STR$(1)", null) instanceof StrNode);
+
+        // Values
+        checkString("LEFT$(\"HELLO\", 2) + RIGHT$(\"WORLD\", 3)", "HERLD");
+        checkString("MID$(\"HELLO WORLD\", 7, 3) + MID$(\"ABCDEF\", 4)", "WORDEF");
+        checkString("UPPER$(\"ab\") + LOWER$(\"CD\") + TRIM$(\"  e  \")", "ABcde");
+        checkString("REPLACE$(\"A-B-C\", \"-\", \"+\") + REVERSE$(\"XYZ\")", "A+B+CZYX");
+        checkString("CHR$(72) + STR$(42) + STR$(1.5)", "H421.5");
+        checkString("\"A+B\" + \"C\"", "A+BC");
+        checkString("LEFT$(\"HELLO\", -1) + MID$(\"HI\", 9, 1)", "");
+        checkValue("INSTR(\"HELLO WORLD\", \"WORLD\") + LEN(STR$(123))", 10);
+        checkValue("ASC(CHR$(66)) + INSTR(\"ABC\", \"Z\")", 66);
+
+        // Statements
+        Interpreter interp = new Interpreter();
+        interp.loadProgram("LET T$ = \"Hello World\"\nLET N = 3\nLET L$ = LEFT$(T$, N + 2) + \"!\"\n" +
+                           "PRINT L$; MID$(T$, 7)\nPRINT LEN(T$), INSTR(T$, \"World\")\nPRINT \"A\" + \"B\"\n" +
+                           "PRINT \"  STR = \", STR$(N * 2)\n");
+        String output = run(interp);
+        report("LET A$ from functions", "Hello!".equals(interp.getStringVariables().get("L$")));
+        report("PRINT of string expressions", output.startsWith("Hello!World\n"));
+        report("PRINT of a number with $ in it", output.contains("11.0 7.0\n"));
+        report("PRINT of a quoted concatenation", output.contains("AB\n"));
+        report("PRINT of STR$", output.contains("  STR =  6\n"));
+        interp.shutdown();
+
+        // A loop of string work parses nothing after loading
+        Interpreter loop = new Interpreter();
+        loop.loadProgram("LET W$ = \"ADVENTURE\"\nFOR I = 1 TO 500\nLET C$ = MID$(W$, I MOD 9 + 1, 1)\n" +
+                         "LET R$ = RIGHT$(C$ + LEFT$(W$, 3), 2)\nIF R$ = \"DV\" AND C$ <> \"E\" THEN LET K = K + 1\nNEXT I\n");
+        long before = loop.getParseCount();
+        run(loop);
+        report("no parsing while running", before > 0 && loop.getParseCount() == before
+            && loop.getVariables().get("K") != null && loop.getVariables().get("K") > 0);
+
+        // Parses are counted per interpreter
+        Interpreter other = new Interpreter();
+        other.loadProgram("LET A$ = \"X\" + STR$(1)\n");
+        report("parse count is per interpreter", other.getParseCount() > 0 && loop.getParseCount() == before);
+        other.shutdown();
+        loop.shutdown();
+
+        // Self-append
+        interp = new Interpreter();
+        interp.loadProgram("LET S$ = \"AB\"\nLET S$ = S$ + \"-\" + S$\nLET T$ = S$\nLET S$ = S$ + CHR$(33)\n" +
+                           "LET U$ = U$ + \"X\"\nLET S$ = \"(\" + S$\n");
+        run(interp);
+        report("append reads the old value", "AB-AB".equals(interp.getStringVariables().get("T$")));
+        report("append, then prepend", "(AB-AB!".equals(interp.getStringVariables().get("S$"))
+            && "X".equals(interp.getStringVariables().get("U$")));
+        interp.shutdown();
+
+        // One megabyte, five characters at a time
+        Interpreter builder = new Interpreter();
+        builder.loadProgram("FOR I = 1 TO 200000\nLET R$ = R$ + CHR$(65 + I MOD 26) + \"ROW\" + CHR$(10)\nNEXT I\n" +
+                           "LET N = LEN(R$)\n");
+        long start = System.nanoTime();
+        run(builder);
+        long millis = (System.nanoTime() - start) / 1000000;
+        report("1 MB string built by appending (" + millis + " ms)", builder.getVariables().get("N") == 1000000.0
+            && millis < 5000);
+        builder.shutdown();
+
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+
+    private static void checkShape(String expr, String expected) {
+        String actual = ASTBuilder.parseString(expr, null).toString();
+        report(expr + " -> " + expected, actual.equals(expected));
+        if (!actual.equals(expected)) {
+            System.out.println("    got " + actual);
+        }
+    }
+
+    private static void checkString(String expr, String expected) {
+        Interpreter interp = new Interpreter();
+        String actual = ASTBuilder.parseString(expr, null).evaluateString(new ExecutionContext(interp));
+        report(expr + " = \"" + expected + "\"", actual.equals(expected));
+        if (!actual.equals(expected)) {
+            System.out.println("    got \"" + actual + "\"");
+        }
+        interp.shutdown();
+    }
+
+    private static void checkValue(String expr, double expected) {
+        Interpreter interp = new Interpreter();
+        double actual = ASTBuilder.parse(expr, null).evaluate(new ExecutionContext(interp));
+        report(expr + " = " + expected, actual == expected);
+        interp.shutdown();
+    }
+
+    private static String run(Interpreter interp) throws Exception {
+        PrintStream original = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true));
+        try {
+            interp.run();
+        } finally {
+            System.setOut(original);
+        }
+        return buffer.toString();
+    }
+
+    private static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+}
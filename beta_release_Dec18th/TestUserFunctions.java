@@ -0,0 +1,52 @@
+/**
+ * Checks DEF FN calls: parameters live in call frames, not in global
+ * variables; nested calls, redefinition and runtime errors behave; and
+ * calls do not parse anything.
+ */
+public class TestUserFunctions extends ProgramTest {
+    public static void main(String[] args) {
+        System.out.println("=== User Function Test ===");
+
+        Interpreter interp = run("LET X = 7\nDEF FN SQ(X) = X * X\nLET A = FN SQ(3)\n");
+        report("parameter does not touch the global", value(interp, "A") == 9 && value(interp, "X") == 7);
+
+        interp = run("LET K = 10\nDEF FN ADDK(X) = X + K\nLET A = FN ADDK(1)\nLET K = 20\nLET B = FN ADDK(1)\n");
+        report("body reads globals", value(interp, "A") == 11 && value(interp, "B") == 21);
+
+        interp = run("DEF FN INC(X) = X + 1\nDEF FN TWICE(X, Y) = FN INC(X) * FN INC(Y) + X\n" +
+                     "LET A = FN TWICE(FN INC(1), FN TWICE(1, 2))\n");
+        // TWICE(1, 2) = 2 * 3 + 1 = 7; TWICE(2, 7) = 3 * 8 + 2 = 26
+        report("nested calls and arguments", value(interp, "A") == 26);
+
+        interp = run("DEF FN F(X) = X * 2\nFOR I = 1 TO 2\nLET A = A + FN F(I)\nDEF FN F(X) = X * 100\nNEXT I\n");
+        report("redefinition seen by the call site", value(interp, "A") == 202);
+
+        interp = run("DEF FN P(X, Y, Z) = X + Y * 10 + Z * 100\nLET A = FN P(1)\nLET B = FN P(1, 2, 3, 4)\n");
+        report("missing arguments are 0, extra ignored", value(interp, "A") == 1 && value(interp, "B") == 321);
+
+        Interpreter broken = new Interpreter();
+        broken.loadProgram("10 LET A = 1\n20 LET B = FN NOPE(2)\n");
+        try {
+            broken.run();
+            report("undefined function is an error", false);
+        } catch (Exception e) {
+            report("undefined function is an error", e.getMessage().contains("FN NOPE")
+                && broken.getCurrentLine() == 1);
+        }
+        broken.shutdown();
+
+        // Thousands of calls, no parsing
+        Interpreter hot = new Interpreter();
+        hot.loadProgram("DEF FN H(X, Y) = SQR(X * X + Y * Y)\nFOR I = 1 TO 5000\nLET T = T + FN H(I, 1)\nNEXT I\n");
+        long before = hot.getParseCount();
+        try {
+            hot.run();
+        } catch (Exception e) {
+            report("run: " + e.getMessage(), false);
+        }
+        report("calls do not parse", hot.getParseCount() == before && value(hot, "T") > 12500000);
+        hot.shutdown();
+
+        summary();
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks the register VM: each program must print the same output and
+ * leave the same variables on the VM as on the AST interpreter, also
+ * after a round trip of the compiled program through a stream.
+ */
+public class TestVM {
+    private static int passed = 0;
+    private static int failed = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Register VM Test ===");
+
+        check("loops and arithmetic",
+            "10 LET T = 0\n20 FOR I = 1 TO 10\n30 LET T = T + I * I / 2 - I ^ 2 % 7\n40 NEXT I\n50 PRINT T\n" +
+            "60 FOR J = 10 TO 1 STEP -3\n70 PRINT J;\n80 NEXT J\n90 PRINT\n100 LET K = K + 1\n");
+        check("gosub and goto",
+            "10 LET N = 0\n20 GOSUB 100\n30 IF N < 5 THEN GOTO 20\n40 PRINT \"N =\"; N\n50 END\n" +
+            "100 LET N = N + 1\n110 PRINT N\n120 RETURN\n");
+        check("block if and else",
+            "10 FOR I = 1 TO 4\n20 IF I MOD 2 = 0 THEN\n30 PRINT \"even\"; I\n40 ELSE\n50 PRINT \"odd\"; I\n" +
+            "60 END IF\n70 IF I = 3 THEN PRINT \"three\" ELSE PRINT \"not three\"\n80 NEXT I\n");
+        check("elseif chain",
+            "FOR I = 1 TO 5\nIF I = 1 THEN\nPRINT \"one\"\nELSEIF I < 4 THEN\nPRINT \"small\"; I\nELSEIF I = 4 THEN\n" +
+            "PRINT \"four\"\nELSE\nPRINT \"big\"\nEND IF\nIF I > 2 THEN PRINT \"x\" ELSEIF I = 2 THEN PRINT \"y\"\nNEXT I\n");
+        check("while and do",
+            "LET X = 1\nWHILE X < 100\nLET X = X * 3\nWEND\nPRINT X\nLET Y = 0\nDO\nLET Y = Y + 7\n" +
+            "LOOP UNTIL Y > 30\nPRINT Y\nDO WHILE Y > 0\nLET Y = Y - 10\nLOOP\nPRINT Y\n");
+        check("select case",
+            "FOR I = 1 TO 4\nSELECT CASE I\nCASE 1\nPRINT \"one\"\nCASE 2\nPRINT \"two\"\n" +
+            "CASE ELSE\nPRINT \"many\"\nEND SELECT\nNEXT I\n");
+        check("arrays, data and on goto",
+            "DIM A(5)\nFOR I = 0 TO 5\nREAD A(0)\nLET A(I) = A(0) * 2\nNEXT I\n" +
+            "RESTORE\nREAD P, Q\nPRINT P; Q; A(5); A(9)\nDATA 1, 2, 3, 4, 5, -6.5\n" +
+            "FOR K = 1 TO 3\nON K GOSUB 100, 200, 300\nNEXT K\nEND\n100 PRINT \"a\"\nRETURN\n200 PRINT \"b\"\nRETURN\n" +
+            "300 PRINT \"c\"\nRETURN\n");
+        check("math functions",
+            "FOR I = -2 TO 2\nPRINT SGN(I); ABS(I); INT(I / 3); SQR(ABS(I)) + SIN(I) * COS(I) - ATN(I)\nNEXT I\n" +
+            "PRINT 7 % 3; 1 / 0; NOT 0; -(-4); LOG(EXP(2)); TAN(1)\n");
+        check("rnd of a computed argument",
+            "LET X = 3\nLET Y = RND((X + 1) ^ 2)\nLET Z = RND(X * 2 + 1) + RND(ABS(X - 5)) * RND(X ^ 3)\n" +
+            "RANDOMIZE 7\nLET W = RND((X + 1) ^ 2)\nPRINT Y; Z; W\n");
+        check("fallback statements",
+            "DEF FN SQ(X) = X * X\nLET N$ = \"WORLD\"\nFOR I = 1 TO 3\nPRINT \"HELLO \"; N$; FN SQ(I)\n" +
+            "LET S = S + FN SQ(I)\nNEXT I\nIF N$ = \"WORLD\" THEN PRINT \"match\"; S\nREAD A$, B\nPRINT A$; B\n" +
+            "DATA \"DATA\", 12\n");
+
+        // Round trip through a stream: the copy runs without any source
+        String prog = "DIM A(10)\nLET T = 0\nFOR I = 1 TO 200\nLET A(I % 10) = A(I % 10) + I\n" +
+                      "IF A(3) > 100 THEN LET T = T + 1\nNEXT I\nPRINT T; A(3)\nLET L$ = \"DONE\"\nPRINT L$\n";
+        Interpreter source = vmInterpreter();
+        source.loadProgram(prog);
+        VMProgram compiled = source.getCompiledProgram();
+        report("program compiled", compiled != null && compiled.getFallbackCount() == 2);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        compiled.write(bytes);
+        VMProgram copy = VMProgram.read(new ByteArrayInputStream(bytes.toByteArray()));
+        Interpreter loaded = new Interpreter();
+        loaded.loadCompiled(copy);
+        String expected = run(source);
+        report("serialized program runs the same", expected.equals(run(loaded))
+            && source.getVariables().equals(loaded.getVariables()));
+        source.shutdown();
+        loaded.shutdown();
+
+        // Programs the VM cannot run stay on the AST interpreter
+        Interpreter rejected = vmInterpreter();
+        rejected.loadProgram("FOR I = 1 TO 3\nIF I = 2 THEN NEXT I\nNEXT I\n");
+        report("unsupported program uses the AST", rejected.getCompiledProgram() == null);
+        rejected.shutdown();
+
+        // A block closer without its opener is a load error, not a crash
+        for (String unmatched : new String[] { "PRINT 1\nWEND\n", "PRINT 2\nLOOP\n" }) {
+            Interpreter orphan = vmInterpreter();
+            String name = "unmatched " + unmatched.substring(8).trim() + " uses the AST";
+            try {
+                orphan.loadProgram(unmatched);
+                report(name, orphan.getCompiledProgram() == null);
+            } catch (RuntimeException e) {
+                report(name + " (" + e + ")", false);
+            }
+            orphan.shutdown();
+        }
+
+        // STOP and interrupts end loops made of GOSUB and ON jumps
+        String[] endless = { "10 LET X = X + 1\n20 ON 1 GOTO 10\n", "10 GOSUB 10\n",
+                             "10 ON 1 GOSUB 10\n" };
+        for (String loop : endless) {
+            for (boolean interrupt : new boolean[] { false, true }) {
+                Interpreter spinning = vmInterpreter();
+                spinning.loadProgram(loop);
+                Throwable[] error = new Throwable[1];
+                Thread runner = new Thread(() -> {
+                    try {
+                        spinning.run();
+                    } catch (Throwable e) {
+                        error[0] = e;
+                    }
+                });
+                runner.setDaemon(true);
+                runner.start();
+                Thread.sleep(50);
+                if (interrupt) {
+                    runner.interrupt();
+                } else {
+                    spinning.stop();
+                }
+                runner.join(2000);
+                report((interrupt ? "interrupt ends " : "STOP ends ") + loop.replace("\n", " ").trim(),
+                    spinning.getCompiledProgram() != null && !runner.isAlive() && error[0] == null);
+                spinning.shutdown();
+            }
+        }
+
+        Interpreter broken = vmInterpreter();
+        broken.loadProgram("10 DIM A(3)\n20 LET A(5) = 1\n");
+        try {
+            broken.run();
+            report("runtime error reports its line", false);
+        } catch (RuntimeException e) {
+            report("runtime error reports its line", e.getMessage().contains("out of bounds")
+                && broken.getCurrentLine() == 1);
+        }
+        broken.shutdown();
+
+        System.out.println("Passed: " + passed + "  Failed: " + failed);
+    }
+
+    private static Interpreter vmInterpreter() {
+        Interpreter interp = new Interpreter();
+        interp.setBackend(Interpreter.Backend.VM);
+        return interp;
+    }
+
+    private static void check(String name, String program) throws Exception {
+        Interpreter ast = new Interpreter();
+        ast.loadProgram(program);
+        ast.randomize(1);
+        String expected = run(ast);
+
+        Interpreter vm = vmInterpreter();
+        vm.loadProgram(program);
+        vm.randomize(1);
+        String actual = vm.getCompiledProgram() != null ? run(vm) : "not compiled";
+
+        boolean ok = expected.equals(actual) && ast.getVariables().equals(vm.getVariables());
+        report(name, ok);
+        if (!ok) {
+            System.out.println("    expected: " + expected.replace("\n", "|") + " " + ast.getVariables());
+            System.out.println("    actual:   " + actual.replace("\n", "|") + " " + vm.getVariables());
+        }
+        ast.shutdown();
+        vm.shutdown();
+    }
+
+    private static String run(Interpreter interp) throws Exception {
+        PrintStream original = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true));
+        try {
+            interp.run();
+        } finally {
+            System.setOut(original);
+        }
+        return buffer.toString();
+    }
+
+    private static void report(String name, boolean ok) {
+        if (ok) {
+            passed++;
+            System.out.println("  PASS: " + name);
+        } else {
+            failed++;
+            System.out.println("  FAIL: " + name);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * TEXT x, y, text
+ *
+ * The text operand is a string expression, parsed once at load time;
+ * a plain literal is a StringLiteralNode.
+ */
+public class TextStmt implements Statement {
+    final ExpressionNode x;
+    final ExpressionNode y;
+    final StringNode text;
+
+    public TextStmt(ExpressionNode x, ExpressionNode y, StringNode text) {
+        this.x = x;
+        this.y = y;
+        this.text = text;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeText(this);
+    }
+}
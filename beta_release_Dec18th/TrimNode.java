@@ -0,0 +1,16 @@
+/**
+ * TRIM$(s): s without leading and trailing blanks
+ */
+public class TrimNode extends StringFunctionNode {
+    private final StringNode string;
+
+    public TrimNode(StringNode string) {
+        super("TRIM$", string);
+        this.string = string;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.trim(string.evaluateString(context));
+    }
+}
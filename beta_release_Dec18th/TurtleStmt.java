@@ -0,0 +1,22 @@
+/**
+ * Turtle graphics commands: TURTLE ON/OFF, FORWARD, BACKWARD,
+ * RIGHT, LEFT, PENUP, PENDOWN and HOME (plus their short forms).
+ */
+public class TurtleStmt implements Statement {
+    final Op op;
+    final ExpressionNode amount;  // Distance or angle, null if unused
+
+    public enum Op {
+        ON, OFF, FORWARD, BACKWARD, RIGHT, LEFT, PENUP, PENDOWN, HOME, NONE
+    }
+
+    public TurtleStmt(Op op, ExpressionNode amount) {
+        this.op = op;
+        this.amount = amount;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeTurtle(this);
+    }
+}
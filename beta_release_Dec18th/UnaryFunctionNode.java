@@ -0,0 +1,11 @@
+/**
+ * A built-in function of one argument
+ */
+public abstract class UnaryFunctionNode extends FunctionCallNode {
+    protected final ExpressionNode argument;
+
+    protected UnaryFunctionNode(String functionName, ExpressionNode argument) {
+        super(functionName, argument);
+        this.argument = argument;
+    }
+}
@@ -27,6 +27,14 @@ public class UnaryOpNode implements ExpressionNode {
         }
     }
 
+    @Override
+    public boolean test(ExecutionContext context) {
+        if (operator == UnaryOperator.NOT) {
+            return !operand.test(context);
+        }
+        return operand.evaluate(context) != 0.0;
+    }
+
     @Override
     public String toString() {
         return operator + "(" + operand + ")";
@@ -0,0 +1,16 @@
+/**
+ * UPPER$(s): s in upper case
+ */
+public class UpperNode extends StringFunctionNode {
+    private final StringNode string;
+
+    public UpperNode(StringNode string) {
+        super("UPPER$", string);
+        this.string = string;
+    }
+
+    @Override
+    public String evaluateString(ExecutionContext context) {
+        return StringFunctions.upper(string.evaluateString(context));
+    }
+}
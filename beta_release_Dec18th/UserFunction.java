@@ -0,0 +1,46 @@
+import java.util.*;
+
+/**
+ * A DEF FN function of one interpreter.
+ *
+ * There is one UserFunction per name; DEF fills it in (again, if the
+ * function is redefined), so call sites can keep a reference to it. The
+ * body is compiled once at load time with its parameters bound to slots
+ * of the call frame (ParameterNode), never to global variables.
+ */
+public class UserFunction {
+    final String name;
+    List<String> parameters;   // Null until the DEF line has run
+    String expression;         // Body source, for the debugger
+    ExpressionNode body;
+
+    UserFunction(String name) {
+        this.name = name;
+    }
+
+    void define(DefStmt def) {
+        parameters = def.parameters;
+        expression = def.expression;
+        body = def.body;
+    }
+
+    public boolean isDefined() {
+        return body != null;
+    }
+
+    public int getParameterCount() {
+        return parameters != null ? parameters.size() : 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getParameters() {
+        return parameters;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.*;
+
+/**
+ * Represents a call of a user function: FN name(args)
+ *
+ * The function is looked up once and kept; DEF updates the same
+ * UserFunction object, so a redefinition is seen without another lookup.
+ * Arguments are evaluated into a new frame on the context's frame stack
+ * and the compiled body reads them by index. A call allocates nothing
+ * and recursion simply stacks frames.
+ */
+public class UserFunctionCallNode implements ExpressionNode {
+    private final String functionName;
+    private final ExpressionNode[] arguments;
+
+    private Map<String, UserFunction> resolvedIn;  // Function table the cached function came from
+    private UserFunction function;
+
+    public UserFunctionCallNode(String functionName, List<ExpressionNode> arguments) {
+        this.functionName = functionName.toUpperCase();
+        this.arguments = arguments.toArray(new ExpressionNode[0]);
+    }
+
+    @Override
+    public double evaluate(ExecutionContext context) {
+        UserFunction fn = function;
+        Map<String, UserFunction> functions = context.getInterpreter().getUserFunctions();
+        if (fn == null || resolvedIn != functions) {
+            fn = functions.get(functionName);
+            if (fn == null) {
+                throw new RuntimeException("Undefined function FN " + functionName);
+            }
+            function = fn;
+            resolvedIn = functions;
+        }
+        ExpressionNode body = fn.body;
+        if (body == null) {
+            throw new RuntimeException("Undefined function FN " + functionName);
+        }
+
+        // Arguments are evaluated in the caller's frame; missing ones are 0, extra ones are ignored
+        int parameterCount = fn.getParameterCount();
+        int frame = context.openFrame(parameterCount);
+        for (int i = 0; i < arguments.length; i++) {
+            double value = arguments[i].evaluate(context);
+            if (i < parameterCount) {
+                context.setFrameValue(frame + i, value);
+            }
+        }
+
+        int callerFrame = context.enterFrame(frame);
+        try {
+            return body.evaluate(context);
+        } finally {
+            context.leaveFrame(callerFrame, frame);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("FN ").append(functionName).append("(");
+        for (int i = 0; i < arguments.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(arguments[i]);
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    public List<ExpressionNode> getArguments() {
+        return Arrays.asList(arguments);
+    }
+}
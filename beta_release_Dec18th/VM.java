@@ -0,0 +1,462 @@
+import java.util.*;
+
+/**
+ * Register-based bytecode VM, the alternative to walking the statement IR.
+ *
+ * A VMProgram is a flat int[] instruction stream: each instruction is an
+ * opcode followed by its operands, mostly register numbers into one
+ * double[] register file. Variables, constants and temporaries all live in
+ * that file, so arithmetic is "r[d] = r[a] op r[b]" with no calls and no
+ * per-node dispatch. Jump operands are instruction addresses.
+ *
+ * Statements the VM does not compile (strings, graphics, sound, ...) are
+ * run by the interpreter through EXEC. Around such a call the changed
+ * variables are copied to the VariableStore and read back afterwards, so
+ * both sides always see the same values.
+ */
+public class VM {
+    // Opcodes. FORMATS gives the operands of each one:
+    // r = register, l = jump target, k = string pool index, n = plain number
+    static final int HALT = 0;
+    static final int JMP = 1;         // l
+    static final int JZ = 2;          // r l: jump if r == 0
+    static final int JNZ = 3;         // r l: jump if r != 0
+    static final int MOV = 4;         // d a
+    static final int SETV = 5;        // v a: assign variable v
+    static final int INC = 6;         // v a: v += a
+    static final int ADD = 7;         // d a b
+    static final int SUB = 8;
+    static final int MUL = 9;
+    static final int DIV = 10;
+    static final int MOD = 11;
+    static final int POW = 12;
+    static final int EQ = 13;
+    static final int NE = 14;
+    static final int LT = 15;
+    static final int GT = 16;
+    static final int LE = 17;
+    static final int GE = 18;
+    static final int AND = 19;
+    static final int OR = 20;
+    static final int APPROX_EQ = 21;  // The "=" of IF and CASE
+    static final int NEG = 22;        // d a
+    static final int NOT = 23;
+    static final int CALL = 24;       // d fn a: one of the FUNCTIONS
+    static final int RND = 25;        // d
+    static final int ALOAD = 26;      // d array index
+    static final int ASTORE = 27;     // array index value
+    static final int DIM = 28;        // array size
+    static final int FORNEXT = 29;    // v end step l: v += step, loop back unless done
+    static final int GOSUB = 30;      // l return
+    static final int RETURN = 31;
+    static final int ON = 32;         // r isGosub count return target...
+    static final int PRINTS = 33;     // k
+    static final int PRINTN = 34;     // r
+    static final int PRINTLN = 35;
+    static final int TESTC = 36;      // d k: IF condition the VM cannot compute, as text
+    static final int EXEC = 37;       // fallback line
+    static final int RESTORE = 38;    // data offset
+
+    static final String[] FORMATS = {
+        "", "l", "rl", "rl", "rr", "rr", "rr",
+        "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr", "rrr",
+        "rr", "rr", "rnr", "r", "rnr", "nrr", "nr", "rrrl", "ll", "",
+        "rnnl",  // followed by count targets
+        "k", "r", "", "rk", "nn", "n"
+    };
+
+    static final String[] NAMES = {
+        "HALT", "JMP", "JZ", "JNZ", "MOV", "SETV", "INC",
+        "ADD", "SUB", "MUL", "DIV", "MOD", "POW", "EQ", "NE", "LT", "GT", "LE", "GE", "AND", "OR", "APPROX_EQ",
+        "NEG", "NOT", "CALL", "RND", "ALOAD", "ASTORE", "DIM", "FORNEXT", "GOSUB", "RETURN",
+        "ON", "PRINTS", "PRINTN", "PRINTLN", "TESTC", "EXEC", "RESTORE"
+    };
+
+    static final String[] FUNCTIONS = { "SIN", "COS", "TAN", "ABS", "INT", "SQR", "LOG", "EXP", "ATN", "SGN" };
+
+    private final Interpreter interpreter;
+    private final VMProgram program;
+    private final VariableStore store;
+    private final int[] slots;          // Variable register -> VariableStore slot
+    private final boolean[] assigned;   // Variables the VM has written
+    private final double[] registers;
+    private final double[][] arrays;
+    private final Statement[] fallbacks;
+    private final ExpressionNode[] conditions;  // TESTC string -> its tree, parsed on first use
+    private final boolean[] conditionParsed;
+    private int[] gosubStack = new int[16];
+    private int gosubDepth;
+
+    public VM(Interpreter interpreter, VMProgram program) {
+        this.interpreter = interpreter;
+        this.program = program;
+        this.store = interpreter.getVariableStore();
+
+        int variableCount = program.variableNames.length;
+        slots = new int[variableCount];
+        for (int v = 0; v < variableCount; v++) {
+            slots[v] = store.slotOf(program.variableNames[v]);
+        }
+        assigned = new boolean[variableCount];
+
+        registers = new double[program.registerCount];
+        System.arraycopy(program.constants, 0, registers, program.constantBase, program.constants.length);
+        arrays = new double[program.arrayNames.length][];
+
+        // A program read back from a stream has only the source of its fallbacks
+        Statement[] compiled = program.fallbackStatements;
+        if (compiled == null) {
+            compiled = new Statement[program.fallbackLines.length];
+            for (int i = 0; i < compiled.length; i++) {
+                Statement stmt = StatementCompiler.compile(program.fallbackLines[i], store);
+                for (char branch : program.fallbackPaths[i].toCharArray()) {
+                    IfStmt ifStmt = (IfStmt) stmt;
+                    stmt = branch == 'T' ? ifStmt.thenStmt : ifStmt.elseStmt;
+                }
+                compiled[i] = stmt;
+            }
+        }
+        fallbacks = compiled;
+        conditions = new ExpressionNode[program.strings.length];
+        conditionParsed = new boolean[program.strings.length];
+    }
+
+    public void run() throws Exception {
+        final int[] code = program.code;
+        final double[] r = registers;
+        int pc = 0;
+
+        syncIn();
+        try {
+            while (true) {
+                switch (code[pc]) {
+                    case HALT:
+                        return;
+                    case JMP: {
+                        int target = code[pc + 1];
+                        if (target <= pc && !alive()) return;
+                        pc = target;
+                        break;
+                    }
+                    case JZ: {
+                        int target = code[pc + 2];
+                        if (r[code[pc + 1]] == 0) {
+                            if (target <= pc && !alive()) return;
+                            pc = target;
+                        } else {
+                            pc += 3;
+                        }
+                        break;
+                    }
+                    case JNZ: {
+                        int target = code[pc + 2];
+                        if (r[code[pc + 1]] != 0) {
+                            if (target <= pc && !alive()) return;
+                            pc = target;
+                        } else {
+                            pc += 3;
+                        }
+                        break;
+                    }
+                    case MOV:
+                        r[code[pc + 1]] = r[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case SETV:
+                        r[code[pc + 1]] = r[code[pc + 2]];
+                        assigned[code[pc + 1]] = true;
+                        pc += 3;
+                        break;
+                    case INC:
+                        r[code[pc + 1]] += r[code[pc + 2]];
+                        assigned[code[pc + 1]] = true;
+                        pc += 3;
+                        break;
+                    case ADD:
+                        r[code[pc + 1]] = r[code[pc + 2]] + r[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case SUB:
+                        r[code[pc + 1]] = r[code[pc + 2]] - r[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case MUL:
+                        r[code[pc + 1]] = r[code[pc + 2]] * r[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case DIV: {
+                        double b = r[code[pc + 3]];
+                        r[code[pc + 1]] = b != 0 ? r[code[pc + 2]] / b : 0.0;
+                        pc += 4;
+                        break;
+                    }
+                    case MOD:
+                        r[code[pc + 1]] = r[code[pc + 2]] % r[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    case POW:
+                        r[code[pc + 1]] = Math.pow(r[code[pc + 2]], r[code[pc + 3]]);
+                        pc += 4;
+                        break;
+                    case EQ:
+                        r[code[pc + 1]] = r[code[pc + 2]] == r[code[pc + 3]] ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case NE:
+                        r[code[pc + 1]] = r[code[pc + 2]] != r[code[pc + 3]] ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case LT:
+                        r[code[pc + 1]] = r[code[pc + 2]] < r[code[pc + 3]] ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case GT:
+                        r[code[pc + 1]] = r[code[pc + 2]] > r[code[pc + 3]] ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case LE:
+                        r[code[pc + 1]] = r[code[pc + 2]] <= r[code[pc + 3]] ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case GE:
+                        r[code[pc + 1]] = r[code[pc + 2]] >= r[code[pc + 3]] ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case AND:
+                        r[code[pc + 1]] = (r[code[pc + 2]] != 0 && r[code[pc + 3]] != 0) ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case OR:
+                        r[code[pc + 1]] = (r[code[pc + 2]] != 0 || r[code[pc + 3]] != 0) ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case APPROX_EQ:
+                        r[code[pc + 1]] = Math.abs(r[code[pc + 2]] - r[code[pc + 3]]) < 0.0001 ? 1.0 : 0.0;
+                        pc += 4;
+                        break;
+                    case NEG:
+                        r[code[pc + 1]] = -r[code[pc + 2]];
+                        pc += 3;
+                        break;
+                    case NOT:
+                        r[code[pc + 1]] = r[code[pc + 2]] == 0 ? 1.0 : 0.0;
+                        pc += 3;
+                        break;
+                    case CALL:
+                        r[code[pc + 1]] = call(code[pc + 2], r[code[pc + 3]]);
+                        pc += 4;
+                        break;
+                    case RND:
+                        r[code[pc + 1]] = interpreter.getRandom().nextDouble();
+                        pc += 2;
+                        break;
+                    case ALOAD: {
+                        double[] array = arrays[code[pc + 2]];
+                        int index = (int) r[code[pc + 3]];
+                        r[code[pc + 1]] = array != null && index >= 0 && index < array.length ? array[index] : 0.0;
+                        pc += 4;
+                        break;
+                    }
+                    case ASTORE: {
+                        double[] array = arrays[code[pc + 1]];
+                        if (array == null) {
+                            throw new RuntimeException("Array not defined: " + program.arrayNames[code[pc + 1]]);
+                        }
+                        int index = (int) r[code[pc + 2]];
+                        if (index < 0 || index >= array.length) {
+                            throw new RuntimeException("Array index out of bounds: " + index +
+                                " (array size: " + array.length + ")");
+                        }
+                        array[index] = r[code[pc + 3]];
+                        pc += 4;
+                        break;
+                    }
+                    case DIM: {
+                        int size = (int) r[code[pc + 2]];
+                        if (size < 0) {
+                            throw new RuntimeException("Array size cannot be negative: " + size);
+                        }
+                        // BASIC arrays are inclusive: DIM X(10) creates indices 0-10
+                        double[] array = new double[size + 1];
+                        arrays[code[pc + 1]] = array;
+                        interpreter.getArrayExtents().put(program.arrayNames[code[pc + 1]], new int[] { size + 1 });
+                        interpreter.getArrays().put(program.arrayNames[code[pc + 1]], array);
+                        interpreter.arraysChanged();
+                        pc += 3;
+                        break;
+                    }
+                    case FORNEXT: {
+                        int v = code[pc + 1];
+                        double step = r[code[pc + 3]];
+                        double end = r[code[pc + 2]];
+                        double current = r[v] + step;
+                        r[v] = current;
+                        assigned[v] = true;
+                        if ((step > 0 && current > end) || (step < 0 && current < end)) {
+                            pc += 5;
+                        } else {
+                            if (!alive()) return;
+                            pc = code[pc + 4];
+                        }
+                        break;
+                    }
+                    case GOSUB: {
+                        int target = code[pc + 1];
+                        if (target <= pc && !alive()) return;
+                        push(code[pc + 2]);
+                        pc = target;
+                        break;
+                    }
+                    case RETURN: {
+                        int target = gosubDepth > 0 ? gosubStack[--gosubDepth] : pc + 1;
+                        if (target <= pc && !alive()) return;
+                        pc = target;
+                        break;
+                    }
+                    case ON: {
+                        int choice = (int) r[code[pc + 1]];
+                        int count = code[pc + 3];
+                        int next = pc + 5 + count;
+                        int target = choice >= 1 && choice <= count ? code[pc + 4 + choice] : -1;
+                        if (target < 0) {
+                            pc = next;
+                        } else {
+                            if (target <= pc && !alive()) return;
+                            if (code[pc + 2] != 0) {
+                                push(code[pc + 4]);
+                            }
+                            pc = target;
+                        }
+                        break;
+                    }
+                    case PRINTS:
+                        interpreter.getConsole().print(program.strings[code[pc + 1]]);
+                        pc += 2;
+                        break;
+                    case PRINTN:
+                        interpreter.getConsole().print(r[code[pc + 1]]);
+                        pc += 2;
+                        break;
+                    case PRINTLN:
+                        interpreter.getConsole().println();
+                        pc += 1;
+                        break;
+                    case TESTC: {
+                        int k = code[pc + 2];
+                        if (!conditionParsed[k]) {
+                            conditions[k] = StatementCompiler.compileCondition(program.strings[k], store);
+                            conditionParsed[k] = true;
+                        }
+                        syncOut();
+                        r[code[pc + 1]] = interpreter.testCondition(program.strings[k], conditions[k]) ? 1.0 : 0.0;
+                        syncIn();
+                        pc += 3;
+                        break;
+                    }
+                    case EXEC:
+                        syncOut();
+                        interpreter.executeFallback(fallbacks[code[pc + 1]], code[pc + 2]);
+                        syncIn();
+                        if (!interpreter.isRunning()) return;
+                        pc += 3;
+                        break;
+                    case RESTORE:
+                        interpreter.setDataPointer(code[pc + 1]);
+                        pc += 2;
+                        break;
+                    default:
+                        throw new IllegalStateException("Bad opcode " + code[pc] + " at " + pc);
+                }
+            }
+        } catch (RuntimeException e) {
+            interpreter.setCurrentLine(program.lineAt(pc));
+            throw e;
+        } finally {
+            syncOut();
+        }
+    }
+
+    private static double call(int function, double arg) {
+        switch (function) {
+            case 0: return Math.sin(arg);
+            case 1: return Math.cos(arg);
+            case 2: return Math.tan(arg);
+            case 3: return Math.abs(arg);
+            case 4: return Math.floor(arg);
+            case 5: return Math.sqrt(arg);
+            case 6: return Math.log(arg);
+            case 7: return Math.exp(arg);
+            case 8: return Math.atan(arg);
+            default: return arg > 0 ? 1.0 : (arg < 0 ? -1.0 : 0.0);
+        }
+    }
+
+    private void push(int returnAddress) {
+        if (gosubDepth == gosubStack.length) {
+            gosubStack = Arrays.copyOf(gosubStack, gosubDepth * 2);
+        }
+        gosubStack[gosubDepth++] = returnAddress;
+    }
+
+    // Checked on every backward jump, so STOP and interrupts end a running loop
+    private boolean alive() {
+        if (Thread.currentThread().isInterrupted()) {
+            interpreter.stop();
+        }
+        return interpreter.isRunning();
+    }
+
+    // Copy the variables and arrays the interpreter may have changed into the VM
+    private void syncIn() {
+        for (int v = 0; v < slots.length; v++) {
+            registers[v] = store.get(slots[v]);
+        }
+        Map<String, double[]> interpreterArrays = interpreter.getArrays();
+        for (int a = 0; a < arrays.length; a++) {
+            arrays[a] = interpreterArrays.get(program.arrayNames[a]);
+        }
+    }
+
+    // Publish the variables the VM has written
+    private void syncOut() {
+        for (int v = 0; v < slots.length; v++) {
+            if (assigned[v]) {
+                store.set(slots[v], registers[v]);
+            }
+        }
+    }
+
+    /**
+     * Human readable listing of a compiled program, one instruction per line
+     */
+    public static String disassemble(VMProgram program) {
+        StringBuilder sb = new StringBuilder();
+        int[] code = program.code;
+        int line = -1;
+        for (int pc = 0; pc < code.length; ) {
+            int at = program.lineAt(pc);
+            if (at != line && program.lineNames.length > 0) {
+                line = at;
+                sb.append("; ").append(program.lineNames[line]).append("\n");
+            }
+            int op = code[pc];
+            String format = FORMATS[op];
+            if (op == ON) {
+                format += "l".repeat(code[pc + 3]);
+            }
+            sb.append(String.format("%5d  %-9s", pc, NAMES[op]));
+            for (int i = 0; i < format.length(); i++) {
+                int operand = code[pc + 1 + i];
+                switch (format.charAt(i)) {
+                    case 'r': sb.append(" r").append(operand); break;
+                    case 'l': sb.append(" @").append(operand); break;
+                    case 'k': sb.append(" \"").append(program.strings[operand]).append('"'); break;
+                    default: sb.append(' ').append(operand);
+                }
+            }
+            sb.append("\n");
+            pc += 1 + format.length();
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,675 @@
+import java.util.*;
+
+/**
+ * Compiles the program loaded into an Interpreter into a VMProgram.
+ *
+ * Like JavaTranslator it works on the interpreter's compiled statements,
+ * resolved jump targets and block table: control flow becomes jumps, FOR
+ * loops are paired with their NEXT in the source, and the numeric core
+ * of the language becomes register instructions. Any other statement is
+ * kept as a fallback the VM hands back to the interpreter.
+ *
+ * Operands are emitted as tagged register numbers and relocated at the
+ * end, once it is known how many variables, loop registers and constants
+ * the program has: the register file is laid out as
+ * variables | FOR end/step | constants | temporaries.
+ *
+ * Programs the VM cannot run at all (block statements inside a
+ * single-line IF, NEXT without FOR, control statements with expressions
+ * the VM does not know) are rejected with an UnsupportedOperationException.
+ */
+public class VMCompiler {
+    private static final int LOOP = 1 << 28;
+    private static final int CONSTANT = 1 << 29;
+    private static final int TEMP = 1 << 30;
+    private static final int TAGS = LOOP | CONSTANT | TEMP;
+
+    private final Interpreter interpreter;
+    private final Statement[] program;
+    private final int[] blockMatch;
+    private final int[] caseChain;
+    private final int[] forOfNext;       // NEXT index -> its FOR index, -1 elsewhere
+    private final int[] loopRegisters;   // FOR index -> its end register; step is the next one
+
+    private int[] code = new int[256];
+    private int size;
+    private final List<Integer> lineTargets = new ArrayList<>();  // Operands holding a line, not an address
+    private final int[] lineStarts;
+
+    private final Map<String, Integer> variables = new LinkedHashMap<>();
+    private final Map<String, Integer> arrays = new LinkedHashMap<>();
+    private final List<Double> constants = new ArrayList<>();
+    private final Map<Long, Integer> constantIndex = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<Statement> fallbacks = new ArrayList<>();
+    private final List<String> fallbackLines = new ArrayList<>();
+    private final List<String> fallbackPaths = new ArrayList<>();
+    private int loopCount;
+    private int temps;
+    private int maxTemps;
+    private int currentLine;
+
+    private VMCompiler(Interpreter interpreter) {
+        this.interpreter = interpreter;
+        this.program = interpreter.getProgram();
+        this.blockMatch = interpreter.getBlockMatch();
+        this.caseChain = interpreter.getCaseChain();
+        this.forOfNext = new int[program.length];
+        this.loopRegisters = new int[program.length];
+        this.lineStarts = new int[program.length];
+    }
+
+    /**
+     * Compile the program currently loaded into the interpreter
+     *
+     * @throws UnsupportedOperationException if the VM cannot run the program
+     */
+    public static VMProgram compile(Interpreter interpreter) {
+        return new VMCompiler(interpreter).generate();
+    }
+
+    private VMProgram generate() {
+        pairForLoops();
+
+        for (int i = 0; i < program.length; i++) {
+            currentLine = i;
+            lineStarts[i] = size;
+            temps = 0;
+            try {
+                statement(program[i], i, "", false);
+            } catch (UnsupportedOperationException e) {
+                throw unsupported(e.getMessage());
+            }
+        }
+        int end = size;
+        emit(VM.HALT);
+
+        // Line operands become instruction addresses; past the last line is the final HALT
+        for (int at : lineTargets) {
+            int line = code[at];
+            code[at] = line < 0 ? line : line < program.length ? lineStarts[line] : end;
+        }
+        relocate();
+
+        String[] lineNames = new String[program.length];
+        for (int i = 0; i < program.length; i++) {
+            lineNames[i] = interpreter.describeLine(i);
+        }
+        double[] constantValues = new double[constants.size()];
+        for (int i = 0; i < constantValues.length; i++) {
+            constantValues[i] = constants.get(i);
+        }
+
+        VMProgram compiled = new VMProgram(Arrays.copyOf(code, size), constantValues,
+            strings.toArray(new String[0]), variables.keySet().toArray(new String[0]),
+            arrays.keySet().toArray(new String[0]), variables.size() + 2 * loopCount,
+            variables.size() + 2 * loopCount + constants.size() + maxTemps,
+            lineStarts, lineNames, fallbackLines.toArray(new String[0]), fallbackPaths.toArray(new String[0]),
+            interpreter.getDataStatements());
+        compiled.fallbackStatements = fallbacks.toArray(new Statement[0]);
+        return compiled;
+    }
+
+    // NEXT continues the innermost FOR still open before it in the source
+    private void pairForLoops() {
+        Arrays.fill(forOfNext, -1);
+        Deque<Integer> open = new ArrayDeque<>();
+        for (int i = 0; i < program.length; i++) {
+            currentLine = i;
+            if (program[i] instanceof ForStmt) {
+                open.push(i);
+                loopRegisters[i] = LOOP | 2 * loopCount++;
+            } else if (program[i] instanceof NextStmt) {
+                if (open.isEmpty()) {
+                    throw unsupported("NEXT without FOR");
+                }
+                forOfNext[i] = open.pop();
+            }
+        }
+    }
+
+    /**
+     * Emit the code for one statement. Nested statements are the branches
+     * of a single-line IF, reached from the line through path.
+     */
+    private void statement(Statement stmt, int line, String path, boolean nested) {
+        if (stmt instanceof NoOpStmt || stmt instanceof EndIfStmt || stmt instanceof EndSelectStmt) {
+            return;
+        }
+
+        if (stmt instanceof GotoStmt) {
+            int target = ((GotoStmt) stmt).targetIndex;
+            if (target >= 0) {
+                emit(VM.JMP);
+                emitLine(target);
+            }
+        } else if (stmt instanceof GosubStmt) {
+            // An unresolved GOSUB still pushes its return line, like the interpreter
+            int target = ((GosubStmt) stmt).targetIndex;
+            emit(VM.GOSUB);
+            emitLine(target >= 0 ? target : line + 1);
+            emitLine(line + 1);
+        } else if (stmt instanceof OnGotoStmt) {
+            OnGotoStmt on = (OnGotoStmt) stmt;
+            int selector = expression(on.selector);
+            emit(VM.ON, selector, on.isGosub ? 1 : 0, on.targetIndices.length);
+            emitLine(line + 1);
+            for (int target : on.targetIndices) {
+                emitLine(target);
+            }
+        } else if (stmt instanceof ReturnStmt) {
+            emit(VM.RETURN);
+        } else if (stmt instanceof EndStmt) {
+            emit(VM.HALT);
+        } else if (stmt instanceof RestoreStmt) {
+            emit(VM.RESTORE, ((RestoreStmt) stmt).dataOffset);
+        } else if (stmt instanceof IfStmt) {
+            ifStatement((IfStmt) stmt, line, path, nested);
+        } else if (nested && isBlockStatement(stmt)) {
+            throw new UnsupportedOperationException(statementName(stmt) + " inside a single-line IF");
+        } else if (stmt instanceof ElseStmt || stmt instanceof ElseIfStmt || stmt instanceof CaseStmt) {
+            // Reached at the end of the previous branch: skip to the end of the block
+            if (blockMatch[line] >= 0) {
+                emit(VM.JMP);
+                emitLine(blockMatch[line] + 1);
+            }
+        } else if (stmt instanceof ForStmt) {
+            ForStmt loop = (ForStmt) stmt;
+            int end = loopRegisters[line];
+            int start = expression(loop.start);
+            emit(VM.MOV, end, expression(loop.end));
+            emit(VM.MOV, end + 1, loop.step != null ? expression(loop.step) : constant(1.0));
+            emit(VM.SETV, variable(loop.varName), start);
+        } else if (stmt instanceof NextStmt) {
+            int forLine = forOfNext[line];
+            int end = loopRegisters[forLine];
+            emit(VM.FORNEXT, variable(((ForStmt) program[forLine]).varName), end, end + 1);
+            emitLine(forLine + 1);
+        } else if (stmt instanceof WhileStmt) {
+            if (blockMatch[line] >= 0) {
+                branch(VM.JZ, condition(((WhileStmt) stmt).condition), blockMatch[line] + 1);
+            }
+        } else if (stmt instanceof WendStmt) {
+            int start = blockMatch[line];
+            if (start < 0) {
+                throw new UnsupportedOperationException("WEND without WHILE");
+            }
+            branch(VM.JNZ, condition(((WhileStmt) program[start]).condition), start + 1);
+        } else if (stmt instanceof DoStmt) {
+            doStatement((DoStmt) stmt, line);
+        } else if (stmt instanceof LoopStmt) {
+            loopStatement((LoopStmt) stmt, line);
+        } else if (stmt instanceof SelectStmt) {
+            selectStatement((SelectStmt) stmt, line);
+        } else if (stmt instanceof ReadStmt) {
+            // DATA items are evaluated by the interpreter, which owns the DATA pointer
+            fallback(stmt, line, path);
+        } else {
+            simpleStatement(stmt, line, path);
+        }
+    }
+
+    // Statements that only compute and store, or that the interpreter runs for the VM
+    private void simpleStatement(Statement stmt, int line, String path) {
+        int mark = size;
+        int targets = lineTargets.size();
+        try {
+            if (stmt instanceof IncrementStmt) {
+                IncrementStmt inc = (IncrementStmt) stmt;
+                emit(VM.INC, variable(inc.varName), constant(inc.delta));
+            } else if (stmt instanceof LetStmt) {
+                LetStmt let = (LetStmt) stmt;
+                emit(VM.SETV, variable(let.varName), expression(let.value));
+            } else if (stmt instanceof ArrayLetStmt) {
+                ArrayLetStmt let = (ArrayLetStmt) stmt;
+                int index = expression(singleIndex(let.target));
+                int value = expression(let.value);
+                emit(VM.ASTORE, array(let.arrayName), index, value);
+            } else if (stmt instanceof DimStmt) {
+                DimStmt dim = (DimStmt) stmt;
+                if (dim.arrayName.endsWith("$")) {
+                    throw new UnsupportedOperationException("DIM of a string array");
+                }
+                if (dim.sizes.length != 1) {
+                    throw new UnsupportedOperationException("DIM of more than one dimension");
+                }
+                emit(VM.DIM, array(dim.arrayName), expression(dim.sizes[0]));
+            } else if (stmt instanceof PrintStmt) {
+                print((PrintStmt) stmt);
+            } else {
+                throw new UnsupportedOperationException(statementName(stmt));
+            }
+        } catch (UnsupportedOperationException e) {
+            size = mark;
+            lineTargets.subList(targets, lineTargets.size()).clear();
+            fallback(stmt, line, path);
+        }
+    }
+
+    private void fallback(Statement stmt, int line, String path) {
+        emit(VM.EXEC, fallbacks.size(), line);
+        fallbacks.add(stmt);
+        fallbackLines.add(interpreter.getLineCode(line));
+        fallbackPaths.add(path);
+    }
+
+    private void print(PrintStmt stmt) {
+        for (PrintStmt.Item item : stmt.items) {
+            switch (item.kind) {
+                case LITERAL:
+                    emit(VM.PRINTS, string(item.text));
+                    break;
+                case NUMBER:
+                    emit(VM.PRINTN, expression(item.node));
+                    break;
+                default:
+                    throw new UnsupportedOperationException("PRINT of a string expression");
+            }
+            if (item.spaceAfter) {
+                emit(VM.PRINTS, string(" "));
+            }
+        }
+        if (stmt.newline) {
+            emit(VM.PRINTLN);
+        }
+    }
+
+    private void ifStatement(IfStmt stmt, int line, String path, boolean nested) {
+        int condition = ifCondition(stmt.condition, stmt.conditionNode);
+
+        if (stmt.isBlock()) {
+            if (nested) {
+                throw new UnsupportedOperationException("block IF inside a single-line IF");
+            }
+            branch(VM.JNZ, condition, line + 1);
+
+            // Into the first ELSEIF that holds, else the ELSE; without one past END IF, or the program ends
+            int target = blockMatch[line] >= 0 ? blockMatch[line] + 1 : program.length;
+            for (int b = caseChain[line]; b >= 0; b = caseChain[b]) {
+                if (program[b] instanceof ElseStmt) {
+                    target = b + 1;
+                    break;
+                }
+                ElseIfStmt elseIf = (ElseIfStmt) program[b];
+                temps = 0;
+                branch(VM.JNZ, ifCondition(elseIf.condition, elseIf.conditionNode), b + 1);
+            }
+            emit(VM.JMP);
+            emitLine(target);
+            return;
+        }
+
+        emit(VM.JZ, condition, 0);
+        int skipThen = size - 1;
+        statement(stmt.thenStmt, line, path + "T", true);
+        if (stmt.elseStmt != null) {
+            emit(VM.JMP, 0);
+            int skipElse = size - 1;
+            code[skipThen] = size;
+            statement(stmt.elseStmt, line, path + "E", true);
+            code[skipElse] = size;
+        } else {
+            code[skipThen] = size;
+        }
+    }
+
+    private void doStatement(DoStmt stmt, int line) {
+        int end = blockMatch[line];
+        if (end < 0 || stmt.condition == null || !(stmt.isWhile || stmt.isUntil)) {
+            return;
+        }
+        branch(stmt.isWhile ? VM.JZ : VM.JNZ, expression(stmt.condition), end + 1);
+    }
+
+    // Mirrors Interpreter.executeLoop, including which condition it falls back to
+    private void loopStatement(LoopStmt stmt, int line) {
+        int start = blockMatch[line];
+        if (start < 0) {
+            throw new UnsupportedOperationException("LOOP without DO");
+        }
+        DoStmt doStmt = (DoStmt) program[start];
+        ExpressionNode condition = doStmt.condition != null ? doStmt.condition : stmt.condition;
+
+        if (stmt.isWhile || stmt.isUntil) {
+            if (condition == null) return;
+            branch(stmt.isWhile ? VM.JNZ : VM.JZ, expression(condition), start + 1);
+        } else if (!doStmt.conditionText.isEmpty()) {
+            if (doStmt.condition == null || !(doStmt.isWhile || doStmt.isUntil)) return;
+            branch(doStmt.isWhile ? VM.JNZ : VM.JZ, expression(doStmt.condition), start + 1);
+        } else {
+            emit(VM.JMP);
+            emitLine(start + 1);
+        }
+    }
+
+    private void selectStatement(SelectStmt stmt, int line) {
+        // The interpreter keeps the value in a variable too
+        int value = variable("__SELECT_VALUE__");
+        emit(VM.SETV, value, expression(stmt.value));
+
+        for (int c = caseChain[line]; c >= 0; c = caseChain[c]) {
+            CaseStmt caseStmt = (CaseStmt) program[c];
+            if (caseStmt.isElse()) {
+                emit(VM.JMP);
+                emitLine(c + 1);
+                return;
+            }
+            temps = 0;
+            int caseValue = expression(caseStmt.value);
+            int match = temp();
+            emit(VM.APPROX_EQ, match, caseValue, value);
+            branch(VM.JNZ, match, c + 1);
+        }
+
+        // No CASE matched
+        if (blockMatch[line] >= 0) {
+            emit(VM.JMP);
+            emitLine(blockMatch[line] + 1);
+        }
+    }
+
+    /**
+     * Register holding the value of a numeric expression. Variables and
+     * constants are used in place; everything else lands in a temporary.
+     */
+    private int expression(ExpressionNode node) {
+        if (node instanceof JitExpressionNode) {
+            return expression(((JitExpressionNode) node).getSource());
+        }
+        if (node instanceof ConstantNode) {
+            return constant(((ConstantNode) node).getValue());
+        }
+        if (node instanceof VariableNode) {
+            return variable(((VariableNode) node).getVarName());
+        }
+        if (node instanceof UnaryOpNode) {
+            UnaryOpNode unary = (UnaryOpNode) node;
+            int mark = temps;
+            int operand = expression(unary.getOperand());
+            temps = mark;
+            int result = temp();
+            emit(unary.getOperator() == UnaryOpNode.UnaryOperator.NEGATE ? VM.NEG : VM.NOT, result, operand);
+            return result;
+        }
+        if (node instanceof BinaryOpNode) {
+            return binary((BinaryOpNode) node);
+        }
+        if (node instanceof PowerNode) {
+            return power((PowerNode) node);
+        }
+        if (node instanceof FunctionCallNode) {
+            return call((FunctionCallNode) node);
+        }
+        if (node instanceof ArrayAccessNode) {
+            ArrayAccessNode access = (ArrayAccessNode) node;
+            if (access.getIndices().isEmpty()) {
+                return constant(0.0);
+            }
+            int mark = temps;
+            int index = expression(singleIndex(access));
+            temps = mark;
+            int result = temp();
+            emit(VM.ALOAD, result, array(access.getArrayName()), index);
+            return result;
+        }
+        if (node instanceof IntegerNode) {
+            // NOT 0 or 7 AND 3: bitwise operations on constants fold to a constant
+            ExpressionNode folded = ExpressionOptimizer.optimize(node);
+            if (folded instanceof ConstantNode) {
+                return constant(((ConstantNode) folded).getValue());
+            }
+        }
+        throw new UnsupportedOperationException("expression " + node);
+    }
+
+    // ALOAD and ASTORE address one dimension; A(X, Y) is left to the interpreter
+    private static ExpressionNode singleIndex(ArrayAccessNode access) {
+        if (access.getIndices().size() != 1) {
+            throw new UnsupportedOperationException("array access with " + access.getIndices().size() + " indices");
+        }
+        return access.getIndices().get(0);
+    }
+
+    private int binary(BinaryOpNode node) {
+        int opcode;
+        switch (node.getOperator()) {
+            case ADD: opcode = VM.ADD; break;
+            case SUBTRACT: opcode = VM.SUB; break;
+            case MULTIPLY: opcode = VM.MUL; break;
+            case DIVIDE: opcode = VM.DIV; break;
+            case MODULO: opcode = VM.MOD; break;
+            case POWER: opcode = VM.POW; break;
+            case EQUAL: opcode = VM.EQ; break;
+            case APPROX_EQUAL: opcode = VM.APPROX_EQ; break;
+            case NOT_EQUAL: opcode = VM.NE; break;
+            case LESS_THAN: opcode = VM.LT; break;
+            case GREATER_THAN: opcode = VM.GT; break;
+            case LESS_EQUAL: opcode = VM.LE; break;
+            case GREATER_EQUAL: opcode = VM.GE; break;
+            case AND: return logical(node, VM.AND, VM.JZ);
+            case OR: return logical(node, VM.OR, VM.JNZ);
+            default: throw new UnsupportedOperationException("operator " + node.getOperator());
+        }
+
+        int mark = temps;
+        int left = expression(node.getLeft());
+        int right = expression(node.getRight());
+        temps = mark;
+        int result = temp();
+        emit(opcode, result, left, right);
+        return result;
+    }
+
+    // Squares and multiplies in the order of PowerNode.power; the base stays
+    // in its own register, so the result goes in a temporary above it
+    private int power(PowerNode node) {
+        int n = node.getExponent();
+        int base = expression(node.getBase());
+        int result = temp();
+        int bit = Integer.highestOneBit(n) >> 1;
+        emit(VM.MUL, result, base, base);
+        if ((n & bit) != 0) {
+            emit(VM.MUL, result, result, base);
+        }
+        for (bit >>= 1; bit != 0; bit >>= 1) {
+            emit(VM.MUL, result, result, result);
+            if ((n & bit) != 0) {
+                emit(VM.MUL, result, result, base);
+            }
+        }
+        return result;
+    }
+
+    // AND and OR jump over their right operand once the left one decides the result
+    private int logical(BinaryOpNode node, int opcode, int skip) {
+        int mark = temps;
+        int result = temp();
+        int left = expression(node.getLeft());
+        emit(opcode, result, left, left);  // 1.0 or 0.0
+        emit(skip, result, 0);
+        int skipRight = size - 1;
+        int right = expression(node.getRight());
+        emit(opcode, result, right, right);
+        code[skipRight] = size;
+        temps = mark + 1;
+        return result;
+    }
+
+    private int call(FunctionCallNode node) {
+        String name = node.getFunctionName();
+        int function = Arrays.asList(VM.FUNCTIONS).indexOf(name);
+        if (function < 0 && !name.equals("RND")) {
+            throw new UnsupportedOperationException("function " + name);
+        }
+
+        // Every argument is evaluated, only the first one is used
+        int mark = temps;
+        int first = -1;
+        for (ExpressionNode arg : node.getArguments()) {
+            int register = expression(arg);
+            if (first < 0) {
+                first = register;
+            }
+        }
+
+        if (name.equals("RND") && first >= 0) {
+            // RND(x) scales by x; the random number goes above every register the argument used
+            int random = temp();
+            emit(VM.RND, random);
+            temps = mark;
+            int result = temp();
+            emit(VM.MUL, result, first, random);
+            return result;
+        }
+        temps = mark;
+
+        if (first < 0 && function >= 0) {
+            return constant(0.0);
+        }
+        int result = temp();
+        if (name.equals("RND")) {
+            emit(VM.RND, result);
+        } else {
+            emit(VM.CALL, result, function, first);
+        }
+        return result;
+    }
+
+    // WHILE, DO and LOOP conditions are ASTs
+    private int condition(ExpressionNode node) {
+        return node != null ? expression(node) : constant(0.0);
+    }
+
+    /**
+     * IF and ELSEIF conditions without an AST, or with one the VM cannot
+     * run, are handed to the interpreter as text
+     */
+    private int ifCondition(String condition, ExpressionNode conditionNode) {
+        if (conditionNode != null) {
+            int mark = size;
+            int targets = lineTargets.size();
+            try {
+                return expression(conditionNode);
+            } catch (UnsupportedOperationException e) {
+                size = mark;
+                lineTargets.subList(targets, lineTargets.size()).clear();
+            }
+        }
+        int result = temp();
+        emit(VM.TESTC, result, string(condition));
+        return result;
+    }
+
+    private void branch(int opcode, int condition, int targetLine) {
+        emit(opcode, condition);
+        emitLine(targetLine);
+    }
+
+    private int variable(String name) {
+        if (VariableStore.isInteger(name)) {
+            // Registers hold doubles; integer variables stay with the interpreter
+            throw new UnsupportedOperationException("integer variable " + name);
+        }
+        Integer register = variables.get(name);
+        if (register == null) {
+            register = variables.size();
+            variables.put(name, register);
+        }
+        return register;
+    }
+
+    private int array(String name) {
+        Integer index = arrays.get(name);
+        if (index == null) {
+            index = arrays.size();
+            arrays.put(name, index);
+        }
+        return index;
+    }
+
+    private int constant(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = constantIndex.get(bits);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndex.put(bits, index);
+        }
+        return CONSTANT | index;
+    }
+
+    private int string(String value) {
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndex.put(value, index);
+        }
+        return index;
+    }
+
+    private int temp() {
+        int register = TEMP | temps++;
+        maxTemps = Math.max(maxTemps, temps);
+        return register;
+    }
+
+    private void emit(int... words) {
+        if (size + words.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + words.length));
+        }
+        System.arraycopy(words, 0, code, size, words.length);
+        size += words.length;
+    }
+
+    private void emitLine(int line) {
+        lineTargets.add(size);
+        emit(line);
+    }
+
+    // Tagged register operands -> final register numbers
+    private void relocate() {
+        int loopBase = variables.size();
+        int constantBase = loopBase + 2 * loopCount;
+        int tempBase = constantBase + constants.size();
+
+        for (int pc = 0; pc < size; ) {
+            int op = code[pc];
+            String format = VM.FORMATS[op];
+            if (op == VM.ON) {
+                format += "l".repeat(code[pc + 3]);
+            }
+            for (int i = 0; i < format.length(); i++) {
+                if (format.charAt(i) != 'r') {
+                    continue;
+                }
+                int operand = code[pc + 1 + i];
+                int index = operand & ~TAGS;
+                if ((operand & LOOP) != 0) {
+                    code[pc + 1 + i] = loopBase + index;
+                } else if ((operand & CONSTANT) != 0) {
+                    code[pc + 1 + i] = constantBase + index;
+                } else if ((operand & TEMP) != 0) {
+                    code[pc + 1 + i] = tempBase + index;
+                }
+            }
+            pc += 1 + format.length();
+        }
+    }
+
+    private static boolean isBlockStatement(Statement stmt) {
+        return stmt instanceof ElseStmt || stmt instanceof CaseStmt || stmt instanceof ForStmt ||
+            stmt instanceof NextStmt || stmt instanceof WhileStmt || stmt instanceof WendStmt ||
+            stmt instanceof DoStmt || stmt instanceof LoopStmt || stmt instanceof SelectStmt;
+    }
+
+    private static String statementName(Statement stmt) {
+        String name = stmt.getClass().getSimpleName();
+        return name.endsWith("Stmt") ? name.substring(0, name.length() - 4).toUpperCase() : name;
+    }
+
+    private UnsupportedOperationException unsupported(String what) {
+        return new UnsupportedOperationException(what + " at " + interpreter.describeLine(currentLine));
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * A BASIC program compiled for the register VM.
+ *
+ * Everything here is plain data, so a compiled program can be written to
+ * a stream and run later without the source:
+ *
+ * - code: the instruction stream, an opcode followed by its operands
+ * - constants: preloaded into the registers right after the variables
+ * - strings: PRINT literals, array names, IF conditions the VM cannot
+ *   compute and the source of the statements the VM hands back to the
+ *   interpreter
+ *
+ * Registers 0..variableNames.length-1 hold the numeric variables, then
+ * come the end and step of each FOR loop, the constants and finally the
+ * temporaries.
+ */
+public class VMProgram implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final int[] code;
+    final double[] constants;
+    final String[] strings;
+    final String[] variableNames;
+    final String[] arrayNames;
+    final int constantBase;          // Register of the first constant
+    final int registerCount;
+    final int[] lineStarts;          // Program line -> first instruction, for error messages
+    final String[] lineNames;        // Program line -> "line 10", "label LOOP", ...
+    final String[] fallbackLines;    // Fallback statement -> source line it was compiled from
+    final String[] fallbackPaths;    // ... and the way down to it: "T"/"E" per single-line IF branch
+    final List<String> data;
+    transient Statement[] fallbackStatements;  // Already compiled, unless read back from a stream
+
+    VMProgram(int[] code, double[] constants, String[] strings, String[] variableNames, String[] arrayNames,
+              int constantBase, int registerCount, int[] lineStarts, String[] lineNames, String[] fallbackLines,
+              String[] fallbackPaths, List<String> data) {
+        this.code = code;
+        this.constants = constants;
+        this.strings = strings;
+        this.variableNames = variableNames;
+        this.arrayNames = arrayNames;
+        this.constantBase = constantBase;
+        this.registerCount = registerCount;
+        this.lineStarts = lineStarts;
+        this.lineNames = lineNames;
+        this.fallbackLines = fallbackLines;
+        this.fallbackPaths = fallbackPaths;
+        this.data = new ArrayList<>(data);
+    }
+
+    /**
+     * Number of instruction words
+     */
+    public int getCodeSize() {
+        return code.length;
+    }
+
+    /**
+     * Number of statements run by the interpreter instead of the VM
+     */
+    public int getFallbackCount() {
+        return fallbackLines.length;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        ObjectOutputStream objects = new ObjectOutputStream(out);
+        objects.writeObject(this);
+        objects.flush();
+    }
+
+    public static VMProgram read(InputStream in) throws IOException {
+        try {
+            return (VMProgram) new ObjectInputStream(in).readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Not a compiled BASIC program", e);
+        }
+    }
+
+    /**
+     * Program line the instruction at pc belongs to
+     */
+    int lineAt(int pc) {
+        int line = Arrays.binarySearch(lineStarts, pc);
+        if (line < 0) {
+            line = -line - 2;
+        } else {
+            // Empty lines share their start with the next one
+            while (line + 1 < lineStarts.length && lineStarts[line + 1] == pc) {
+                line++;
+            }
+        }
+        return Math.max(0, Math.min(line, lineStarts.length - 1));
+    }
+}
@@ -2,17 +2,28 @@
  * Represents a reference to a variable (e.g., X, SCORE, COUNT)
  *
  * Variable name is stored uppercase for case-insensitive lookup.
- * Evaluation is a single hash map lookup - much faster than parsing!
+ * When the AST is built for a program, the name is resolved to a slot in
+ * the interpreter's VariableStore and evaluation is a single array read.
+ * Unbound nodes (slot -1) fall back to a lookup by name.
  */
 public class VariableNode implements ExpressionNode {
     private final String varName;  // Store uppercase name for lookup
+    private final int slot;
 
     public VariableNode(String varName) {
+        this(varName, -1);
+    }
+
+    public VariableNode(String varName, int slot) {
         this.varName = varName.toUpperCase();
+        this.slot = slot;
     }
 
     @Override
     public double evaluate(ExecutionContext context) {
+        if (slot >= 0) {
+            return context.getSlot(slot);
+        }
         Double value = context.getVariable(varName);
         return value != null ? value : 0.0;
     }
@@ -25,4 +36,8 @@ public class VariableNode implements ExpressionNode {
     public String getVarName() {
         return varName;
     }
+
+    public int getSlot() {
+        return slot;
+    }
 }
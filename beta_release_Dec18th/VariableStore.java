@@ -0,0 +1,280 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Slot-indexed storage for numeric variables.
+ *
+ * Variable names are resolved to integer slots once, when the program is
+ * compiled, and the values live in a primitive double[] owned by the
+ * interpreter thread. Reads and writes through a slot are a plain array
+ * access - no hashing, no boxing.
+ *
+ * Integer variables - names ending in %, or starting with a letter given
+ * to DEFINT - live in an int[] beside the doubles, at the same slot index.
+ * The compiler knows the type of every variable, so get/set and
+ * getInt/setInt never check it; assign() does, for the few statements
+ * (READ, INPUT, FOR) that store a double into either kind.
+ *
+ * asMap() exposes the same variables as a Map<String, Double> for the
+ * debugger, the legacy ExpressionParser and tests. Only variables that
+ * have been assigned show up in the map.
+ */
+public class VariableStore {
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private String[] names = new String[16];
+    private double[] values = new double[16];
+    private int[] ints = new int[16];
+    private boolean[] assigned = new boolean[16];
+    private int count = 0;
+    private final boolean[] integerLetters = new boolean[26];  // DEFINT A-Z
+    private final Map<String, Double> view = new MapView();
+    private long parseCount;  // Expressions ASTBuilder has parsed against these variables
+    private List<ASTBuilder.SyntaxError> syntaxErrors;  // While a program loads; null: report on stderr
+
+    /**
+     * Get the slot for a variable, allocating one on first use
+     */
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        return allocate(name);
+    }
+
+    private synchronized int allocate(String name) {
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+
+        if (count == values.length) {
+            int newSize = values.length * 2;
+            names = Arrays.copyOf(names, newSize);
+            values = Arrays.copyOf(values, newSize);
+            ints = Arrays.copyOf(ints, newSize);
+            assigned = Arrays.copyOf(assigned, newSize);
+        }
+        names[count] = name;
+        slots.put(name, count);
+        return count++;
+    }
+
+    public double get(int slot) {
+        return values[slot];
+    }
+
+    public void set(int slot, double value) {
+        values[slot] = value;
+        assigned[slot] = true;
+    }
+
+    public int getInt(int slot) {
+        return ints[slot];
+    }
+
+    public void setInt(int slot, int value) {
+        ints[slot] = value;
+        assigned[slot] = true;
+    }
+
+    /**
+     * Store into a slot of either type. Integer slots round the value
+     * as CINT does.
+     */
+    public void assign(int slot, double value) {
+        if (isInteger(names[slot])) {
+            setInt(slot, toInteger(value));
+        } else {
+            set(slot, value);
+        }
+    }
+
+    // Backing array, indexed by slot
+    double[] values() {
+        return values;
+    }
+
+    /**
+     * True for the name of an integer variable (after typedName)
+     */
+    public static boolean isInteger(String name) {
+        return name.endsWith("%");
+    }
+
+    /**
+     * The value an integer variable holds after assigning value to it:
+     * rounded to the nearest integer, ties to even, clamped to the int range
+     */
+    public static int toInteger(double value) {
+        return (int) Math.rint(value);
+    }
+
+    /**
+     * DEFINT first-last: plain names starting with these letters are
+     * integer variables from now on
+     */
+    public void defineIntegers(char first, char last) {
+        for (char c = Character.toUpperCase(first); c <= Character.toUpperCase(last); c++) {
+            if (c >= 'A' && c <= 'Z') {
+                integerLetters[c - 'A'] = true;
+            }
+        }
+    }
+
+    /**
+     * The name a variable is stored under: I is I% once DEFINT covers I,
+     * as in QBasic. Names with a type suffix are returned unchanged.
+     */
+    public String typedName(String name) {
+        if (name.isEmpty() || name.endsWith("%") || name.endsWith("$")) {
+            return name;
+        }
+        char first = name.charAt(0);
+        if (first >= 'A' && first <= 'Z' && integerLetters[first - 'A']) {
+            return name + "%";
+        }
+        return name;
+    }
+
+    /**
+     * Look up a variable by name (slow path, for code that was not compiled)
+     *
+     * @return the value, or null if the variable was never assigned
+     */
+    public Double get(String name) {
+        Integer slot = slots.get(typedName(name));
+        if (slot == null || !assigned[slot]) {
+            return null;
+        }
+        return valueAt(slot);
+    }
+
+    public void set(String name, double value) {
+        assign(slotOf(typedName(name)), value);
+    }
+
+    private double valueAt(int slot) {
+        return isInteger(names[slot]) ? ints[slot] : values[slot];
+    }
+
+    void countParse() {
+        parseCount++;
+    }
+
+    long getParseCount() {
+        return parseCount;
+    }
+
+    /**
+     * Collect the syntax errors of expressions built against these
+     * variables into the list, or report them on stderr again (null)
+     */
+    void collectSyntaxErrors(List<ASTBuilder.SyntaxError> errors) {
+        syntaxErrors = errors;
+    }
+
+    List<ASTBuilder.SyntaxError> getSyntaxErrors() {
+        return syntaxErrors;
+    }
+
+    /**
+     * Reset every variable to unassigned and forget DEFINT. Slots stay
+     * allocated so that already compiled code keeps pointing at the right
+     * variables.
+     */
+    public synchronized void clear() {
+        Arrays.fill(values, 0.0);
+        Arrays.fill(ints, 0);
+        Arrays.fill(assigned, false);
+        Arrays.fill(integerLetters, false);
+    }
+
+    public Map<String, Double> asMap() {
+        return view;
+    }
+
+    /**
+     * Live Map view over the slots. Iteration works on a snapshot taken
+     * when the iterator is created, in slot allocation order.
+     */
+    private class MapView extends AbstractMap<String, Double> {
+        @Override
+        public Double get(Object key) {
+            synchronized (VariableStore.this) {
+                return key instanceof String ? VariableStore.this.get((String) key) : null;
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Double put(String key, Double value) {
+            synchronized (VariableStore.this) {
+                Double old = VariableStore.this.get(key);
+                set(key, value);
+                return old;
+            }
+        }
+
+        @Override
+        public Double remove(Object key) {
+            synchronized (VariableStore.this) {
+                Double old = get(key);
+                if (old != null) {
+                    int slot = slots.get(typedName((String) key));
+                    values[slot] = 0.0;
+                    ints[slot] = 0;
+                    assigned[slot] = false;
+                }
+                return old;
+            }
+        }
+
+        @Override
+        public void clear() {
+            VariableStore.this.clear();
+        }
+
+        @Override
+        public int size() {
+            synchronized (VariableStore.this) {
+                int size = 0;
+                for (int i = 0; i < count; i++) {
+                    if (assigned[i]) size++;
+                }
+                return size;
+            }
+        }
+
+        @Override
+        public Set<Entry<String, Double>> entrySet() {
+            return new AbstractSet<Entry<String, Double>>() {
+                @Override
+                public Iterator<Entry<String, Double>> iterator() {
+                    return snapshot().iterator();
+                }
+
+                @Override
+                public int size() {
+                    return MapView.this.size();
+                }
+            };
+        }
+
+        private List<Entry<String, Double>> snapshot() {
+            synchronized (VariableStore.this) {
+                List<Entry<String, Double>> entries = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    if (assigned[i]) {
+                        entries.add(new SimpleImmutableEntry<>(names[i], valueAt(i)));
+                    }
+                }
+                return entries;
+            }
+        }
+    }
+}
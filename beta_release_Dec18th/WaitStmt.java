@@ -0,0 +1,13 @@
+/**
+ * WAIT seconds
+ */
+public class WaitStmt extends CommandStmt {
+    public WaitStmt(ExpressionNode[] args) {
+        super(args);
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeWait(this);
+    }
+}
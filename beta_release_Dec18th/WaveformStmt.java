@@ -0,0 +1,15 @@
+/**
+ * WAVEFORM "name"
+ */
+public class WaveformStmt implements Statement {
+    final String waveform;
+
+    public WaveformStmt(String waveform) {
+        this.waveform = waveform;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeWaveform(this);
+    }
+}
@@ -0,0 +1,9 @@
+/**
+ * WEND - closes a WHILE loop.
+ */
+public class WendStmt implements Statement {
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeWend(this);
+    }
+}
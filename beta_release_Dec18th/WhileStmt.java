@@ -0,0 +1,17 @@
+/**
+ * WHILE condition
+ */
+public class WhileStmt implements Statement {
+    final String conditionText;
+    final ExpressionNode condition;
+
+    public WhileStmt(String conditionText, ExpressionNode condition) {
+        this.conditionText = conditionText;
+        this.condition = condition;
+    }
+
+    @Override
+    public void execute(Interpreter interpreter) {
+        interpreter.executeWhile(this);
+    }
+}